@@ -3,12 +3,47 @@ package com.jcanseco.radio;
 import android.app.Application;
 import android.content.Context;
 
+import com.jcanseco.radio.avatars.AvatarMemoryCache;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.djwatch.DjWatcher;
+import com.jcanseco.radio.history.PlayHistoryStore;
 import com.jcanseco.radio.injection.components.DaggerMainComponent;
 import com.jcanseco.radio.injection.components.MainComponent;
 import com.jcanseco.radio.injection.modules.ApplicationModule;
+import com.jcanseco.radio.listeners.ListenerCountStore;
+import com.jcanseco.radio.memory.MemoryPressureCoordinator;
+import com.jcanseco.radio.nowplaying.NowPlayingPublisher;
+import com.jcanseco.radio.nowplaying.ScreenStateBroadcastReceiver;
+import com.jcanseco.radio.ui.widget.NowPlayingWidgetUpdater;
+
+import javax.inject.Inject;
 
 public class MainApplication extends Application {
 
+    @Inject
+    MemoryPressureCoordinator memoryPressureCoordinator;
+
+    @Inject
+    DataUsageLedger dataUsageLedger;
+
+    @Inject
+    AvatarMemoryCache avatarMemoryCache;
+
+    @Inject
+    PlayHistoryStore playHistoryStore;
+
+    @Inject
+    ListenerCountStore listenerCountStore;
+
+    @Inject
+    NowPlayingPublisher nowPlayingPublisher;
+
+    @Inject
+    NowPlayingWidgetUpdater nowPlayingWidgetUpdater;
+
+    @Inject
+    DjWatcher djWatcher;
+
     private MainComponent mainComponent;
 
     @Override
@@ -16,6 +51,14 @@ public class MainApplication extends Application {
         super.onCreate();
 
         buildMainComponent();
+        mainComponent.inject(this);
+        dataUsageLedger.start();
+        memoryPressureCoordinator.register(avatarMemoryCache);
+        playHistoryStore.open();
+        listenerCountStore.open();
+        nowPlayingPublisher.subscribe(nowPlayingWidgetUpdater);
+        new ScreenStateBroadcastReceiver(nowPlayingPublisher).register(this);
+        djWatcher.onAppStarted();
     }
 
     private void buildMainComponent() {
@@ -24,6 +67,20 @@ public class MainApplication extends Application {
                 .build();
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        memoryPressureCoordinator.onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+
+        memoryPressureCoordinator.onLowMemory();
+    }
+
     public static MainApplication getInstance(Context context) {
         return (MainApplication) context.getApplicationContext();
     }
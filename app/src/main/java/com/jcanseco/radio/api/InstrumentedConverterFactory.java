@@ -0,0 +1,47 @@
+package com.jcanseco.radio.api;
+
+import com.jcanseco.radio.tracing.Tracer;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+// Retrofit parses on OkHttp's thread as soon as the headers are in, before the callback is posted, so this is the
+// only place that sees parsing start and finish. The body is read as it's parsed, so that's included too.
+public class InstrumentedConverterFactory extends Converter.Factory {
+
+    private final Converter.Factory delegate;
+
+    public InstrumentedConverterFactory(Converter.Factory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        final Converter<ResponseBody, ?> converter = delegate.responseBodyConverter(type, annotations, retrofit);
+        if (converter == null) {
+            return null;
+        }
+        return new Converter<ResponseBody, Object>() {
+            @Override
+            public Object convert(ResponseBody value) throws IOException {
+                long parseStartedAtMillis = System.currentTimeMillis();
+                Object result;
+                Tracer.beginSection("RadioRestService.parseResponse");
+                try {
+                    result = converter.convert(value);
+                } finally {
+                    Tracer.endSection();
+                }
+                if (result instanceof ParseTimestamped) {
+                    ((ParseTimestamped) result).setParseTimes(parseStartedAtMillis, System.currentTimeMillis());
+                }
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,7 @@
+package com.jcanseco.radio.api;
+
+// Implemented by response models that want to know when they were parsed, in System.currentTimeMillis() time.
+public interface ParseTimestamped {
+
+    void setParseTimes(long parseStartedAtMillis, long parseFinishedAtMillis);
+}
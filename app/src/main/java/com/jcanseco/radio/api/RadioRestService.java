@@ -3,6 +3,7 @@ package com.jcanseco.radio.api;
 import com.jcanseco.radio.constants.Constants;
 import com.jcanseco.radio.models.RadioContent;
 
+import okhttp3.OkHttpClient;
 import retrofit2.Call;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
@@ -15,10 +16,11 @@ public interface RadioRestService {
 
 
     class Factory {
-        public static RadioRestService create() {
+        public static RadioRestService create(OkHttpClient okHttpClient) {
             Retrofit retrofit = new Retrofit.Builder()
                     .baseUrl(Constants.Endpoints.BASE_URL)
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .client(okHttpClient)
+                    .addConverterFactory(new InstrumentedConverterFactory(GsonConverterFactory.create()))
                     .build();
             return retrofit.create(RadioRestService.class);
         }
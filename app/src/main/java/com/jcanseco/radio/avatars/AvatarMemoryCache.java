@@ -0,0 +1,87 @@
+package com.jcanseco.radio.avatars;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import com.jcanseco.radio.memory.MemoryPressure;
+import com.jcanseco.radio.memory.MemoryTrimmable;
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Gauge;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.squareup.picasso.Cache;
+
+// Picasso's memory cache, which only ever holds avatars already decoded down to the size they're shown at.
+public class AvatarMemoryCache implements Cache, MemoryTrimmable {
+
+    private final ByteSizedLruCache<Bitmap> bitmaps;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Gauge hitRatioGauge;
+
+    public AvatarMemoryCache(long maxSizeInBytes, MetricsRegistry metricsRegistry) {
+        this.bitmaps = new ByteSizedLruCache<Bitmap>(maxSizeInBytes) {
+            @Override
+            protected long getSizeInBytes(Bitmap bitmap) {
+                return getBitmapSizeInBytes(bitmap);
+            }
+        };
+        this.hitCounter = metricsRegistry.counter("avatars.memory_cache.hits");
+        this.missCounter = metricsRegistry.counter("avatars.memory_cache.misses");
+        this.hitRatioGauge = metricsRegistry.gauge("avatars.memory_cache.hit_ratio_percent");
+    }
+
+    @Override
+    public Bitmap get(String key) {
+        Bitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            hitCounter.increment();
+        } else {
+            missCounter.increment();
+        }
+        hitRatioGauge.set(100 * hitCounter.get() / (hitCounter.get() + missCounter.get()));
+        return bitmap;
+    }
+
+    @Override
+    public void set(String key, Bitmap bitmap) {
+        bitmaps.put(key, bitmap);
+    }
+
+    @Override
+    public int size() {
+        return (int) bitmaps.getSizeInBytes();
+    }
+
+    @Override
+    public int maxSize() {
+        return (int) bitmaps.getMaxSizeInBytes();
+    }
+
+    @Override
+    public void clear() {
+        bitmaps.trimToSize(0);
+    }
+
+    @Override
+    public void clearKeyUri(String keyPrefix) {
+        bitmaps.removeKeysStartingWith(keyPrefix);
+    }
+
+    @Override
+    public void onMemoryPressureChanged(MemoryPressure memoryPressure) {
+        // Trimming keeps the most recently used avatars, so the current DJ's survives anything short of high pressure.
+        if (memoryPressure.isAtLeast(MemoryPressure.HIGH)) {
+            clear();
+        } else if (memoryPressure.isAtLeast(MemoryPressure.MODERATE)) {
+            bitmaps.trimToSize(bitmaps.getMaxSizeInBytes() / 2);
+        }
+    }
+
+    static long getBitmapSizeInBytes(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= 19) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+}
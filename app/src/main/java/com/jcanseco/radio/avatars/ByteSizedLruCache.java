@@ -0,0 +1,78 @@
+package com.jcanseco.radio.avatars;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bounded by the bytes its values take up rather than by how many there are, since one avatar decoded for a large
+// screen can be the size of a dozen decoded for a small one.
+public abstract class ByteSizedLruCache<V> {
+
+    private final LinkedHashMap<String, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxSizeInBytes;
+    private long sizeInBytes;
+
+    public ByteSizedLruCache(long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    protected abstract long getSizeInBytes(V value);
+
+    public synchronized V get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, V value) {
+        long valueSizeInBytes = getSizeInBytes(value);
+        if (valueSizeInBytes > maxSizeInBytes) {
+            // It would push out everything else only to be evicted itself by the next put.
+            remove(key);
+            return;
+        }
+
+        V previousValue = entries.put(key, value);
+        if (previousValue != null) {
+            sizeInBytes -= getSizeInBytes(previousValue);
+        }
+        sizeInBytes += valueSizeInBytes;
+        trimToSize(maxSizeInBytes);
+    }
+
+    public synchronized void remove(String key) {
+        V value = entries.remove(key);
+        if (value != null) {
+            sizeInBytes -= getSizeInBytes(value);
+        }
+    }
+
+    public synchronized void removeKeysStartingWith(String keyPrefix) {
+        Iterator<Map.Entry<String, V>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, V> entry = iterator.next();
+            if (entry.getKey().startsWith(keyPrefix)) {
+                sizeInBytes -= getSizeInBytes(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void trimToSize(long targetSizeInBytes) {
+        Iterator<V> iterator = entries.values().iterator();
+        while (sizeInBytes > targetSizeInBytes && iterator.hasNext()) {
+            sizeInBytes -= getSizeInBytes(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    public synchronized int getNumOfEntries() {
+        return entries.size();
+    }
+}
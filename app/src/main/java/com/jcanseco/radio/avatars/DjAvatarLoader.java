@@ -0,0 +1,59 @@
+package com.jcanseco.radio.avatars;
+
+import android.widget.ImageView;
+
+import com.jcanseco.radio.R;
+import com.jcanseco.radio.loaders.RadioContentLoader;
+import com.jcanseco.radio.models.Dj;
+import com.jcanseco.radio.models.RadioContent;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+// Avatars are keyed by DJ id and always decoded down to the size they're shown at, so a prefetch and the load that
+// follows it land on the same memory cache entry.
+public class DjAvatarLoader implements RadioContentLoader.RadioContentSubscriber {
+
+    private static final int NO_DJ_ID = -1;
+
+    private final Picasso picasso;
+    private final int avatarSizeInPixels;
+
+    private int lastPrefetchedDjId = NO_DJ_ID;
+
+    public DjAvatarLoader(Picasso picasso, int avatarSizeInPixels) {
+        this.picasso = picasso;
+        this.avatarSizeInPixels = avatarSizeInPixels;
+    }
+
+    @Override
+    public void onRadioContentLoaded(RadioContent radioContent) {
+        prefetch(radioContent.getCurrentDj());
+    }
+
+    public synchronized void prefetch(Dj dj) {
+        if (dj == null || dj.getId() == lastPrefetchedDjId) {
+            return;
+        }
+        lastPrefetchedDjId = dj.getId();
+        createRequest(dj).fetch();
+    }
+
+    public void load(Dj dj, ImageView avatarView) {
+        // The previous DJ's avatar stays up until the new one is ready, rather than flashing empty in between.
+        createRequest(dj)
+                .noPlaceholder()
+                .error(R.drawable.radio_logo)
+                .into(avatarView);
+    }
+
+    private RequestCreator createRequest(Dj dj) {
+        return picasso.load(dj.getAvatarUrl())
+                .stableKey(getStableKey(dj))
+                .resize(avatarSizeInPixels, avatarSizeInPixels)
+                .centerCrop();
+    }
+
+    static String getStableKey(Dj dj) {
+        return "dj-avatar:" + dj.getId();
+    }
+}
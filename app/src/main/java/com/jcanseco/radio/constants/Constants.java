@@ -9,5 +9,6 @@ public final class Constants {
 
     public final class Actions {
         public static final String FAILED_TO_PLAY_RADIO_STREAM = "com.jcanseco.radio.constants.Constants.Actions.FAILED_TO_PLAY_RADIO_STREAM";
+        public static final String TOGGLE_PLAYBACK = "com.jcanseco.radio.constants.Constants.Actions.TOGGLE_PLAYBACK";
     }
 }
@@ -0,0 +1,45 @@
+package com.jcanseco.radio.datausage;
+
+// The budget only covers mobile data: that's what's capped on listeners' plans, and Wi-Fi use doesn't eat into it.
+public class DataBudget {
+
+    public static final long NO_BUDGET = 0;
+
+    private static final float NEARLY_EXHAUSTED_FRACTION = 0.8f;
+
+    private final DataBudgetStore dataBudgetStore;
+    private final DataUsageLedger dataUsageLedger;
+
+    public DataBudget(DataBudgetStore dataBudgetStore, DataUsageLedger dataUsageLedger) {
+        this.dataBudgetStore = dataBudgetStore;
+        this.dataUsageLedger = dataUsageLedger;
+    }
+
+    public long getDailyMobileBudgetInBytes() {
+        return dataBudgetStore.getDailyMobileBudgetInBytes();
+    }
+
+    public void setDailyMobileBudgetInBytes(long budgetInBytes) {
+        dataBudgetStore.setDailyMobileBudgetInBytes(budgetInBytes);
+    }
+
+    public long getMobileBytesUsedToday() {
+        return dataUsageLedger.getBytesUsedToday(NetworkType.MOBILE);
+    }
+
+    public DataBudgetState getState() {
+        long budgetInBytes = getDailyMobileBudgetInBytes();
+        if (budgetInBytes == NO_BUDGET || dataUsageLedger.getNetworkType() != NetworkType.MOBILE) {
+            return DataBudgetState.WITHIN_BUDGET;
+        }
+
+        long bytesUsedToday = getMobileBytesUsedToday();
+        if (bytesUsedToday >= budgetInBytes) {
+            return DataBudgetState.EXHAUSTED;
+        } else if (bytesUsedToday >= budgetInBytes * NEARLY_EXHAUSTED_FRACTION) {
+            return DataBudgetState.NEARLY_EXHAUSTED;
+        } else {
+            return DataBudgetState.WITHIN_BUDGET;
+        }
+    }
+}
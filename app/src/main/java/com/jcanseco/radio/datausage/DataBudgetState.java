@@ -0,0 +1,7 @@
+package com.jcanseco.radio.datausage;
+
+public enum DataBudgetState {
+    WITHIN_BUDGET,
+    NEARLY_EXHAUSTED,
+    EXHAUSTED
+}
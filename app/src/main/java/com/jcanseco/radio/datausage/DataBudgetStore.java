@@ -0,0 +1,23 @@
+package com.jcanseco.radio.datausage;
+
+import android.content.SharedPreferences;
+
+public class DataBudgetStore {
+
+    private static final String DAILY_MOBILE_BUDGET_KEY = "daily_mobile_budget_in_bytes";
+
+    private final SharedPreferences sharedPreferences;
+
+    public DataBudgetStore(SharedPreferences sharedPreferences) {
+        this.sharedPreferences = sharedPreferences;
+    }
+
+    // Zero means no budget.
+    public long getDailyMobileBudgetInBytes() {
+        return sharedPreferences.getLong(DAILY_MOBILE_BUDGET_KEY, 0);
+    }
+
+    public void setDailyMobileBudgetInBytes(long budgetInBytes) {
+        sharedPreferences.edit().putLong(DAILY_MOBILE_BUDGET_KEY, budgetInBytes).apply();
+    }
+}
@@ -0,0 +1,239 @@
+package com.jcanseco.radio.datausage;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import com.jcanseco.radio.diagnostics.Dumpable;
+import com.jcanseco.radio.tasks.DataUsageLedgerFlushTimerTask;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Timer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bytes are recorded from the loader and OkHttp threads, which only ever add to in-memory counters. A timer
+// thread appends what was recorded since its last run to one file per day, so those threads never wait on
+// the disk. Files are only appended to, which keeps a crash mid-write from losing the rest of the day.
+public class DataUsageLedger implements Dumpable {
+
+    private static final long FLUSH_INTERVAL_IN_MILLIS = 30 * 1000;
+    private static final int NUM_OF_DAYS_TO_KEEP = 31;
+    private static final String FILE_EXTENSION = ".log";
+
+    private static final TrafficCategory[] TRAFFIC_CATEGORIES = TrafficCategory.values();
+    private static final NetworkType[] NETWORK_TYPES = NetworkType.values();
+
+    private final File directory;
+    private final ConnectivityManager connectivityManager;
+
+    private final AtomicLongArray unflushedBytes = new AtomicLongArray(TRAFFIC_CATEGORIES.length * NETWORK_TYPES.length);
+    private final AtomicLongArray flushedBytesToday = new AtomicLongArray(TRAFFIC_CATEGORIES.length * NETWORK_TYPES.length);
+    private volatile NetworkType networkType = NetworkType.OTHER;
+
+    private String loadedDay;
+    private Timer timer;
+
+    public DataUsageLedger(File directory, ConnectivityManager connectivityManager) {
+        this.directory = directory;
+        this.connectivityManager = connectivityManager;
+    }
+
+    public synchronized void start() {
+        if (timer == null) {
+            timer = initNewTimer();
+            timer.schedule(new DataUsageLedgerFlushTimerTask(this), 0, FLUSH_INTERVAL_IN_MILLIS);
+        }
+    }
+
+    public void record(TrafficCategory trafficCategory, long numOfBytes) {
+        unflushedBytes.addAndGet(getIndex(trafficCategory, networkType), numOfBytes);
+    }
+
+    public void setNetworkType(NetworkType networkType) {
+        this.networkType = networkType;
+    }
+
+    public NetworkType getNetworkType() {
+        return networkType;
+    }
+
+    public long getBytesUsedToday(NetworkType networkType) {
+        long numOfBytes = 0;
+        for (TrafficCategory trafficCategory : TRAFFIC_CATEGORIES) {
+            numOfBytes += getBytesUsedToday(trafficCategory, networkType);
+        }
+        return numOfBytes;
+    }
+
+    public long getBytesUsedToday(TrafficCategory trafficCategory) {
+        long numOfBytes = 0;
+        for (NetworkType networkType : NETWORK_TYPES) {
+            numOfBytes += getBytesUsedToday(trafficCategory, networkType);
+        }
+        return numOfBytes;
+    }
+
+    public long getBytesUsedToday(TrafficCategory trafficCategory, NetworkType networkType) {
+        int index = getIndex(trafficCategory, networkType);
+        return flushedBytesToday.get(index) + unflushedBytes.get(index);
+    }
+
+    public synchronized void flush() {
+        // The broadcast only reaches the service, so the network type is also kept fresh from here.
+        NetworkType activeNetworkType = lookupActiveNetworkType();
+        if (activeNetworkType != null) {
+            networkType = activeNetworkType;
+        }
+
+        long now = getCurrentTimeInMillis();
+        String today = formatDay(now);
+        if (!today.equals(loadedDay)) {
+            loadDay(today);
+            deleteDaysOlderThan(formatDay(now - NUM_OF_DAYS_TO_KEEP * 24L * 60 * 60 * 1000));
+        }
+
+        StringBuilder lines = new StringBuilder();
+        for (TrafficCategory trafficCategory : TRAFFIC_CATEGORIES) {
+            for (NetworkType networkType : NETWORK_TYPES) {
+                int index = getIndex(trafficCategory, networkType);
+                long numOfBytes = unflushedBytes.getAndSet(index, 0);
+                if (numOfBytes > 0) {
+                    flushedBytesToday.addAndGet(index, numOfBytes);
+                    lines.append(now).append(' ').append(trafficCategory).append(' ').append(networkType).append(' ')
+                            .append(numOfBytes).append('\n');
+                }
+            }
+        }
+
+        if (lines.length() > 0) {
+            append(getDayFile(today), lines.toString());
+        }
+    }
+
+    private void loadDay(String day) {
+        for (int i = 0; i < flushedBytesToday.length(); i++) {
+            flushedBytesToday.set(i, 0);
+        }
+        loadedDay = day;
+
+        File dayFile = getDayFile(day);
+        if (!dayFile.exists()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(dayFile), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                loadLine(line);
+            }
+        } catch (IOException e) {
+            // Whatever was read so far still counts.
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private void loadLine(String line) {
+        String[] fields = line.split(" ");
+        if (fields.length != 4) {
+            // A line cut short by the process dying mid-write.
+            return;
+        }
+        try {
+            int index = getIndex(TrafficCategory.valueOf(fields[1]), NetworkType.valueOf(fields[2]));
+            flushedBytesToday.addAndGet(index, Long.parseLong(fields[3]));
+        } catch (IllegalArgumentException e) {
+            // Same as above. NumberFormatException is an IllegalArgumentException too.
+        }
+    }
+
+    private void deleteDaysOlderThan(String oldestDayToKeep) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(FILE_EXTENSION) && name.compareTo(oldestDayToKeep + FILE_EXTENSION) < 0) {
+                file.delete();
+            }
+        }
+    }
+
+    private void append(File file, String lines) {
+        FileOutputStream outputStream = null;
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                return;
+            }
+            outputStream = new FileOutputStream(file, true);
+            outputStream.write(lines.getBytes("UTF-8"));
+        } catch (IOException e) {
+            // The usage still counts for today's budget, it's just not persisted.
+        } finally {
+            closeQuietly(outputStream);
+        }
+    }
+
+    private File getDayFile(String day) {
+        return new File(directory, day + FILE_EXTENSION);
+    }
+
+    private static String formatDay(long timeInMillis) {
+        // Days are the listener's own, which is what a daily budget means to them.
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date(timeInMillis));
+    }
+
+    private static int getIndex(TrafficCategory trafficCategory, NetworkType networkType) {
+        return trafficCategory.ordinal() * NETWORK_TYPES.length + networkType.ordinal();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing left to do with it.
+            }
+        }
+    }
+
+    protected NetworkType lookupActiveNetworkType() {
+        NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
+        if (activeNetworkInfo == null || !activeNetworkInfo.isConnected()) {
+            return null;
+        }
+        return NetworkType.fromConnectivityType(activeNetworkInfo.getType());
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+
+    protected Timer initNewTimer() {
+        return new Timer("DataUsageLedger", true);
+    }
+
+    @Override
+    public void dumpState(PrintWriter writer) {
+        writer.println("DataUsageLedger");
+        for (TrafficCategory trafficCategory : TRAFFIC_CATEGORIES) {
+            writer.printf("  %s today:", trafficCategory);
+            for (NetworkType networkType : NETWORK_TYPES) {
+                writer.printf(" %s %d bytes", networkType, getBytesUsedToday(trafficCategory, networkType));
+            }
+            writer.println();
+        }
+        writer.printf("  current network: %s%n", networkType);
+    }
+}
@@ -0,0 +1,25 @@
+package com.jcanseco.radio.datausage;
+
+import android.net.ConnectivityManager;
+
+public enum NetworkType {
+    WIFI,
+    MOBILE,
+    OTHER;
+
+    public static NetworkType fromConnectivityType(int connectivityType) {
+        switch (connectivityType) {
+            case ConnectivityManager.TYPE_WIFI:
+                return WIFI;
+            case ConnectivityManager.TYPE_MOBILE:
+            case ConnectivityManager.TYPE_MOBILE_DUN:
+            case ConnectivityManager.TYPE_MOBILE_HIPRI:
+            case ConnectivityManager.TYPE_MOBILE_MMS:
+            case ConnectivityManager.TYPE_MOBILE_SUPL:
+            case ConnectivityManager.TYPE_WIMAX:
+                return MOBILE;
+            default:
+                return OTHER;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.jcanseco.radio.datausage;
+
+public enum TrafficCategory {
+    STREAM,
+    API,
+    IMAGES,
+    DJ_WATCH
+}
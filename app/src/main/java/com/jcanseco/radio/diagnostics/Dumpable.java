@@ -0,0 +1,9 @@
+package com.jcanseco.radio.diagnostics;
+
+import java.io.PrintWriter;
+
+// Whatever the service prints under `adb shell dumpsys activity service .services.RadioPlayerService`.
+public interface Dumpable {
+
+    void dumpState(PrintWriter writer);
+}
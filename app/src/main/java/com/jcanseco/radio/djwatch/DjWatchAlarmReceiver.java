@@ -0,0 +1,33 @@
+package com.jcanseco.radio.djwatch;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import com.jcanseco.radio.MainApplication;
+
+import javax.inject.Inject;
+
+// Only used before Lollipop. The alarm's wake lock is held until the pending result is finished, so the device
+// stays awake for the poll and no longer.
+public class DjWatchAlarmReceiver extends BroadcastReceiver {
+
+    @Inject
+    DjWatcher djWatcher;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        MainApplication.getInstance(context).getMainComponent().inject(this);
+        final PendingResult pendingResult = goAsync();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    djWatcher.scheduleNextPoll(djWatcher.poll());
+                } finally {
+                    pendingResult.finish();
+                }
+            }
+        }, "DjWatcher").start();
+    }
+}
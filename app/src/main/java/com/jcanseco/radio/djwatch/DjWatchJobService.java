@@ -0,0 +1,56 @@
+package com.jcanseco.radio.djwatch;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.jcanseco.radio.MainApplication;
+
+import javax.inject.Inject;
+
+@TargetApi(21)
+public class DjWatchJobService extends JobService {
+
+    @Inject
+    DjWatcher djWatcher;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        MainApplication.getInstance(this).getMainComponent().inject(this);
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long nextPollDelayInMillis = DjWatcher.NO_NEXT_POLL;
+                try {
+                    nextPollDelayInMillis = djWatcher.poll();
+                } finally {
+                    jobFinished(params, false);
+                }
+                // jobFinished() hands over to the main thread, so scheduling from there as well puts the next job
+                // after this one has finished, instead of replacing it while it's still running.
+                final long delayInMillis = nextPollDelayInMillis;
+                mainThreadHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        djWatcher.scheduleNextPoll(delayInMillis);
+                    }
+                });
+            }
+        }, "DjWatcher").start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The poll can't be interrupted, and the next one is scheduled when it's done.
+        return false;
+    }
+}
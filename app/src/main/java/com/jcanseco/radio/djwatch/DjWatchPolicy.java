@@ -0,0 +1,49 @@
+package com.jcanseco.radio.djwatch;
+
+import com.jcanseco.radio.models.NowPlayingTrack;
+
+import java.util.concurrent.TimeUnit;
+
+// How long the watcher sleeps between polls. DJs come on between tracks, so a poll is lined up with a track boundary
+// inside the window for what's playing: a wide, late window while the automation plays, since a DJ coming on is the
+// exception, and a closer one while a DJ is live, since they hand over to each other and back to the automation.
+// The current track usually ends before the window opens, so the boundary is guessed by adding whole typical track
+// lengths to its end.
+public class DjWatchPolicy {
+
+    static final long AUTOMATION_MIN_DELAY_IN_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    static final long AUTOMATION_MAX_DELAY_IN_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    static final long LIVE_MIN_DELAY_IN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long LIVE_MAX_DELAY_IN_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    static final long FAILED_POLL_DELAY_IN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    static final long OVER_BUDGET_DELAY_IN_MILLIS = TimeUnit.MINUTES.toMillis(60);
+
+    static final long ESTIMATED_TRACK_LENGTH_IN_MILLIS = TimeUnit.MINUTES.toMillis(4);
+
+    // The API only moves on to the next track a few seconds after it has started.
+    static final long END_TIME_SLACK_IN_MILLIS = 5000;
+
+    public long getNextPollDelayInMillis(boolean isAfkStream, int remainingTrackTimeInSeconds, boolean isOverBudget) {
+        if (isOverBudget) {
+            return OVER_BUDGET_DELAY_IN_MILLIS;
+        }
+
+        long minDelayInMillis = isAfkStream ? AUTOMATION_MIN_DELAY_IN_MILLIS : LIVE_MIN_DELAY_IN_MILLIS;
+        long maxDelayInMillis = isAfkStream ? AUTOMATION_MAX_DELAY_IN_MILLIS : LIVE_MAX_DELAY_IN_MILLIS;
+        if (remainingTrackTimeInSeconds == NowPlayingTrack.INVALID_TIME_VALUE) {
+            return minDelayInMillis;
+        }
+
+        long untilTrackEndsInMillis = remainingTrackTimeInSeconds * 1000L + END_TIME_SLACK_IN_MILLIS;
+        if (untilTrackEndsInMillis < minDelayInMillis) {
+            long tracksToSkip = (minDelayInMillis - untilTrackEndsInMillis + ESTIMATED_TRACK_LENGTH_IN_MILLIS - 1)
+                    / ESTIMATED_TRACK_LENGTH_IN_MILLIS;
+            untilTrackEndsInMillis += tracksToSkip * ESTIMATED_TRACK_LENGTH_IN_MILLIS;
+        }
+        return Math.min(maxDelayInMillis, untilTrackEndsInMillis);
+    }
+
+    public long getFailedPollDelayInMillis(boolean isOverBudget) {
+        return isOverBudget ? OVER_BUDGET_DELAY_IN_MILLIS : FAILED_POLL_DELAY_IN_MILLIS;
+    }
+}
@@ -0,0 +1,85 @@
+package com.jcanseco.radio.djwatch;
+
+import android.annotation.TargetApi;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+
+// JobScheduler where there is one, since it only runs the poll once there's a network and batches the wakeup with
+// other apps'. Older versions get an inexact alarm, which the system batches too from KitKat on.
+public class DjWatchScheduler {
+
+    private static final int JOB_ID = 1;
+
+    private final Context context;
+
+    public DjWatchScheduler(Context context) {
+        this.context = context;
+    }
+
+    public void schedule(long delayInMillis) {
+        if (Build.VERSION.SDK_INT >= 21) {
+            scheduleJob(delayInMillis);
+        } else {
+            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP, SystemClock.elapsedRealtime() + delayInMillis,
+                    createAlarmIntent(PendingIntent.FLAG_UPDATE_CURRENT));
+        }
+    }
+
+    @TargetApi(21)
+    private void scheduleJob(long delayInMillis) {
+        JobInfo jobInfo = new JobInfo.Builder(JOB_ID, new ComponentName(context, DjWatchJobService.class))
+                .setMinimumLatency(delayInMillis)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setPersisted(true)
+                .build();
+        getJobScheduler().schedule(jobInfo);
+    }
+
+    public void cancel() {
+        if (Build.VERSION.SDK_INT >= 21) {
+            getJobScheduler().cancel(JOB_ID);
+        } else {
+            PendingIntent alarmIntent = createAlarmIntent(PendingIntent.FLAG_NO_CREATE);
+            if (alarmIntent != null) {
+                AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+                alarmManager.cancel(alarmIntent);
+                alarmIntent.cancel();
+            }
+        }
+    }
+
+    public boolean isScheduled() {
+        if (Build.VERSION.SDK_INT >= 21) {
+            return isJobScheduled();
+        }
+        return createAlarmIntent(PendingIntent.FLAG_NO_CREATE) != null;
+    }
+
+    @TargetApi(21)
+    private boolean isJobScheduled() {
+        for (JobInfo jobInfo : getJobScheduler().getAllPendingJobs()) {
+            if (jobInfo.getId() == JOB_ID) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @TargetApi(21)
+    private JobScheduler getJobScheduler() {
+        return (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    }
+
+    private PendingIntent createAlarmIntent(int flags) {
+        Intent intent = new Intent(context, DjWatchAlarmReceiver.class);
+        return PendingIntent.getBroadcast(context, 0, intent, flags);
+    }
+}
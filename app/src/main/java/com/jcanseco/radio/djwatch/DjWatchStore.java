@@ -0,0 +1,71 @@
+package com.jcanseco.radio.djwatch;
+
+import android.content.SharedPreferences;
+
+// Everything the watcher has to remember from one poll to the next, since the process is usually gone in between.
+public class DjWatchStore {
+
+    public static final int NO_DJ_ID = -1;
+
+    private static final String ENABLED_KEY = "enabled";
+    private static final String LAST_SEEN_DJ_ID_KEY = "last_seen_dj_id";
+    private static final String USAGE_DAY_KEY = "usage_day";
+    private static final String WAKEUPS_KEY = "wakeups";
+    private static final String BYTES_KEY = "bytes";
+    private static final String CPU_TIME_KEY = "cpu_time_in_millis";
+    private static final String PREVIOUS_DAY_PREFIX = "previous_day_";
+
+    private final SharedPreferences sharedPreferences;
+
+    public DjWatchStore(SharedPreferences sharedPreferences) {
+        this.sharedPreferences = sharedPreferences;
+    }
+
+    public boolean isEnabled() {
+        return sharedPreferences.getBoolean(ENABLED_KEY, false);
+    }
+
+    public void setEnabled(boolean isEnabled) {
+        sharedPreferences.edit().putBoolean(ENABLED_KEY, isEnabled).apply();
+    }
+
+    public int getLastSeenDjId() {
+        return sharedPreferences.getInt(LAST_SEEN_DJ_ID_KEY, NO_DJ_ID);
+    }
+
+    public void setLastSeenDjId(int djId) {
+        sharedPreferences.edit().putInt(LAST_SEEN_DJ_ID_KEY, djId).apply();
+    }
+
+    public DjWatchUsage getUsage() {
+        return readUsage("");
+    }
+
+    public DjWatchUsage getPreviousDayUsage() {
+        return readUsage(PREVIOUS_DAY_PREFIX);
+    }
+
+    // Moving on to a new day keeps the day before it, so there's always a full day to report.
+    public void setUsage(DjWatchUsage usage) {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        DjWatchUsage storedUsage = getUsage();
+        if (storedUsage.getDay() != null && !storedUsage.getDay().equals(usage.getDay())) {
+            writeUsage(editor, PREVIOUS_DAY_PREFIX, storedUsage);
+        }
+        writeUsage(editor, "", usage);
+        editor.apply();
+    }
+
+    private DjWatchUsage readUsage(String prefix) {
+        return new DjWatchUsage(sharedPreferences.getString(prefix + USAGE_DAY_KEY, null),
+                sharedPreferences.getInt(prefix + WAKEUPS_KEY, 0), sharedPreferences.getLong(prefix + BYTES_KEY, 0),
+                sharedPreferences.getLong(prefix + CPU_TIME_KEY, 0));
+    }
+
+    private static void writeUsage(SharedPreferences.Editor editor, String prefix, DjWatchUsage usage) {
+        editor.putString(prefix + USAGE_DAY_KEY, usage.getDay())
+                .putInt(prefix + WAKEUPS_KEY, usage.getNumOfWakeups())
+                .putLong(prefix + BYTES_KEY, usage.getNumOfBytes())
+                .putLong(prefix + CPU_TIME_KEY, usage.getCpuTimeInMillis());
+    }
+}
@@ -0,0 +1,58 @@
+package com.jcanseco.radio.djwatch;
+
+// What the watcher cost on one day, against the budget it's meant to stay within. Once it's over any part of the
+// budget it falls back to an hourly poll for the rest of the day.
+public class DjWatchUsage {
+
+    // A day of automation with the odd DJ set is a little over a hundred polls of a few KB each.
+    static final int TARGET_WAKEUPS_PER_DAY = 150;
+    static final long TARGET_BYTES_PER_DAY = 1024 * 1024;
+    static final long TARGET_CPU_TIME_PER_DAY_IN_MILLIS = 30 * 1000;
+
+    private final String day;
+    private final int numOfWakeups;
+    private final long numOfBytes;
+    private final long cpuTimeInMillis;
+
+    public DjWatchUsage(String day, int numOfWakeups, long numOfBytes, long cpuTimeInMillis) {
+        this.day = day;
+        this.numOfWakeups = numOfWakeups;
+        this.numOfBytes = numOfBytes;
+        this.cpuTimeInMillis = cpuTimeInMillis;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public int getNumOfWakeups() {
+        return numOfWakeups;
+    }
+
+    public long getNumOfBytes() {
+        return numOfBytes;
+    }
+
+    public long getCpuTimeInMillis() {
+        return cpuTimeInMillis;
+    }
+
+    // Usage from another day starts over from nothing.
+    public DjWatchUsage plusWakeup(String today, long numOfBytes, long cpuTimeInMillis) {
+        if (!today.equals(day)) {
+            return new DjWatchUsage(today, 1, numOfBytes, cpuTimeInMillis);
+        }
+        return new DjWatchUsage(day, numOfWakeups + 1, this.numOfBytes + numOfBytes, this.cpuTimeInMillis + cpuTimeInMillis);
+    }
+
+    public boolean isOverBudget(String today) {
+        return today.equals(day) && (numOfWakeups >= TARGET_WAKEUPS_PER_DAY || numOfBytes >= TARGET_BYTES_PER_DAY
+                || cpuTimeInMillis >= TARGET_CPU_TIME_PER_DAY_IN_MILLIS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d/%d wakeups, %d/%d bytes, %d/%d ms cpu", day, numOfWakeups, TARGET_WAKEUPS_PER_DAY,
+                numOfBytes, TARGET_BYTES_PER_DAY, cpuTimeInMillis, TARGET_CPU_TIME_PER_DAY_IN_MILLIS);
+    }
+}
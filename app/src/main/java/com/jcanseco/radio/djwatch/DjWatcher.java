@@ -0,0 +1,179 @@
+package com.jcanseco.radio.djwatch;
+
+import android.os.SystemClock;
+
+import com.jcanseco.radio.api.RadioRestService;
+import com.jcanseco.radio.datausage.DataBudget;
+import com.jcanseco.radio.datausage.DataBudgetState;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.datausage.TrafficCategory;
+import com.jcanseco.radio.diagnostics.Dumpable;
+import com.jcanseco.radio.models.Dj;
+import com.jcanseco.radio.models.NowPlayingTrack;
+import com.jcanseco.radio.models.RadioContent;
+import com.jcanseco.radio.notifications.DjLiveNotifier;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import retrofit2.Response;
+
+// Opt-in: polls the API in the background, with the app closed, and raises a notification when a live DJ comes on.
+// Each poll is a wakeup scheduled by the last one, and what every wakeup costs in bytes and CPU time is added up
+// per day, so the watcher can back off once it's over its daily budget.
+public class DjWatcher implements Dumpable {
+
+    public static final long NO_NEXT_POLL = -1;
+
+    private final RadioRestService radioRestService;
+    private final DjWatchStore djWatchStore;
+    private final DjWatchScheduler djWatchScheduler;
+    private final DjWatchPolicy djWatchPolicy;
+    private final DjLiveNotifier djLiveNotifier;
+    private final DataBudget dataBudget;
+    private final DataUsageLedger dataUsageLedger;
+
+    private long lastPollDelayInMillis = -1;
+
+    public DjWatcher(RadioRestService radioRestService, DjWatchStore djWatchStore, DjWatchScheduler djWatchScheduler,
+                     DjWatchPolicy djWatchPolicy, DjLiveNotifier djLiveNotifier, DataBudget dataBudget,
+                     DataUsageLedger dataUsageLedger) {
+        this.radioRestService = radioRestService;
+        this.djWatchStore = djWatchStore;
+        this.djWatchScheduler = djWatchScheduler;
+        this.djWatchPolicy = djWatchPolicy;
+        this.djLiveNotifier = djLiveNotifier;
+        this.dataBudget = dataBudget;
+        this.dataUsageLedger = dataUsageLedger;
+    }
+
+    public boolean isEnabled() {
+        return djWatchStore.isEnabled();
+    }
+
+    // The first poll after turning it on only takes note of who's on, so a DJ already live isn't announced.
+    public void setEnabled(boolean isEnabled) {
+        djWatchStore.setEnabled(isEnabled);
+        if (isEnabled) {
+            djWatchStore.setLastSeenDjId(DjWatchStore.NO_DJ_ID);
+            djWatchScheduler.schedule(0);
+        } else {
+            djWatchScheduler.cancel();
+        }
+    }
+
+    // Alarms don't survive a reboot, so the next time the app starts the watcher is put back on schedule.
+    public void onAppStarted() {
+        if (djWatchStore.isEnabled() && !djWatchScheduler.isScheduled()) {
+            djWatchScheduler.schedule(0);
+        }
+    }
+
+    // Blocks on the network, so it's only ever called from a background thread. Returns the delay until the next
+    // poll, which the caller schedules once it's done with this one: a job that schedules itself while still
+    // running gets stopped by the JobScheduler before Nougat.
+    public synchronized long poll() {
+        if (!djWatchStore.isEnabled()) {
+            return NO_NEXT_POLL;
+        }
+
+        long startCpuTimeInMillis = getThreadCpuTimeInMillis();
+        long startNumOfBytes = dataUsageLedger.getBytesUsedToday(TrafficCategory.DJ_WATCH);
+
+        // Near the end of the data budget the watcher leaves what's left to the player.
+        DataBudgetState dataBudgetState = dataBudget.getState();
+        boolean isWithinDataBudget = dataBudgetState == DataBudgetState.WITHIN_BUDGET;
+        RadioContent radioContent = null;
+        if (isWithinDataBudget) {
+            try {
+                radioContent = loadRadioContent();
+                if (radioContent != null) {
+                    onRadioContentLoaded(radioContent);
+                }
+            } catch (RuntimeException e) {
+                // A malformed response is tried again after a while like an error response, rather than leaving
+                // the watcher with nothing scheduled.
+                radioContent = null;
+            }
+        }
+
+        // Flushed now, since the process is likely to be gone soon after the poll.
+        dataUsageLedger.flush();
+        long numOfBytes = Math.max(0, dataUsageLedger.getBytesUsedToday(TrafficCategory.DJ_WATCH) - startNumOfBytes);
+        long cpuTimeInMillis = getThreadCpuTimeInMillis() - startCpuTimeInMillis;
+        String today = formatDay(getCurrentTimeInMillis());
+        DjWatchUsage usage = djWatchStore.getUsage().plusWakeup(today, numOfBytes, cpuTimeInMillis);
+        djWatchStore.setUsage(usage);
+
+        boolean isOverBudget = usage.isOverBudget(today) || !isWithinDataBudget;
+        NowPlayingTrack currentTrack = radioContent != null ? radioContent.getCurrentTrack() : null;
+        long nextPollDelayInMillis = currentTrack != null
+                ? djWatchPolicy.getNextPollDelayInMillis(radioContent.isAfkStream(), currentTrack.getRemainingTimeInSeconds(),
+                        isOverBudget)
+                : djWatchPolicy.getFailedPollDelayInMillis(isOverBudget);
+        lastPollDelayInMillis = nextPollDelayInMillis;
+        return nextPollDelayInMillis;
+    }
+
+    // Turning the watcher off while a poll was running cancels the poll's follow-up too.
+    public void scheduleNextPoll(long delayInMillis) {
+        if (delayInMillis != NO_NEXT_POLL && djWatchStore.isEnabled()) {
+            djWatchScheduler.schedule(delayInMillis);
+        }
+    }
+
+    private RadioContent loadRadioContent() {
+        try {
+            Response<RadioContent> response = radioRestService.getRadioContent().execute();
+            return response.isSuccess() ? response.body() : null;
+        } catch (IOException e) {
+            // No connection or a failed request, which is tried again after a while like an error response.
+            return null;
+        }
+    }
+
+    private void onRadioContentLoaded(RadioContent radioContent) {
+        Dj currentDj = radioContent.getCurrentDj();
+        if (currentDj == null) {
+            return;
+        }
+
+        int lastSeenDjId = djWatchStore.getLastSeenDjId();
+        if (currentDj.getId() == lastSeenDjId) {
+            return;
+        }
+        // The automation has a DJ id of its own, so going back to it counts as a change too, and the DJ coming
+        // back on after it is announced again.
+        if (!radioContent.isAfkStream() && lastSeenDjId != DjWatchStore.NO_DJ_ID) {
+            djLiveNotifier.notifyDjWentLive(currentDj);
+        }
+        djWatchStore.setLastSeenDjId(currentDj.getId());
+    }
+
+    @Override
+    public void dumpState(PrintWriter writer) {
+        String today = formatDay(getCurrentTimeInMillis());
+        DjWatchUsage usage = djWatchStore.getUsage();
+        writer.println("DjWatcher");
+        writer.printf("  enabled: %b, scheduled: %b, last seen dj: %d, last poll delay: %d ms%n", djWatchStore.isEnabled(),
+                djWatchScheduler.isScheduled(), djWatchStore.getLastSeenDjId(), lastPollDelayInMillis);
+        writer.printf("  today: %s%n", today.equals(usage.getDay()) ? usage : new DjWatchUsage(today, 0, 0, 0));
+        writer.printf("  previous day: %s%n", today.equals(usage.getDay()) ? djWatchStore.getPreviousDayUsage() : usage);
+    }
+
+    private static String formatDay(long timeInMillis) {
+        // Days are the listener's own, the same as for the data budget.
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date(timeInMillis));
+    }
+
+    protected long getThreadCpuTimeInMillis() {
+        return SystemClock.currentThreadTimeMillis();
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+}
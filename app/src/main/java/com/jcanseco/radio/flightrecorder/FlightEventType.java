@@ -0,0 +1,28 @@
+package com.jcanseco.radio.flightrecorder;
+
+public enum FlightEventType {
+    PROCESS_STARTED(null),
+    PLAY(null),
+    PAUSE(null),
+    PLAYER_STATE("play_when_ready"),
+    RESOURCE_STATE(null),
+    BUFFER_LEVEL("buffered_ms"),
+    BUFFERING_TIMED_OUT("buffered_ms"),
+    PLAYER_ERROR(null),
+    HANDOVER("duration_ms"),
+    RECONNECT("attempt"),
+    RECONNECT_FAILED("attempt"),
+    NETWORK_CHANGED("connectivity_type"),
+    MAIN_THREAD_STALL("stalled_ms");
+
+    private final String valueLabel;
+
+    FlightEventType(String valueLabel) {
+        this.valueLabel = valueLabel;
+    }
+
+    // What the event's value means in an export, or null when it carries none.
+    public String getValueLabel() {
+        return valueLabel;
+    }
+}
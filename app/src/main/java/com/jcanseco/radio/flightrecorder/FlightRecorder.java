@@ -0,0 +1,184 @@
+package com.jcanseco.radio.flightrecorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// A ring of fixed-size playback event records. Backed by a memory-mapped file, the records are in the page cache
+// as soon as they are written, so they outlive the process that wrote them and can be read back after a crash or a
+// kill. Recording claims a slot with a single atomic increment and writes into it without locking or allocating.
+//
+// Each record starts with its sequence number, which is cleared before the rest of the record is written and set
+// again last. An export skips a record whose sequence number changed while it was being read. The plain buffer
+// writes give another thread no ordering, so the same numbers are kept in an AtomicLongArray and that's what an
+// export checks; the copy in the buffer is only for finding the ring's end again after a restart.
+public class FlightRecorder {
+
+    private static final int RECORD_SIZE_IN_BYTES = 128;
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int TIME_OFFSET = 8;
+    private static final int VALUE_OFFSET = 16;
+    private static final int TYPE_OFFSET = 24;
+    private static final int DETAIL_LENGTH_OFFSET = 26;
+    private static final int DETAIL_OFFSET = 28;
+    private static final int MAX_DETAIL_LENGTH = RECORD_SIZE_IN_BYTES - DETAIL_OFFSET;
+
+    private static final FlightEventType[] EVENT_TYPES = FlightEventType.values();
+    private static final Charset DETAIL_CHARSET = Charset.forName("US-ASCII");
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final AtomicLong nextSequence;
+    private final AtomicLongArray sequences;
+
+    public FlightRecorder(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.capacity = buffer.capacity() / RECORD_SIZE_IN_BYTES;
+        if (capacity == 0) {
+            throw new IllegalArgumentException("The buffer can't hold a single record.");
+        }
+        this.sequences = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            sequences.set(slot, buffer.getLong(slot * RECORD_SIZE_IN_BYTES + SEQUENCE_OFFSET));
+        }
+        this.nextSequence = new AtomicLong(findLastSequence() + 1);
+    }
+
+    // Falls back to a ring that only lives as long as the process when the file can't be mapped.
+    public static FlightRecorder open(File file, int capacity) {
+        FlightRecorder flightRecorder = new FlightRecorder(map(file, getSizeInBytes(capacity)));
+        flightRecorder.record(FlightEventType.PROCESS_STARTED, 0);
+        return flightRecorder;
+    }
+
+    private static ByteBuffer map(File file, int sizeInBytes) {
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                // The mapping stays valid after the file is closed.
+                return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, sizeInBytes);
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            return ByteBuffer.allocate(sizeInBytes);
+        }
+    }
+
+    public static int getSizeInBytes(int capacity) {
+        return capacity * RECORD_SIZE_IN_BYTES;
+    }
+
+    private long findLastSequence() {
+        long lastSequence = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            lastSequence = Math.max(lastSequence, sequences.get(slot));
+        }
+        return lastSequence;
+    }
+
+    public void record(FlightEventType type, long value) {
+        record(type, value, null);
+    }
+
+    // Details longer than a record has room for are cut short. Only ASCII survives, anything else becomes '?'.
+    public void record(FlightEventType type, long value, String detail) {
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) (sequence % capacity);
+        int position = slot * RECORD_SIZE_IN_BYTES;
+
+        // A read-modify-write rather than a plain set, so none of the writes below can move ahead of the clear.
+        sequences.getAndSet(slot, 0);
+        buffer.putLong(position + SEQUENCE_OFFSET, 0);
+        buffer.putLong(position + TIME_OFFSET, getCurrentTimeInMillis());
+        buffer.putLong(position + VALUE_OFFSET, value);
+        buffer.putShort(position + TYPE_OFFSET, (short) type.ordinal());
+        int detailLength = detail != null ? Math.min(detail.length(), MAX_DETAIL_LENGTH) : 0;
+        buffer.putShort(position + DETAIL_LENGTH_OFFSET, (short) detailLength);
+        for (int i = 0; i < detailLength; i++) {
+            char c = detail.charAt(i);
+            buffer.put(position + DETAIL_OFFSET + i, (byte) (c >= 0x20 && c < 0x7F ? c : '?'));
+        }
+        buffer.putLong(position + SEQUENCE_OFFSET, sequence);
+        sequences.set(slot, sequence);
+    }
+
+    // One line per event, oldest first: "MM-dd HH:mm:ss.SSS TYPE [label=value] [detail]".
+    public void export(PrintWriter writer, long sinceTimeInMillis) {
+        long endSequence = nextSequence.get();
+        long startSequence = Math.max(1, endSequence - capacity);
+        SimpleDateFormat timeFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+        byte[] detail = new byte[MAX_DETAIL_LENGTH];
+
+        for (long sequence = startSequence; sequence < endSequence; sequence++) {
+            int slot = (int) (sequence % capacity);
+            int position = slot * RECORD_SIZE_IN_BYTES;
+            if (sequences.get(slot) != sequence) {
+                continue;
+            }
+            long timeInMillis = buffer.getLong(position + TIME_OFFSET);
+            long value = buffer.getLong(position + VALUE_OFFSET);
+            int typeOrdinal = buffer.getShort(position + TYPE_OFFSET);
+            int detailLength = Math.max(0, Math.min(buffer.getShort(position + DETAIL_LENGTH_OFFSET), MAX_DETAIL_LENGTH));
+            for (int i = 0; i < detailLength; i++) {
+                detail[i] = buffer.get(position + DETAIL_OFFSET + i);
+            }
+            // Likewise a read-modify-write, so none of the reads above can move past the check.
+            if (sequences.getAndAdd(slot, 0) != sequence
+                    || typeOrdinal < 0 || typeOrdinal >= EVENT_TYPES.length || timeInMillis < sinceTimeInMillis) {
+                continue;
+            }
+
+            FlightEventType type = EVENT_TYPES[typeOrdinal];
+            writer.print(timeFormat.format(new Date(timeInMillis)));
+            writer.print(' ');
+            writer.print(type);
+            if (type.getValueLabel() != null) {
+                writer.print(' ');
+                writer.print(type.getValueLabel());
+                writer.print('=');
+                writer.print(value);
+            }
+            if (detailLength > 0) {
+                writer.print(' ');
+                writer.print(new String(detail, 0, detailLength, DETAIL_CHARSET));
+            }
+            writer.println();
+        }
+        writer.flush();
+    }
+
+    // The exception and its causes, outermost first, for an event's detail.
+    public static String describe(Throwable throwable) {
+        StringBuilder description = new StringBuilder();
+        for (Throwable cause = throwable; cause != null && description.length() < MAX_DETAIL_LENGTH; cause = cause.getCause()) {
+            if (cause != throwable) {
+                description.append(" <- ");
+            }
+            description.append(cause.getClass().getSimpleName());
+            // Wrapping exceptions often repeat their cause as their message, which the next step already shows.
+            String message = cause.getMessage();
+            if (message != null && (cause.getCause() == null || !message.equals(cause.getCause().toString()))) {
+                description.append(": ").append(message);
+            }
+        }
+        return description.toString();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+}
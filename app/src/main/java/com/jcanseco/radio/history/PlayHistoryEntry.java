@@ -0,0 +1,20 @@
+package com.jcanseco.radio.history;
+
+public class PlayHistoryEntry {
+
+    private final String title;
+    private final long timestampInUnixTime;
+
+    public PlayHistoryEntry(String title, long timestampInUnixTime) {
+        this.title = title;
+        this.timestampInUnixTime = timestampInUnixTime;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getTimestampInUnixTime() {
+        return timestampInUnixTime;
+    }
+}
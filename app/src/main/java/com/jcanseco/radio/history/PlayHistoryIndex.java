@@ -0,0 +1,180 @@
+package com.jcanseco.radio.history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Every distinct title is kept once and referred to by id, since the same few thousand songs make up almost all of a
+// year's plays. Plays are two parallel primitive arrays sorted by timestamp, and each word of a title points at the
+// ids of the titles it's in, so a search only looks at the plays of titles that match all its words.
+// Not thread-safe: PlayHistoryStore only touches it from one thread at a time.
+class PlayHistoryIndex {
+
+    static final int NO_TITLE_ID = -1;
+
+    private final List<String> titles = new ArrayList<>();
+    private final Map<String, Integer> titleIds = new HashMap<>();
+    private final Map<String, IntList> titleIdsByToken = new HashMap<>();
+
+    private int[] playTitleIds = new int[1024];
+    private long[] playTimestamps = new long[1024];
+    private int numOfPlays;
+
+    int findTitleId(String title) {
+        Integer titleId = titleIds.get(title);
+        return titleId != null ? titleId : NO_TITLE_ID;
+    }
+
+    int addTitle(String title) {
+        int titleId = titles.size();
+        titles.add(title);
+        titleIds.put(title, titleId);
+        for (String token : tokenize(title)) {
+            IntList tokenTitleIds = titleIdsByToken.get(token);
+            if (tokenTitleIds == null) {
+                tokenTitleIds = new IntList();
+                titleIdsByToken.put(token, tokenTitleIds);
+            }
+            // Ids only ever grow, so each list stays sorted, and a token repeated in a title is only added once.
+            if (tokenTitleIds.size == 0 || tokenTitleIds.get(tokenTitleIds.size - 1) != titleId) {
+                tokenTitleIds.add(titleId);
+            }
+        }
+        return titleId;
+    }
+
+    String getTitle(int titleId) {
+        return titles.get(titleId);
+    }
+
+    int getNumOfTitles() {
+        return titles.size();
+    }
+
+    // Returns false if the play is already in the index.
+    boolean addPlay(int titleId, long timestampInUnixTime) {
+        // Nearly every play is newer than all the others, so the search for its place starts and ends at the end.
+        int index = numOfPlays;
+        while (index > 0 && playTimestamps[index - 1] > timestampInUnixTime) {
+            index--;
+        }
+        for (int i = index - 1; i >= 0 && playTimestamps[i] == timestampInUnixTime; i--) {
+            if (playTitleIds[i] == titleId) {
+                return false;
+            }
+        }
+
+        if (numOfPlays == playTitleIds.length) {
+            playTitleIds = Arrays.copyOf(playTitleIds, numOfPlays * 2);
+            playTimestamps = Arrays.copyOf(playTimestamps, numOfPlays * 2);
+        }
+        System.arraycopy(playTitleIds, index, playTitleIds, index + 1, numOfPlays - index);
+        System.arraycopy(playTimestamps, index, playTimestamps, index + 1, numOfPlays - index);
+        playTitleIds[index] = titleId;
+        playTimestamps[index] = timestampInUnixTime;
+        numOfPlays++;
+        return true;
+    }
+
+    int getNumOfPlays() {
+        return numOfPlays;
+    }
+
+    int getPlayTitleId(int playIndex) {
+        return playTitleIds[playIndex];
+    }
+
+    long getPlayTimestamp(int playIndex) {
+        return playTimestamps[playIndex];
+    }
+
+    // Newest first. Every word of the query has to be a word of the title.
+    List<PlayHistoryEntry> search(String query, int maxNumOfResults) {
+        boolean[] isTitleMatched = findMatchingTitles(tokenize(query));
+        if (isTitleMatched == null) {
+            return Collections.emptyList();
+        }
+
+        List<PlayHistoryEntry> results = new ArrayList<>();
+        for (int i = numOfPlays - 1; i >= 0 && results.size() < maxNumOfResults; i--) {
+            if (isTitleMatched[playTitleIds[i]]) {
+                results.add(new PlayHistoryEntry(titles.get(playTitleIds[i]), playTimestamps[i]));
+            }
+        }
+        return results;
+    }
+
+    private boolean[] findMatchingTitles(List<String> queryTokens) {
+        if (queryTokens.isEmpty()) {
+            return null;
+        }
+
+        IntList[] postingLists = new IntList[queryTokens.size()];
+        IntList shortestPostingList = null;
+        for (int i = 0; i < postingLists.length; i++) {
+            postingLists[i] = titleIdsByToken.get(queryTokens.get(i));
+            if (postingLists[i] == null) {
+                return null;
+            }
+            if (shortestPostingList == null || postingLists[i].size < shortestPostingList.size) {
+                shortestPostingList = postingLists[i];
+            }
+        }
+
+        boolean[] isTitleMatched = new boolean[titles.size()];
+        for (int i = 0; i < shortestPostingList.size; i++) {
+            int titleId = shortestPostingList.get(i);
+            boolean isInAllPostingLists = true;
+            for (IntList postingList : postingLists) {
+                if (postingList != shortestPostingList && !postingList.contains(titleId)) {
+                    isInAllPostingLists = false;
+                    break;
+                }
+            }
+            isTitleMatched[titleId] = isInAllPostingLists;
+        }
+        return isTitleMatched;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String lowerCaseText = text.toLowerCase(Locale.ROOT);
+        int tokenStart = -1;
+        for (int i = 0; i <= lowerCaseText.length(); i++) {
+            boolean isTokenChar = i < lowerCaseText.length() && Character.isLetterOrDigit(lowerCaseText.charAt(i));
+            if (isTokenChar && tokenStart == -1) {
+                tokenStart = i;
+            } else if (!isTokenChar && tokenStart != -1) {
+                tokens.add(lowerCaseText.substring(tokenStart, i));
+                tokenStart = -1;
+            }
+        }
+        return tokens;
+    }
+
+
+    private static class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+    }
+}
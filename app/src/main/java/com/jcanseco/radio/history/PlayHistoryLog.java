@@ -0,0 +1,200 @@
+package com.jcanseco.radio.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+
+// An append-only file of title and play records. A title record gives the title the next id, and a play record
+// refers to a title by id, so a title is only ever written once however often it's played. A write cut short by
+// the process dying leaves a partial record at the end, which is dropped the next time the file is loaded.
+class PlayHistoryLog {
+
+    private static final int MAGIC = 0x50484c47;
+    private static final int VERSION = 1;
+
+    private static final byte TYPE_TITLE = 1;
+    private static final byte TYPE_PLAY = 2;
+
+    private final File file;
+    private DataOutputStream output;
+
+    PlayHistoryLog(File file) {
+        this.file = file;
+    }
+
+    void load(PlayHistoryIndex index) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        long validLength = 0;
+        CountingInputStream countingInput = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+        DataInputStream input = new DataInputStream(countingInput);
+        try {
+            // A file that doesn't start with the header has nothing readable in it, and starts over.
+            if (input.readInt() == MAGIC && input.readByte() == VERSION) {
+                validLength = countingInput.count;
+                while (readRecord(input, index)) {
+                    validLength = countingInput.count;
+                }
+            }
+        } catch (EOFException e) {
+            // The end of the file, or a record that was only partly written.
+        } catch (UTFDataFormatException e) {
+            // A title that was only partly written, followed by whatever came after it.
+        } finally {
+            input.close();
+        }
+
+        truncate(validLength);
+    }
+
+    // Returns false if the record isn't one that could have been written.
+    private static boolean readRecord(DataInputStream input, PlayHistoryIndex index) throws IOException {
+        byte type = input.readByte();
+        if (type == TYPE_TITLE) {
+            index.addTitle(input.readUTF());
+            return true;
+        } else if (type == TYPE_PLAY) {
+            int titleId = input.readInt();
+            long timestampInUnixTime = input.readInt() & 0xFFFFFFFFL;
+            if (titleId < 0 || titleId >= index.getNumOfTitles()) {
+                return false;
+            }
+            index.addPlay(titleId, timestampInUnixTime);
+            return true;
+        }
+        return false;
+    }
+
+    private void truncate(long length) throws IOException {
+        if (file.length() == length) {
+            return;
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(length);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    void appendTitle(String title) throws IOException {
+        DataOutputStream output = getOutput();
+        output.writeByte(TYPE_TITLE);
+        output.writeUTF(title);
+    }
+
+    void appendPlay(int titleId, long timestampInUnixTime) throws IOException {
+        DataOutputStream output = getOutput();
+        output.writeByte(TYPE_PLAY);
+        output.writeInt(titleId);
+        // Unsigned, which lasts until 2106.
+        output.writeInt((int) timestampInUnixTime);
+    }
+
+    void flush() throws IOException {
+        if (output != null) {
+            output.flush();
+        }
+    }
+
+    // Replaces the whole file with the given index. The new file is written next to the old one and renamed over it,
+    // so a crash part way through leaves the old file as it was.
+    void rewrite(PlayHistoryIndex index) throws IOException {
+        close();
+
+        File compactedFile = new File(file.getPath() + ".compacting");
+        DataOutputStream compactedOutput = openOutput(compactedFile, false);
+        try {
+            writeHeader(compactedOutput);
+            for (int titleId = 0; titleId < index.getNumOfTitles(); titleId++) {
+                compactedOutput.writeByte(TYPE_TITLE);
+                compactedOutput.writeUTF(index.getTitle(titleId));
+            }
+            for (int i = 0; i < index.getNumOfPlays(); i++) {
+                compactedOutput.writeByte(TYPE_PLAY);
+                compactedOutput.writeInt(index.getPlayTitleId(i));
+                compactedOutput.writeInt((int) index.getPlayTimestamp(i));
+            }
+            compactedOutput.flush();
+        } finally {
+            compactedOutput.close();
+        }
+
+        if (!compactedFile.renameTo(file)) {
+            throw new IOException("Could not replace " + file + " with " + compactedFile);
+        }
+    }
+
+    long getSizeInBytes() {
+        return file.length();
+    }
+
+    void close() throws IOException {
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+    }
+
+    private DataOutputStream getOutput() throws IOException {
+        if (output == null) {
+            boolean isNewFile = file.length() == 0;
+            output = openOutput(file, true);
+            if (isNewFile) {
+                writeHeader(output);
+            }
+        }
+        return output;
+    }
+
+    private static DataOutputStream openOutput(File file, boolean append) throws FileNotFoundException {
+        file.getParentFile().mkdirs();
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append)));
+    }
+
+    private static void writeHeader(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+    }
+
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        long count;
+
+        CountingInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int numOfBytesRead = super.read(buffer, offset, length);
+            if (numOfBytesRead > 0) {
+                count += numOfBytesRead;
+            }
+            return numOfBytesRead;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.jcanseco.radio.history;
+
+import com.jcanseco.radio.diagnostics.Dumpable;
+import com.jcanseco.radio.loaders.RadioContentLoader;
+import com.jcanseco.radio.models.RadioContent;
+import com.jcanseco.radio.models.Track;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Keeps every track the station has played while the app was polling, on disk and searchable. Each poll's last
+// played tracks are handed over as they are, and everything else happens on a thread of the store's own: loading
+// the file, skipping tracks it already has, appending the new ones, and compacting the file now and then.
+public class PlayHistoryStore implements RadioContentLoader.RadioContentSubscriber, Dumpable {
+
+    static final long RETENTION_IN_SECONDS = TimeUnit.DAYS.toSeconds(2 * 365);
+
+    // About two weeks of plays, which keeps the time spent compacting small next to everything appended in between.
+    static final int NUM_OF_APPENDED_PLAYS_BETWEEN_COMPACTIONS = 4096;
+
+    private final PlayHistoryLog log;
+    private final Executor executor;
+
+    private PlayHistoryIndex index = new PlayHistoryIndex();
+    private int numOfPlaysAppendedSinceCompaction;
+    private boolean isOpen;
+
+    public PlayHistoryStore(File file) {
+        this.log = new PlayHistoryLog(file);
+        this.executor = initNewExecutor();
+    }
+
+    public void open() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                openOnExecutor();
+            }
+        });
+    }
+
+    private synchronized void openOnExecutor() {
+        try {
+            log.load(index);
+        } catch (IOException e) {
+            // Whatever was read so far is still searchable, and new plays are appended after it.
+        }
+        isOpen = true;
+        compactIfDue(true);
+    }
+
+    @Override
+    public void onRadioContentLoaded(RadioContent radioContent) {
+        if (radioContent.getLastPlayedTracks() != null) {
+            ingest(radioContent.getLastPlayedTracks());
+        }
+    }
+
+    // The lists the API returns are read once here, on the calling thread, so they can't change under the store.
+    public void ingest(List<Track> tracks) {
+        final String[] titles = new String[tracks.size()];
+        final long[] timestampsInUnixTime = new long[tracks.size()];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = tracks.get(i).getTitle();
+            timestampsInUnixTime[i] = tracks.get(i).getTimestampInUnixTime();
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ingestOnExecutor(titles, timestampsInUnixTime);
+            }
+        });
+    }
+
+    private synchronized void ingestOnExecutor(String[] titles, long[] timestampsInUnixTime) {
+        if (!isOpen) {
+            return;
+        }
+
+        try {
+            for (int i = 0; i < titles.length; i++) {
+                // Tracks without a title or time can't be told apart from each other.
+                if (titles[i] == null || timestampsInUnixTime[i] <= 0) {
+                    continue;
+                }
+
+                int titleId = index.findTitleId(titles[i]);
+                if (titleId == PlayHistoryIndex.NO_TITLE_ID) {
+                    titleId = index.addTitle(titles[i]);
+                    log.appendTitle(titles[i]);
+                }
+                if (index.addPlay(titleId, timestampsInUnixTime[i])) {
+                    log.appendPlay(titleId, timestampsInUnixTime[i]);
+                    numOfPlaysAppendedSinceCompaction++;
+                }
+            }
+            log.flush();
+        } catch (IOException e) {
+            // The plays are still searchable until the process dies, they're just not persisted.
+        }
+        compactIfDue(false);
+    }
+
+    public synchronized List<PlayHistoryEntry> search(String query, int maxNumOfResults) {
+        if (!isOpen) {
+            return Collections.emptyList();
+        }
+        return index.search(query, maxNumOfResults);
+    }
+
+    public synchronized int getNumOfPlays() {
+        return index.getNumOfPlays();
+    }
+
+    public synchronized int getNumOfTitles() {
+        return index.getNumOfTitles();
+    }
+
+    // Drops plays past the retention period and titles nothing refers to any more, and writes what's left back out in
+    // one go.
+    private void compactIfDue(boolean isOpening) {
+        long oldestTimestampToKeep = getCurrentTimeInUnixTime() - RETENTION_IN_SECONDS;
+        boolean hasExpiredPlays = index.getNumOfPlays() > 0 && index.getPlayTimestamp(0) < oldestTimestampToKeep;
+        if (isOpening ? !hasExpiredPlays : numOfPlaysAppendedSinceCompaction < NUM_OF_APPENDED_PLAYS_BETWEEN_COMPACTIONS) {
+            return;
+        }
+
+        PlayHistoryIndex compactedIndex = new PlayHistoryIndex();
+        int[] compactedTitleIds = new int[index.getNumOfTitles()];
+        Arrays.fill(compactedTitleIds, PlayHistoryIndex.NO_TITLE_ID);
+        for (int i = 0; i < index.getNumOfPlays(); i++) {
+            long timestampInUnixTime = index.getPlayTimestamp(i);
+            if (timestampInUnixTime < oldestTimestampToKeep) {
+                continue;
+            }
+            int titleId = index.getPlayTitleId(i);
+            if (compactedTitleIds[titleId] == PlayHistoryIndex.NO_TITLE_ID) {
+                compactedTitleIds[titleId] = compactedIndex.addTitle(index.getTitle(titleId));
+            }
+            compactedIndex.addPlay(compactedTitleIds[titleId], timestampInUnixTime);
+        }
+
+        try {
+            log.rewrite(compactedIndex);
+            index = compactedIndex;
+            numOfPlaysAppendedSinceCompaction = 0;
+        } catch (IOException e) {
+            // The uncompacted file is still intact, so compacting is tried again later.
+        }
+    }
+
+    @Override
+    public synchronized void dumpState(PrintWriter writer) {
+        writer.println("PlayHistoryStore");
+        writer.printf("  plays: %d, titles: %d, file: %d bytes, appended since compaction: %d%n",
+                index.getNumOfPlays(), index.getNumOfTitles(), log.getSizeInBytes(), numOfPlaysAppendedSinceCompaction);
+    }
+
+    protected Executor initNewExecutor() {
+        return Executors.newSingleThreadExecutor();
+    }
+
+    protected long getCurrentTimeInUnixTime() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
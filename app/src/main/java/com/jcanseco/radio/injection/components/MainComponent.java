@@ -1,18 +1,32 @@
 package com.jcanseco.radio.injection.components;
 
+import com.jcanseco.radio.MainApplication;
+import com.jcanseco.radio.djwatch.DjWatchAlarmReceiver;
+import com.jcanseco.radio.djwatch.DjWatchJobService;
 import com.jcanseco.radio.injection.modules.ApplicationModule;
+import com.jcanseco.radio.injection.modules.DataUsageModule;
+import com.jcanseco.radio.injection.modules.DjWatchModule;
 import com.jcanseco.radio.injection.modules.NetworkModule;
 import com.jcanseco.radio.injection.modules.RadioPlayerActivityModule;
 import com.jcanseco.radio.injection.modules.PlayerModule;
+import com.jcanseco.radio.ui.widget.NowPlayingWidgetProvider;
 
 import javax.inject.Singleton;
 
 import dagger.Component;
 
 @Singleton
-@Component(modules = {ApplicationModule.class, NetworkModule.class})
+@Component(modules = {ApplicationModule.class, NetworkModule.class, DataUsageModule.class, DjWatchModule.class})
 public interface MainComponent {
 
+    void inject(MainApplication mainApplication);
+
+    void inject(NowPlayingWidgetProvider nowPlayingWidgetProvider);
+
+    void inject(DjWatchJobService djWatchJobService);
+
+    void inject(DjWatchAlarmReceiver djWatchAlarmReceiver);
+
     RadioPlayerActivityComponent buildRadioPlayerActivityComponent(RadioPlayerActivityModule radioPlayerActivityModule);
 
     RadioPlayerServiceComponent buildRadioPlayerServiceComponent(PlayerModule playerModule);
@@ -1,6 +1,16 @@
 package com.jcanseco.radio.injection.modules;
 
 import com.jcanseco.radio.MainApplication;
+import com.jcanseco.radio.flightrecorder.FlightRecorder;
+import com.jcanseco.radio.history.PlayHistoryStore;
+import com.jcanseco.radio.listeners.ListenerCountStore;
+import com.jcanseco.radio.memory.MemoryPressureCoordinator;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.nowplaying.NowPlayingPublisher;
+import com.jcanseco.radio.ui.widget.NowPlayingWidgetUpdater;
+import com.jcanseco.radio.watchdog.MainThreadWatchdog;
+
+import java.io.File;
 
 import javax.inject.Singleton;
 
@@ -21,4 +31,58 @@ public class ApplicationModule {
     MainApplication provideApplication() {
         return application;
     }
+
+    @Provides
+    @Singleton
+    MemoryPressureCoordinator provideMemoryPressureCoordinator() {
+        return new MemoryPressureCoordinator();
+    }
+
+    @Provides
+    @Singleton
+    MetricsRegistry provideMetricsRegistry() {
+        return new MetricsRegistry();
+    }
+
+    @Provides
+    @Singleton
+    FlightRecorder provideFlightRecorder() {
+        // 256 KB, which holds a few hours of buffer levels with some room left over for everything else.
+        final int capacity = 2048;
+
+        return FlightRecorder.open(new File(application.getFilesDir(), "flight_recorder"), capacity);
+    }
+
+    @Provides
+    @Singleton
+    PlayHistoryStore providePlayHistoryStore() {
+        return new PlayHistoryStore(new File(application.getFilesDir(), "play_history"));
+    }
+
+    @Provides
+    @Singleton
+    ListenerCountStore provideListenerCountStore() {
+        return new ListenerCountStore(new File(application.getFilesDir(), "listener_counts"));
+    }
+
+    @Provides
+    @Singleton
+    NowPlayingPublisher provideNowPlayingPublisher(MetricsRegistry metricsRegistry) {
+        return new NowPlayingPublisher(metricsRegistry);
+    }
+
+    @Provides
+    @Singleton
+    NowPlayingWidgetUpdater provideNowPlayingWidgetUpdater() {
+        return new NowPlayingWidgetUpdater(application);
+    }
+
+    @Provides
+    @Singleton
+    MainThreadWatchdog provideMainThreadWatchdog(FlightRecorder flightRecorder, MetricsRegistry metricsRegistry) {
+        // Long enough that it's a stall anyone would notice, rather than a frame or two dropped.
+        final long stallThresholdInMillis = 200;
+
+        return new MainThreadWatchdog(stallThresholdInMillis, flightRecorder, metricsRegistry);
+    }
 }
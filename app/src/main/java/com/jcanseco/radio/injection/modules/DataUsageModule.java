@@ -0,0 +1,34 @@
+package com.jcanseco.radio.injection.modules;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+
+import com.jcanseco.radio.MainApplication;
+import com.jcanseco.radio.datausage.DataBudget;
+import com.jcanseco.radio.datausage.DataBudgetStore;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+
+import java.io.File;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+
+@Module
+public class DataUsageModule {
+
+    @Provides
+    @Singleton
+    DataUsageLedger provideDataUsageLedger(MainApplication application) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) application.getSystemService(Context.CONNECTIVITY_SERVICE);
+        return new DataUsageLedger(new File(application.getFilesDir(), "data_usage"), connectivityManager);
+    }
+
+    @Provides
+    @Singleton
+    DataBudget provideDataBudget(MainApplication application, DataUsageLedger dataUsageLedger) {
+        DataBudgetStore dataBudgetStore = new DataBudgetStore(application.getSharedPreferences("data_budget", Context.MODE_PRIVATE));
+        return new DataBudget(dataBudgetStore, dataUsageLedger);
+    }
+}
@@ -0,0 +1,40 @@
+package com.jcanseco.radio.injection.modules;
+
+import android.content.Context;
+
+import com.jcanseco.radio.MainApplication;
+import com.jcanseco.radio.api.RadioRestService;
+import com.jcanseco.radio.datausage.DataBudget;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.datausage.TrafficCategory;
+import com.jcanseco.radio.djwatch.DjWatchPolicy;
+import com.jcanseco.radio.djwatch.DjWatchScheduler;
+import com.jcanseco.radio.djwatch.DjWatchStore;
+import com.jcanseco.radio.djwatch.DjWatcher;
+import com.jcanseco.radio.network.DataUsageInterceptor;
+import com.jcanseco.radio.notifications.DjLiveNotifier;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import okhttp3.OkHttpClient;
+
+@Module
+public class DjWatchModule {
+
+    @Provides
+    @Singleton
+    DjWatcher provideDjWatcher(MainApplication application, OkHttpClient okHttpClient, DataBudget dataBudget,
+                               DataUsageLedger dataUsageLedger) {
+        // A service of its own, so the bytes the watcher costs are counted apart from the player's.
+        OkHttpClient djWatchOkHttpClient = okHttpClient.newBuilder()
+                .addNetworkInterceptor(new DataUsageInterceptor(dataUsageLedger, TrafficCategory.DJ_WATCH))
+                .build();
+        DjWatchStore djWatchStore = new DjWatchStore(application.getSharedPreferences("dj_watch", Context.MODE_PRIVATE));
+
+        return new DjWatcher(RadioRestService.Factory.create(djWatchOkHttpClient), djWatchStore,
+                new DjWatchScheduler(application), new DjWatchPolicy(), new DjLiveNotifier(application), dataBudget,
+                dataUsageLedger);
+    }
+}
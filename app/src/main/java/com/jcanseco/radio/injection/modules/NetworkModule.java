@@ -1,24 +1,152 @@
 package com.jcanseco.radio.injection.modules;
 
+import com.jcanseco.radio.MainApplication;
+import com.jcanseco.radio.R;
 import com.jcanseco.radio.api.RadioRestService;
+import com.jcanseco.radio.avatars.AvatarMemoryCache;
+import com.jcanseco.radio.avatars.DjAvatarLoader;
+import com.jcanseco.radio.datausage.DataBudget;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.datausage.TrafficCategory;
+import com.jcanseco.radio.history.PlayHistoryStore;
+import com.jcanseco.radio.listeners.ListenerCountStore;
+import com.jcanseco.radio.loaders.MetadataLagTracker;
 import com.jcanseco.radio.loaders.RadioContentLoader;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.nowplaying.NowPlayingPublisher;
+import com.jcanseco.radio.network.CacheAgeOverrideInterceptor;
+import com.jcanseco.radio.network.CachingDns;
+import com.jcanseco.radio.network.DataUsageInterceptor;
+import com.jcanseco.radio.network.InstrumentedSslSocketFactory;
+import com.jcanseco.radio.network.OkHttp3Downloader;
+import com.jcanseco.radio.network.PersistentTlsSessionCache;
+import com.jcanseco.radio.network.TlsHandshakeRecorder;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Singleton;
+import javax.net.ssl.SSLContext;
 
 import dagger.Module;
 import dagger.Provides;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
 
 @Module
 public class NetworkModule {
 
     @Provides
     @Singleton
-    RadioRestService provideRadioRestService() {
-        return RadioRestService.Factory.create();
+    CachingDns provideCachingDns(MetricsRegistry metricsRegistry) {
+        return new CachingDns(metricsRegistry, CachingDns.DEFAULT_TTL_IN_MILLIS);
+    }
+
+    @Provides
+    @Singleton
+    TlsHandshakeRecorder provideTlsHandshakeRecorder(MetricsRegistry metricsRegistry) {
+        return new TlsHandshakeRecorder(metricsRegistry);
+    }
+
+    @Provides
+    @Singleton
+    SSLContext provideSslContext(MainApplication application, MetricsRegistry metricsRegistry) {
+        // One context means one client session cache, shared by OkHttp and the stream connections alike.
+        SSLContext sslContext;
+        try {
+            sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No TLS implementation available.", e);
+        }
+
+        boolean isSessionCachePersistent = PersistentTlsSessionCache.install(application, sslContext);
+        metricsRegistry.gauge("tls.session_cache.persistent").set(isSessionCachePersistent ? 1 : 0);
+        return sslContext;
+    }
+
+    @Provides
+    @Singleton
+    OkHttpClient provideOkHttpClient(CachingDns cachingDns, SSLContext sslContext, TlsHandshakeRecorder tlsHandshakeRecorder) {
+        final int maxIdleConnections = 5;
+        final long keepAliveDurationInMinutes = 5;
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveDurationInMinutes, TimeUnit.MINUTES))
+                .dns(cachingDns)
+                .sslSocketFactory(new InstrumentedSslSocketFactory(sslContext.getSocketFactory(), tlsHandshakeRecorder))
+                .build();
+    }
+
+    @Provides
+    @Singleton
+    AvatarMemoryCache provideAvatarMemoryCache(MetricsRegistry metricsRegistry) {
+        // A handful of avatars at the largest densities, and never more than a small slice of the heap.
+        final long maxSizeInBytes = Math.min(Runtime.getRuntime().maxMemory() / 16, 8 * 1024 * 1024);
+
+        return new AvatarMemoryCache(maxSizeInBytes, metricsRegistry);
+    }
+
+    @Provides
+    @Singleton
+    Picasso providePicasso(MainApplication application, OkHttpClient okHttpClient, DataUsageLedger dataUsageLedger,
+                           AvatarMemoryCache avatarMemoryCache, MetricsRegistry metricsRegistry) {
+        // Images get a disk cache of their own, but still share the pool, DNS cache and TLS sessions.
+        final long imageCacheSizeInBytes = 10 * 1024 * 1024;
+        // DJs hardly ever change their avatars, so they're kept for a week whatever caching headers come with them.
+        final long imageMaxAgeInSeconds = TimeUnit.DAYS.toSeconds(7);
+        OkHttpClient imageOkHttpClient = okHttpClient.newBuilder()
+                .cache(new Cache(new File(application.getCacheDir(), "images"), imageCacheSizeInBytes))
+                .addNetworkInterceptor(new DataUsageInterceptor(dataUsageLedger, TrafficCategory.IMAGES))
+                .addNetworkInterceptor(new CacheAgeOverrideInterceptor(imageMaxAgeInSeconds))
+                .build();
+        return new Picasso.Builder(application)
+                .downloader(new OkHttp3Downloader(imageOkHttpClient, metricsRegistry))
+                .memoryCache(avatarMemoryCache)
+                .build();
+    }
+
+    @Provides
+    @Singleton
+    DjAvatarLoader provideDjAvatarLoader(MainApplication application, Picasso picasso) {
+        return new DjAvatarLoader(picasso, application.getResources().getDimensionPixelSize(R.dimen.dj_avatar_size));
+    }
+
+    @Provides
+    @Singleton
+    RadioRestService provideRadioRestService(OkHttpClient okHttpClient, DataUsageLedger dataUsageLedger) {
+        OkHttpClient apiOkHttpClient = okHttpClient.newBuilder()
+                .addNetworkInterceptor(new DataUsageInterceptor(dataUsageLedger, TrafficCategory.API))
+                .build();
+        return RadioRestService.Factory.create(apiOkHttpClient);
+    }
+
+    @Provides
+    @Singleton
+    MetadataLagTracker provideMetadataLagTracker(MetricsRegistry metricsRegistry) {
+        return new MetadataLagTracker(metricsRegistry);
+    }
+
+    // The avatar prefetch and the listener count come first, since they're meant to be ready before anything is shown.
+    @Provides
+    @Singleton
+    List<RadioContentLoader.RadioContentSubscriber> provideRadioContentSubscribers(DjAvatarLoader djAvatarLoader,
+                                                                                   ListenerCountStore listenerCountStore,
+                                                                                   NowPlayingPublisher nowPlayingPublisher,
+                                                                                   PlayHistoryStore playHistoryStore) {
+        return Collections.unmodifiableList(Arrays.<RadioContentLoader.RadioContentSubscriber>asList(djAvatarLoader,
+                listenerCountStore, nowPlayingPublisher, playHistoryStore));
     }
 
     @Provides
-    RadioContentLoader provideRadioContentLoader(RadioRestService radioRestService) {
-        return new RadioContentLoader(radioRestService);
+    RadioContentLoader provideRadioContentLoader(RadioRestService radioRestService, DataBudget dataBudget,
+                                                 MetadataLagTracker metadataLagTracker,
+                                                 List<RadioContentLoader.RadioContentSubscriber> radioContentSubscribers) {
+        return new RadioContentLoader(radioRestService, dataBudget, metadataLagTracker, radioContentSubscribers);
     }
 }
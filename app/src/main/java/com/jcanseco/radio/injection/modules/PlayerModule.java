@@ -1,9 +1,49 @@
 package com.jcanseco.radio.injection.modules;
 
+import android.content.Context;
+import android.net.Uri;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.PowerManager;
+
 import com.google.android.exoplayer.ExoPlayer;
 import com.jcanseco.radio.MainApplication;
+import com.jcanseco.radio.constants.Constants;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.diagnostics.Dumpable;
+import com.jcanseco.radio.djwatch.DjWatcher;
+import com.jcanseco.radio.flightrecorder.FlightRecorder;
+import com.jcanseco.radio.history.PlayHistoryStore;
 import com.jcanseco.radio.injection.scopes.ServiceScope;
+import com.jcanseco.radio.listeners.ListenerCountStore;
+import com.jcanseco.radio.memory.MemoryPressureCoordinator;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.network.CachingDns;
+import com.jcanseco.radio.network.TlsHandshakeRecorder;
+import com.jcanseco.radio.nowplaying.NowPlayingPublisher;
+import com.jcanseco.radio.players.AudioOutputPolicy;
+import com.jcanseco.radio.players.LatencyController;
+import com.jcanseco.radio.players.LatencyPolicy;
+import com.jcanseco.radio.players.LoudnessPolicy;
+import com.jcanseco.radio.players.PausePolicy;
 import com.jcanseco.radio.players.RadioPlayer;
+import com.jcanseco.radio.players.analysis.SignalHealthMonitor;
+import com.jcanseco.radio.players.datasources.DefaultStreamDataSourceFactory;
+import com.jcanseco.radio.players.datasources.PreferredStreamEndpointStore;
+import com.jcanseco.radio.players.datasources.RacingStreamDataSourceFactory;
+import com.jcanseco.radio.players.datasources.StreamDataSourceFactory;
+import com.jcanseco.radio.players.datasources.StreamHandoverController;
+import com.jcanseco.radio.players.trackrenderers.AudioOutputMonitor;
+import com.jcanseco.radio.players.trackrenderers.StreamBufferBudget;
+import com.jcanseco.radio.players.trackrenderers.TrackRendererFactory;
+import com.jcanseco.radio.services.PlaybackLocks;
+import com.jcanseco.radio.watchdog.MainThreadWatchdog;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.net.ssl.SSLContext;
 
 import dagger.Module;
 import dagger.Provides;
@@ -23,7 +63,135 @@ public class PlayerModule {
 
     @Provides
     @ServiceScope
-    RadioPlayer provideRadioPlayer(ExoPlayer exoPlayer, MainApplication application) {
-        return new RadioPlayer(exoPlayer, application);
+    PausePolicy providePausePolicy() {
+        final long disconnectStreamAfterMillis = 30 * 1000;
+        final long releaseResourcesAfterMillis = 5 * 60 * 1000;
+
+        return new PausePolicy(disconnectStreamAfterMillis, releaseResourcesAfterMillis);
+    }
+
+    @Provides
+    @ServiceScope
+    LatencyPolicy provideLatencyPolicy() {
+        // Servers burst a few seconds of audio on connect, so playback always starts that far behind live.
+        final long targetLagInMillis = 8000;
+        final long toleranceInMillis = 2000;
+        final float catchUpSpeed = 1.03f;
+
+        return new LatencyPolicy(targetLagInMillis, toleranceInMillis, catchUpSpeed);
+    }
+
+    @Provides
+    @ServiceScope
+    LoudnessPolicy provideLoudnessPolicy() {
+        // Leaves headroom for the loud end of the music, and enough gain to bring quiet talk up to it.
+        final boolean isEnabled = true;
+        final float targetLoudnessInLufs = -18f;
+        final float maxGainInDb = 12f;
+        final float ceilingInDbfs = -1f;
+
+        return new LoudnessPolicy(isEnabled, targetLoudnessInLufs, maxGainInDb, ceilingInDbfs);
+    }
+
+    @Provides
+    @ServiceScope
+    LatencyController provideLatencyController(LatencyPolicy latencyPolicy, MetricsRegistry metricsRegistry) {
+        return new LatencyController(latencyPolicy, metricsRegistry);
+    }
+
+    @Provides
+    @ServiceScope
+    AudioOutputPolicy provideAudioOutputPolicy() {
+        // Starts out about where ExoPlayer sizes it on its own. A larger buffer also lets the CPU sleep longer
+        // between writes with the screen off.
+        final long initialBufferDurationInMillis = 500;
+        final long maxBufferDurationInMillis = 2000;
+        final int numOfUnderrunsBeforeGrowing = 3;
+        final long underrunWindowInMillis = 60 * 1000;
+
+        return new AudioOutputPolicy(initialBufferDurationInMillis, maxBufferDurationInMillis, numOfUnderrunsBeforeGrowing,
+                underrunWindowInMillis);
+    }
+
+    @Provides
+    @ServiceScope
+    AudioOutputMonitor provideAudioOutputMonitor(AudioOutputPolicy audioOutputPolicy, MetricsRegistry metricsRegistry) {
+        return new AudioOutputMonitor(audioOutputPolicy, metricsRegistry);
+    }
+
+    @Provides
+    @ServiceScope
+    StreamBufferBudget provideStreamBufferBudget() {
+        return new StreamBufferBudget();
+    }
+
+    @Provides
+    @ServiceScope
+    StreamHandoverController provideStreamHandoverController() {
+        return new StreamHandoverController();
+    }
+
+    @Provides
+    @ServiceScope
+    SignalHealthMonitor provideSignalHealthMonitor(StreamHandoverController streamHandoverController, MetricsRegistry metricsRegistry) {
+        return new SignalHealthMonitor(streamHandoverController, metricsRegistry);
+    }
+
+    @Provides
+    @ServiceScope
+    StreamDataSourceFactory provideStreamDataSourceFactory(MainApplication application, CachingDns cachingDns, SSLContext sslContext,
+                                                           TlsHandshakeRecorder tlsHandshakeRecorder, DataUsageLedger dataUsageLedger,
+                                                           MetricsRegistry metricsRegistry) {
+        if (Build.VERSION.SDK_INT < 21) {
+            return new DefaultStreamDataSourceFactory(application, dataUsageLedger);
+        }
+
+        // Further mirrors of the stream only need to be added here to take part in the connection race.
+        final List<Uri> mirrorUris = Collections.singletonList(Uri.parse(Constants.Endpoints.STREAM_URL));
+        final PreferredStreamEndpointStore preferredEndpointStore =
+                new PreferredStreamEndpointStore(application.getSharedPreferences("stream_endpoints", Context.MODE_PRIVATE));
+
+        return new RacingStreamDataSourceFactory(application, mirrorUris, cachingDns, preferredEndpointStore, sslContext,
+                tlsHandshakeRecorder, dataUsageLedger, metricsRegistry);
+    }
+
+    @Provides
+    @ServiceScope
+    TrackRendererFactory provideTrackRendererFactory(StreamDataSourceFactory streamDataSourceFactory, StreamBufferBudget streamBufferBudget,
+                                                     StreamHandoverController streamHandoverController, LatencyPolicy latencyPolicy,
+                                                     LoudnessPolicy loudnessPolicy, SignalHealthMonitor signalHealthMonitor,
+                                                     AudioOutputMonitor audioOutputMonitor, FlightRecorder flightRecorder,
+                                                     MetricsRegistry metricsRegistry) {
+        return new TrackRendererFactory(streamDataSourceFactory, streamBufferBudget, streamHandoverController, latencyPolicy,
+                loudnessPolicy, signalHealthMonitor, audioOutputMonitor, flightRecorder, metricsRegistry);
+    }
+
+    @Provides
+    @ServiceScope
+    RadioPlayer provideRadioPlayer(ExoPlayer exoPlayer, PausePolicy pausePolicy, TrackRendererFactory trackRendererFactory,
+                                   LatencyController latencyController, FlightRecorder flightRecorder) {
+        return new RadioPlayer(exoPlayer, pausePolicy, trackRendererFactory, latencyController, flightRecorder);
+    }
+
+    @Provides
+    @ServiceScope
+    PlaybackLocks providePlaybackLocks(MainApplication application) {
+        PowerManager powerManager = (PowerManager) application.getSystemService(Context.POWER_SERVICE);
+        WifiManager wifiManager = (WifiManager) application.getSystemService(Context.WIFI_SERVICE);
+
+        return new PlaybackLocks(powerManager, wifiManager);
+    }
+
+    // In the order the service dumps them, player first and the metrics last.
+    @Provides
+    @ServiceScope
+    List<Dumpable> provideDumpables(RadioPlayer radioPlayer, PlaybackLocks playbackLocks,
+                                    MemoryPressureCoordinator memoryPressureCoordinator, DataUsageLedger dataUsageLedger,
+                                    MainThreadWatchdog mainThreadWatchdog, PlayHistoryStore playHistoryStore,
+                                    ListenerCountStore listenerCountStore, NowPlayingPublisher nowPlayingPublisher,
+                                    DjWatcher djWatcher, MetricsRegistry metricsRegistry) {
+        return Collections.unmodifiableList(Arrays.<Dumpable>asList(radioPlayer, playbackLocks, memoryPressureCoordinator,
+                dataUsageLedger, mainThreadWatchdog, playHistoryStore, listenerCountStore, nowPlayingPublisher, djWatcher,
+                metricsRegistry));
     }
 }
@@ -1,5 +1,7 @@
 package com.jcanseco.radio.injection.modules;
 
+import com.jcanseco.radio.datausage.DataBudget;
+import com.jcanseco.radio.djwatch.DjWatcher;
 import com.jcanseco.radio.injection.scopes.ActivityScope;
 import com.jcanseco.radio.loaders.RadioContentLoader;
 import com.jcanseco.radio.ui.radioplayer.RadioPlayerActivity;
@@ -21,8 +23,9 @@ public class RadioPlayerActivityModule {
 
     @Provides
     @ActivityScope
-    RadioPlayerPresenter provideRadioPlayerPresenter(RadioContentLoader radioContentLoader) {
-        return new RadioPlayerPresenter(radioContentLoader);
+    RadioPlayerPresenter provideRadioPlayerPresenter(RadioContentLoader radioContentLoader, DataBudget dataBudget,
+                                                     DjWatcher djWatcher) {
+        return new RadioPlayerPresenter(radioContentLoader, dataBudget, djWatcher);
     }
 
     @Provides
@@ -0,0 +1,222 @@
+package com.jcanseco.radio.listeners;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+// An append-only file of listener count samples. Each sample is stored as the difference from the one before it,
+// zigzag encoded so small drops are as short as small rises, and packed into varints: a poll every few minutes with
+// a few listeners coming and going usually fits in 3 bytes. A write cut short by the process dying leaves a partial
+// sample at the end, which is dropped the next time the file is loaded.
+class ListenerCountLog {
+
+    private static final int MAGIC = 0x4c435453;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE_IN_BYTES = 5;
+
+    // A 64-bit varint takes at most 10 bytes, and a sample is two of them.
+    private static final int MAX_SAMPLE_SIZE_IN_BYTES = 20;
+
+    private final File file;
+    private final byte[] sampleBuffer = new byte[MAX_SAMPLE_SIZE_IN_BYTES];
+    private FileOutputStream output;
+
+    private long lastTimestampInUnixTime;
+    private int lastCount;
+    private int numOfSamples;
+
+    ListenerCountLog(File file) {
+        this.file = file;
+    }
+
+    void load(ListenerCountSeries series) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        byte[] bytes = readFully(file);
+        int validLength = 0;
+        // A file that doesn't start with the header has nothing readable in it, and starts over.
+        if (bytes.length >= HEADER_SIZE_IN_BYTES && readInt(bytes, 0) == MAGIC && bytes[4] == VERSION) {
+            validLength = HEADER_SIZE_IN_BYTES;
+            long[] decoded = new long[1];
+            int position = HEADER_SIZE_IN_BYTES;
+            while (true) {
+                position = readVarint(bytes, position, decoded);
+                if (position == -1) {
+                    break;
+                }
+                long timestampInUnixTime = lastTimestampInUnixTime + decodeZigzag(decoded[0]);
+                position = readVarint(bytes, position, decoded);
+                if (position == -1) {
+                    break;
+                }
+                int count = (int) (lastCount + decodeZigzag(decoded[0]));
+
+                lastTimestampInUnixTime = timestampInUnixTime;
+                lastCount = count;
+                numOfSamples++;
+                series.add(timestampInUnixTime, count);
+                validLength = position;
+            }
+        }
+
+        truncate(validLength);
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream input = new FileInputStream(file);
+        try {
+            int numOfBytesRead = 0;
+            while (numOfBytesRead < bytes.length) {
+                int n = input.read(bytes, numOfBytesRead, bytes.length - numOfBytesRead);
+                if (n == -1) {
+                    break;
+                }
+                numOfBytesRead += n;
+            }
+            return bytes;
+        } finally {
+            input.close();
+        }
+    }
+
+    private void truncate(long length) throws IOException {
+        if (file.length() == length) {
+            return;
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(length);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    // Written straight through without buffering: a sample is a single small write, so it's on disk as soon as this
+    // returns, and nothing is allocated for it.
+    void append(long timestampInUnixTime, int count) throws IOException {
+        FileOutputStream output = getOutput();
+        int length = writeSample(timestampInUnixTime, count, sampleBuffer, 0);
+        output.write(sampleBuffer, 0, length);
+    }
+
+    private int writeSample(long timestampInUnixTime, int count, byte[] buffer, int offset) {
+        offset = writeVarint(encodeZigzag(timestampInUnixTime - lastTimestampInUnixTime), buffer, offset);
+        offset = writeVarint(encodeZigzag((long) count - lastCount), buffer, offset);
+        lastTimestampInUnixTime = timestampInUnixTime;
+        lastCount = count;
+        numOfSamples++;
+        return offset;
+    }
+
+    // Replaces the whole file with the given samples. The new file is written next to the old one and renamed over it,
+    // so a crash part way through leaves the old file as it was.
+    void rewrite(long[] timestampsInUnixTime, int[] counts, int numOfSamplesToWrite) throws IOException {
+        close();
+
+        byte[] bytes = new byte[HEADER_SIZE_IN_BYTES + numOfSamplesToWrite * MAX_SAMPLE_SIZE_IN_BYTES];
+        writeHeader(bytes);
+        lastTimestampInUnixTime = 0;
+        lastCount = 0;
+        numOfSamples = 0;
+        int length = HEADER_SIZE_IN_BYTES;
+        for (int i = 0; i < numOfSamplesToWrite; i++) {
+            length = writeSample(timestampsInUnixTime[i], counts[i], bytes, length);
+        }
+
+        File compactedFile = new File(file.getPath() + ".compacting");
+        compactedFile.getParentFile().mkdirs();
+        FileOutputStream compactedOutput = new FileOutputStream(compactedFile);
+        try {
+            compactedOutput.write(bytes, 0, length);
+        } finally {
+            compactedOutput.close();
+        }
+
+        if (!compactedFile.renameTo(file)) {
+            throw new IOException("Could not replace " + file + " with " + compactedFile);
+        }
+    }
+
+    long getLastTimestampInUnixTime() {
+        return lastTimestampInUnixTime;
+    }
+
+    int getNumOfSamples() {
+        return numOfSamples;
+    }
+
+    long getSizeInBytes() {
+        return file.length();
+    }
+
+    void close() throws IOException {
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+    }
+
+    private FileOutputStream getOutput() throws IOException {
+        if (output == null) {
+            boolean isNewFile = file.length() == 0;
+            file.getParentFile().mkdirs();
+            output = new FileOutputStream(file, true);
+            if (isNewFile) {
+                byte[] header = new byte[HEADER_SIZE_IN_BYTES];
+                writeHeader(header);
+                output.write(header);
+            }
+        }
+        return output;
+    }
+
+    private static void writeHeader(byte[] buffer) {
+        buffer[0] = (byte) (MAGIC >>> 24);
+        buffer[1] = (byte) (MAGIC >>> 16);
+        buffer[2] = (byte) (MAGIC >>> 8);
+        buffer[3] = (byte) MAGIC;
+        buffer[4] = VERSION;
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) << 24 | (buffer[offset + 1] & 0xFF) << 16
+                | (buffer[offset + 2] & 0xFF) << 8 | (buffer[offset + 3] & 0xFF);
+    }
+
+    static long encodeZigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long decodeZigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Seven bits a byte, least significant first, with the top bit set on every byte but the last.
+    static int writeVarint(long value, byte[] buffer, int offset) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    // Returns the position after the varint, or -1 if the buffer ends before it does.
+    static int readVarint(byte[] buffer, int offset, long[] value) {
+        long result = 0;
+        for (int shift = 0; shift < 64 && offset < buffer.length; shift += 7) {
+            byte b = buffer[offset++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                value[0] = result;
+                return offset;
+            }
+        }
+        return -1;
+    }
+}
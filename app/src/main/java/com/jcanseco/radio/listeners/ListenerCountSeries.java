@@ -0,0 +1,115 @@
+package com.jcanseco.radio.listeners;
+
+// The most recent listener counts, as two primitive arrays used as one ring, oldest overwritten first. Samples only
+// ever arrive in time order, so a time range is found by binary search, and drawing it means downsampling straight
+// from the arrays into the caller's.
+public class ListenerCountSeries {
+
+    public static final int NO_SAMPLES = -1;
+
+    private final long[] timestampsInUnixTime;
+    private final int[] counts;
+    private int start;
+    private int size;
+
+    public ListenerCountSeries(int capacity) {
+        this.timestampsInUnixTime = new long[capacity];
+        this.counts = new int[capacity];
+    }
+
+    // Returns false for a sample that isn't newer than the newest one already in the series.
+    public synchronized boolean add(long timestampInUnixTime, int count) {
+        if (size > 0 && timestampInUnixTime <= getTimestamp(size - 1)) {
+            return false;
+        }
+
+        if (size < counts.length) {
+            int index = (start + size) % counts.length;
+            timestampsInUnixTime[index] = timestampInUnixTime;
+            counts[index] = count;
+            size++;
+        } else {
+            timestampsInUnixTime[start] = timestampInUnixTime;
+            counts[start] = count;
+            start = (start + 1) % counts.length;
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return counts.length;
+    }
+
+    // The i-th oldest sample.
+    public synchronized long getTimestamp(int i) {
+        return timestampsInUnixTime[(start + i) % counts.length];
+    }
+
+    public synchronized int getCount(int i) {
+        return counts[(start + i) % counts.length];
+    }
+
+    // Splits the time range into as many equal buckets as the arrays have room for, and keeps the smallest and largest
+    // count in each, so a spike between two pixels still shows. Empty buckets get NO_SAMPLES. Returns the number of
+    // buckets with samples in them.
+    public synchronized int downsample(long fromTimeInUnixTime, long toTimeInUnixTime, int[] minCounts, int[] maxCounts) {
+        int numOfBuckets = minCounts.length;
+        for (int bucket = 0; bucket < numOfBuckets; bucket++) {
+            minCounts[bucket] = NO_SAMPLES;
+            maxCounts[bucket] = NO_SAMPLES;
+        }
+        if (toTimeInUnixTime <= fromTimeInUnixTime) {
+            return 0;
+        }
+
+        int numOfFilledBuckets = 0;
+        long rangeInSeconds = toTimeInUnixTime - fromTimeInUnixTime;
+        for (int i = indexOfFirstAtOrAfter(fromTimeInUnixTime); i < size; i++) {
+            long timestampInUnixTime = getTimestamp(i);
+            if (timestampInUnixTime >= toTimeInUnixTime) {
+                break;
+            }
+            int bucket = (int) ((timestampInUnixTime - fromTimeInUnixTime) * numOfBuckets / rangeInSeconds);
+            int count = getCount(i);
+            if (minCounts[bucket] == NO_SAMPLES) {
+                minCounts[bucket] = count;
+                maxCounts[bucket] = count;
+                numOfFilledBuckets++;
+            } else {
+                minCounts[bucket] = Math.min(minCounts[bucket], count);
+                maxCounts[bucket] = Math.max(maxCounts[bucket], count);
+            }
+        }
+        return numOfFilledBuckets;
+    }
+
+    // Copies the samples at or after the timestamp into the caller's arrays, oldest first, in one go so samples added
+    // meanwhile can't shift the ring under the copy. Returns the number of samples copied.
+    public synchronized int copySamplesAtOrAfter(long timestampInUnixTime, long[] timestampsInUnixTime, int[] counts) {
+        int numOfSamples = 0;
+        for (int i = indexOfFirstAtOrAfter(timestampInUnixTime); i < size && numOfSamples < counts.length; i++) {
+            timestampsInUnixTime[numOfSamples] = getTimestamp(i);
+            counts[numOfSamples] = getCount(i);
+            numOfSamples++;
+        }
+        return numOfSamples;
+    }
+
+    public synchronized int indexOfFirstAtOrAfter(long timestampInUnixTime) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTimestamp(middle) < timestampInUnixTime) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,107 @@
+package com.jcanseco.radio.listeners;
+
+import com.jcanseco.radio.diagnostics.Dumpable;
+import com.jcanseco.radio.loaders.RadioContentLoader;
+import com.jcanseco.radio.models.RadioContent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// Keeps the listener count from every poll, in memory for drawing and on disk so the trend survives the app being
+// closed. Recording a count only puts it in the series and wakes the store's own thread, which appends whatever the
+// file doesn't have yet, and every so often rewrites the file down to what the series still holds.
+public class ListenerCountStore implements RadioContentLoader.RadioContentSubscriber, Dumpable {
+
+    // Over a week of polls at one a track, and 48 KB of memory.
+    static final int CAPACITY = 4096;
+
+    private final ListenerCountLog log;
+    private final ListenerCountSeries series = new ListenerCountSeries(CAPACITY);
+    private final Executor executor;
+
+    // Only touched on the executor. The series is copied into these under its lock, then written out without it.
+    private final long[] timestampsToWriteInUnixTime = new long[CAPACITY];
+    private final int[] countsToWrite = new int[CAPACITY];
+
+    private volatile boolean isOpen;
+
+    private final Runnable appendNewSamples = new Runnable() {
+        @Override
+        public void run() {
+            appendNewSamplesOnExecutor();
+        }
+    };
+
+    public ListenerCountStore(File file) {
+        this.log = new ListenerCountLog(file);
+        this.executor = initNewExecutor();
+    }
+
+    public void open() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                openOnExecutor();
+            }
+        });
+    }
+
+    private synchronized void openOnExecutor() {
+        try {
+            log.load(series);
+        } catch (IOException e) {
+            // Whatever was read so far is still drawn, and new samples are appended after it.
+        }
+        isOpen = true;
+    }
+
+    @Override
+    public void onRadioContentLoaded(RadioContent radioContent) {
+        record(radioContent.getNumOfListeners());
+    }
+
+    // Counts recorded before the file is loaded are dropped, since they'd be newer than everything in it.
+    public void record(int numOfListeners) {
+        if (isOpen && series.add(getCurrentTimeInUnixTime(), numOfListeners)) {
+            executor.execute(appendNewSamples);
+        }
+    }
+
+    private synchronized void appendNewSamplesOnExecutor() {
+        try {
+            int numOfSamples = series.copySamplesAtOrAfter(log.getLastTimestampInUnixTime() + 1,
+                    timestampsToWriteInUnixTime, countsToWrite);
+            for (int i = 0; i < numOfSamples; i++) {
+                log.append(timestampsToWriteInUnixTime[i], countsToWrite[i]);
+            }
+            if (log.getNumOfSamples() >= 2 * CAPACITY) {
+                numOfSamples = series.copySamplesAtOrAfter(Long.MIN_VALUE, timestampsToWriteInUnixTime, countsToWrite);
+                log.rewrite(timestampsToWriteInUnixTime, countsToWrite, numOfSamples);
+            }
+        } catch (IOException e) {
+            // The samples are still drawn until the process dies, they're just not persisted.
+        }
+    }
+
+    public ListenerCountSeries getSeries() {
+        return series;
+    }
+
+    @Override
+    public synchronized void dumpState(PrintWriter writer) {
+        writer.println("ListenerCountStore");
+        writer.printf("  samples: %d of %d, file: %d samples in %d bytes%n",
+                series.size(), series.getCapacity(), log.getNumOfSamples(), log.getSizeInBytes());
+    }
+
+    protected Executor initNewExecutor() {
+        return Executors.newSingleThreadExecutor();
+    }
+
+    protected long getCurrentTimeInUnixTime() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,113 @@
+package com.jcanseco.radio.loaders;
+
+import com.jcanseco.radio.metrics.Gauge;
+import com.jcanseco.radio.metrics.Histogram;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.models.RadioContent;
+
+import java.util.Date;
+
+// Measures how long after a track starts on the server its title is on screen, for every track change seen while
+// polling. The delay is split into the parts that add up to it:
+//   scheduling:  from the track starting until the request that picks it up goes out, which is down to polling
+//   network:     from the request going out until the response headers are in
+//   parse:       reading and parsing the body
+//   ui dispatch: from parsing finishing until the title is about to be drawn
+// The server's start time is moved onto the local clock with an offset estimated from each response's Date header.
+public class MetadataLagTracker {
+
+    private static final long NO_TRACK = -1;
+    private static final float CLOCK_OFFSET_SMOOTHING = 0.2f;
+
+    // The Date header is cut down to whole seconds, so on average the server's clock is half a second past it.
+    private static final long DATE_HEADER_ROUNDING_IN_MILLIS = 500;
+
+    private final Histogram totalLagHistogram;
+    private final Histogram schedulingLagHistogram;
+    private final Histogram networkLagHistogram;
+    private final Histogram parseLagHistogram;
+    private final Histogram uiDispatchLagHistogram;
+    private final Gauge clockOffsetGauge;
+
+    private long requestStartedAtMillis;
+    private boolean hasClockOffset;
+    private long clockOffsetInMillis;
+
+    private long lastTrackStartTimeInUnixTime = NO_TRACK;
+    private boolean isTrackChangePending;
+    private long trackStartedAtMillis;
+    private long trackRequestStartedAtMillis;
+    private long trackParseStartedAtMillis;
+    private long trackParseFinishedAtMillis;
+
+    public MetadataLagTracker(MetricsRegistry metricsRegistry) {
+        totalLagHistogram = metricsRegistry.histogram("metadata.lag.total_ms");
+        schedulingLagHistogram = metricsRegistry.histogram("metadata.lag.scheduling_ms");
+        networkLagHistogram = metricsRegistry.histogram("metadata.lag.network_ms");
+        parseLagHistogram = metricsRegistry.histogram("metadata.lag.parse_ms");
+        uiDispatchLagHistogram = metricsRegistry.histogram("metadata.lag.ui_dispatch_ms");
+        clockOffsetGauge = metricsRegistry.gauge("metadata.server_clock_offset_ms");
+    }
+
+    // Overlapping requests are timed from the latest one, which only ever happens when a load is forced mid-poll.
+    public synchronized void onRequestStarted() {
+        requestStartedAtMillis = getCurrentTimeInMillis();
+    }
+
+    public synchronized void onRadioContentLoaded(RadioContent radioContent, Date serverDate) {
+        long parseStartedAtMillis = radioContent.getParseStartedAtMillis();
+        boolean isTimed = parseStartedAtMillis > 0 && requestStartedAtMillis > 0;
+        if (isTimed && serverDate != null) {
+            // The server stamped the response somewhere between the request going out and the headers coming in.
+            long localMidpointInMillis = (requestStartedAtMillis + parseStartedAtMillis) / 2;
+            updateClockOffset(serverDate.getTime() + DATE_HEADER_ROUNDING_IN_MILLIS - localMidpointInMillis);
+        }
+
+        long trackStartTimeInUnixTime = radioContent.getCurrentTrack().getStartTimeInUnixTime();
+        boolean isTrackChange = lastTrackStartTimeInUnixTime != NO_TRACK && trackStartTimeInUnixTime != lastTrackStartTimeInUnixTime;
+        lastTrackStartTimeInUnixTime = trackStartTimeInUnixTime;
+
+        if (isTrackChange && isTimed && hasClockOffset) {
+            isTrackChangePending = true;
+            trackStartedAtMillis = trackStartTimeInUnixTime * 1000 - clockOffsetInMillis;
+            trackRequestStartedAtMillis = requestStartedAtMillis;
+            trackParseStartedAtMillis = parseStartedAtMillis;
+            trackParseFinishedAtMillis = radioContent.getParseFinishedAtMillis();
+        }
+    }
+
+    private void updateClockOffset(long sampledClockOffsetInMillis) {
+        if (hasClockOffset) {
+            clockOffsetInMillis += Math.round(CLOCK_OFFSET_SMOOTHING * (sampledClockOffsetInMillis - clockOffsetInMillis));
+        } else {
+            clockOffsetInMillis = sampledClockOffsetInMillis;
+            hasClockOffset = true;
+        }
+        clockOffsetGauge.set(clockOffsetInMillis);
+    }
+
+    public synchronized void onTrackTitleDisplayed() {
+        if (!isTrackChangePending) {
+            return;
+        }
+        isTrackChangePending = false;
+
+        long displayedAtMillis = getCurrentTimeInMillis();
+        totalLagHistogram.record(displayedAtMillis - trackStartedAtMillis);
+        schedulingLagHistogram.record(trackRequestStartedAtMillis - trackStartedAtMillis);
+        networkLagHistogram.record(trackParseStartedAtMillis - trackRequestStartedAtMillis);
+        parseLagHistogram.record(trackParseFinishedAtMillis - trackParseStartedAtMillis);
+        uiDispatchLagHistogram.record(displayedAtMillis - trackParseFinishedAtMillis);
+    }
+
+    // The first track seen after this is taken as a starting point rather than a change, since it could have
+    // started long before polling resumed.
+    public synchronized void reset() {
+        lastTrackStartTimeInUnixTime = NO_TRACK;
+        isTrackChangePending = false;
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -1,10 +1,14 @@
 package com.jcanseco.radio.loaders;
 
 import com.jcanseco.radio.api.RadioRestService;
+import com.jcanseco.radio.datausage.DataBudget;
+import com.jcanseco.radio.datausage.DataBudgetState;
 import com.jcanseco.radio.models.NowPlayingTrack;
 import com.jcanseco.radio.models.RadioContent;
 import com.jcanseco.radio.tasks.RadioContentLoaderTimerTask;
+import com.jcanseco.radio.tracing.Tracer;
 
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -15,15 +19,23 @@ import retrofit2.Response;
 public class RadioContentLoader implements Callback<RadioContent> {
 
     private static final int DEFAULT_SCHEDULED_LOAD_TASK_DELAY_IN_MILLIS = 5000;
+    private static final int MIN_SCHEDULED_LOAD_TASK_DELAY_NEAR_DATA_BUDGET_IN_MILLIS = 60 * 1000;
 
     private RadioContentListener radioContentListener;
     private RadioRestService radioRestService;
+    private DataBudget dataBudget;
+    private MetadataLagTracker metadataLagTracker;
+    private List<RadioContentSubscriber> radioContentSubscribers;
 
     private boolean isSetupForScheduledLoading;
     private Timer timer;
 
-    public RadioContentLoader(RadioRestService radioRestService) {
+    public RadioContentLoader(RadioRestService radioRestService, DataBudget dataBudget, MetadataLagTracker metadataLagTracker,
+                              List<RadioContentSubscriber> radioContentSubscribers) {
         this.radioRestService = radioRestService;
+        this.dataBudget = dataBudget;
+        this.metadataLagTracker = metadataLagTracker;
+        this.radioContentSubscribers = radioContentSubscribers;
     }
 
     public void setRadioContentListener(RadioContentListener radioContentListener) {
@@ -42,31 +54,61 @@ public class RadioContentLoader implements Callback<RadioContent> {
         isSetupForScheduledLoading = false;
         getTimer().cancel();
         getTimer().purge();
+        metadataLagTracker.reset();
     }
 
     public void loadContent() {
-        Call<RadioContent> radioContentCall = radioRestService.getRadioContent();
-        radioContentCall.enqueue(this);
+        Tracer.beginSection("RadioContentLoader.loadContent");
+        try {
+            Call<RadioContent> radioContentCall = radioRestService.getRadioContent();
+            metadataLagTracker.onRequestStarted();
+            radioContentCall.enqueue(this);
+        } finally {
+            Tracer.endSection();
+        }
     }
 
     @Override
     public void onResponse(Call<RadioContent> call, Response<RadioContent> response) {
-        if (response.isSuccess()) {
-            RadioContent radioContent = response.body();
-            radioContentListener.onRadioContentLoadSuccess(radioContent);
-
-            if (isSetupForScheduledLoading()) {
-                long delayInMillis = determineDelayForNextLoadTaskInMillis(radioContent.getCurrentTrack());
-                scheduleNextLoadTask(delayInMillis);
+        Tracer.beginSection("RadioContentLoader.onResponse");
+        try {
+            if (response.isSuccess()) {
+                RadioContent radioContent = response.body();
+                metadataLagTracker.onRadioContentLoaded(radioContent, response.headers().getDate("Date"));
+                // Subscribers go before anything is shown, so a new DJ's avatar is already on its way and the
+                // listener trend drawn with the new count includes it.
+                for (RadioContentSubscriber radioContentSubscriber : radioContentSubscribers) {
+                    radioContentSubscriber.onRadioContentLoaded(radioContent);
+                }
+                if (radioContentListener != null) {
+                    radioContentListener.onRadioContentLoadSuccess(radioContent);
+                }
+
+                if (isSetupForScheduledLoading()) {
+                    scheduleNextLoadTaskWithinDataBudget(determineDelayForNextLoadTaskInMillis(radioContent.getCurrentTrack()));
+                }
+            } else if (radioContentListener != null) {
+                radioContentListener.onRadioContentLoadFailed();
             }
-        } else {
-            radioContentListener.onRadioContentLoadFailed();
+        } finally {
+            Tracer.endSection();
         }
     }
 
     @Override
     public void onFailure(Call<RadioContent> call, Throwable t) {
-        radioContentListener.onRadioContentLoadFailed();
+        Tracer.beginSection("RadioContentLoader.onFailure");
+        try {
+            if (radioContentListener != null) {
+                radioContentListener.onRadioContentLoadFailed();
+            }
+        } finally {
+            Tracer.endSection();
+        }
+    }
+
+    public void onCurrentTrackTitleDisplayed() {
+        metadataLagTracker.onTrackTitleDisplayed();
     }
 
     protected boolean isSetupForScheduledLoading() {
@@ -83,6 +125,16 @@ public class RadioContentLoader implements Callback<RadioContent> {
         }
     }
 
+    private void scheduleNextLoadTaskWithinDataBudget(long delayInMillis) {
+        // Once the budget runs out polling pauses until the player is next opened, which loads content again.
+        DataBudgetState dataBudgetState = dataBudget.getState();
+        if (dataBudgetState == DataBudgetState.NEARLY_EXHAUSTED) {
+            scheduleNextLoadTask(Math.max(delayInMillis, MIN_SCHEDULED_LOAD_TASK_DELAY_NEAR_DATA_BUDGET_IN_MILLIS));
+        } else if (dataBudgetState != DataBudgetState.EXHAUSTED) {
+            scheduleNextLoadTask(delayInMillis);
+        }
+    }
+
     private void scheduleNextLoadTask(long delayInMillis) {
         TimerTask timerTask = new RadioContentLoaderTimerTask(this);
         getTimer().schedule(timerTask, delayInMillis);
@@ -103,4 +155,10 @@ public class RadioContentLoader implements Callback<RadioContent> {
 
         void onRadioContentLoadFailed();
     }
+
+    // Everything that keeps its own copy of what's on air, fed by every loader whether or not a screen is listening.
+    public interface RadioContentSubscriber {
+
+        void onRadioContentLoaded(RadioContent radioContent);
+    }
 }
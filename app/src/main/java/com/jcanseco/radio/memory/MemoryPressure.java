@@ -0,0 +1,35 @@
+package com.jcanseco.radio.memory;
+
+import android.content.ComponentCallbacks2;
+
+public enum MemoryPressure {
+
+    NONE,
+    MODERATE,
+    HIGH,
+    CRITICAL;
+
+    public static MemoryPressure fromTrimLevel(int trimLevel) {
+        if (trimLevel >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+            return CRITICAL;
+        } else if (trimLevel >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            return HIGH;
+        } else if (trimLevel >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // Hidden UI and the top of the background LRU list only say the app is no longer visible. A service
+            // that is still playing must keep its buffer and connection.
+            return NONE;
+        } else if (trimLevel >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return CRITICAL;
+        } else if (trimLevel >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return HIGH;
+        } else if (trimLevel >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return MODERATE;
+        } else {
+            return NONE;
+        }
+    }
+
+    public boolean isAtLeast(MemoryPressure memoryPressure) {
+        return compareTo(memoryPressure) >= 0;
+    }
+}
@@ -0,0 +1,109 @@
+package com.jcanseco.radio.memory;
+
+import com.jcanseco.radio.diagnostics.Dumpable;
+import com.jcanseco.radio.tasks.MemoryPressureRecoveryTimerTask;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Timer;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class MemoryPressureCoordinator implements Dumpable {
+
+    private static final long RECOVERY_DELAY_IN_MILLIS = 60 * 1000;
+
+    private final List<MemoryTrimmable> trimmables = new CopyOnWriteArrayList<>();
+
+    private MemoryPressure memoryPressure = MemoryPressure.NONE;
+    private Timer timer;
+
+    public void register(MemoryTrimmable trimmable) {
+        trimmables.add(trimmable);
+        trimmable.onMemoryPressureChanged(getMemoryPressure());
+    }
+
+    public void unregister(MemoryTrimmable trimmable) {
+        trimmables.remove(trimmable);
+    }
+
+    // Trimmables are notified outside the monitor, so one that calls back into the coordinator or blocks on
+    // another thread can't stall or deadlock the system callbacks.
+    public void onTrimMemory(int trimLevel) {
+        onMemoryPressureReported(MemoryPressure.fromTrimLevel(trimLevel));
+    }
+
+    public void onLowMemory() {
+        onMemoryPressureReported(MemoryPressure.CRITICAL);
+    }
+
+    private void onMemoryPressureReported(MemoryPressure reportedMemoryPressure) {
+        if (reportedMemoryPressure == MemoryPressure.NONE) {
+            return;
+        }
+
+        boolean hasChanged;
+        synchronized (this) {
+            // Pressure is only ever escalated by the system callbacks. It is lowered again once no callbacks
+            // have arrived for a while, since Android never reports that memory has become available.
+            hasChanged = reportedMemoryPressure.isAtLeast(memoryPressure) && setMemoryPressure(reportedMemoryPressure);
+            scheduleRecovery();
+        }
+        if (hasChanged) {
+            notifyTrimmables(reportedMemoryPressure);
+        }
+    }
+
+    public void onMemoryPressureSubsided() {
+        boolean hasChanged;
+        synchronized (this) {
+            hasChanged = setMemoryPressure(MemoryPressure.NONE);
+        }
+        if (hasChanged) {
+            notifyTrimmables(MemoryPressure.NONE);
+        }
+    }
+
+    private void scheduleRecovery() {
+        if (getTimer() != null) {
+            getTimer().cancel();
+            getTimer().purge();
+        }
+        timer = initNewTimer();
+        timer.schedule(new MemoryPressureRecoveryTimerTask(this), RECOVERY_DELAY_IN_MILLIS);
+    }
+
+    private boolean setMemoryPressure(MemoryPressure newMemoryPressure) {
+        if (memoryPressure == newMemoryPressure) {
+            return false;
+        }
+        memoryPressure = newMemoryPressure;
+        return true;
+    }
+
+    private void notifyTrimmables(MemoryPressure newMemoryPressure) {
+        for (MemoryTrimmable trimmable : trimmables) {
+            trimmable.onMemoryPressureChanged(newMemoryPressure);
+        }
+    }
+
+    public synchronized MemoryPressure getMemoryPressure() {
+        return memoryPressure;
+    }
+
+    @Override
+    public void dumpState(PrintWriter writer) {
+        writer.println("MemoryPressureCoordinator");
+        writer.printf("  memory pressure: %s%n", getMemoryPressure());
+        for (MemoryTrimmable trimmable : trimmables) {
+            writer.printf("  registered: %s%n", trimmable);
+        }
+    }
+
+    protected Timer initNewTimer() {
+        return new Timer();
+    }
+
+    protected Timer getTimer() {
+        return timer;
+    }
+}
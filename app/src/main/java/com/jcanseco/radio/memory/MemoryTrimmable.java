@@ -0,0 +1,6 @@
+package com.jcanseco.radio.memory;
+
+public interface MemoryTrimmable {
+
+    void onMemoryPressureChanged(MemoryPressure memoryPressure);
+}
@@ -0,0 +1,14 @@
+package com.jcanseco.radio.metrics;
+
+public class Gauge {
+
+    private volatile long value;
+
+    public void set(long value) {
+        this.value = value;
+    }
+
+    public long get() {
+        return value;
+    }
+}
@@ -0,0 +1,76 @@
+package com.jcanseco.radio.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Histogram {
+
+    // Bucket i holds values in [2^(i-1), 2^i), with bucket 0 holding zero and negative values.
+    private static final int NUM_OF_BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_OF_BUCKETS);
+
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void record(long value) {
+        buckets.incrementAndGet(getBucketIndex(value));
+        synchronized (this) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMin() {
+        return count > 0 ? min : 0;
+    }
+
+    public synchronized long getMax() {
+        return count > 0 ? max : 0;
+    }
+
+    public synchronized long getMean() {
+        return count > 0 ? sum / count : 0;
+    }
+
+    public long getPercentile(double percentile) {
+        long totalCount = getCount();
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100 * totalCount);
+        long seen = 0;
+        for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(getBucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    private static int getBucketIndex(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        return Math.min(64 - Long.numberOfLeadingZeros(value), NUM_OF_BUCKETS - 1);
+    }
+
+    private static long getBucketUpperBound(int bucketIndex) {
+        return bucketIndex == 0 ? 0 : (1L << bucketIndex) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d min=%d mean=%d p50=%d p95=%d max=%d",
+                getCount(), getMin(), getMean(), getPercentile(50), getPercentile(95), getMax());
+    }
+}
@@ -1,7 +1,5 @@
 package com.jcanseco.radio.models;
 
-import java.util.concurrent.TimeUnit;
-
 public class NowPlayingTrack extends Track {
 
     public static final int INVALID_TIME_VALUE = -9999;
@@ -16,6 +14,10 @@ public class NowPlayingTrack extends Track {
         this.endTimeInUnixTime = endTimeInUnixTime;
     }
 
+    public long getStartTimeInUnixTime() {
+        return startTimeInUnixTime;
+    }
+
     public String getLengthAsTimeString() {
         int length = getLengthInSeconds();
         if (length != INVALID_TIME_VALUE) {
@@ -60,9 +62,7 @@ public class NowPlayingTrack extends Track {
     }
 
     private String formatSecondsIntoTimeString(int seconds) {
-        long minute = TimeUnit.SECONDS.toMinutes(seconds);
-        long second = TimeUnit.SECONDS.toSeconds(seconds) - (minute * 60);
-        return String.format("%02d:%02d", minute, second);
+        return new TrackTimeText().set(seconds).toString();
     }
 
     protected long getCurrentTimeInUnixTime() {
@@ -1,14 +1,31 @@
 package com.jcanseco.radio.models;
 
 import com.google.gson.annotations.SerializedName;
+import com.jcanseco.radio.api.ParseTimestamped;
 
 import java.util.List;
 
-public class RadioContent {
+public class RadioContent implements ParseTimestamped {
 
     @SerializedName("main")
     private RadioContentMain radioContentMain;
 
+    private transient long parseStartedAtMillis;
+    private transient long parseFinishedAtMillis;
+
+    @Override
+    public void setParseTimes(long parseStartedAtMillis, long parseFinishedAtMillis) {
+        this.parseStartedAtMillis = parseStartedAtMillis;
+        this.parseFinishedAtMillis = parseFinishedAtMillis;
+    }
+
+    public long getParseStartedAtMillis() {
+        return parseStartedAtMillis;
+    }
+
+    public long getParseFinishedAtMillis() {
+        return parseFinishedAtMillis;
+    }
 
     public NowPlayingTrack getCurrentTrack() {
         return radioContentMain.getCurrentTrack();
@@ -22,6 +39,10 @@ public class RadioContent {
         return radioContentMain.getNumOfListeners();
     }
 
+    public boolean isAfkStream() {
+        return radioContentMain.isAfkStream();
+    }
+
     public List<Track> getQueuedTracks() {
         return radioContentMain.getQueuedTracks();
     }
@@ -1,5 +1,6 @@
 package com.jcanseco.radio.models;
 
+import com.google.gson.JsonPrimitive;
 import com.google.gson.annotations.SerializedName;
 
 import java.util.List;
@@ -21,6 +22,10 @@ public class RadioContentMain {
     @SerializedName("listeners")
     private int numOfListeners;
 
+    // Read as whatever it comes as, so it doesn't matter whether it's encoded as a number or a boolean.
+    @SerializedName("isafkstream")
+    private JsonPrimitive isAfkStream;
+
     @SerializedName("queue")
     private List<Track> queuedTracks;
 
@@ -30,9 +35,15 @@ public class RadioContentMain {
     @SerializedName("thread")
     private String discussionThreadUrl;
 
+    // Built once per response, since the progress ticker asks for it every second.
+    private transient NowPlayingTrack currentTrack;
+
 
     public NowPlayingTrack getCurrentTrack() {
-        return new NowPlayingTrack(currentTrackTitle, currentTrackStartTimeInUnixTime, currentTrackEndTimeInUnixTime);
+        if (currentTrack == null) {
+            currentTrack = new NowPlayingTrack(currentTrackTitle, currentTrackStartTimeInUnixTime, currentTrackEndTimeInUnixTime);
+        }
+        return currentTrack;
     }
 
     public Dj getCurrentDj() {
@@ -43,6 +54,14 @@ public class RadioContentMain {
         return numOfListeners;
     }
 
+    // The station's automation is playing rather than a live DJ.
+    public boolean isAfkStream() {
+        if (isAfkStream == null) {
+            return false;
+        }
+        return isAfkStream.isBoolean() ? isAfkStream.getAsBoolean() : isAfkStream.isNumber() && isAfkStream.getAsInt() != 0;
+    }
+
     public List<Track> getQueuedTracks() {
         return queuedTracks;
     }
@@ -7,12 +7,34 @@ public class Track {
     @SerializedName("meta")
     protected String title;
 
+    // When the track started for last played tracks, and when it's expected to start for queued ones.
+    @SerializedName("timestamp")
+    protected long timestampInUnixTime;
+
 
     public Track(String title) {
         this.title = title;
     }
 
+    public Track(String title, long timestampInUnixTime) {
+        this.title = title;
+        this.timestampInUnixTime = timestampInUnixTime;
+    }
+
     public String getTitle() {
         return title;
     }
+
+    public long getTimestampInUnixTime() {
+        return timestampInUnixTime;
+    }
+
+    // The station can play the same song more than once, so a title alone doesn't identify an entry in a list.
+    public boolean isSameEntryAs(Track other) {
+        return timestampInUnixTime == other.timestampInUnixTime && hasSameTitleAs(other);
+    }
+
+    public boolean hasSameTitleAs(Track other) {
+        return title == null ? other.title == null : title.equals(other.title);
+    }
 }
@@ -0,0 +1,47 @@
+package com.jcanseco.radio.models;
+
+// A "mm:ss" time that is rewritten in place, so text that changes every second doesn't leave a String behind each
+// time. TextView.setText(char[], int, int) takes the chars as they are.
+public class TrackTimeText {
+
+    // Enough for the minutes of any int number of seconds, the colon and the seconds.
+    private static final int MAX_LENGTH = 11;
+
+    private final char[] chars = new char[MAX_LENGTH];
+    private int length;
+
+    public TrackTimeText set(int seconds) {
+        int minutes = Math.max(seconds, 0) / 60;
+        int secondsOfMinute = Math.max(seconds, 0) % 60;
+
+        // Digits are written from the end backwards, and then moved to the front.
+        int start = MAX_LENGTH;
+        chars[--start] = (char) ('0' + secondsOfMinute % 10);
+        chars[--start] = (char) ('0' + secondsOfMinute / 10);
+        chars[--start] = ':';
+        do {
+            chars[--start] = (char) ('0' + minutes % 10);
+            minutes /= 10;
+        } while (minutes > 0);
+        if (start == MAX_LENGTH - 4) {
+            chars[--start] = '0';
+        }
+
+        length = MAX_LENGTH - start;
+        System.arraycopy(chars, start, chars, 0, length);
+        return this;
+    }
+
+    public char[] getChars() {
+        return chars;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
@@ -0,0 +1,29 @@
+package com.jcanseco.radio.network;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+// Added as a network interceptor, so the disk cache stores responses as cacheable for as long as given, whatever
+// the server said. Only meant for resources that change rarely and can be a little stale, like DJ avatars.
+public class CacheAgeOverrideInterceptor implements Interceptor {
+
+    private final long maxAgeInSeconds;
+
+    public CacheAgeOverrideInterceptor(long maxAgeInSeconds) {
+        this.maxAgeInSeconds = maxAgeInSeconds;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        if (!response.isSuccessful()) {
+            return response;
+        }
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", "public, max-age=" + maxAgeInSeconds)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.jcanseco.radio.network;
+
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Histogram;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Dns;
+
+// The API, the images and the stream all live on the same few hosts, so one lookup serves all of them until it
+// expires. Failed lookups aren't cached, so a flaky resolver is retried on the next request.
+public class CachingDns implements Dns {
+
+    public static final long DEFAULT_TTL_IN_MILLIS = 5 * 60 * 1000;
+
+    private final long ttlInMillis;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Histogram lookupDurationHistogram;
+
+    public CachingDns(MetricsRegistry metricsRegistry, long ttlInMillis) {
+        this.ttlInMillis = ttlInMillis;
+
+        hitCounter = metricsRegistry.counter("dns.cache.hits");
+        missCounter = metricsRegistry.counter("dns.cache.misses");
+        lookupDurationHistogram = metricsRegistry.histogram("dns.lookup.duration_ms");
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        long now = getCurrentTimeInMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(hostname);
+            if (entry != null && entry.expiresAtMillis > now) {
+                hitCounter.increment();
+                return entry.addresses;
+            }
+        }
+
+        missCounter.increment();
+        List<InetAddress> addresses = lookupUncached(hostname);
+        long lookedUpAtMillis = getCurrentTimeInMillis();
+        lookupDurationHistogram.record(lookedUpAtMillis - now);
+
+        synchronized (entries) {
+            entries.put(hostname, new Entry(addresses, lookedUpAtMillis + ttlInMillis));
+        }
+        return addresses;
+    }
+
+    // Addresses handed out on one network can be unreachable from the next one.
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    protected List<InetAddress> lookupUncached(String hostname) throws UnknownHostException {
+        return Arrays.asList(InetAddress.getAllByName(hostname));
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+
+
+    private static class Entry {
+
+        private final List<InetAddress> addresses;
+        private final long expiresAtMillis;
+
+        private Entry(List<InetAddress> addresses, long expiresAtMillis) {
+            this.addresses = addresses;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
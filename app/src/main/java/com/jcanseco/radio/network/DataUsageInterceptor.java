@@ -0,0 +1,84 @@
+package com.jcanseco.radio.network;
+
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.datausage.TrafficCategory;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+// Added as a network interceptor, so responses served from the cache aren't counted. Headers are counted at the
+// length of their text, which is what goes over the wire for HTTP/1.1 before TLS.
+public class DataUsageInterceptor implements Interceptor {
+
+    private final DataUsageLedger dataUsageLedger;
+    private final TrafficCategory trafficCategory;
+
+    public DataUsageInterceptor(DataUsageLedger dataUsageLedger, TrafficCategory trafficCategory) {
+        this.dataUsageLedger = dataUsageLedger;
+        this.trafficCategory = trafficCategory;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        long numOfRequestBytes = request.headers().toString().length();
+        if (request.body() != null && request.body().contentLength() > 0) {
+            numOfRequestBytes += request.body().contentLength();
+        }
+        dataUsageLedger.record(trafficCategory, numOfRequestBytes);
+
+        Response response = chain.proceed(request);
+        dataUsageLedger.record(trafficCategory, response.headers().toString().length());
+        if (response.body() == null) {
+            return response;
+        }
+        return response.newBuilder()
+                .body(new MeteredResponseBody(response.body()))
+                .build();
+    }
+
+
+    private class MeteredResponseBody extends ResponseBody {
+
+        private final ResponseBody responseBody;
+        private final BufferedSource source;
+
+        private MeteredResponseBody(ResponseBody responseBody) {
+            this.responseBody = responseBody;
+            this.source = Okio.buffer(new ForwardingSource(responseBody.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long numOfBytesRead = super.read(sink, byteCount);
+                    if (numOfBytesRead > 0) {
+                        dataUsageLedger.record(trafficCategory, numOfBytesRead);
+                    }
+                    return numOfBytesRead;
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return responseBody.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return responseBody.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
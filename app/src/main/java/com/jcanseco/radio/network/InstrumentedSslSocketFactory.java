@@ -0,0 +1,76 @@
+package com.jcanseco.radio.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+// OkHttp starts the handshake right after creating the socket, so the creation time stands in for the start of
+// the handshake.
+public class InstrumentedSslSocketFactory extends SSLSocketFactory {
+
+    private final SSLSocketFactory delegate;
+    private final TlsHandshakeRecorder handshakeRecorder;
+
+    public InstrumentedSslSocketFactory(SSLSocketFactory delegate, TlsHandshakeRecorder handshakeRecorder) {
+        this.delegate = delegate;
+        this.handshakeRecorder = handshakeRecorder;
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        return instrument(delegate.createSocket(socket, host, port, autoClose));
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return instrument(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return instrument(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return instrument(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return instrument(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return instrument(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    private Socket instrument(Socket socket) {
+        if (socket instanceof SSLSocket) {
+            final long createdAtMillis = System.currentTimeMillis();
+            ((SSLSocket) socket).addHandshakeCompletedListener(new HandshakeCompletedListener() {
+                @Override
+                public void handshakeCompleted(HandshakeCompletedEvent event) {
+                    handshakeRecorder.recordHandshake(event.getSession(), createdAtMillis);
+                }
+            });
+        }
+        return socket;
+    }
+}
@@ -0,0 +1,88 @@
+package com.jcanseco.radio.network;
+
+import android.net.Uri;
+
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Gauge;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.squareup.picasso.Downloader;
+import com.squareup.picasso.NetworkPolicy;
+
+import java.io.IOException;
+
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+// Picasso 2.5 only knows how to talk to OkHttp 2, so this lets it load images through the shared OkHttp 3 client.
+public class OkHttp3Downloader implements Downloader {
+
+    private final OkHttpClient okHttpClient;
+
+    private final Counter diskCacheHitCounter;
+    private final Counter diskCacheMissCounter;
+    private final Gauge diskCacheHitRatioGauge;
+
+    public OkHttp3Downloader(OkHttpClient okHttpClient, MetricsRegistry metricsRegistry) {
+        this.okHttpClient = okHttpClient;
+        this.diskCacheHitCounter = metricsRegistry.counter("images.disk_cache.hits");
+        this.diskCacheMissCounter = metricsRegistry.counter("images.disk_cache.misses");
+        this.diskCacheHitRatioGauge = metricsRegistry.gauge("images.disk_cache.hit_ratio_percent");
+    }
+
+    @Override
+    public Response load(Uri uri, int networkPolicy) throws IOException {
+        Request.Builder requestBuilder = new Request.Builder().url(uri.toString());
+        CacheControl cacheControl = getCacheControl(networkPolicy);
+        if (cacheControl != null) {
+            requestBuilder.cacheControl(cacheControl);
+        }
+
+        okhttp3.Response response = okHttpClient.newCall(requestBuilder.build()).execute();
+        int responseCode = response.code();
+        if (responseCode >= 300) {
+            response.body().close();
+            throw new ResponseException(responseCode + " " + response.message(), networkPolicy, responseCode);
+        }
+
+        boolean isFromCache = response.cacheResponse() != null;
+        recordDiskCacheLookup(response.networkResponse() == null);
+        ResponseBody responseBody = response.body();
+        return new Response(responseBody.byteStream(), isFromCache, responseBody.contentLength());
+    }
+
+    // A cached response that had to be revalidated still cost a round trip, so only one served without the network
+    // counts as a hit.
+    private void recordDiskCacheLookup(boolean isHit) {
+        if (isHit) {
+            diskCacheHitCounter.increment();
+        } else {
+            diskCacheMissCounter.increment();
+        }
+        diskCacheHitRatioGauge.set(100 * diskCacheHitCounter.get() / (diskCacheHitCounter.get() + diskCacheMissCounter.get()));
+    }
+
+    @Override
+    public void shutdown() {
+        // The client is shared with the rest of the app, so it outlives Picasso.
+    }
+
+    private static CacheControl getCacheControl(int networkPolicy) {
+        if (networkPolicy == 0) {
+            return null;
+        }
+        if (NetworkPolicy.isOfflineOnly(networkPolicy)) {
+            return CacheControl.FORCE_CACHE;
+        }
+
+        CacheControl.Builder cacheControlBuilder = new CacheControl.Builder();
+        if (!NetworkPolicy.shouldReadFromDiskCache(networkPolicy)) {
+            cacheControlBuilder.noCache();
+        }
+        if (!NetworkPolicy.shouldWriteToDiskCache(networkPolicy)) {
+            cacheControlBuilder.noStore();
+        }
+        return cacheControlBuilder.build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.jcanseco.radio.network;
+
+import android.content.Context;
+import android.net.SSLSessionCache;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import javax.net.ssl.SSLContext;
+
+// SSLSessionCache keeps TLS sessions in the app's cache directory, so the first connection after a process
+// restart can still resume a session instead of doing a full handshake. The framework only exposes it through
+// SSLCertificateSocketFactory, which can't create the SSLEngines the stream connection needs, so it's attached
+// to the shared SSLContext through the same hidden hook the framework itself uses.
+public final class PersistentTlsSessionCache {
+
+    private PersistentTlsSessionCache() {}
+
+    public static boolean install(Context context, SSLContext sslContext) {
+        try {
+            Method installMethod = SSLSessionCache.class.getMethod("install", SSLSessionCache.class, SSLContext.class);
+            installMethod.invoke(null, new SSLSessionCache(context), sslContext);
+            return true;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            // Sessions are then only cached in memory, for the lifetime of the process.
+            return false;
+        } catch (LinkageError e) {
+            // Not every runtime ships the file backed cache, the JVM that runs unit tests among them.
+            return false;
+        }
+    }
+}
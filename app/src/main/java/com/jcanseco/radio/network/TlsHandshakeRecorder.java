@@ -0,0 +1,54 @@
+package com.jcanseco.radio.network;
+
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Gauge;
+import com.jcanseco.radio.metrics.Histogram;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import javax.net.ssl.SSLSession;
+
+// Tells full handshakes from abbreviated ones and estimates how much time the session cache has saved, by
+// pricing every abbreviated handshake at the difference between the mean durations of both kinds.
+public class TlsHandshakeRecorder {
+
+    private final Counter fullHandshakeCounter;
+    private final Counter resumedHandshakeCounter;
+    private final Histogram fullHandshakeDurationHistogram;
+    private final Histogram resumedHandshakeDurationHistogram;
+    private final Gauge timeSavedGauge;
+
+    public TlsHandshakeRecorder(MetricsRegistry metricsRegistry) {
+        fullHandshakeCounter = metricsRegistry.counter("tls.handshakes.full");
+        resumedHandshakeCounter = metricsRegistry.counter("tls.handshakes.resumed");
+        fullHandshakeDurationHistogram = metricsRegistry.histogram("tls.handshake.full_duration_ms");
+        resumedHandshakeDurationHistogram = metricsRegistry.histogram("tls.handshake.resumed_duration_ms");
+        timeSavedGauge = metricsRegistry.gauge("tls.handshake.time_saved_ms");
+    }
+
+    public void recordHandshake(SSLSession session, long handshakeStartedAtMillis) {
+        long durationInMillis = getCurrentTimeInMillis() - handshakeStartedAtMillis;
+
+        // A resumed session keeps the creation time of the handshake that first established it.
+        if (session.getCreationTime() < handshakeStartedAtMillis) {
+            resumedHandshakeCounter.increment();
+            resumedHandshakeDurationHistogram.record(durationInMillis);
+        } else {
+            fullHandshakeCounter.increment();
+            fullHandshakeDurationHistogram.record(durationInMillis);
+        }
+
+        updateTimeSaved();
+    }
+
+    private void updateTimeSaved() {
+        if (fullHandshakeDurationHistogram.getCount() == 0) {
+            return;
+        }
+        long savedPerHandshakeInMillis = fullHandshakeDurationHistogram.getMean() - resumedHandshakeDurationHistogram.getMean();
+        timeSavedGauge.set(Math.max(0, savedPerHandshakeInMillis) * resumedHandshakeDurationHistogram.getCount());
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,31 @@
+package com.jcanseco.radio.notifications;
+
+import android.content.Context;
+import android.support.v7.app.NotificationCompat;
+import android.support.v4.app.NotificationManagerCompat;
+
+import com.jcanseco.radio.R;
+import com.jcanseco.radio.models.Dj;
+
+public class DjLiveNotifier {
+
+    private static final int DJ_LIVE_NOTIFICATION_ID = 2;
+
+    private final Context context;
+
+    public DjLiveNotifier(Context context) {
+        this.context = context;
+    }
+
+    // One notification at a time, replaced by whoever came on last.
+    public void notifyDjWentLive(Dj dj) {
+        NotificationManagerCompat.from(context).notify(DJ_LIVE_NOTIFICATION_ID, new NotificationCompat.Builder(context)
+                .setSmallIcon(R.mipmap.launcher_logo)
+                .setContentTitle(context.getString(R.string.dj_live_notification_title, dj.getName()))
+                .setContentText(context.getString(R.string.dj_live_notification_text))
+                .setContentIntent(PlaybackNotificationFactory.createOpenRadioPlayerIntent(context))
+                .setCategory(NotificationCompat.CATEGORY_SOCIAL)
+                .setAutoCancel(true)
+                .build());
+    }
+}
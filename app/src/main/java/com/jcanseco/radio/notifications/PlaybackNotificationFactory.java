@@ -0,0 +1,53 @@
+package com.jcanseco.radio.notifications;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.support.v7.app.NotificationCompat;
+
+import com.jcanseco.radio.R;
+import com.jcanseco.radio.nowplaying.NowPlayingPublisher;
+import com.jcanseco.radio.nowplaying.NowPlayingState;
+import com.jcanseco.radio.services.RadioPlayerService;
+import com.jcanseco.radio.ui.radioplayer.RadioPlayerActivity;
+
+public class PlaybackNotificationFactory {
+
+    public static final int PLAYBACK_NOTIFICATION_ID = 1;
+
+    public static Notification createPlaybackNotification(Context context, NowPlayingState state) {
+        return new NotificationCompat.Builder(context)
+                .setSmallIcon(R.mipmap.launcher_logo)
+                .setContentTitle(state.getTrackTitle() != null ? state.getTrackTitle() : context.getString(R.string.app_name))
+                .setContentText(state.getTrackTitle() != null
+                        ? formatDjAndListeners(context, state) : context.getString(R.string.playback_notification_text))
+                .setContentIntent(createOpenRadioPlayerIntent(context))
+                .addAction(state.isPlaying() ? R.drawable.pause : R.drawable.play,
+                        context.getString(state.isPlaying() ? R.string.pause_action : R.string.play_action),
+                        RadioPlayerService.createTogglePlaybackIntent(context))
+                .setStyle(new NotificationCompat.MediaStyle().setShowActionsInCompactView(0))
+                .setCategory(NotificationCompat.CATEGORY_TRANSPORT)
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+                .setShowWhen(false)
+                .setOngoing(true)
+                .build();
+    }
+
+    public static String formatDjAndListeners(Context context, NowPlayingState state) {
+        if (state.getDjName() == null) {
+            return "";
+        }
+        int listenerBucket = state.getListenerBucket();
+        String listeners = listenerBucket >= NowPlayingPublisher.LISTENER_BUCKET_SIZE
+                ? context.getString(R.string.num_of_listeners_at_least, listenerBucket)
+                : context.getString(R.string.num_of_listeners, listenerBucket);
+        return context.getString(R.string.dj_and_listeners, state.getDjName(), listeners);
+    }
+
+    public static PendingIntent createOpenRadioPlayerIntent(Context context) {
+        Intent intent = new Intent(context, RadioPlayerActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        return PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+}
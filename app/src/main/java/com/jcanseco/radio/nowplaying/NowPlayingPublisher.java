@@ -0,0 +1,112 @@
+package com.jcanseco.radio.nowplaying;
+
+import com.jcanseco.radio.diagnostics.Dumpable;
+import com.jcanseco.radio.loaders.RadioContentLoader;
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.models.Dj;
+import com.jcanseco.radio.models.NowPlayingTrack;
+import com.jcanseco.radio.models.RadioContent;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// The app-level subscription to what's playing, for everything outside the player screen. Every poll and every
+// play or pause is handed over, but subscribers only hear about it when something they'd show has changed, since
+// each update they push is a RemoteViews sent across to the launcher or the system UI. While the screen is off
+// nothing can be seen anyway, so changes are held back and only the latest is sent once it comes on again.
+// Only used from the main thread.
+public class NowPlayingPublisher implements RadioContentLoader.RadioContentSubscriber, Dumpable {
+
+    public static final int LISTENER_BUCKET_SIZE = 10;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Counter publishedUpdatesCounter;
+    private final Counter unchangedUpdatesCounter;
+    private final Counter deferredUpdatesCounter;
+
+    private NowPlayingState state = NowPlayingState.EMPTY;
+    private NowPlayingState publishedState = NowPlayingState.EMPTY;
+    private boolean isScreenOn = true;
+
+    public NowPlayingPublisher(MetricsRegistry metricsRegistry) {
+        this.publishedUpdatesCounter = metricsRegistry.counter("nowplaying.updates_published");
+        this.unchangedUpdatesCounter = metricsRegistry.counter("nowplaying.updates_unchanged");
+        this.deferredUpdatesCounter = metricsRegistry.counter("nowplaying.updates_deferred");
+    }
+
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public NowPlayingState getState() {
+        return state;
+    }
+
+    @Override
+    public void onRadioContentLoaded(RadioContent radioContent) {
+        NowPlayingTrack currentTrack = radioContent.getCurrentTrack();
+        Dj currentDj = radioContent.getCurrentDj();
+        publishContent(currentTrack != null ? currentTrack.getTitle() : null, currentDj != null ? currentDj.getName() : null,
+                radioContent.getNumOfListeners());
+    }
+
+    public void publishContent(String trackTitle, String djName, int numOfListeners) {
+        update(state.withContent(trackTitle, djName, toListenerBucket(numOfListeners)));
+    }
+
+    public void publishPlaybackState(boolean isPlaying) {
+        update(state.withPlaying(isPlaying));
+    }
+
+    public void setScreenOn(boolean isScreenOn) {
+        this.isScreenOn = isScreenOn;
+        if (isScreenOn && !state.equals(publishedState)) {
+            publish();
+        }
+    }
+
+    private void update(NowPlayingState updatedState) {
+        state = updatedState;
+        if (state.equals(publishedState)) {
+            unchangedUpdatesCounter.increment();
+        } else if (!isScreenOn) {
+            deferredUpdatesCounter.increment();
+        } else {
+            publish();
+        }
+    }
+
+    private void publish() {
+        publishedState = state;
+        publishedUpdatesCounter.increment();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.onNowPlayingChanged(state);
+        }
+    }
+
+    static int toListenerBucket(int numOfListeners) {
+        if (numOfListeners < LISTENER_BUCKET_SIZE) {
+            return Math.max(0, numOfListeners);
+        }
+        return numOfListeners - numOfListeners % LISTENER_BUCKET_SIZE;
+    }
+
+    @Override
+    public void dumpState(PrintWriter writer) {
+        writer.println("NowPlayingPublisher");
+        writer.printf("  subscribers: %d, screen on: %b, update held back: %b%n",
+                subscribers.size(), isScreenOn, !state.equals(publishedState));
+    }
+
+
+    public interface Subscriber {
+
+        void onNowPlayingChanged(NowPlayingState state);
+    }
+}
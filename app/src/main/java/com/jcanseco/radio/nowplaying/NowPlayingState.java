@@ -0,0 +1,70 @@
+package com.jcanseco.radio.nowplaying;
+
+// Everything the widget and the playback notification show. Two states that are equal look the same on screen,
+// which is what lets the publisher skip updates that wouldn't change anything.
+public class NowPlayingState {
+
+    public static final NowPlayingState EMPTY = new NowPlayingState(null, null, 0, false);
+
+    private final String trackTitle;
+    private final String djName;
+    private final int listenerBucket;
+    private final boolean isPlaying;
+
+    public NowPlayingState(String trackTitle, String djName, int listenerBucket, boolean isPlaying) {
+        this.trackTitle = trackTitle;
+        this.djName = djName;
+        this.listenerBucket = listenerBucket;
+        this.isPlaying = isPlaying;
+    }
+
+    public String getTrackTitle() {
+        return trackTitle;
+    }
+
+    public String getDjName() {
+        return djName;
+    }
+
+    // The number of listeners rounded down to a multiple of NowPlayingPublisher.LISTENER_BUCKET_SIZE once there are
+    // that many, so a listener coming or going doesn't redraw anything.
+    public int getListenerBucket() {
+        return listenerBucket;
+    }
+
+    public boolean isPlaying() {
+        return isPlaying;
+    }
+
+    public NowPlayingState withContent(String trackTitle, String djName, int listenerBucket) {
+        return new NowPlayingState(trackTitle, djName, listenerBucket, isPlaying);
+    }
+
+    public NowPlayingState withPlaying(boolean isPlaying) {
+        return new NowPlayingState(trackTitle, djName, listenerBucket, isPlaying);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NowPlayingState)) {
+            return false;
+        }
+        NowPlayingState other = (NowPlayingState) o;
+        return listenerBucket == other.listenerBucket
+                && isPlaying == other.isPlaying
+                && (trackTitle != null ? trackTitle.equals(other.trackTitle) : other.trackTitle == null)
+                && (djName != null ? djName.equals(other.djName) : other.djName == null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = trackTitle != null ? trackTitle.hashCode() : 0;
+        result = 31 * result + (djName != null ? djName.hashCode() : 0);
+        result = 31 * result + listenerBucket;
+        result = 31 * result + (isPlaying ? 1 : 0);
+        return result;
+    }
+}
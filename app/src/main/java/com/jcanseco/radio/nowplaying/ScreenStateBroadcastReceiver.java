@@ -0,0 +1,37 @@
+package com.jcanseco.radio.nowplaying;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+
+// Screen on and off are only ever sent to receivers registered at runtime, so this one lives as long as the app.
+public class ScreenStateBroadcastReceiver extends BroadcastReceiver {
+
+    private final NowPlayingPublisher nowPlayingPublisher;
+
+    public ScreenStateBroadcastReceiver(NowPlayingPublisher nowPlayingPublisher) {
+        this.nowPlayingPublisher = nowPlayingPublisher;
+    }
+
+    public void register(Context context) {
+        IntentFilter intentFilter = new IntentFilter();
+        intentFilter.addAction(Intent.ACTION_SCREEN_ON);
+        intentFilter.addAction(Intent.ACTION_SCREEN_OFF);
+        context.registerReceiver(this, intentFilter);
+        nowPlayingPublisher.setScreenOn(isScreenOn(context));
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        nowPlayingPublisher.setScreenOn(Intent.ACTION_SCREEN_ON.equals(intent.getAction()));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static boolean isScreenOn(Context context) {
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return Build.VERSION.SDK_INT >= 20 ? powerManager.isInteractive() : powerManager.isScreenOn();
+    }
+}
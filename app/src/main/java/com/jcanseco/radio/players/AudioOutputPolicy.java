@@ -0,0 +1,47 @@
+package com.jcanseco.radio.players;
+
+public class AudioOutputPolicy {
+
+    private final long initialBufferDurationInMillis;
+    private final long maxBufferDurationInMillis;
+    private final int numOfUnderrunsBeforeGrowing;
+    private final long underrunWindowInMillis;
+
+    public AudioOutputPolicy(long initialBufferDurationInMillis, long maxBufferDurationInMillis, int numOfUnderrunsBeforeGrowing,
+                             long underrunWindowInMillis) {
+        if (maxBufferDurationInMillis < initialBufferDurationInMillis) {
+            throw new IllegalArgumentException("The output buffer can't start out larger than it may ever grow.");
+        }
+        if (numOfUnderrunsBeforeGrowing < 1) {
+            throw new IllegalArgumentException("Growing the output buffer takes at least one underrun.");
+        }
+        this.initialBufferDurationInMillis = initialBufferDurationInMillis;
+        this.maxBufferDurationInMillis = maxBufferDurationInMillis;
+        this.numOfUnderrunsBeforeGrowing = numOfUnderrunsBeforeGrowing;
+        this.underrunWindowInMillis = underrunWindowInMillis;
+    }
+
+    public long getInitialBufferDurationInMillis() {
+        return initialBufferDurationInMillis;
+    }
+
+    public long getMaxBufferDurationInMillis() {
+        return maxBufferDurationInMillis;
+    }
+
+    // The output buffer doubles once this many underruns happen within the window, so a single hiccup doesn't
+    // cost the extra memory and latency.
+    public int getNumOfUnderrunsBeforeGrowing() {
+        return numOfUnderrunsBeforeGrowing;
+    }
+
+    public long getUnderrunWindowInMillis() {
+        return underrunWindowInMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("output buffer %d-%d ms, grows after %d underruns in %d ms", initialBufferDurationInMillis,
+                maxBufferDurationInMillis, numOfUnderrunsBeforeGrowing, underrunWindowInMillis);
+    }
+}
@@ -0,0 +1,81 @@
+package com.jcanseco.radio.players;
+
+import com.google.android.exoplayer.ExoPlayer;
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Gauge;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+// The server sends audio in real time, so audio can never be received ahead of the live edge. Each time the
+// buffer grows, its end plus the time elapsed since is a lower bound for where the live edge is now, and the
+// highest of those bounds is the estimate. The initial burst servers send on connect brings the buffer right up
+// to the live edge, which keeps the estimate tight, and a stall stops the buffer from growing while the live
+// edge keeps moving, which is exactly the lag that builds up.
+public class LatencyController {
+
+    private final LatencyPolicy latencyPolicy;
+    private final Gauge lagGauge;
+    private final Counter catchUpCounter;
+
+    private long liveEdgeInMillis;
+    private long liveEdgeEstimatedAtMillis;
+    private boolean hasLiveEdgeEstimate;
+    private long lagInMillis;
+    private boolean isCatchingUp;
+
+    public LatencyController(LatencyPolicy latencyPolicy, MetricsRegistry metricsRegistry) {
+        this.latencyPolicy = latencyPolicy;
+        lagGauge = metricsRegistry.gauge("latency.lag_ms");
+        catchUpCounter = metricsRegistry.counter("latency.catch_ups");
+    }
+
+    // Positions restart from zero whenever playback is prepared or reconnected to the live edge.
+    public synchronized void reset() {
+        hasLiveEdgeEstimate = false;
+        lagInMillis = 0;
+        isCatchingUp = false;
+        lagGauge.set(0);
+    }
+
+    public synchronized boolean update(long playbackPositionInMillis, long bufferedPositionInMillis) {
+        if (playbackPositionInMillis == ExoPlayer.UNKNOWN_TIME || bufferedPositionInMillis == ExoPlayer.UNKNOWN_TIME) {
+            return isCatchingUp;
+        }
+
+        long now = getCurrentTimeInMillis();
+        long projectedLiveEdgeInMillis = liveEdgeInMillis + (now - liveEdgeEstimatedAtMillis);
+        if (!hasLiveEdgeEstimate || bufferedPositionInMillis > projectedLiveEdgeInMillis) {
+            projectedLiveEdgeInMillis = bufferedPositionInMillis;
+            hasLiveEdgeEstimate = true;
+        }
+        liveEdgeInMillis = projectedLiveEdgeInMillis;
+        liveEdgeEstimatedAtMillis = now;
+
+        lagInMillis = Math.max(0, liveEdgeInMillis - playbackPositionInMillis);
+        lagGauge.set(lagInMillis);
+
+        if (!isCatchingUp && lagInMillis > latencyPolicy.getTargetLagInMillis() + latencyPolicy.getToleranceInMillis()) {
+            isCatchingUp = true;
+            catchUpCounter.increment();
+        } else if (isCatchingUp && lagInMillis <= latencyPolicy.getTargetLagInMillis()) {
+            isCatchingUp = false;
+        }
+        return isCatchingUp;
+    }
+
+    public synchronized boolean isCatchingUp() {
+        return isCatchingUp;
+    }
+
+    public synchronized long getLagInMillis() {
+        return lagInMillis;
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("lag %d ms, %s (%s)", lagInMillis, isCatchingUp ? "catching up" : "on target", latencyPolicy);
+    }
+}
@@ -0,0 +1,36 @@
+package com.jcanseco.radio.players;
+
+public class LatencyPolicy {
+
+    private final long targetLagInMillis;
+    private final long toleranceInMillis;
+    private final float catchUpSpeed;
+
+    public LatencyPolicy(long targetLagInMillis, long toleranceInMillis, float catchUpSpeed) {
+        if (catchUpSpeed <= 1) {
+            throw new IllegalArgumentException("Catching up requires playing faster than real time.");
+        }
+        this.targetLagInMillis = targetLagInMillis;
+        this.toleranceInMillis = toleranceInMillis;
+        this.catchUpSpeed = catchUpSpeed;
+    }
+
+    public long getTargetLagInMillis() {
+        return targetLagInMillis;
+    }
+
+    // Catching up only starts once the lag exceeds the target by this much, so playback doesn't keep switching
+    // speed while hovering around the target.
+    public long getToleranceInMillis() {
+        return toleranceInMillis;
+    }
+
+    public float getCatchUpSpeed() {
+        return catchUpSpeed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("target lag %d ms (+%d ms), catch up at %.2fx", targetLagInMillis, toleranceInMillis, catchUpSpeed);
+    }
+}
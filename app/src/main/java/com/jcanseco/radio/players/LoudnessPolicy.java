@@ -0,0 +1,46 @@
+package com.jcanseco.radio.players;
+
+public class LoudnessPolicy {
+
+    private final boolean isEnabled;
+    private final float targetLoudnessInLufs;
+    private final float maxGainInDb;
+    private final float ceilingInDbfs;
+
+    public LoudnessPolicy(boolean isEnabled, float targetLoudnessInLufs, float maxGainInDb, float ceilingInDbfs) {
+        if (maxGainInDb < 0) {
+            throw new IllegalArgumentException("The max gain applies both ways, so it can't be negative.");
+        }
+        if (ceilingInDbfs > 0) {
+            throw new IllegalArgumentException("The ceiling can't be above full scale.");
+        }
+        this.isEnabled = isEnabled;
+        this.targetLoudnessInLufs = targetLoudnessInLufs;
+        this.maxGainInDb = maxGainInDb;
+        this.ceilingInDbfs = ceilingInDbfs;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    public float getTargetLoudnessInLufs() {
+        return targetLoudnessInLufs;
+    }
+
+    // Quiet talk gets boosted by at most this much, and loud music cut by at most this much.
+    public float getMaxGainInDb() {
+        return maxGainInDb;
+    }
+
+    // Peaks pushed above this by the gain are held down by the limiter.
+    public float getCeilingInDbfs() {
+        return ceilingInDbfs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, target %.1f LUFS, max gain %.1f dB, ceiling %.1f dBFS",
+                isEnabled ? "enabled" : "disabled", targetLoudnessInLufs, maxGainInDb, ceilingInDbfs);
+    }
+}
@@ -0,0 +1,29 @@
+package com.jcanseco.radio.players;
+
+public class PausePolicy {
+
+    private final long disconnectStreamAfterMillis;
+    private final long releaseResourcesAfterMillis;
+
+    public PausePolicy(long disconnectStreamAfterMillis, long releaseResourcesAfterMillis) {
+        if (releaseResourcesAfterMillis < disconnectStreamAfterMillis) {
+            throw new IllegalArgumentException("Resources cannot be released before the stream is disconnected.");
+        }
+        this.disconnectStreamAfterMillis = disconnectStreamAfterMillis;
+        this.releaseResourcesAfterMillis = releaseResourcesAfterMillis;
+    }
+
+    public long getDisconnectStreamAfterMillis() {
+        return disconnectStreamAfterMillis;
+    }
+
+    public long getReleaseResourcesAfterMillis() {
+        return releaseResourcesAfterMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("disconnect stream after %d ms, release resources after %d ms",
+                disconnectStreamAfterMillis, releaseResourcesAfterMillis);
+    }
+}
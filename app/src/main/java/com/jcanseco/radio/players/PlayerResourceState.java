@@ -0,0 +1,19 @@
+package com.jcanseco.radio.players;
+
+public enum PlayerResourceState {
+
+    IDLE("nothing"),
+    PLAYING("stream connection, decoder, renderer, allocator"),
+    PAUSED("stream connection, decoder, renderer, allocator"),
+    STREAM_DISCONNECTED("renderer, allocator");
+
+    private final String heldResources;
+
+    PlayerResourceState(String heldResources) {
+        this.heldResources = heldResources;
+    }
+
+    public String getHeldResources() {
+        return heldResources;
+    }
+}
@@ -1,20 +1,35 @@
 package com.jcanseco.radio.players;
 
-import android.app.Application;
-import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.google.android.exoplayer.ExoPlaybackException;
 import com.google.android.exoplayer.ExoPlayer;
 import com.google.android.exoplayer.TrackRenderer;
+import com.jcanseco.radio.diagnostics.Dumpable;
+import com.jcanseco.radio.flightrecorder.FlightEventType;
+import com.jcanseco.radio.flightrecorder.FlightRecorder;
+import com.jcanseco.radio.memory.MemoryPressure;
+import com.jcanseco.radio.memory.MemoryTrimmable;
+import com.jcanseco.radio.players.trackrenderers.StreamAudioTrackRenderer;
 import com.jcanseco.radio.players.trackrenderers.TrackRendererFactory;
 import com.jcanseco.radio.tasks.RadioPlayerBufferTimeoutTimerTask;
+import com.jcanseco.radio.tasks.RadioPlayerLatencyCheckTimerTask;
+import com.jcanseco.radio.tracing.Tracer;
 
+import java.io.PrintWriter;
+import java.util.LinkedList;
 import java.util.Timer;
 import java.util.TimerTask;
 
-public class RadioPlayer implements ExoPlayer.Listener {
+public class RadioPlayer implements ExoPlayer.Listener, MemoryTrimmable, Dumpable {
 
     private static final long BUFFER_TIMEOUT_IN_MILLIS = 10000;
+    private static final long LATENCY_CHECK_INTERVAL_IN_MILLIS = 1000;
+    private static final int AUDIO_RENDERER_INDEX = 0;
+    private static final int MAX_NUM_OF_RESOURCE_STATE_TRANSITIONS_TO_KEEP = 10;
+    private static final long BUFFER_LEVEL_RECORD_INTERVAL_IN_MILLIS = 5000;
+    private static final String[] PLAYBACK_STATE_NAMES = {null, "idle", "preparing", "buffering", "ready", "ended"};
 
     private RadioPlayer.Listener radioPlayerListener;
 
@@ -24,13 +39,43 @@ public class RadioPlayer implements ExoPlayer.Listener {
     private Timer timer;
     private boolean isCurrentlyCountingDownForBufferTimeout;
 
-    private final Context applicationContext;
+    private final PausePolicy pausePolicy;
+    private Handler mainThreadHandler;
+    private volatile PlayerResourceState resourceState = PlayerResourceState.IDLE;
+    private final LinkedList<ResourceStateTransition> resourceStateTransitions = new LinkedList<>();
 
-    public RadioPlayer(ExoPlayer exoPlayer, Application application) {
+    private final TrackRendererFactory trackRendererFactory;
+    private volatile TrackRenderer audioTrackRenderer;
+
+    private final LatencyController latencyController;
+    private Timer latencyCheckTimer;
+
+    private final FlightRecorder flightRecorder;
+    private long bufferLevelRecordedAtMillis;
+
+    private final Runnable streamDisconnectGracePeriodRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onStreamDisconnectGracePeriodElapsed();
+        }
+    };
+
+    private final Runnable resourceReleaseGracePeriodRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onResourceReleaseGracePeriodElapsed();
+        }
+    };
+
+    public RadioPlayer(ExoPlayer exoPlayer, PausePolicy pausePolicy, TrackRendererFactory trackRendererFactory,
+                       LatencyController latencyController, FlightRecorder flightRecorder) {
         this.exoPlayer = exoPlayer;
         this.exoPlayer.addListener(this);
 
-        this.applicationContext = application;
+        this.pausePolicy = pausePolicy;
+        this.trackRendererFactory = trackRendererFactory;
+        this.latencyController = latencyController;
+        this.flightRecorder = flightRecorder;
     }
 
     public void setRadioPlayerListener(RadioPlayer.Listener radioPlayerListener) {
@@ -42,33 +87,156 @@ public class RadioPlayer implements ExoPlayer.Listener {
     }
 
     public void play() {
-        if (!isExoPlayerPreparedForPlayback()) {
-            prepareExoPlayerForPlayback();
+        Tracer.beginSection("RadioPlayer.play");
+        try {
+            flightRecorder.record(FlightEventType.PLAY, 0);
+            stopPausePolicyCountdown();
+            if (getResourceState() == PlayerResourceState.STREAM_DISCONNECTED) {
+                reconnectToLiveEdge();
+            } else if (!isExoPlayerPreparedForPlayback()) {
+                prepareExoPlayerForPlayback();
+            }
+            exoPlayer.setPlayWhenReady(true);
+            isPlaying = true;
+            setResourceState(PlayerResourceState.PLAYING);
+            startLatencyChecks();
+        } finally {
+            Tracer.endSection();
         }
-        exoPlayer.setPlayWhenReady(true);
-        isPlaying = true;
     }
 
     private void prepareExoPlayerForPlayback() {
-        exoPlayer.prepare(createAudioTrackRenderer());
+        Tracer.beginSection("RadioPlayer.prepareExoPlayerForPlayback");
+        try {
+            audioTrackRenderer = createAudioTrackRenderer();
+            latencyController.reset();
+            exoPlayer.prepare(audioTrackRenderer);
+        } finally {
+            Tracer.endSection();
+        }
+    }
+
+    private void reconnectToLiveEdge() {
+        latencyController.reset();
+        setCatchingUp(false);
+        // The renderer is still prepared, so re-enabling its track skips format sniffing entirely. Live
+        // streams aren't seekable, which makes the seek restart loading from the live edge of the stream.
+        exoPlayer.setSelectedTrack(AUDIO_RENDERER_INDEX, ExoPlayer.TRACK_DEFAULT);
+        exoPlayer.seekTo(0);
     }
 
     protected TrackRenderer createAudioTrackRenderer() {
-        return TrackRendererFactory.createAudioTrackRenderer(applicationContext);
+        return trackRendererFactory.createAudioTrackRenderer();
     }
 
     public void pause() {
+        flightRecorder.record(FlightEventType.PAUSE, 0);
         exoPlayer.setPlayWhenReady(false);
         isPlaying = false;
+        stopLatencyChecks();
+
+        if (getResourceState() == PlayerResourceState.PLAYING) {
+            setResourceState(PlayerResourceState.PAUSED);
+            startPausePolicyCountdown();
+        }
     }
 
     public void release() {
+        stopPausePolicyCountdown();
+        stopLatencyChecks();
         exoPlayer.release();
         isPlaying = false;
+        setResourceState(PlayerResourceState.IDLE);
+    }
+
+    // The grace periods run out on the main thread, where play() and pause() run too, so once play() has removed
+    // them neither can act on a player that's playing again.
+    private void startPausePolicyCountdown() {
+        Handler handler = getMainThreadHandler();
+        handler.postDelayed(streamDisconnectGracePeriodRunnable, pausePolicy.getDisconnectStreamAfterMillis());
+        handler.postDelayed(resourceReleaseGracePeriodRunnable, pausePolicy.getReleaseResourcesAfterMillis());
+    }
+
+    private void stopPausePolicyCountdown() {
+        Handler handler = getMainThreadHandler();
+        handler.removeCallbacks(streamDisconnectGracePeriodRunnable);
+        handler.removeCallbacks(resourceReleaseGracePeriodRunnable);
+    }
+
+    private void startLatencyChecks() {
+        if (latencyCheckTimer == null) {
+            latencyCheckTimer = initNewTimer();
+            latencyCheckTimer.schedule(new RadioPlayerLatencyCheckTimerTask(this), LATENCY_CHECK_INTERVAL_IN_MILLIS,
+                    LATENCY_CHECK_INTERVAL_IN_MILLIS);
+        }
+    }
+
+    private void stopLatencyChecks() {
+        if (latencyCheckTimer != null) {
+            latencyCheckTimer.cancel();
+            latencyCheckTimer = null;
+        }
+    }
+
+    public void onLatencyCheckDue() {
+        boolean wasCatchingUp = latencyController.isCatchingUp();
+        boolean isCatchingUp = latencyController.update(exoPlayer.getCurrentPosition(), exoPlayer.getBufferedPosition());
+        if (isCatchingUp != wasCatchingUp) {
+            setCatchingUp(isCatchingUp);
+        }
+
+        long now = getCurrentTimeInMillis();
+        if (now - bufferLevelRecordedAtMillis >= BUFFER_LEVEL_RECORD_INTERVAL_IN_MILLIS) {
+            flightRecorder.record(FlightEventType.BUFFER_LEVEL, getBufferedDurationInMillis());
+            bufferLevelRecordedAtMillis = now;
+        }
+    }
+
+    private long getBufferedDurationInMillis() {
+        long currentPosition = exoPlayer.getCurrentPosition();
+        long bufferedPosition = exoPlayer.getBufferedPosition();
+        if (currentPosition == ExoPlayer.UNKNOWN_TIME || bufferedPosition == ExoPlayer.UNKNOWN_TIME) {
+            return -1;
+        }
+        return Math.max(0, bufferedPosition - currentPosition);
+    }
+
+    private void setCatchingUp(boolean isCatchingUp) {
+        if (audioTrackRenderer != null) {
+            exoPlayer.sendMessage(audioTrackRenderer, StreamAudioTrackRenderer.MSG_SET_CATCHING_UP, isCatchingUp);
+        }
+    }
+
+    public void onStreamDisconnectGracePeriodElapsed() {
+        if (getResourceState() == PlayerResourceState.PAUSED) {
+            exoPlayer.setSelectedTrack(AUDIO_RENDERER_INDEX, ExoPlayer.TRACK_DISABLED);
+            setResourceState(PlayerResourceState.STREAM_DISCONNECTED);
+        }
+    }
+
+    public void onResourceReleaseGracePeriodElapsed() {
+        PlayerResourceState currentResourceState = getResourceState();
+        if (currentResourceState == PlayerResourceState.PAUSED || currentResourceState == PlayerResourceState.STREAM_DISCONNECTED) {
+            exoPlayer.stop();
+            exoPlayer.setSelectedTrack(AUDIO_RENDERER_INDEX, ExoPlayer.TRACK_DEFAULT);
+            setResourceState(PlayerResourceState.IDLE);
+        }
+    }
+
+    @Override
+    public void onMemoryPressureChanged(MemoryPressure memoryPressure) {
+        // A paused player skips the rest of its grace periods when memory runs low: moderate pressure
+        // drops the connection and its buffered audio, anything higher releases everything.
+        if (memoryPressure.isAtLeast(MemoryPressure.HIGH)) {
+            onResourceReleaseGracePeriodElapsed();
+        } else if (memoryPressure.isAtLeast(MemoryPressure.MODERATE)) {
+            onStreamDisconnectGracePeriodElapsed();
+        }
     }
 
     @Override
     public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
+        flightRecorder.record(FlightEventType.PLAYER_STATE, playWhenReady ? 1 : 0, getPlaybackStateName(playbackState));
         if(isPlayerBuffering(playbackState)) {
             startCountdownForBufferTimeout();
         } else {
@@ -76,6 +244,10 @@ public class RadioPlayer implements ExoPlayer.Listener {
         }
     }
 
+    private static String getPlaybackStateName(int playbackState) {
+        return playbackState > 0 && playbackState < PLAYBACK_STATE_NAMES.length ? PLAYBACK_STATE_NAMES[playbackState] : null;
+    }
+
     private boolean isPlayerBuffering(int playbackState) {
         return playbackState == ExoPlayer.STATE_BUFFERING;
     }
@@ -89,7 +261,7 @@ public class RadioPlayer implements ExoPlayer.Listener {
 
     private void scheduleTimerTaskForBufferTimeout() {
         timer = initNewTimer();
-        TimerTask bufferTimeoutTimerTask = new RadioPlayerBufferTimeoutTimerTask(this);
+        TimerTask bufferTimeoutTimerTask = new RadioPlayerBufferTimeoutTimerTask(this, getMainThreadHandler());
         timer.schedule(bufferTimeoutTimerTask, BUFFER_TIMEOUT_IN_MILLIS);
     }
 
@@ -101,21 +273,69 @@ public class RadioPlayer implements ExoPlayer.Listener {
         isCurrentlyCountingDownForBufferTimeout = false;
     }
 
+    // Runs on the main thread, so a countdown stopped after the timer fired but before this ran is seen here.
+    public void onBufferTimeoutElapsed() {
+        if (isCurrentlyCountingDownForBufferTimeout()) {
+            onBufferingTimedOut();
+        }
+    }
+
     public void onBufferingTimedOut() {
-        onPlayerError(new ExoPlaybackException("Buffering timed out."));
+        long bufferedDurationInMillis = getBufferedDurationInMillis();
+        flightRecorder.record(FlightEventType.BUFFERING_TIMED_OUT, bufferedDurationInMillis);
+        onPlayerError(new ExoPlaybackException("Buffering timed out after " + BUFFER_TIMEOUT_IN_MILLIS + " ms with "
+                + bufferedDurationInMillis + " ms buffered."));
         isCurrentlyCountingDownForBufferTimeout = false;
     }
 
     @Override
     public void onPlayerError(ExoPlaybackException error) {
+        flightRecorder.record(FlightEventType.PLAYER_ERROR, 0, FlightRecorder.describe(error));
         radioPlayerListener.onRadioPlayerStreamError();
         exoPlayer.stop();
         isPlaying = false;
+        stopPausePolicyCountdown();
+        stopLatencyChecks();
+        setResourceState(PlayerResourceState.IDLE);
     }
 
     @Override
     public void onPlayWhenReadyCommitted() {}
 
+    @Override
+    public void dumpState(PrintWriter writer) {
+        writer.println("RadioPlayer");
+        writer.printf("  playing: %b%n", isPlaying());
+        writer.printf("  resource state: %s (holding %s)%n", getResourceState(), getResourceState().getHeldResources());
+        writer.printf("  pause policy: %s%n", pausePolicy);
+        writer.printf("  latency: %s%n", latencyController);
+        writer.println("  resource state transitions:");
+        synchronized (resourceStateTransitions) {
+            for (ResourceStateTransition transition : resourceStateTransitions) {
+                writer.printf("    %d ms ago: %s -> %s%n",
+                        getCurrentTimeInMillis() - transition.timeInMillis, transition.fromState, transition.toState);
+            }
+        }
+    }
+
+    public PlayerResourceState getResourceState() {
+        return resourceState;
+    }
+
+    private void setResourceState(PlayerResourceState newResourceState) {
+        synchronized (resourceStateTransitions) {
+            if (resourceState == newResourceState) {
+                return;
+            }
+            resourceStateTransitions.addLast(new ResourceStateTransition(resourceState, newResourceState, getCurrentTimeInMillis()));
+            flightRecorder.record(FlightEventType.RESOURCE_STATE, 0, newResourceState.name());
+            if (resourceStateTransitions.size() > MAX_NUM_OF_RESOURCE_STATE_TRANSITIONS_TO_KEEP) {
+                resourceStateTransitions.removeFirst();
+            }
+            resourceState = newResourceState;
+        }
+    }
+
     protected boolean isExoPlayerPreparedForPlayback() {
         return exoPlayer.getPlaybackState() != ExoPlayer.STATE_IDLE;
     }
@@ -132,9 +352,35 @@ public class RadioPlayer implements ExoPlayer.Listener {
         return timer;
     }
 
+    protected Handler getMainThreadHandler() {
+        if (mainThreadHandler == null) {
+            mainThreadHandler = new Handler(Looper.getMainLooper());
+        }
+        return mainThreadHandler;
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+
 
     public interface Listener {
 
+        // Called on the main thread, buffer timeouts included.
         void onRadioPlayerStreamError();
     }
+
+
+    private static class ResourceStateTransition {
+
+        private final PlayerResourceState fromState;
+        private final PlayerResourceState toState;
+        private final long timeInMillis;
+
+        private ResourceStateTransition(PlayerResourceState fromState, PlayerResourceState toState, long timeInMillis) {
+            this.fromState = fromState;
+            this.toState = toState;
+            this.timeInMillis = timeInMillis;
+        }
+    }
 }
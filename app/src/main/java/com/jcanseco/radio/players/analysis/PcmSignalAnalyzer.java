@@ -0,0 +1,195 @@
+package com.jcanseco.radio.players.analysis;
+
+import com.jcanseco.radio.metrics.Gauge;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import java.nio.ByteBuffer;
+
+// Runs on the playback thread for every decoded buffer, so it never allocates and its cost per buffer is bounded
+// by the buffer's size plus one pass over a fixed number of fingerprints.
+public class PcmSignalAnalyzer {
+
+    public static final int WINDOW_DURATION_IN_MILLIS = 100;
+    public static final int NUM_OF_WINDOWS_TO_KEEP = 64;
+
+    // About -66 dBFS. Encoders rarely produce exact zeros for silence, but they don't go above this either.
+    public static final int SILENCE_PEAK_THRESHOLD = 16;
+
+    private static final long SILENT_AFTER_MILLIS = 10 * 1000;
+
+    // Decoders output one buffer per MP3 frame, 26 ms at 44.1 kHz, so this covers almost a minute of audio:
+    // long enough for any error jingle to come round again.
+    private static final int NUM_OF_FINGERPRINTS_TO_KEEP = 2048;
+    private static final int FROZEN_DETECTION_WINDOW_IN_BUFFERS = 384;
+    private static final int FROZEN_MIN_NUM_OF_REPEATED_BUFFERS = FROZEN_DETECTION_WINDOW_IN_BUFFERS * 9 / 10;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Listener listener;
+    private final Gauge rmsGauge;
+    private final Gauge peakGauge;
+
+    private int numOfSamplesPerWindow;
+    private int numOfSamplesInWindow;
+    private long sumOfSquaresInWindow;
+    private int peakInWindow;
+
+    private final int[] windowRms = new int[NUM_OF_WINDOWS_TO_KEEP];
+    private final int[] windowPeaks = new int[NUM_OF_WINDOWS_TO_KEEP];
+    private int numOfWindows;
+    private long silentDurationInMillis;
+
+    private final long[] fingerprints = new long[NUM_OF_FINGERPRINTS_TO_KEEP];
+    private int numOfFingerprints;
+    private int nextFingerprint;
+    private final boolean[] repeatedBuffers = new boolean[FROZEN_DETECTION_WINDOW_IN_BUFFERS];
+    private int numOfAnalyzedBuffers;
+    private int numOfRepeatedBuffers;
+
+    private SignalHealth signalHealth = SignalHealth.HEALTHY;
+
+    public PcmSignalAnalyzer(MetricsRegistry metricsRegistry, Listener listener) {
+        this.listener = listener;
+        this.rmsGauge = metricsRegistry.gauge("signal.rms");
+        this.peakGauge = metricsRegistry.gauge("signal.peak");
+        setFormat(44100, 2);
+    }
+
+    public void setFormat(int sampleRate, int channelCount) {
+        numOfSamplesPerWindow = sampleRate * channelCount * WINDOW_DURATION_IN_MILLIS / 1000;
+        reset();
+    }
+
+    public void reset() {
+        numOfSamplesInWindow = 0;
+        sumOfSquaresInWindow = 0;
+        peakInWindow = 0;
+        numOfWindows = 0;
+        silentDurationInMillis = 0;
+        numOfFingerprints = 0;
+        nextFingerprint = 0;
+        numOfAnalyzedBuffers = 0;
+        numOfRepeatedBuffers = 0;
+        setSignalHealth(SignalHealth.HEALTHY);
+    }
+
+    // Expects 16-bit little-endian PCM, which is what decoders output.
+    public void analyze(ByteBuffer buffer, int offset, int size) {
+        long fingerprint = FNV_OFFSET_BASIS;
+        int peakInBuffer = 0;
+
+        for (int i = offset; i + 1 < offset + size; i += 2) {
+            int sample = (short) ((buffer.get(i) & 0xFF) | (buffer.get(i + 1) << 8));
+            fingerprint = (fingerprint ^ sample) * FNV_PRIME;
+
+            int amplitude = sample < 0 ? -sample : sample;
+            peakInBuffer = Math.max(peakInBuffer, amplitude);
+            peakInWindow = Math.max(peakInWindow, amplitude);
+            sumOfSquaresInWindow += (long) sample * sample;
+            if (++numOfSamplesInWindow == numOfSamplesPerWindow) {
+                closeWindow();
+            }
+        }
+
+        // Silent buffers are all alike, and silence is detected on its own.
+        if (peakInBuffer > SILENCE_PEAK_THRESHOLD) {
+            recordFingerprint(fingerprint);
+        }
+        updateSignalHealth();
+    }
+
+    private void closeWindow() {
+        int slot = numOfWindows % NUM_OF_WINDOWS_TO_KEEP;
+        windowRms[slot] = (int) Math.sqrt((double) sumOfSquaresInWindow / numOfSamplesInWindow);
+        windowPeaks[slot] = peakInWindow;
+        numOfWindows++;
+        rmsGauge.set(windowRms[slot]);
+        peakGauge.set(peakInWindow);
+
+        if (peakInWindow <= SILENCE_PEAK_THRESHOLD) {
+            silentDurationInMillis += WINDOW_DURATION_IN_MILLIS;
+        } else {
+            silentDurationInMillis = 0;
+        }
+
+        numOfSamplesInWindow = 0;
+        sumOfSquaresInWindow = 0;
+        peakInWindow = 0;
+    }
+
+    private void recordFingerprint(long fingerprint) {
+        boolean isRepeated = false;
+        for (int i = 0; i < numOfFingerprints; i++) {
+            if (fingerprints[i] == fingerprint) {
+                isRepeated = true;
+                break;
+            }
+        }
+        fingerprints[nextFingerprint] = fingerprint;
+        nextFingerprint = (nextFingerprint + 1) % NUM_OF_FINGERPRINTS_TO_KEEP;
+        numOfFingerprints = Math.min(numOfFingerprints + 1, NUM_OF_FINGERPRINTS_TO_KEEP);
+
+        int slot = numOfAnalyzedBuffers % FROZEN_DETECTION_WINDOW_IN_BUFFERS;
+        if (numOfAnalyzedBuffers >= FROZEN_DETECTION_WINDOW_IN_BUFFERS && repeatedBuffers[slot]) {
+            numOfRepeatedBuffers--;
+        }
+        repeatedBuffers[slot] = isRepeated;
+        if (isRepeated) {
+            numOfRepeatedBuffers++;
+        }
+        numOfAnalyzedBuffers++;
+    }
+
+    private void updateSignalHealth() {
+        if (silentDurationInMillis >= SILENT_AFTER_MILLIS) {
+            setSignalHealth(SignalHealth.SILENT);
+        } else if (silentDurationInMillis == 0 && numOfAnalyzedBuffers >= FROZEN_DETECTION_WINDOW_IN_BUFFERS
+                && numOfRepeatedBuffers >= FROZEN_MIN_NUM_OF_REPEATED_BUFFERS) {
+            setSignalHealth(SignalHealth.FROZEN);
+        } else if (silentDurationInMillis == 0) {
+            // A short silence keeps whatever was detected before it, so a looping jingle with gaps stays frozen.
+            setSignalHealth(SignalHealth.HEALTHY);
+        }
+    }
+
+    private void setSignalHealth(SignalHealth newSignalHealth) {
+        if (signalHealth != newSignalHealth) {
+            signalHealth = newSignalHealth;
+            if (listener != null) {
+                listener.onSignalHealthChanged(newSignalHealth);
+            }
+        }
+    }
+
+    public SignalHealth getSignalHealth() {
+        return signalHealth;
+    }
+
+    public int getNumOfWindows() {
+        return numOfWindows;
+    }
+
+    // Zero is the most recent window. Only the last NUM_OF_WINDOWS_TO_KEEP windows can be asked for.
+    public int getWindowRms(int windowsAgo) {
+        return windowRms[getWindowSlot(windowsAgo)];
+    }
+
+    public int getWindowPeak(int windowsAgo) {
+        return windowPeaks[getWindowSlot(windowsAgo)];
+    }
+
+    private int getWindowSlot(int windowsAgo) {
+        int numOfWindowsKept = Math.min(numOfWindows, NUM_OF_WINDOWS_TO_KEEP);
+        if (windowsAgo < 0 || windowsAgo >= numOfWindowsKept) {
+            throw new IndexOutOfBoundsException("Window " + windowsAgo + " ago, but only " + numOfWindowsKept + " are kept.");
+        }
+        return (numOfWindows - 1 - windowsAgo) % NUM_OF_WINDOWS_TO_KEEP;
+    }
+
+
+    public interface Listener {
+
+        void onSignalHealthChanged(SignalHealth signalHealth);
+    }
+}
@@ -0,0 +1,11 @@
+package com.jcanseco.radio.players.analysis;
+
+public enum SignalHealth {
+    HEALTHY,
+
+    // Nothing but digital silence for long enough that it isn't a pause between tracks.
+    SILENT,
+
+    // The same decoded audio over and over, like a stuck relay or a looping error jingle.
+    FROZEN
+}
@@ -0,0 +1,43 @@
+package com.jcanseco.radio.players.analysis;
+
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Gauge;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.players.datasources.StreamHandoverController;
+
+// ExoPlayer keeps reporting a healthy buffer when a relay sends nothing but silence or loops the same audio,
+// so a new connection is only attempted because of what the decoder actually put out.
+public class SignalHealthMonitor implements PcmSignalAnalyzer.Listener {
+
+    private final StreamHandoverController streamHandoverController;
+    private final Gauge signalHealthGauge;
+    private final Counter silentEventsCounter;
+    private final Counter frozenEventsCounter;
+
+    private volatile SignalHealth signalHealth = SignalHealth.HEALTHY;
+
+    public SignalHealthMonitor(StreamHandoverController streamHandoverController, MetricsRegistry metricsRegistry) {
+        this.streamHandoverController = streamHandoverController;
+        this.signalHealthGauge = metricsRegistry.gauge("signal.health");
+        this.silentEventsCounter = metricsRegistry.counter("signal.silent_events");
+        this.frozenEventsCounter = metricsRegistry.counter("signal.frozen_events");
+    }
+
+    @Override
+    public void onSignalHealthChanged(SignalHealth signalHealth) {
+        this.signalHealth = signalHealth;
+        signalHealthGauge.set(signalHealth.ordinal());
+
+        if (signalHealth == SignalHealth.SILENT) {
+            silentEventsCounter.increment();
+            streamHandoverController.onSignalUnhealthy();
+        } else if (signalHealth == SignalHealth.FROZEN) {
+            frozenEventsCounter.increment();
+            streamHandoverController.onSignalUnhealthy();
+        }
+    }
+
+    public SignalHealth getSignalHealth() {
+        return signalHealth;
+    }
+}
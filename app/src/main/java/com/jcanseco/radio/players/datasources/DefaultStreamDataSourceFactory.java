@@ -0,0 +1,27 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.content.Context;
+
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DefaultHttpDataSource;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.datausage.TrafficCategory;
+
+// Reads the stream through HttpURLConnection, as the player did before connections were raced. Used before
+// Lollipop, where SSLEngine has neither SNI nor TLS 1.2, so NioHttpConnection can't reach the HTTPS stream.
+public class DefaultStreamDataSourceFactory implements StreamDataSourceFactory {
+
+    private final String userAgent;
+    private final DataUsageLedger dataUsageLedger;
+
+    public DefaultStreamDataSourceFactory(Context context, DataUsageLedger dataUsageLedger) {
+        this.userAgent = RacingStreamDataSourceFactory.getUserAgent(context);
+        this.dataUsageLedger = dataUsageLedger;
+    }
+
+    // Metered per connection, so bytes prefetched by a connection that is later handed over still count.
+    @Override
+    public DataSource createDataSource() {
+        return new MeteredDataSource(new DefaultHttpDataSource(userAgent, null), dataUsageLedger, TrafficCategory.STREAM);
+    }
+}
@@ -0,0 +1,38 @@
+package com.jcanseco.radio.players.datasources;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Direct buffers are expensive to allocate and are only freed by the garbage collector, so stream
+// connections hand theirs back here for the next connection instead of dropping them.
+public class DirectByteBufferPool {
+
+    private final int maxNumOfPooledBuffers;
+    private final List<ByteBuffer> pooledBuffers = new ArrayList<>();
+
+    public DirectByteBufferPool(int maxNumOfPooledBuffers) {
+        this.maxNumOfPooledBuffers = maxNumOfPooledBuffers;
+    }
+
+    public synchronized ByteBuffer acquire(int minCapacity) {
+        for (int i = 0; i < pooledBuffers.size(); i++) {
+            if (pooledBuffers.get(i).capacity() >= minCapacity) {
+                ByteBuffer buffer = pooledBuffers.remove(i);
+                buffer.clear();
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(minCapacity);
+    }
+
+    public synchronized void release(ByteBuffer buffer) {
+        if (pooledBuffers.size() < maxNumOfPooledBuffers) {
+            pooledBuffers.add(buffer);
+        }
+    }
+
+    public synchronized int getNumOfPooledBuffers() {
+        return pooledBuffers.size();
+    }
+}
@@ -0,0 +1,166 @@
+package com.jcanseco.radio.players.datasources;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.jcanseco.radio.players.mp3.Mp3FrameHeader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class FrameAlignedConnection {
+
+    private static final int BUFFER_SIZE_IN_BYTES = 16 * 1024;
+
+    private final DataSource dataSource;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE_IN_BYTES];
+    private int bufferStart;
+    private int bufferEnd;
+    private boolean isEndOfInput;
+
+    private boolean isSynced;
+    private int syncedHeader;
+    private long numOfSkippedBytes;
+
+    private final List<byte[]> prefetchedFrames = new ArrayList<>();
+    private int nextPrefetchedFrame;
+    private int numOfFramesToSkip;
+
+    FrameAlignedConnection(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    void open(DataSpec dataSpec) throws IOException {
+        dataSource.open(dataSpec);
+    }
+
+    void close() throws IOException {
+        dataSource.close();
+    }
+
+    void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // The connection is being discarded either way.
+        }
+    }
+
+    int readFrame(byte[] target) throws IOException {
+        while (numOfFramesToSkip > 0) {
+            if (readNextFrame(target) == C.RESULT_END_OF_INPUT) {
+                return C.RESULT_END_OF_INPUT;
+            }
+            numOfFramesToSkip--;
+        }
+        return readNextFrame(target);
+    }
+
+    private int readNextFrame(byte[] target) throws IOException {
+        if (nextPrefetchedFrame < prefetchedFrames.size()) {
+            byte[] prefetchedFrame = prefetchedFrames.get(nextPrefetchedFrame++);
+            if (nextPrefetchedFrame == prefetchedFrames.size()) {
+                prefetchedFrames.clear();
+                nextPrefetchedFrame = 0;
+            }
+            System.arraycopy(prefetchedFrame, 0, target, 0, prefetchedFrame.length);
+            return prefetchedFrame.length;
+        }
+        return readFrameFromUpstream(target);
+    }
+
+    void skipFrames(int numOfFrames) {
+        numOfFramesToSkip = numOfFrames;
+    }
+
+    List<byte[]> getPrefetchedFrames() {
+        return Collections.unmodifiableList(prefetchedFrames.subList(nextPrefetchedFrame, prefetchedFrames.size()));
+    }
+
+    int prefetchFrames(int minNumOfBytes) throws IOException {
+        byte[] frame = new byte[Mp3FrameHeader.MAX_FRAME_SIZE_IN_BYTES];
+        int numOfPrefetchedBytes = 0;
+        while (numOfPrefetchedBytes < minNumOfBytes) {
+            int frameSize = readFrameFromUpstream(frame);
+            if (frameSize == C.RESULT_END_OF_INPUT) {
+                throw new IOException("Stream ended while prefetching.");
+            }
+            byte[] prefetchedFrame = new byte[frameSize];
+            System.arraycopy(frame, 0, prefetchedFrame, 0, frameSize);
+            prefetchedFrames.add(prefetchedFrame);
+            numOfPrefetchedBytes += frameSize;
+        }
+        return numOfPrefetchedBytes;
+    }
+
+    long getNumOfSkippedBytes() {
+        return numOfSkippedBytes;
+    }
+
+    private int readFrameFromUpstream(byte[] target) throws IOException {
+        while (true) {
+            if (!ensureAvailable(Mp3FrameHeader.HEADER_SIZE_IN_BYTES)) {
+                return C.RESULT_END_OF_INPUT;
+            }
+
+            int header = Mp3FrameHeader.readHeader(buffer, bufferStart);
+            int frameSize = Mp3FrameHeader.getFrameSizeInBytes(header);
+            if (frameSize == Mp3FrameHeader.INVALID_VALUE || (isSynced && !Mp3FrameHeader.isSameStream(header, syncedHeader))) {
+                skipByte();
+                continue;
+            }
+            if (!ensureAvailable(frameSize)) {
+                return C.RESULT_END_OF_INPUT;
+            }
+            if (!isSynced && !isFollowedByMatchingHeader(header, frameSize)) {
+                skipByte();
+                continue;
+            }
+
+            isSynced = true;
+            syncedHeader = header;
+            System.arraycopy(buffer, bufferStart, target, 0, frameSize);
+            bufferStart += frameSize;
+            return frameSize;
+        }
+    }
+
+    private boolean isFollowedByMatchingHeader(int header, int frameSize) throws IOException {
+        // A lone sync word can appear inside audio data, so the first frame is only trusted when the next
+        // frame header agrees with it.
+        if (!ensureAvailable(frameSize + Mp3FrameHeader.HEADER_SIZE_IN_BYTES)) {
+            return true;
+        }
+        int nextHeader = Mp3FrameHeader.readHeader(buffer, bufferStart + frameSize);
+        return Mp3FrameHeader.isValid(nextHeader) && Mp3FrameHeader.isSameStream(header, nextHeader);
+    }
+
+    private void skipByte() {
+        bufferStart++;
+        numOfSkippedBytes++;
+    }
+
+    private boolean ensureAvailable(int length) throws IOException {
+        while (bufferEnd - bufferStart < length) {
+            if (isEndOfInput) {
+                return false;
+            }
+            if (buffer.length - bufferStart < length) {
+                System.arraycopy(buffer, bufferStart, buffer, 0, bufferEnd - bufferStart);
+                bufferEnd -= bufferStart;
+                bufferStart = 0;
+            }
+
+            int numOfBytesRead = dataSource.read(buffer, bufferEnd, buffer.length - bufferEnd);
+            if (numOfBytesRead == C.RESULT_END_OF_INPUT) {
+                isEndOfInput = true;
+            } else {
+                bufferEnd += numOfBytesRead;
+            }
+        }
+        return true;
+    }
+}
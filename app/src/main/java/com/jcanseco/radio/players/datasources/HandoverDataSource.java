@@ -0,0 +1,429 @@
+package com.jcanseco.radio.players.datasources;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.UriDataSource;
+import com.jcanseco.radio.flightrecorder.FlightEventType;
+import com.jcanseco.radio.flightrecorder.FlightRecorder;
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Histogram;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.players.mp3.Mp3FrameHeader;
+import com.jcanseco.radio.tracing.Tracer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+
+public class HandoverDataSource implements UriDataSource {
+
+    private static final int HANDOVER_PREFETCH_IN_BYTES = 16 * 1024;
+    private static final int RECONNECT_PREFETCH_IN_BYTES = 4 * 1024;
+    private static final long FORCED_SWITCH_DELAY_IN_MILLIS = 1000;
+    private static final long STANDBY_WAIT_TIMEOUT_IN_MILLIS = 10000;
+    private static final int MAX_NUM_OF_RECONNECT_ATTEMPTS = 3;
+    private static final long RECONNECT_BACKOFF_IN_MILLIS = 500;
+
+    // About ten seconds at 128 kbps, which covers the few seconds of audio a server bursts on connect.
+    private static final int RETAINED_AUDIO_IN_BYTES = 160 * 1024;
+
+    private final StreamDataSourceFactory dataSourceFactory;
+    private final FlightRecorder flightRecorder;
+
+    private final Counter handoverCounter;
+    private final Counter failedHandoverCounter;
+    private final Histogram handoverDurationHistogram;
+    private final Histogram handoverGapHistogram;
+    private final Counter reconnectCounter;
+    private final Counter failedReconnectCounter;
+    private final Counter alignedSpliceCounter;
+    private final Counter missedSpliceCounter;
+    private final Histogram skippedFramesHistogram;
+
+    private final Object handoverLock = new Object();
+    private DataSpec dataSpec;
+    private FrameAlignedConnection activeConnection;
+    private FrameAlignedConnection standbyConnection;
+    private boolean isHandoverInProgress;
+    private int handoverAttempt;
+    private long handoverStartedAtMillis;
+
+    private final byte[] frame = new byte[Mp3FrameHeader.MAX_FRAME_SIZE_IN_BYTES];
+    private int frameLength;
+    private int frameOffset;
+    private volatile long lastFrameDeliveredAtMillis;
+
+    private final RetainedFrames retainedFrames = new RetainedFrames(RETAINED_AUDIO_IN_BYTES);
+    private FrameAlignedConnection standbyConnectionBeingAligned;
+    private int numOfFramesDeliveredWhileAligning;
+
+    public HandoverDataSource(StreamDataSourceFactory dataSourceFactory, FlightRecorder flightRecorder, MetricsRegistry metricsRegistry) {
+        this.dataSourceFactory = dataSourceFactory;
+        this.flightRecorder = flightRecorder;
+
+        handoverCounter = metricsRegistry.counter("stream.handover.count");
+        failedHandoverCounter = metricsRegistry.counter("stream.handover.failures");
+        handoverDurationHistogram = metricsRegistry.histogram("stream.handover.duration_ms");
+        handoverGapHistogram = metricsRegistry.histogram("stream.handover.gap_ms");
+        reconnectCounter = metricsRegistry.counter("stream.reconnect.count");
+        failedReconnectCounter = metricsRegistry.counter("stream.reconnect.failures");
+        alignedSpliceCounter = metricsRegistry.counter("stream.splice.aligned");
+        missedSpliceCounter = metricsRegistry.counter("stream.splice.misses");
+        skippedFramesHistogram = metricsRegistry.histogram("stream.splice.skipped_frames");
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        FrameAlignedConnection connection = new FrameAlignedConnection(dataSourceFactory.createDataSource());
+        Tracer.beginSection("HandoverDataSource.open");
+        try {
+            connection.open(dataSpec);
+        } finally {
+            Tracer.endSection();
+        }
+
+        synchronized (handoverLock) {
+            this.dataSpec = dataSpec;
+            activeConnection = connection;
+        }
+        frameLength = 0;
+        frameOffset = 0;
+        retainedFrames.clear();
+
+        // Bytes that don't belong to a complete frame are dropped, so the length can't be known up front.
+        return C.LENGTH_UNBOUNDED;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int readLength) throws IOException {
+        if (frameOffset == frameLength) {
+            // Only reads that go to the network are traced, the rest are a copy out of the current frame.
+            Tracer.beginSection("HandoverDataSource.read");
+            int nextFrameLength;
+            try {
+                nextFrameLength = readNextFrame();
+            } finally {
+                Tracer.endSection();
+            }
+            if (nextFrameLength == C.RESULT_END_OF_INPUT) {
+                return C.RESULT_END_OF_INPUT;
+            }
+            frameLength = nextFrameLength;
+            frameOffset = 0;
+        }
+
+        int numOfBytesToCopy = Math.min(readLength, frameLength - frameOffset);
+        System.arraycopy(frame, frameOffset, buffer, offset, numOfBytesToCopy);
+        frameOffset += numOfBytesToCopy;
+        return numOfBytesToCopy;
+    }
+
+    private int readNextFrame() throws IOException {
+        while (true) {
+            FrameAlignedConnection connection = getStandbyConnection();
+            if (connection != null && isCaughtUpWith(connection)) {
+                switchTo(connection);
+            }
+
+            try {
+                int nextFrameLength = getActiveConnection().readFrame(frame);
+                if (nextFrameLength != C.RESULT_END_OF_INPUT) {
+                    onFrameDelivered(nextFrameLength);
+                    return nextFrameLength;
+                }
+                if (!recoverFromLostConnection()) {
+                    return C.RESULT_END_OF_INPUT;
+                }
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                if (!recoverFromLostConnection()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void onFrameDelivered(int length) {
+        retainedFrames.add(frame, length);
+        numOfFramesDeliveredWhileAligning++;
+        lastFrameDeliveredAtMillis = getCurrentTimeInMillis();
+    }
+
+    private boolean recoverFromLostConnection() throws IOException {
+        // The old network usually goes away mid-handover, in which case the new connection simply takes over.
+        FrameAlignedConnection connection = awaitStandbyConnection();
+        if (connection != null) {
+            switchTo(connection);
+            return true;
+        }
+        return reconnect();
+    }
+
+    public void startHandover() {
+        int attempt;
+        synchronized (handoverLock) {
+            if (dataSpec == null) {
+                return;
+            }
+            discardStandbyConnection();
+            attempt = ++handoverAttempt;
+            isHandoverInProgress = true;
+            handoverStartedAtMillis = getCurrentTimeInMillis();
+        }
+
+        Thread standbyConnector = new Thread(new StandbyConnector(attempt), "StreamHandover");
+        standbyConnector.setDaemon(true);
+        standbyConnector.start();
+    }
+
+    private boolean isCaughtUpWith(FrameAlignedConnection connection) {
+        if (connection != standbyConnectionBeingAligned) {
+            standbyConnectionBeingAligned = connection;
+            numOfFramesDeliveredWhileAligning = 0;
+        }
+
+        // A new connection that starts ahead of the old one has to wait for the old one to reach its first
+        // frame, or the frames in between are lost. Once the old one has delivered more than the new one
+        // prefetched without lining up, the two streams don't overlap at all and waiting is pointless.
+        List<byte[]> prefetchedFrames = connection.getPrefetchedFrames();
+        return retainedFrames.findNumOfFramesAlreadyDelivered(prefetchedFrames) != RetainedFrames.NO_MATCH
+                || numOfFramesDeliveredWhileAligning >= prefetchedFrames.size();
+    }
+
+    private FrameAlignedConnection awaitStandbyConnection() throws InterruptedIOException {
+        synchronized (handoverLock) {
+            long deadline = getCurrentTimeInMillis() + STANDBY_WAIT_TIMEOUT_IN_MILLIS;
+            while (isHandoverInProgress && standbyConnection == null) {
+                long remainingMillis = deadline - getCurrentTimeInMillis();
+                if (remainingMillis <= 0) {
+                    break;
+                }
+                try {
+                    handoverLock.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            return standbyConnection;
+        }
+    }
+
+    private void switchTo(FrameAlignedConnection connection) {
+        spliceOnto(connection);
+
+        FrameAlignedConnection previousConnection;
+        long handoverDurationInMillis;
+        synchronized (handoverLock) {
+            if (standbyConnection != connection) {
+                // Discarded by a newer handover or by close() in the meantime.
+                return;
+            }
+            previousConnection = activeConnection;
+            activeConnection = standbyConnection;
+            standbyConnection = null;
+            isHandoverInProgress = false;
+            handoverDurationInMillis = getCurrentTimeInMillis() - handoverStartedAtMillis;
+            handoverLock.notifyAll();
+        }
+        previousConnection.closeQuietly();
+        standbyConnectionBeingAligned = null;
+
+        handoverCounter.increment();
+        handoverDurationHistogram.record(handoverDurationInMillis);
+        flightRecorder.record(FlightEventType.HANDOVER, handoverDurationInMillis);
+        handoverGapHistogram.record(getCurrentTimeInMillis() - lastFrameDeliveredAtMillis);
+    }
+
+    private boolean reconnect() throws IOException {
+        DataSpec reconnectDataSpec;
+        FrameAlignedConnection lostConnection;
+        synchronized (handoverLock) {
+            reconnectDataSpec = dataSpec;
+            lostConnection = activeConnection;
+        }
+        if (reconnectDataSpec == null) {
+            return false;
+        }
+        lostConnection.closeQuietly();
+
+        for (int attempt = 1; attempt <= MAX_NUM_OF_RECONNECT_ATTEMPTS; attempt++) {
+            if (attempt > 1) {
+                waitBeforeReconnecting(attempt);
+            }
+
+            reconnectCounter.increment();
+            flightRecorder.record(FlightEventType.RECONNECT, attempt);
+            FrameAlignedConnection connection = new FrameAlignedConnection(dataSourceFactory.createDataSource());
+            try {
+                connection.open(reconnectDataSpec);
+                connection.prefetchFrames(RECONNECT_PREFETCH_IN_BYTES);
+            } catch (IOException e) {
+                connection.closeQuietly();
+                failedReconnectCounter.increment();
+                flightRecorder.record(FlightEventType.RECONNECT_FAILED, attempt, FlightRecorder.describe(e));
+                continue;
+            }
+
+            spliceOnto(connection);
+            synchronized (handoverLock) {
+                if (activeConnection != lostConnection) {
+                    // Closed while reconnecting.
+                    connection.closeQuietly();
+                    return false;
+                }
+                activeConnection = connection;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void spliceOnto(FrameAlignedConnection connection) {
+        int numOfFramesAlreadyDelivered = retainedFrames.findNumOfFramesAlreadyDelivered(connection.getPrefetchedFrames());
+        if (numOfFramesAlreadyDelivered == RetainedFrames.NO_MATCH) {
+            missedSpliceCounter.increment();
+            return;
+        }
+
+        connection.skipFrames(numOfFramesAlreadyDelivered);
+        alignedSpliceCounter.increment();
+        skippedFramesHistogram.record(numOfFramesAlreadyDelivered);
+    }
+
+    protected void waitBeforeReconnecting(int attempt) throws InterruptedIOException {
+        try {
+            Thread.sleep(RECONNECT_BACKOFF_IN_MILLIS * (attempt - 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private FrameAlignedConnection getActiveConnection() {
+        synchronized (handoverLock) {
+            return activeConnection;
+        }
+    }
+
+    private FrameAlignedConnection getStandbyConnection() {
+        synchronized (handoverLock) {
+            return standbyConnection;
+        }
+    }
+
+    private void discardStandbyConnection() {
+        if (standbyConnection != null) {
+            standbyConnection.closeQuietly();
+            standbyConnection = null;
+        }
+        isHandoverInProgress = false;
+        handoverLock.notifyAll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        FrameAlignedConnection connectionToClose;
+        synchronized (handoverLock) {
+            handoverAttempt++;
+            discardStandbyConnection();
+            connectionToClose = activeConnection;
+            activeConnection = null;
+            dataSpec = null;
+        }
+
+        if (connectionToClose != null) {
+            connectionToClose.close();
+        }
+    }
+
+    @Override
+    public String getUri() {
+        synchronized (handoverLock) {
+            return dataSpec != null ? dataSpec.uri.toString() : null;
+        }
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+
+
+    private class StandbyConnector implements Runnable {
+
+        private final int attempt;
+
+        private StandbyConnector(int attempt) {
+            this.attempt = attempt;
+        }
+
+        @Override
+        public void run() {
+            FrameAlignedConnection connection = new FrameAlignedConnection(dataSourceFactory.createDataSource());
+            DataSpec standbyDataSpec;
+            synchronized (handoverLock) {
+                standbyDataSpec = dataSpec;
+            }
+
+            try {
+                connection.open(standbyDataSpec);
+                connection.prefetchFrames(HANDOVER_PREFETCH_IN_BYTES);
+            } catch (IOException | RuntimeException e) {
+                connection.closeQuietly();
+                failedHandoverCounter.increment();
+                synchronized (handoverLock) {
+                    if (isCurrentAttempt()) {
+                        isHandoverInProgress = false;
+                        handoverLock.notifyAll();
+                    }
+                }
+                return;
+            }
+
+            FrameAlignedConnection stalledConnection = offerStandbyConnection(connection);
+            if (stalledConnection != null) {
+                // The loader thread is stuck reading from the old network. Closing the old connection
+                // unblocks it, and it picks up the standby connection at the next frame boundary.
+                stalledConnection.closeQuietly();
+            }
+        }
+
+        private FrameAlignedConnection offerStandbyConnection(FrameAlignedConnection connection) {
+            synchronized (handoverLock) {
+                if (!isCurrentAttempt()) {
+                    connection.closeQuietly();
+                    return null;
+                }
+
+                standbyConnection = connection;
+                handoverLock.notifyAll();
+
+                // The loader may keep reading from the old connection for a while to line the two streams up,
+                // so the old one only counts as stalled once it stops delivering frames.
+                long deadline = getCurrentTimeInMillis() + FORCED_SWITCH_DELAY_IN_MILLIS;
+                while (standbyConnection == connection) {
+                    long remainingMillis = deadline - getCurrentTimeInMillis();
+                    if (remainingMillis <= 0) {
+                        long stalledDeadline = lastFrameDeliveredAtMillis + FORCED_SWITCH_DELAY_IN_MILLIS;
+                        if (stalledDeadline <= getCurrentTimeInMillis()) {
+                            return activeConnection;
+                        }
+                        deadline = stalledDeadline;
+                        continue;
+                    }
+                    try {
+                        handoverLock.wait(remainingMillis);
+                    } catch (InterruptedException e) {
+                        return null;
+                    }
+                }
+                return null;
+            }
+        }
+
+        private boolean isCurrentAttempt() {
+            return attempt == handoverAttempt && isHandoverInProgress;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.jcanseco.radio.players.datasources;
+
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.UriDataSource;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.datausage.TrafficCategory;
+
+import java.io.IOException;
+
+public class MeteredDataSource implements UriDataSource {
+
+    private final UriDataSource dataSource;
+    private final DataUsageLedger dataUsageLedger;
+    private final TrafficCategory trafficCategory;
+
+    public MeteredDataSource(UriDataSource dataSource, DataUsageLedger dataUsageLedger, TrafficCategory trafficCategory) {
+        this.dataSource = dataSource;
+        this.dataUsageLedger = dataUsageLedger;
+        this.trafficCategory = trafficCategory;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        return dataSource.open(dataSpec);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int readLength) throws IOException {
+        int numOfBytesRead = dataSource.read(buffer, offset, readLength);
+        if (numOfBytesRead > 0) {
+            dataUsageLedger.record(trafficCategory, numOfBytesRead);
+        }
+        return numOfBytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataSource.close();
+    }
+
+    @Override
+    public String getUri() {
+        return dataSource.getUri();
+    }
+}
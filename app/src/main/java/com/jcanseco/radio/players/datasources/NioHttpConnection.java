@@ -0,0 +1,583 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer.C;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.datausage.TrafficCategory;
+import com.jcanseco.radio.network.TlsHandshakeRecorder;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Locale;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import okhttp3.Dns;
+
+// Talks HTTP/1.1 over a non-blocking SocketChannel, with TLS done through an SSLEngine. Every wait goes through a
+// selector with an explicit deadline, so timeouts are exact and close() from another thread takes effect at once.
+// Received bytes stay in pooled direct buffers until they are copied once, into the caller's array.
+// Usage is counted on the wire, so headers, TLS records, redirects and connections that lose a race or are
+// thrown away after prefetching all count, whether or not the player ever reads their audio.
+class NioHttpConnection {
+
+    private static final int PLAIN_BUFFER_SIZE_IN_BYTES = 16 * 1024;
+    private static final int MAX_HEADER_LINE_LENGTH = 8 * 1024;
+    private static final int MAX_NUM_OF_HEADERS = 100;
+    // The same limit as HttpURLConnection, which the stream used to be read through.
+    private static final int MAX_NUM_OF_REDIRECTS = 20;
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+    private final StreamEndpoint endpoint;
+    private final Factory factory;
+
+    private final Object stateLock = new Object();
+    private boolean isClosed;
+    private boolean isInOperation;
+
+    // Where the connection ended up, which differs from the endpoint it was created for after a redirect.
+    private StreamEndpoint connectedEndpoint;
+    private Selector selector;
+    private SocketChannel channel;
+    private SelectionKey selectionKey;
+    private SSLEngine sslEngine;
+
+    // Both incoming buffers are kept flipped, so their remaining bytes are the ones not consumed yet. Without
+    // TLS they are the same buffer.
+    private ByteBuffer networkBuffer;
+    private ByteBuffer applicationBuffer;
+    private ByteBuffer outgoingNetworkBuffer;
+
+    private boolean isChunked;
+    private long numOfBytesLeftInChunk;
+    private boolean isEndOfBody;
+
+    private NioHttpConnection(StreamEndpoint endpoint, Factory factory) {
+        this.endpoint = endpoint;
+        this.factory = factory;
+    }
+
+    StreamEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    // Returns once the first byte of audio has arrived, which is what the connection racer cares about.
+    void connect() throws IOException {
+        beginOperation();
+        try {
+            connectedEndpoint = endpoint;
+            String redirectLocation;
+            int numOfRedirects = 0;
+            while ((redirectLocation = request()) != null) {
+                if (++numOfRedirects > MAX_NUM_OF_REDIRECTS) {
+                    throw new ProtocolException("Too many redirects from " + endpoint);
+                }
+                StreamEndpoint redirectEndpoint = resolveRedirect(redirectLocation);
+                closeChannel();
+                connectedEndpoint = redirectEndpoint;
+            }
+
+            if (isChunked) {
+                startNextChunk();
+            }
+            if (isEndOfBody || !fillApplicationBuffer()) {
+                throw new EOFException("Stream ended before any audio arrived.");
+            }
+        } finally {
+            endOperation();
+        }
+    }
+
+    int read(byte[] buffer, int offset, int readLength) throws IOException {
+        beginOperation();
+        try {
+            if (isChunked && numOfBytesLeftInChunk == 0 && !isEndOfBody) {
+                startNextChunk();
+            }
+            if (isEndOfBody) {
+                return C.RESULT_END_OF_INPUT;
+            }
+            if (!fillApplicationBuffer()) {
+                if (isChunked) {
+                    throw new EOFException("Connection closed in the middle of a chunk.");
+                }
+                isEndOfBody = true;
+                return C.RESULT_END_OF_INPUT;
+            }
+
+            int numOfBytesToCopy = Math.min(readLength, applicationBuffer.remaining());
+            if (isChunked) {
+                numOfBytesToCopy = (int) Math.min(numOfBytesToCopy, numOfBytesLeftInChunk);
+            }
+            applicationBuffer.get(buffer, offset, numOfBytesToCopy);
+            if (isChunked) {
+                numOfBytesLeftInChunk -= numOfBytesToCopy;
+                if (numOfBytesLeftInChunk == 0) {
+                    readLine();
+                }
+            }
+            return numOfBytesToCopy;
+        } finally {
+            endOperation();
+        }
+    }
+
+    void close() throws IOException {
+        Selector selector;
+        SocketChannel channel;
+        synchronized (stateLock) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            if (!isInOperation) {
+                releaseBuffers();
+            }
+            selector = this.selector;
+            channel = this.channel;
+        }
+
+        // Wakes up a thread blocked in awaitReady(), which then sees that the connection is closed.
+        if (selector != null) {
+            selector.wakeup();
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } finally {
+            if (selector != null) {
+                selector.close();
+            }
+        }
+    }
+
+    void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // The connection is being discarded either way.
+        }
+    }
+
+    private void beginOperation() throws IOException {
+        synchronized (stateLock) {
+            if (isClosed) {
+                throw new IOException("Connection closed.");
+            }
+            isInOperation = true;
+        }
+    }
+
+    private void endOperation() {
+        synchronized (stateLock) {
+            isInOperation = false;
+            // A close() from another thread while this thread was still using the buffers left them for us.
+            if (isClosed) {
+                releaseBuffers();
+            }
+        }
+    }
+
+    private void releaseBuffers() {
+        if (networkBuffer != null) {
+            factory.bufferPool.release(networkBuffer);
+        }
+        if (applicationBuffer != null && applicationBuffer != networkBuffer) {
+            factory.bufferPool.release(applicationBuffer);
+        }
+        if (outgoingNetworkBuffer != null) {
+            factory.bufferPool.release(outgoingNetworkBuffer);
+        }
+        networkBuffer = null;
+        applicationBuffer = null;
+        outgoingNetworkBuffer = null;
+    }
+
+    // Sends the request to the connected endpoint and reads the response headers. Returns where the response
+    // redirects to, or null when the body that follows is the stream.
+    private String request() throws IOException {
+        openChannel();
+        if (connectedEndpoint.isSecure()) {
+            performHandshake();
+        } else {
+            networkBuffer = factory.bufferPool.acquire(PLAIN_BUFFER_SIZE_IN_BYTES);
+            networkBuffer.flip();
+            applicationBuffer = networkBuffer;
+        }
+
+        writeRequest();
+        return readResponseHeaders();
+    }
+
+    // Only ever called during connect(), so close() from another thread never releases the buffers at the same time.
+    private void closeChannel() throws IOException {
+        releaseBuffers();
+        sslEngine = null;
+        isChunked = false;
+        try {
+            channel.close();
+        } finally {
+            selector.close();
+        }
+    }
+
+    private StreamEndpoint resolveRedirect(String location) throws IOException {
+        Uri uri;
+        try {
+            uri = Uri.parse(new URI(connectedEndpoint.getUri().toString()).resolve(location).toString());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new ProtocolException("Malformed redirect location: " + location);
+        }
+
+        // Like DefaultHttpDataSource, a redirect from HTTPS to plain HTTP (or the other way round) isn't followed.
+        String scheme = connectedEndpoint.getUri().getScheme();
+        if (uri.getHost() == null || !scheme.equalsIgnoreCase(uri.getScheme())) {
+            throw new ProtocolException("Unsupported redirect from " + connectedEndpoint + " to " + location);
+        }
+
+        InetAddress address = uri.getHost().equalsIgnoreCase(connectedEndpoint.getHost())
+                ? connectedEndpoint.getAddress() : factory.dns.lookup(uri.getHost()).get(0);
+        return new StreamEndpoint(uri, address);
+    }
+
+    private void openChannel() throws IOException {
+        Selector selector = Selector.open();
+        SocketChannel channel = SocketChannel.open();
+        synchronized (stateLock) {
+            // close() may have run before the channel existed, in which case nobody else will close it.
+            if (isClosed) {
+                channel.close();
+                selector.close();
+                throw new IOException("Connection closed.");
+            }
+            // Published under the lock, so a close() from now on finds both to wake up and close.
+            this.selector = selector;
+            this.channel = channel;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        try {
+            selectionKey = channel.register(selector, 0);
+        } catch (ClosedSelectorException e) {
+            throw new IOException("Connection closed.", e);
+        }
+
+        long deadline = getDeadline();
+        if (!channel.connect(new InetSocketAddress(connectedEndpoint.getAddress(), connectedEndpoint.getPort()))) {
+            while (!channel.finishConnect()) {
+                awaitReady(SelectionKey.OP_CONNECT, deadline);
+            }
+        }
+    }
+
+    private void performHandshake() throws IOException {
+        // Passing the host and port lets the engine resume a session cached by an earlier connection.
+        sslEngine = factory.sslContext.createSSLEngine(connectedEndpoint.getHost(), connectedEndpoint.getPort());
+        sslEngine.setUseClientMode(true);
+
+        int packetBufferSize = sslEngine.getSession().getPacketBufferSize();
+        networkBuffer = factory.bufferPool.acquire(packetBufferSize);
+        networkBuffer.flip();
+        outgoingNetworkBuffer = factory.bufferPool.acquire(packetBufferSize);
+        applicationBuffer = factory.bufferPool.acquire(sslEngine.getSession().getApplicationBufferSize());
+        applicationBuffer.flip();
+
+        long handshakeStartedAtMillis = System.currentTimeMillis();
+        sslEngine.beginHandshake();
+        SSLEngineResult.HandshakeStatus handshakeStatus = sslEngine.getHandshakeStatus();
+        while (handshakeStatus != SSLEngineResult.HandshakeStatus.FINISHED
+                && handshakeStatus != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
+            switch (handshakeStatus) {
+                case NEED_WRAP:
+                    handshakeStatus = wrapAndWrite(EMPTY_BUFFER).getHandshakeStatus();
+                    break;
+                case NEED_UNWRAP:
+                    SSLEngineResult result = unwrap();
+                    if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW && readMoreNetworkBytes() == -1) {
+                        throw new EOFException("Connection closed during the TLS handshake.");
+                    }
+                    if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                        throw new SSLException("TLS session closed during the handshake.");
+                    }
+                    handshakeStatus = result.getHandshakeStatus();
+                    break;
+                case NEED_TASK:
+                    runDelegatedTasks();
+                    handshakeStatus = sslEngine.getHandshakeStatus();
+                    break;
+                default:
+                    throw new SSLException("Unexpected handshake status " + handshakeStatus);
+            }
+        }
+
+        // The channel was connected to a specific address, so the host name has to be checked by hand.
+        if (!factory.hostnameVerifier.verify(connectedEndpoint.getHost(), sslEngine.getSession())) {
+            throw new SSLPeerUnverifiedException("Certificate doesn't match " + connectedEndpoint.getHost());
+        }
+        factory.handshakeRecorder.recordHandshake(sslEngine.getSession(), handshakeStartedAtMillis);
+    }
+
+    private void writeRequest() throws IOException {
+        String request = "GET " + connectedEndpoint.getRequestPath() + " HTTP/1.1\r\n"
+                + "Host: " + connectedEndpoint.getHostHeader() + "\r\n"
+                + "User-Agent: " + factory.userAgent + "\r\n"
+                + "Accept: */*\r\n"
+                + "Connection: close\r\n"
+                + "\r\n";
+        ByteBuffer requestBuffer = ByteBuffer.wrap(request.getBytes("ISO-8859-1"));
+
+        if (sslEngine == null) {
+            writeFully(requestBuffer);
+            return;
+        }
+        while (requestBuffer.hasRemaining()) {
+            wrapAndWrite(requestBuffer);
+        }
+    }
+
+    private String readResponseHeaders() throws IOException {
+        // Shoutcast servers answer with "ICY 200 OK" instead of an HTTP status line.
+        String statusLine = readLine();
+        String[] statusLineParts = statusLine.split(" ");
+        String statusCode = statusLineParts.length >= 2 ? statusLineParts[1] : "";
+        boolean isRedirect = isRedirect(statusCode);
+        if (!isRedirect && !"200".equals(statusCode)) {
+            throw new IOException("Unexpected response: " + statusLine);
+        }
+
+        String location = null;
+        for (int i = 0; i < MAX_NUM_OF_HEADERS; i++) {
+            String line = readLine();
+            if (line.isEmpty()) {
+                if (isRedirect && location == null) {
+                    throw new ProtocolException("Redirect without a location: " + statusLine);
+                }
+                return isRedirect ? location : null;
+            }
+            int separatorIndex = line.indexOf(':');
+            if (separatorIndex > 0) {
+                String name = line.substring(0, separatorIndex).trim().toLowerCase(Locale.US);
+                String value = line.substring(separatorIndex + 1).trim();
+                if (name.equals("transfer-encoding") && value.equalsIgnoreCase("chunked")) {
+                    isChunked = true;
+                } else if (name.equals("location")) {
+                    location = value;
+                }
+            }
+        }
+        throw new IOException("Too many response headers.");
+    }
+
+    private static boolean isRedirect(String statusCode) {
+        return statusCode.equals("301") || statusCode.equals("302") || statusCode.equals("303") || statusCode.equals("307")
+                || statusCode.equals("308");
+    }
+
+    private void startNextChunk() throws IOException {
+        String chunkSizeLine = readLine();
+        int extensionIndex = chunkSizeLine.indexOf(';');
+        if (extensionIndex != -1) {
+            chunkSizeLine = chunkSizeLine.substring(0, extensionIndex);
+        }
+        try {
+            numOfBytesLeftInChunk = Long.parseLong(chunkSizeLine.trim(), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed chunk size: " + chunkSizeLine);
+        }
+        isEndOfBody = numOfBytesLeftInChunk == 0;
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        while (line.length() < MAX_HEADER_LINE_LENGTH) {
+            if (!fillApplicationBuffer()) {
+                throw new EOFException("Connection closed while reading response headers.");
+            }
+            char character = (char) (applicationBuffer.get() & 0xFF);
+            if (character == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append(character);
+        }
+        throw new IOException("Response header line too long.");
+    }
+
+    // Makes sure at least one decoded byte is waiting in the application buffer. Returns false at the end of the stream.
+    private boolean fillApplicationBuffer() throws IOException {
+        while (!applicationBuffer.hasRemaining()) {
+            if (sslEngine == null || !networkBuffer.hasRemaining()) {
+                if (readMoreNetworkBytes() == -1) {
+                    return false;
+                }
+                if (sslEngine == null) {
+                    continue;
+                }
+            }
+
+            SSLEngineResult result = unwrap();
+            switch (result.getStatus()) {
+                case CLOSED:
+                    return false;
+                case BUFFER_UNDERFLOW:
+                    if (readMoreNetworkBytes() == -1) {
+                        return false;
+                    }
+                    break;
+                case BUFFER_OVERFLOW:
+                    throw new SSLException("TLS record larger than the application buffer.");
+                default:
+                    if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                        runDelegatedTasks();
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private SSLEngineResult unwrap() throws SSLException {
+        applicationBuffer.compact();
+        try {
+            return sslEngine.unwrap(networkBuffer, applicationBuffer);
+        } finally {
+            applicationBuffer.flip();
+        }
+    }
+
+    private SSLEngineResult wrapAndWrite(ByteBuffer source) throws IOException {
+        outgoingNetworkBuffer.clear();
+        SSLEngineResult result = sslEngine.wrap(source, outgoingNetworkBuffer);
+        if (result.getStatus() != SSLEngineResult.Status.OK) {
+            throw new SSLException("Couldn't wrap outgoing data: " + result.getStatus());
+        }
+        outgoingNetworkBuffer.flip();
+        writeFully(outgoingNetworkBuffer);
+        return result;
+    }
+
+    private void runDelegatedTasks() {
+        Runnable task;
+        while ((task = sslEngine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    private int readMoreNetworkBytes() throws IOException {
+        networkBuffer.compact();
+        try {
+            long deadline = getDeadline();
+            while (true) {
+                int numOfBytesRead = channel.read(networkBuffer);
+                if (numOfBytesRead > 0) {
+                    factory.dataUsageLedger.record(TrafficCategory.STREAM, numOfBytesRead);
+                }
+                if (numOfBytesRead != 0) {
+                    return numOfBytesRead;
+                }
+                awaitReady(SelectionKey.OP_READ, deadline);
+            }
+        } finally {
+            networkBuffer.flip();
+        }
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        long deadline = getDeadline();
+        while (source.hasRemaining()) {
+            int numOfBytesWritten = channel.write(source);
+            if (numOfBytesWritten == 0) {
+                awaitReady(SelectionKey.OP_WRITE, deadline);
+            } else {
+                factory.dataUsageLedger.record(TrafficCategory.STREAM, numOfBytesWritten);
+            }
+        }
+    }
+
+    private void awaitReady(int operations, long deadline) throws IOException {
+        // A close() from another thread can still land after the closed check below. The key it cancelled and the
+        // selector it closed then throw unchecked exceptions, which callers only know how to handle as IOExceptions.
+        try {
+            selectionKey.interestOps(operations);
+            while (true) {
+                // ExoPlayer cancels a load by interrupting its thread, after which select() returns straight away.
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Interrupted talking to " + connectedEndpoint);
+                }
+                synchronized (stateLock) {
+                    if (isClosed) {
+                        throw new IOException("Connection closed.");
+                    }
+                }
+
+                long remainingMillis = deadline - System.currentTimeMillis();
+                if (remainingMillis <= 0) {
+                    throw new SocketTimeoutException("Timed out talking to " + connectedEndpoint);
+                }
+                if (selector.select(remainingMillis) > 0) {
+                    selector.selectedKeys().clear();
+                    return;
+                }
+            }
+        } catch (CancelledKeyException | ClosedSelectorException e) {
+            throw new IOException("Connection closed.", e);
+        }
+    }
+
+    private long getDeadline() {
+        return System.currentTimeMillis() + factory.timeoutInMillis;
+    }
+
+
+    static class Factory {
+
+        private final String userAgent;
+        private final Dns dns;
+        private final SSLContext sslContext;
+        private final HostnameVerifier hostnameVerifier;
+        private final TlsHandshakeRecorder handshakeRecorder;
+        private final DataUsageLedger dataUsageLedger;
+        private final DirectByteBufferPool bufferPool;
+        private final int timeoutInMillis;
+
+        Factory(String userAgent, Dns dns, SSLContext sslContext, HostnameVerifier hostnameVerifier,
+                TlsHandshakeRecorder handshakeRecorder, DataUsageLedger dataUsageLedger, DirectByteBufferPool bufferPool,
+                int timeoutInMillis) {
+            this.userAgent = userAgent;
+            this.dns = dns;
+            this.sslContext = sslContext;
+            this.hostnameVerifier = hostnameVerifier;
+            this.handshakeRecorder = handshakeRecorder;
+            this.dataUsageLedger = dataUsageLedger;
+            this.bufferPool = bufferPool;
+            this.timeoutInMillis = timeoutInMillis;
+        }
+
+        NioHttpConnection create(StreamEndpoint endpoint) {
+            return new NioHttpConnection(endpoint, this);
+        }
+    }
+}
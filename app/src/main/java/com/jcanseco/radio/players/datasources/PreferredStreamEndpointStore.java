@@ -0,0 +1,24 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.content.SharedPreferences;
+
+public class PreferredStreamEndpointStore {
+
+    private static final String PREFERRED_ENDPOINT_KEY = "preferred_stream_endpoint";
+
+    private final SharedPreferences sharedPreferences;
+
+    public PreferredStreamEndpointStore(SharedPreferences sharedPreferences) {
+        this.sharedPreferences = sharedPreferences;
+    }
+
+    public String getPreferredEndpointKey() {
+        return sharedPreferences.getString(PREFERRED_ENDPOINT_KEY, null);
+    }
+
+    public void setPreferredEndpoint(StreamEndpoint endpoint) {
+        if (!endpoint.getKey().equals(getPreferredEndpointKey())) {
+            sharedPreferences.edit().putString(PREFERRED_ENDPOINT_KEY, endpoint.getKey()).apply();
+        }
+    }
+}
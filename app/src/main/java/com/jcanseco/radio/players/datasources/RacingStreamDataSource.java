@@ -0,0 +1,70 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.UriDataSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RacingStreamDataSource implements UriDataSource {
+
+    private final List<Uri> mirrorUris;
+    private final StreamEndpointResolver endpointResolver;
+    private final StreamConnectionRacer connectionRacer;
+    private final PreferredStreamEndpointStore preferredEndpointStore;
+
+    // The handover closes a stalled source from its own thread while the loader may still be reading it.
+    private volatile NioHttpConnection connection;
+
+    public RacingStreamDataSource(List<Uri> mirrorUris, StreamEndpointResolver endpointResolver,
+                                  StreamConnectionRacer connectionRacer, PreferredStreamEndpointStore preferredEndpointStore) {
+        this.mirrorUris = mirrorUris;
+        this.endpointResolver = endpointResolver;
+        this.connectionRacer = connectionRacer;
+        this.preferredEndpointStore = preferredEndpointStore;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        List<Uri> uris = new ArrayList<>();
+        uris.add(dataSpec.uri);
+        for (Uri mirrorUri : mirrorUris) {
+            if (!uris.contains(mirrorUri)) {
+                uris.add(mirrorUri);
+            }
+        }
+
+        List<StreamEndpoint> endpoints = endpointResolver.resolve(uris, preferredEndpointStore.getPreferredEndpointKey());
+        connection = connectionRacer.race(endpoints);
+        preferredEndpointStore.setPreferredEndpoint(connection.getEndpoint());
+        return C.LENGTH_UNBOUNDED;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int readLength) throws IOException {
+        NioHttpConnection connection = this.connection;
+        if (connection == null) {
+            throw new IOException("Connection closed.");
+        }
+        return connection.read(buffer, offset, readLength);
+    }
+
+    @Override
+    public void close() throws IOException {
+        NioHttpConnection connection = this.connection;
+        if (connection != null) {
+            this.connection = null;
+            connection.close();
+        }
+    }
+
+    @Override
+    public String getUri() {
+        NioHttpConnection connection = this.connection;
+        return connection != null ? connection.getEndpoint().getUri().toString() : null;
+    }
+}
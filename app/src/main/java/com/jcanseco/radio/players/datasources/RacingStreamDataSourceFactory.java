@@ -0,0 +1,66 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.google.android.exoplayer.upstream.DataSource;
+import com.jcanseco.radio.BuildConfig;
+import com.jcanseco.radio.R;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.network.TlsHandshakeRecorder;
+
+import java.util.List;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+
+import okhttp3.Dns;
+
+public class RacingStreamDataSourceFactory implements StreamDataSourceFactory {
+
+    private static final int CONNECTION_TIMEOUT_IN_MILLIS = 8000;
+
+    // Enough for the network, application and outgoing buffers of one TLS connection plus a losing attempt.
+    private static final int MAX_NUM_OF_POOLED_BUFFERS = 6;
+
+    private final List<Uri> mirrorUris;
+    private final NioHttpConnection.Factory connectionFactory;
+    private final StreamEndpointResolver endpointResolver;
+    private final PreferredStreamEndpointStore preferredEndpointStore;
+    private final MetricsRegistry metricsRegistry;
+
+    public RacingStreamDataSourceFactory(Context context, List<Uri> mirrorUris, Dns dns,
+                                         PreferredStreamEndpointStore preferredEndpointStore, SSLContext sslContext,
+                                         TlsHandshakeRecorder handshakeRecorder, DataUsageLedger dataUsageLedger,
+                                         MetricsRegistry metricsRegistry) {
+        this.mirrorUris = mirrorUris;
+        this.connectionFactory = new NioHttpConnection.Factory(getUserAgent(context), dns, sslContext,
+                HttpsURLConnection.getDefaultHostnameVerifier(), handshakeRecorder, dataUsageLedger,
+                new DirectByteBufferPool(MAX_NUM_OF_POOLED_BUFFERS), CONNECTION_TIMEOUT_IN_MILLIS);
+        this.endpointResolver = new StreamEndpointResolver(dns);
+        this.preferredEndpointStore = preferredEndpointStore;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public DataSource createDataSource() {
+        StreamConnectionRacer connectionRacer = new StreamConnectionRacer(connectionFactory, metricsRegistry,
+                StreamConnectionRacer.DEFAULT_CONNECTION_ATTEMPT_DELAY_IN_MILLIS);
+        return new RacingStreamDataSource(mirrorUris, endpointResolver, connectionRacer, preferredEndpointStore);
+    }
+
+    static String getUserAgent(Context context) {
+        String appName = getAppName(context);
+        String appBuildVersion = getAppBuildVersion();
+        return String.format("%s/%s", appName, appBuildVersion);
+    }
+
+    private static String getAppName(Context context) {
+        return context.getString(R.string.app_name);
+    }
+
+    private static String getAppBuildVersion() {
+        return BuildConfig.VERSION_NAME;
+    }
+}
@@ -0,0 +1,110 @@
+package com.jcanseco.radio.players.datasources;
+
+import java.util.List;
+
+class RetainedFrames {
+
+    static final int NO_MATCH = -1;
+
+    // Runs of byte-identical frames are common (digital silence), so a single matching frame isn't enough to
+    // line two connections up.
+    static final int MIN_MATCHING_RUN_IN_FRAMES = 4;
+
+    // Layer I at 32 kbps and 48 kHz.
+    private static final int SMALLEST_FRAME_SIZE_IN_BYTES = 32;
+
+    private final byte[] data;
+    private final int[] frameOffsets;
+    private final int[] frameLengths;
+    private int oldestFrame;
+    private int numOfFrames;
+    private int writePosition;
+
+    RetainedFrames(int capacityInBytes) {
+        data = new byte[capacityInBytes];
+        frameOffsets = new int[capacityInBytes / SMALLEST_FRAME_SIZE_IN_BYTES];
+        frameLengths = new int[frameOffsets.length];
+    }
+
+    void add(byte[] frame, int length) {
+        if (writePosition + length > data.length) {
+            // Frames are stored contiguously, so a tail that's too short for this frame is left unused and
+            // whatever older frames still live there go with it.
+            while (numOfFrames > 0 && frameOffsets[oldestFrame] >= writePosition) {
+                removeOldestFrame();
+            }
+            writePosition = 0;
+        }
+        while (numOfFrames > 0 && frameOffsets[oldestFrame] >= writePosition && frameOffsets[oldestFrame] < writePosition + length) {
+            removeOldestFrame();
+        }
+        if (numOfFrames == frameOffsets.length) {
+            removeOldestFrame();
+        }
+
+        System.arraycopy(frame, 0, data, writePosition, length);
+        int newestFrame = (oldestFrame + numOfFrames) % frameOffsets.length;
+        frameOffsets[newestFrame] = writePosition;
+        frameLengths[newestFrame] = length;
+        numOfFrames++;
+        writePosition += length;
+    }
+
+    int size() {
+        return numOfFrames;
+    }
+
+    void clear() {
+        oldestFrame = 0;
+        numOfFrames = 0;
+        writePosition = 0;
+    }
+
+    int findNumOfFramesAlreadyDelivered(List<byte[]> frames) {
+        int runLength = MIN_MATCHING_RUN_IN_FRAMES;
+        if (numOfFrames < runLength || frames.size() < runLength) {
+            return NO_MATCH;
+        }
+
+        // A new connection usually starts a little behind the old one, because servers burst recent audio on
+        // connect. Its first frames then show up somewhere among the retained ones.
+        for (int retainedIndex = numOfFrames - runLength; retainedIndex >= 0; retainedIndex--) {
+            if (matches(retainedIndex, frames, 0, runLength)) {
+                return numOfFrames - retainedIndex;
+            }
+        }
+
+        // If it started further back than the retained window, the newest retained frames show up in it instead.
+        for (int frameIndex = 1; frameIndex + runLength <= frames.size(); frameIndex++) {
+            if (matches(numOfFrames - runLength, frames, frameIndex, runLength)) {
+                return frameIndex + runLength;
+            }
+        }
+
+        return NO_MATCH;
+    }
+
+    private boolean matches(int retainedIndex, List<byte[]> frames, int frameIndex, int runLength) {
+        for (int i = 0; i < runLength; i++) {
+            int slot = (oldestFrame + retainedIndex + i) % frameOffsets.length;
+            byte[] frame = frames.get(frameIndex + i);
+            if (frame.length != frameLengths[slot]) {
+                return false;
+            }
+
+            // Headers are shared by every frame of the stream, so comparing from the end rules out mismatches sooner.
+            int offset = frameOffsets[slot];
+            for (int j = frame.length - 1; j >= 0; j--) {
+                if (data[offset + j] != frame[j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void removeOldestFrame() {
+        oldestFrame = (oldestFrame + 1) % frameOffsets.length;
+        numOfFrames--;
+    }
+}
@@ -0,0 +1,154 @@
+package com.jcanseco.radio.players.datasources;
+
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Histogram;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StreamConnectionRacer {
+
+    // The connection attempt delay recommended by RFC 8305.
+    public static final long DEFAULT_CONNECTION_ATTEMPT_DELAY_IN_MILLIS = 250;
+
+    private final NioHttpConnection.Factory connectionFactory;
+    private final long connectionAttemptDelayInMillis;
+
+    private final Histogram raceDurationHistogram;
+    private final Counter attemptCounter;
+    private final Counter failedAttemptCounter;
+
+    private final Object raceLock = new Object();
+    private final List<Attempt> attempts = new ArrayList<>();
+    private Attempt winningAttempt;
+    private int numOfFailedAttempts;
+    private IOException lastFailure;
+
+    StreamConnectionRacer(NioHttpConnection.Factory connectionFactory, MetricsRegistry metricsRegistry,
+                          long connectionAttemptDelayInMillis) {
+        this.connectionFactory = connectionFactory;
+        this.connectionAttemptDelayInMillis = connectionAttemptDelayInMillis;
+
+        raceDurationHistogram = metricsRegistry.histogram("stream.race.duration_ms");
+        attemptCounter = metricsRegistry.counter("stream.race.attempts");
+        failedAttemptCounter = metricsRegistry.counter("stream.race.failed_attempts");
+    }
+
+    // Attempts start one after the other, staggered by the attempt delay, or straight away when every attempt
+    // so far has failed. The first connection to deliver audio wins and every other attempt is cancelled.
+    NioHttpConnection race(List<StreamEndpoint> endpoints) throws IOException {
+        if (endpoints.isEmpty()) {
+            throw new IOException("No stream endpoints to connect to.");
+        }
+
+        long raceStartedAtMillis = getCurrentTimeInMillis();
+        try {
+            Attempt attempt = awaitWinningAttempt(endpoints);
+            raceDurationHistogram.record(getCurrentTimeInMillis() - raceStartedAtMillis);
+            return attempt.connection;
+        } finally {
+            cancelLosingAttempts();
+        }
+    }
+
+    private Attempt awaitWinningAttempt(List<StreamEndpoint> endpoints) throws IOException {
+        synchronized (raceLock) {
+            long nextAttemptAtMillis = 0;
+            while (winningAttempt == null) {
+                long now = getCurrentTimeInMillis();
+                boolean haveAllStartedAttemptsFailed = numOfFailedAttempts == attempts.size();
+                boolean canStartAnotherAttempt = attempts.size() < endpoints.size();
+
+                if (canStartAnotherAttempt && (now >= nextAttemptAtMillis || haveAllStartedAttemptsFailed)) {
+                    startAttempt(endpoints.get(attempts.size()));
+                    nextAttemptAtMillis = now + connectionAttemptDelayInMillis;
+                    continue;
+                }
+                if (haveAllStartedAttemptsFailed) {
+                    throw lastFailure;
+                }
+
+                try {
+                    raceLock.wait(canStartAnotherAttempt ? nextAttemptAtMillis - now : 0);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            return winningAttempt;
+        }
+    }
+
+    private void startAttempt(StreamEndpoint endpoint) {
+        Attempt attempt = new Attempt(createConnection(endpoint));
+        attempts.add(attempt);
+        attemptCounter.increment();
+
+        Thread attemptThread = new Thread(attempt, "StreamRacer");
+        attemptThread.setDaemon(true);
+        attemptThread.start();
+    }
+
+    private void cancelLosingAttempts() {
+        synchronized (raceLock) {
+            for (Attempt attempt : attempts) {
+                if (attempt != winningAttempt) {
+                    attempt.connection.closeQuietly();
+                }
+            }
+            attempts.clear();
+            winningAttempt = null;
+            numOfFailedAttempts = 0;
+            lastFailure = null;
+        }
+    }
+
+    protected NioHttpConnection createConnection(StreamEndpoint endpoint) {
+        return connectionFactory.create(endpoint);
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+
+
+    private class Attempt implements Runnable {
+
+        private final NioHttpConnection connection;
+
+        private Attempt(NioHttpConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void run() {
+            try {
+                connection.connect();
+            } catch (IOException e) {
+                connection.closeQuietly();
+                failedAttemptCounter.increment();
+                synchronized (raceLock) {
+                    if (attempts.contains(this)) {
+                        numOfFailedAttempts++;
+                        lastFailure = new IOException("Couldn't connect to " + connection.getEndpoint(), e);
+                        raceLock.notifyAll();
+                    }
+                }
+                return;
+            }
+
+            synchronized (raceLock) {
+                if (winningAttempt == null && attempts.contains(this)) {
+                    winningAttempt = this;
+                    raceLock.notifyAll();
+                    return;
+                }
+            }
+            // Lost the race, or the race was already over.
+            connection.closeQuietly();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.jcanseco.radio.players.datasources;
+
+import com.google.android.exoplayer.upstream.DataSource;
+
+public interface StreamDataSourceFactory {
+
+    DataSource createDataSource();
+}
@@ -0,0 +1,61 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.net.Uri;
+
+import java.net.InetAddress;
+
+public class StreamEndpoint {
+
+    private final Uri uri;
+    private final InetAddress address;
+
+    public StreamEndpoint(Uri uri, InetAddress address) {
+        this.uri = uri;
+        this.address = address;
+    }
+
+    public Uri getUri() {
+        return uri;
+    }
+
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    public boolean isSecure() {
+        return "https".equalsIgnoreCase(uri.getScheme());
+    }
+
+    public String getHost() {
+        return uri.getHost();
+    }
+
+    public int getPort() {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return isSecure() ? 443 : 80;
+    }
+
+    public String getHostHeader() {
+        return uri.getPort() != -1 ? getHost() + ":" + uri.getPort() : getHost();
+    }
+
+    public String getRequestPath() {
+        String path = uri.getEncodedPath();
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+        String query = uri.getEncodedQuery();
+        return query != null ? path + "?" + query : path;
+    }
+
+    public String getKey() {
+        return uri + "@" + address.getHostAddress();
+    }
+
+    @Override
+    public String toString() {
+        return getKey();
+    }
+}
@@ -0,0 +1,81 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.net.Uri;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Dns;
+
+public class StreamEndpointResolver {
+
+    private final Dns dns;
+
+    public StreamEndpointResolver() {
+        this(Dns.SYSTEM);
+    }
+
+    public StreamEndpointResolver(Dns dns) {
+        this.dns = dns;
+    }
+
+    public List<StreamEndpoint> resolve(List<Uri> mirrorUris, String preferredEndpointKey) {
+        List<StreamEndpoint> ipv6Endpoints = new ArrayList<>();
+        List<StreamEndpoint> ipv4Endpoints = new ArrayList<>();
+        boolean isIpv6First = false;
+        for (Uri mirrorUri : mirrorUris) {
+            InetAddress[] addresses;
+            try {
+                addresses = lookup(mirrorUri.getHost());
+            } catch (UnknownHostException e) {
+                // The other mirrors may still resolve.
+                continue;
+            }
+            for (InetAddress address : addresses) {
+                boolean isIpv6 = address instanceof Inet6Address;
+                if (ipv6Endpoints.isEmpty() && ipv4Endpoints.isEmpty()) {
+                    isIpv6First = isIpv6;
+                }
+                (isIpv6 ? ipv6Endpoints : ipv4Endpoints).add(new StreamEndpoint(mirrorUri, address));
+            }
+        }
+
+        // Alternating address families means a broken IPv6 (or IPv4) path only ever costs one attempt delay.
+        List<StreamEndpoint> endpoints = interleave(isIpv6First ? ipv6Endpoints : ipv4Endpoints, isIpv6First ? ipv4Endpoints : ipv6Endpoints);
+        moveToFront(endpoints, preferredEndpointKey);
+        return endpoints;
+    }
+
+    protected InetAddress[] lookup(String host) throws UnknownHostException {
+        List<InetAddress> addresses = dns.lookup(host);
+        return addresses.toArray(new InetAddress[addresses.size()]);
+    }
+
+    private static List<StreamEndpoint> interleave(List<StreamEndpoint> firstEndpoints, List<StreamEndpoint> secondEndpoints) {
+        List<StreamEndpoint> endpoints = new ArrayList<>();
+        for (int i = 0; i < Math.max(firstEndpoints.size(), secondEndpoints.size()); i++) {
+            if (i < firstEndpoints.size()) {
+                endpoints.add(firstEndpoints.get(i));
+            }
+            if (i < secondEndpoints.size()) {
+                endpoints.add(secondEndpoints.get(i));
+            }
+        }
+        return endpoints;
+    }
+
+    private static void moveToFront(List<StreamEndpoint> endpoints, String endpointKey) {
+        if (endpointKey == null) {
+            return;
+        }
+        for (int i = 0; i < endpoints.size(); i++) {
+            if (endpoints.get(i).getKey().equals(endpointKey)) {
+                endpoints.add(0, endpoints.remove(i));
+                return;
+            }
+        }
+    }
+}
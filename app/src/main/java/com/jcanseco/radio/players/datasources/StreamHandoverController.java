@@ -0,0 +1,26 @@
+package com.jcanseco.radio.players.datasources;
+
+public class StreamHandoverController {
+
+    private volatile HandoverDataSource activeDataSource;
+
+    public void setActiveDataSource(HandoverDataSource activeDataSource) {
+        this.activeDataSource = activeDataSource;
+    }
+
+    public void onNetworkChanged() {
+        startHandover();
+    }
+
+    public void onSignalUnhealthy() {
+        // A fresh connection gets past a stuck relay without the gap a full reconnect would leave.
+        startHandover();
+    }
+
+    private void startHandover() {
+        HandoverDataSource dataSource = activeDataSource;
+        if (dataSource != null) {
+            dataSource.startHandover();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.jcanseco.radio.players.dsp;
+
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Gauge;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.players.LoudnessPolicy;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Measures short-term loudness as in ITU-R BS.1770 (K-weighted, over the last 3 seconds), eases the gain towards
+// whatever brings it to the target, and catches the peaks that gain pushes over the ceiling with a look-ahead
+// limiter. All state is allocated when the format changes, never per buffer.
+public class LoudnessNormalizer {
+
+    private static final int BLOCK_DURATION_IN_MILLIS = 100;
+    private static final int NUM_OF_BLOCKS_PER_MEASUREMENT = 30;
+    private static final int MIN_NUM_OF_BLOCKS_TO_MEASURE = 10;
+
+    // Below this it's silence or a pause, and boosting it would only pump up the noise floor.
+    private static final float GATE_IN_LUFS = -50f;
+
+    private static final float GAIN_TIME_CONSTANT_IN_SECONDS = 2f;
+    private static final int LOOK_AHEAD_IN_MILLIS = 5;
+    private static final float LIMITER_RELEASE_TIME_CONSTANT_IN_SECONDS = 0.1f;
+
+    private final LoudnessPolicy loudnessPolicy;
+    private final float ceiling;
+    private final Gauge shortTermLoudnessGauge;
+    private final Gauge gainGauge;
+    private final Counter limitedFramesCounter;
+
+    private int channelCount;
+    private final KWeightingFilter[] kWeightingFilters = new KWeightingFilter[2];
+
+    private int numOfFramesPerBlock;
+    private int numOfFramesInBlock;
+    private double sumOfSquaresInBlock;
+    private final double[] blockMeanSquares = new double[NUM_OF_BLOCKS_PER_MEASUREMENT];
+    private int numOfBlocks;
+    private float shortTermLoudnessInLufs = Float.NEGATIVE_INFINITY;
+
+    private float gainSmoothingCoefficient;
+    private float targetGain;
+    private float gain;
+
+    private final float[] frame = new float[2];
+    private float[] delayLine;
+    private int lookAheadInFrames;
+    private int delayLinePosition;
+    private float limiterReleaseCoefficient;
+    private float limiterGain;
+    private float limiterTargetGain;
+    private float limiterStep;
+    private int limiterHoldInFrames;
+
+    public LoudnessNormalizer(LoudnessPolicy loudnessPolicy, MetricsRegistry metricsRegistry) {
+        this.loudnessPolicy = loudnessPolicy;
+        this.ceiling = dbToLinear(loudnessPolicy.getCeilingInDbfs());
+        this.shortTermLoudnessGauge = metricsRegistry.gauge("loudness.short_term_lufs");
+        this.gainGauge = metricsRegistry.gauge("loudness.gain_db");
+        this.limitedFramesCounter = metricsRegistry.counter("loudness.limited_frames");
+        setFormat(44100, 2);
+    }
+
+    public void setFormat(int sampleRate, int channelCount) {
+        if (channelCount > frame.length) {
+            throw new IllegalArgumentException("Only mono and stereo are supported, not " + channelCount + " channels.");
+        }
+        this.channelCount = channelCount;
+        for (int channel = 0; channel < channelCount; channel++) {
+            kWeightingFilters[channel] = new KWeightingFilter(sampleRate);
+        }
+        numOfFramesPerBlock = sampleRate * BLOCK_DURATION_IN_MILLIS / 1000;
+        gainSmoothingCoefficient = getSmoothingCoefficient(GAIN_TIME_CONSTANT_IN_SECONDS, sampleRate);
+        limiterReleaseCoefficient = getSmoothingCoefficient(LIMITER_RELEASE_TIME_CONSTANT_IN_SECONDS, sampleRate);
+        lookAheadInFrames = sampleRate * LOOK_AHEAD_IN_MILLIS / 1000;
+        delayLine = new float[lookAheadInFrames * channelCount];
+        reset();
+    }
+
+    public void reset() {
+        for (int channel = 0; channel < channelCount; channel++) {
+            kWeightingFilters[channel].reset();
+        }
+        numOfFramesInBlock = 0;
+        sumOfSquaresInBlock = 0;
+        numOfBlocks = 0;
+        shortTermLoudnessInLufs = Float.NEGATIVE_INFINITY;
+        targetGain = 1f;
+        gain = 1f;
+
+        Arrays.fill(delayLine, 0f);
+        delayLinePosition = 0;
+        limiterGain = 1f;
+        limiterTargetGain = 1f;
+        limiterStep = 0f;
+        limiterHoldInFrames = 0;
+    }
+
+    // Reads 16-bit little-endian PCM from the input and writes as many bytes, delayed by the look-ahead, to the
+    // start of the output.
+    public void process(ByteBuffer input, int offset, int size, ByteBuffer output) {
+        int frameSizeInBytes = 2 * channelCount;
+        int outputPosition = 0;
+        for (int framePosition = offset; framePosition + frameSizeInBytes <= offset + size; framePosition += frameSizeInBytes) {
+            float framePeak = 0f;
+            for (int channel = 0; channel < channelCount; channel++) {
+                int index = framePosition + 2 * channel;
+                float sample = (short) ((input.get(index) & 0xFF) | (input.get(index + 1) << 8)) / 32768f;
+
+                float weightedSample = kWeightingFilters[channel].process(sample);
+                sumOfSquaresInBlock += weightedSample * weightedSample;
+
+                frame[channel] = sample * gain;
+                framePeak = Math.max(framePeak, Math.abs(frame[channel]));
+            }
+            updateLimiter(framePeak);
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                int delayLineIndex = delayLinePosition * channelCount + channel;
+                writeSample(output, outputPosition + 2 * channel, delayLine[delayLineIndex] * limiterGain);
+                delayLine[delayLineIndex] = frame[channel];
+            }
+            outputPosition += frameSizeInBytes;
+            delayLinePosition = (delayLinePosition + 1) % lookAheadInFrames;
+
+            gain += (targetGain - gain) * gainSmoothingCoefficient;
+            if (++numOfFramesInBlock == numOfFramesPerBlock) {
+                closeBlock();
+            }
+        }
+    }
+
+    private void updateLimiter(float framePeak) {
+        if (framePeak > ceiling) {
+            // A frame entering the delay line now leaves it after the look-ahead, so ramping down over exactly
+            // that many frames gets the gain low enough just in time. Ramps only ever get steeper, which keeps
+            // every earlier peak in the delay line covered as well.
+            float requiredGain = ceiling / framePeak;
+            limiterTargetGain = Math.min(limiterTargetGain, requiredGain);
+            limiterStep = Math.min(limiterStep, (requiredGain - limiterGain) / lookAheadInFrames);
+            limiterHoldInFrames = lookAheadInFrames;
+            limitedFramesCounter.increment();
+        }
+
+        if (limiterStep < 0) {
+            limiterGain += limiterStep;
+            if (limiterGain <= limiterTargetGain) {
+                limiterGain = limiterTargetGain;
+                limiterStep = 0;
+            }
+        } else if (limiterHoldInFrames > 0) {
+            limiterHoldInFrames--;
+        } else if (limiterGain < 1f) {
+            limiterGain = Math.min(1f, limiterGain + (1f - limiterGain) * limiterReleaseCoefficient);
+            limiterTargetGain = limiterGain;
+        }
+    }
+
+    private void writeSample(ByteBuffer output, int index, float sample) {
+        // Anything the limiter didn't catch is clipped rather than left to wrap around.
+        float clippedSample = Math.max(-ceiling, Math.min(ceiling, sample));
+        int value = Math.round(clippedSample * 32767f);
+        output.put(index, (byte) value);
+        output.put(index + 1, (byte) (value >> 8));
+    }
+
+    private void closeBlock() {
+        double blockMeanSquare = sumOfSquaresInBlock / numOfFramesInBlock;
+        blockMeanSquares[numOfBlocks % NUM_OF_BLOCKS_PER_MEASUREMENT] = blockMeanSquare;
+        numOfBlocks++;
+        numOfFramesInBlock = 0;
+        sumOfSquaresInBlock = 0;
+
+        if (numOfBlocks < MIN_NUM_OF_BLOCKS_TO_MEASURE) {
+            return;
+        }
+
+        int numOfBlocksToMeasure = Math.min(numOfBlocks, NUM_OF_BLOCKS_PER_MEASUREMENT);
+        double meanSquare = 0;
+        for (int i = 0; i < numOfBlocksToMeasure; i++) {
+            meanSquare += blockMeanSquares[i];
+        }
+        meanSquare /= numOfBlocksToMeasure;
+        shortTermLoudnessInLufs = toLufs(meanSquare);
+        shortTermLoudnessGauge.set(Math.round(shortTermLoudnessInLufs));
+
+        // Gating on the latest block too keeps the gain where it was when audio stops, instead of letting it
+        // creep up while the silence fills the measurement.
+        if (shortTermLoudnessInLufs > GATE_IN_LUFS && toLufs(blockMeanSquare) > GATE_IN_LUFS) {
+            float maxGainInDb = loudnessPolicy.getMaxGainInDb();
+            float gainInDb = Math.max(-maxGainInDb, Math.min(maxGainInDb,
+                    loudnessPolicy.getTargetLoudnessInLufs() - shortTermLoudnessInLufs));
+            targetGain = dbToLinear(gainInDb);
+            gainGauge.set(Math.round(gainInDb));
+        }
+    }
+
+    public float getShortTermLoudnessInLufs() {
+        return shortTermLoudnessInLufs;
+    }
+
+    public float getGainInDb() {
+        return (float) (20 * Math.log10(gain));
+    }
+
+    public int getLookAheadInFrames() {
+        return lookAheadInFrames;
+    }
+
+    private static float getSmoothingCoefficient(float timeConstantInSeconds, int sampleRate) {
+        return (float) (1 - Math.exp(-1 / (timeConstantInSeconds * sampleRate)));
+    }
+
+    private static float toLufs(double meanSquare) {
+        return (float) (-0.691 + 10 * Math.log10(meanSquare));
+    }
+
+    private static float dbToLinear(float db) {
+        return (float) Math.pow(10, db / 20);
+    }
+
+
+    // The two stages BS.1770 defines at 48 kHz, derived for any sample rate the same way libebur128 does.
+    private static class KWeightingFilter {
+
+        private final Biquad highShelf;
+        private final Biquad highPass;
+
+        private KWeightingFilter(int sampleRate) {
+            double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+            double q = 0.7071752369554196;
+            double vh = Math.pow(10, 3.999843853973347 / 20);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1 + k / q + k * k;
+            highShelf = new Biquad(
+                    (vh + vb * k / q + k * k) / a0, 2 * (k * k - vh) / a0, (vh - vb * k / q + k * k) / a0,
+                    2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0);
+
+            k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+            q = 0.5003270373238773;
+            a0 = 1 + k / q + k * k;
+            highPass = new Biquad(1, -2, 1, 2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0);
+        }
+
+        private float process(float sample) {
+            return highPass.process(highShelf.process(sample));
+        }
+
+        private void reset() {
+            highShelf.reset();
+            highPass.reset();
+        }
+    }
+
+
+    private static class Biquad {
+
+        private final float b0, b1, b2, a1, a2;
+        private float z1, z2;
+
+        private Biquad(double b0, double b1, double b2, double a1, double a2) {
+            this.b0 = (float) b0;
+            this.b1 = (float) b1;
+            this.b2 = (float) b2;
+            this.a1 = (float) a1;
+            this.a2 = (float) a2;
+        }
+
+        private float process(float input) {
+            float output = b0 * input + z1;
+            z1 = b1 * input - a1 * output + z2;
+            z2 = b2 * input - a2 * output;
+            return output;
+        }
+
+        private void reset() {
+            z1 = 0;
+            z2 = 0;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.jcanseco.radio.players.mp3;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.MediaFormat;
+import com.google.android.exoplayer.ParserException;
+import com.google.android.exoplayer.extractor.Extractor;
+import com.google.android.exoplayer.extractor.ExtractorInput;
+import com.google.android.exoplayer.extractor.ExtractorOutput;
+import com.google.android.exoplayer.extractor.PositionHolder;
+import com.google.android.exoplayer.extractor.SeekMap;
+import com.google.android.exoplayer.extractor.TrackOutput;
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import java.io.IOException;
+
+public class LiveMp3Extractor implements Extractor {
+
+    // Matches what the default MP3 extractor is willing to search before giving up on a stream.
+    private static final int MAX_BYTES_TO_SEARCH_FOR_SYNC = 128 * 1024;
+
+    private final Counter skippedBytesCounter;
+    private final Counter resyncCounter;
+
+    private final byte[] scratch = new byte[Mp3FrameHeader.HEADER_SIZE_IN_BYTES];
+
+    private TrackOutput trackOutput;
+    private boolean hasOutputFormat;
+
+    private int syncedHeader;
+    private boolean isSynced;
+    private int numOfBytesSkippedSinceSync;
+
+    private int sampleSize;
+    private int sampleBytesRemaining;
+    private long sampleTimeUs;
+    private long numOfSamplesRead;
+
+    public LiveMp3Extractor(MetricsRegistry metricsRegistry) {
+        skippedBytesCounter = metricsRegistry.counter("extractor.skipped_bytes");
+        resyncCounter = metricsRegistry.counter("extractor.resyncs");
+    }
+
+    @Override
+    public boolean sniff(ExtractorInput input) {
+        // The stream is known to be MP3, so there's nothing to gain from peeking at it before playback starts.
+        return true;
+    }
+
+    @Override
+    public void init(ExtractorOutput output) {
+        trackOutput = output.track(0);
+        output.endTracks();
+        output.seekMap(new UnseekableSeekMap());
+    }
+
+    @Override
+    public void seek() {
+        // Seeking a live stream just reconnects to it, so everything after the seek starts from scratch.
+        isSynced = false;
+        sampleBytesRemaining = 0;
+        numOfSamplesRead = 0;
+    }
+
+    public void release() {}
+
+    @Override
+    public int read(ExtractorInput input, PositionHolder seekPosition) throws IOException, InterruptedException {
+        if (sampleBytesRemaining == 0) {
+            if (!synchronizeToNextFrame(input)) {
+                return RESULT_END_OF_INPUT;
+            }
+            sampleSize = Mp3FrameHeader.getFrameSizeInBytes(syncedHeader);
+            sampleBytesRemaining = sampleSize;
+            sampleTimeUs = numOfSamplesRead * C.MICROS_PER_SECOND / Mp3FrameHeader.getSampleRate(syncedHeader);
+        }
+
+        int numOfBytesAppended = trackOutput.sampleData(input, sampleBytesRemaining, true);
+        if (numOfBytesAppended == C.RESULT_END_OF_INPUT) {
+            return RESULT_END_OF_INPUT;
+        }
+        sampleBytesRemaining -= numOfBytesAppended;
+        if (sampleBytesRemaining > 0) {
+            return RESULT_CONTINUE;
+        }
+
+        trackOutput.sampleMetadata(sampleTimeUs, C.SAMPLE_FLAG_SYNC, sampleSize, 0, null);
+        numOfSamplesRead += Mp3FrameHeader.getSamplesPerFrame(syncedHeader);
+        return RESULT_CONTINUE;
+    }
+
+    private boolean synchronizeToNextFrame(ExtractorInput input) throws IOException, InterruptedException {
+        while (true) {
+            input.resetPeekPosition();
+            if (!input.peekFully(scratch, 0, Mp3FrameHeader.HEADER_SIZE_IN_BYTES, true)) {
+                return false;
+            }
+
+            int header = Mp3FrameHeader.readHeader(scratch, 0);
+            if (isSynced ? isNextFrameOfSyncedStream(header) : isConfirmedByNextFrame(input, header)) {
+                input.resetPeekPosition();
+                onSynchronized(header);
+                return true;
+            }
+
+            // Garbage is skipped a byte at a time until headers line up again, instead of failing playback.
+            if (isSynced) {
+                isSynced = false;
+                resyncCounter.increment();
+            }
+            if (++numOfBytesSkippedSinceSync > MAX_BYTES_TO_SEARCH_FOR_SYNC) {
+                throw new ParserException("Searched too many bytes for an MP3 frame header.");
+            }
+            input.resetPeekPosition();
+            input.skipFully(1);
+            skippedBytesCounter.increment();
+        }
+    }
+
+    private boolean isNextFrameOfSyncedStream(int header) {
+        return Mp3FrameHeader.isValid(header) && Mp3FrameHeader.isSameStream(header, syncedHeader);
+    }
+
+    private boolean isConfirmedByNextFrame(ExtractorInput input, int header) throws IOException, InterruptedException {
+        // A lone sync word can appear inside audio data, so a new sync is only trusted when the header of the
+        // frame after it agrees.
+        int frameSize = Mp3FrameHeader.getFrameSizeInBytes(header);
+        if (frameSize == Mp3FrameHeader.INVALID_VALUE) {
+            return false;
+        }
+        if (!input.advancePeekPosition(frameSize - Mp3FrameHeader.HEADER_SIZE_IN_BYTES, true)
+                || !input.peekFully(scratch, 0, Mp3FrameHeader.HEADER_SIZE_IN_BYTES, true)) {
+            return true;
+        }
+        int nextHeader = Mp3FrameHeader.readHeader(scratch, 0);
+        return Mp3FrameHeader.isValid(nextHeader) && Mp3FrameHeader.isSameStream(header, nextHeader);
+    }
+
+    private void onSynchronized(int header) {
+        syncedHeader = header;
+        isSynced = true;
+        numOfBytesSkippedSinceSync = 0;
+
+        if (!hasOutputFormat) {
+            trackOutput.format(MediaFormat.createAudioFormat(null, Mp3FrameHeader.getMimeType(header), MediaFormat.NO_VALUE,
+                    Mp3FrameHeader.MAX_FRAME_SIZE_IN_BYTES, C.UNKNOWN_TIME_US, Mp3FrameHeader.getChannelCount(header),
+                    Mp3FrameHeader.getSampleRate(header), null, null));
+            hasOutputFormat = true;
+        }
+    }
+
+
+    private static class UnseekableSeekMap implements SeekMap {
+
+        @Override
+        public boolean isSeekable() {
+            return false;
+        }
+
+        @Override
+        public long getPosition(long timeUs) {
+            return 0;
+        }
+    }
+}
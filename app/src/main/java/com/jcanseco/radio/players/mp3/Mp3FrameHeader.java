@@ -0,0 +1,141 @@
+package com.jcanseco.radio.players.mp3;
+
+public final class Mp3FrameHeader {
+
+    public static final int HEADER_SIZE_IN_BYTES = 4;
+    public static final int MAX_FRAME_SIZE_IN_BYTES = 4096;
+    public static final int INVALID_VALUE = -1;
+
+    // Sync word, version, layer and sample rate must not change between frames of the same stream.
+    public static final int CONSTANT_HEADER_MASK = 0xFFFE0C00;
+
+    private static final int VERSION_2_5 = 0;
+    private static final int VERSION_2 = 2;
+    private static final int VERSION_1 = 3;
+
+    private static final int LAYER_3 = 1;
+    private static final int LAYER_2 = 2;
+    private static final int LAYER_1 = 3;
+
+    private static final int[] SAMPLE_RATES_VERSION_1 = {44100, 48000, 32000};
+
+    private static final int[] BITRATES_VERSION_1_LAYER_1 = {32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448};
+    private static final int[] BITRATES_VERSION_1_LAYER_2 = {32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384};
+    private static final int[] BITRATES_VERSION_1_LAYER_3 = {32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+    private static final int[] BITRATES_VERSION_2_LAYER_1 = {32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256};
+    private static final int[] BITRATES_VERSION_2_LAYERS_2_AND_3 = {8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160};
+
+    private Mp3FrameHeader() {}
+
+    public static int readHeader(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24)
+                | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8)
+                | (data[offset + 3] & 0xFF);
+    }
+
+    public static boolean isValid(int header) {
+        return getFrameSizeInBytes(header) != INVALID_VALUE;
+    }
+
+    public static boolean isSameStream(int header, int otherHeader) {
+        return (header & CONSTANT_HEADER_MASK) == (otherHeader & CONSTANT_HEADER_MASK);
+    }
+
+    public static int getFrameSizeInBytes(int header) {
+        if ((header & 0xFFE00000) != 0xFFE00000) {
+            return INVALID_VALUE;
+        }
+
+        int version = getVersion(header);
+        int layer = getLayer(header);
+        int bitrateIndex = (header >>> 12) & 0x0F;
+        int sampleRate = getSampleRate(header);
+        if (version == 1 || layer == 0 || bitrateIndex == 0 || bitrateIndex == 0x0F || sampleRate == INVALID_VALUE) {
+            return INVALID_VALUE;
+        }
+
+        int bitrate = getBitrateInKbps(version, layer, bitrateIndex) * 1000;
+        int padding = (header >>> 9) & 1;
+        if (layer == LAYER_1) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        } else if (layer == LAYER_3 && version != VERSION_1) {
+            return 72 * bitrate / sampleRate + padding;
+        } else {
+            return 144 * bitrate / sampleRate + padding;
+        }
+    }
+
+    public static int getSampleRate(int header) {
+        int sampleRateIndex = (header >>> 10) & 0x03;
+        if (sampleRateIndex == 3) {
+            return INVALID_VALUE;
+        }
+
+        int sampleRate = SAMPLE_RATES_VERSION_1[sampleRateIndex];
+        int version = getVersion(header);
+        if (version == VERSION_2) {
+            return sampleRate / 2;
+        } else if (version == VERSION_2_5) {
+            return sampleRate / 4;
+        } else {
+            return sampleRate;
+        }
+    }
+
+    public static int getSamplesPerFrame(int header) {
+        int layer = getLayer(header);
+        if (layer == LAYER_1) {
+            return 384;
+        } else if (layer == LAYER_3 && getVersion(header) != VERSION_1) {
+            return 576;
+        } else {
+            return 1152;
+        }
+    }
+
+    public static int getChannelCount(int header) {
+        int channelMode = (header >>> 6) & 0x03;
+        return channelMode == 3 ? 1 : 2;
+    }
+
+    public static long getFrameDurationInMicros(int header) {
+        return getSamplesPerFrame(header) * 1000000L / getSampleRate(header);
+    }
+
+    public static String getMimeType(int header) {
+        switch (getLayer(header)) {
+            case LAYER_1:
+                return "audio/mpeg-L1";
+            case LAYER_2:
+                return "audio/mpeg-L2";
+            default:
+                return "audio/mpeg";
+        }
+    }
+
+    private static int getVersion(int header) {
+        return (header >>> 19) & 0x03;
+    }
+
+    private static int getLayer(int header) {
+        return (header >>> 17) & 0x03;
+    }
+
+    private static int getBitrateInKbps(int version, int layer, int bitrateIndex) {
+        if (version == VERSION_1) {
+            switch (layer) {
+                case LAYER_1:
+                    return BITRATES_VERSION_1_LAYER_1[bitrateIndex - 1];
+                case LAYER_2:
+                    return BITRATES_VERSION_1_LAYER_2[bitrateIndex - 1];
+                default:
+                    return BITRATES_VERSION_1_LAYER_3[bitrateIndex - 1];
+            }
+        } else if (layer == LAYER_1) {
+            return BITRATES_VERSION_2_LAYER_1[bitrateIndex - 1];
+        } else {
+            return BITRATES_VERSION_2_LAYERS_2_AND_3[bitrateIndex - 1];
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.jcanseco.radio.players.trackrenderers;
+
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Gauge;
+import com.jcanseco.radio.metrics.Histogram;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.players.AudioOutputPolicy;
+
+// ExoPlayer only stops the renderer to rebuffer when it runs out of network data. When the AudioTrack runs dry
+// because the decode thread didn't get to feed it in time, the renderer stays started while its position, which
+// comes from the AudioTrack's playback head, stops moving. Sampling that position against the wall clock is
+// what shows these underruns on every API level, since the platform's own underrun count needs API 24.
+public class AudioOutputMonitor {
+
+    private static final long SAMPLE_INTERVAL_IN_MILLIS = 100;
+
+    // The AudioTrack takes a moment to start moving after it's started or recreated.
+    private static final long GRACE_PERIOD_IN_MILLIS = 500;
+
+    private final AudioOutputPolicy audioOutputPolicy;
+    private final Counter underrunCounter;
+    private final Counter stalledDurationCounter;
+    private final Histogram underrunDurationHistogram;
+    private final Counter bufferGrowthCounter;
+    private final Gauge bufferDurationGauge;
+
+    private final long[] recentUnderrunsAtMillis;
+    private int numOfRecentUnderruns;
+
+    private boolean isStarted;
+    private long startedAtMillis;
+    private long lastSampledAtMillis;
+    private long lastSampledPositionUs;
+    private boolean isStalled;
+    private long stallStartedAtMillis;
+
+    private long bufferDurationInMillis;
+    private boolean isBufferGrowthRequested;
+
+    public AudioOutputMonitor(AudioOutputPolicy audioOutputPolicy, MetricsRegistry metricsRegistry) {
+        this.audioOutputPolicy = audioOutputPolicy;
+        this.underrunCounter = metricsRegistry.counter("audio.output.underruns");
+        this.stalledDurationCounter = metricsRegistry.counter("audio.output.stalled_ms");
+        this.underrunDurationHistogram = metricsRegistry.histogram("audio.output.underrun_duration_ms");
+        this.bufferGrowthCounter = metricsRegistry.counter("audio.output.buffer_growths");
+        this.bufferDurationGauge = metricsRegistry.gauge("audio.output.buffer_ms");
+        this.recentUnderrunsAtMillis = new long[audioOutputPolicy.getNumOfUnderrunsBeforeGrowing()];
+        this.bufferDurationInMillis = audioOutputPolicy.getInitialBufferDurationInMillis();
+        bufferDurationGauge.set(bufferDurationInMillis);
+    }
+
+    public synchronized void onStarted() {
+        isStarted = true;
+        startedAtMillis = getCurrentTimeInMillis();
+        lastSampledAtMillis = 0;
+    }
+
+    public synchronized void onStopped() {
+        endStall(getCurrentTimeInMillis());
+        isStarted = false;
+    }
+
+    public synchronized void onPositionSampled(long positionUs) {
+        long now = getCurrentTimeInMillis();
+        if (!isStarted || now - startedAtMillis < GRACE_PERIOD_IN_MILLIS) {
+            return;
+        }
+        if (lastSampledAtMillis == 0) {
+            lastSampledAtMillis = now;
+            lastSampledPositionUs = positionUs;
+            return;
+        }
+
+        long elapsedInMillis = now - lastSampledAtMillis;
+        if (elapsedInMillis < SAMPLE_INTERVAL_IN_MILLIS) {
+            return;
+        }
+
+        // Half of real time is well below the slowest this plays back at, even while catching up.
+        long playedInMillis = (positionUs - lastSampledPositionUs) / 1000;
+        if (playedInMillis < elapsedInMillis / 2) {
+            if (!isStalled) {
+                startStall(lastSampledAtMillis);
+            }
+            stalledDurationCounter.add(elapsedInMillis);
+        } else {
+            endStall(now);
+        }
+        lastSampledAtMillis = now;
+        lastSampledPositionUs = positionUs;
+    }
+
+    private void startStall(long stalledAtMillis) {
+        isStalled = true;
+        stallStartedAtMillis = stalledAtMillis;
+        underrunCounter.increment();
+
+        recentUnderrunsAtMillis[numOfRecentUnderruns % recentUnderrunsAtMillis.length] = stalledAtMillis;
+        numOfRecentUnderruns++;
+        if (numOfRecentUnderruns >= recentUnderrunsAtMillis.length) {
+            long oldestUnderrunAtMillis = recentUnderrunsAtMillis[numOfRecentUnderruns % recentUnderrunsAtMillis.length];
+            if (stalledAtMillis - oldestUnderrunAtMillis <= audioOutputPolicy.getUnderrunWindowInMillis()) {
+                requestBufferGrowth();
+            }
+        }
+    }
+
+    private void endStall(long now) {
+        if (isStalled) {
+            isStalled = false;
+            underrunDurationHistogram.record(now - stallStartedAtMillis);
+        }
+    }
+
+    private void requestBufferGrowth() {
+        long grownBufferDurationInMillis = Math.min(bufferDurationInMillis * 2, audioOutputPolicy.getMaxBufferDurationInMillis());
+        if (grownBufferDurationInMillis > bufferDurationInMillis) {
+            bufferDurationInMillis = grownBufferDurationInMillis;
+            isBufferGrowthRequested = true;
+            bufferGrowthCounter.increment();
+            bufferDurationGauge.set(bufferDurationInMillis);
+        }
+        // Underruns from before the buffer grew don't count towards growing it again.
+        numOfRecentUnderruns = 0;
+    }
+
+    // Stays the same across renderers, so a device that needed a larger buffer keeps it after reconnecting.
+    public synchronized long getBufferDurationInMillis() {
+        return bufferDurationInMillis;
+    }
+
+    public synchronized boolean isBufferGrowthRequested() {
+        return isBufferGrowthRequested;
+    }
+
+    public synchronized boolean consumeBufferGrowthRequest() {
+        boolean wasBufferGrowthRequested = isBufferGrowthRequested;
+        isBufferGrowthRequested = false;
+        return wasBufferGrowthRequested;
+    }
+
+    public synchronized boolean isStalled() {
+        return isStalled;
+    }
+
+    protected long getCurrentTimeInMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("output buffer %d ms, %s (%s)", bufferDurationInMillis, isStalled ? "underrun" : "playing",
+                audioOutputPolicy);
+    }
+}
@@ -0,0 +1,44 @@
+package com.jcanseco.radio.players.trackrenderers;
+
+import android.media.MediaFormat;
+
+import com.google.android.exoplayer.MediaCodecAudioTrackRenderer;
+import com.google.android.exoplayer.audio.AudioTrack;
+
+import java.lang.reflect.Field;
+
+// MediaCodecAudioTrackRenderer sizes its AudioTrack itself and keeps it private, so only the field is reached
+// through reflection. Without it the AudioTrack simply keeps the size ExoPlayer picked.
+class AudioTrackResizer {
+
+    private final AudioTrack audioTrack;
+
+    AudioTrackResizer(AudioTrack audioTrack) {
+        this.audioTrack = audioTrack;
+    }
+
+    static AudioTrackResizer create(MediaCodecAudioTrackRenderer renderer) {
+        try {
+            Field audioTrackField = MediaCodecAudioTrackRenderer.class.getDeclaredField("audioTrack");
+            audioTrackField.setAccessible(true);
+            return new AudioTrackResizer((AudioTrack) audioTrackField.get(renderer));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    // Recreating the AudioTrack drops whatever it still has queued, so it's only done once the track has played
+    // everything it was given: before the first write, or in the middle of an underrun, when it's silent anyway.
+    // The renderer starts the new track again with the next buffer it writes.
+    boolean resizeIfEmpty(MediaFormat outputFormat, long bufferDurationInMillis) {
+        if (audioTrack.hasPendingData()) {
+            return false;
+        }
+
+        int frameSizeInBytes = 2 * outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+        long bufferSizeInFrames = bufferDurationInMillis * outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE) / 1000;
+        audioTrack.reset();
+        audioTrack.configure(outputFormat, false, (int) (bufferSizeInFrames * frameSizeInBytes));
+        return true;
+    }
+}
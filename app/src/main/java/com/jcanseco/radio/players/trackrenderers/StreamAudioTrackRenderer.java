@@ -0,0 +1,185 @@
+package com.jcanseco.radio.players.trackrenderers;
+
+import android.annotation.TargetApi;
+import android.media.MediaCodec;
+import android.media.PlaybackParams;
+
+import com.google.android.exoplayer.ExoPlaybackException;
+import com.google.android.exoplayer.MediaCodecAudioTrackRenderer;
+import com.google.android.exoplayer.MediaCodecSelector;
+import com.google.android.exoplayer.SampleSource;
+import com.google.android.exoplayer.TrackRenderer;
+import com.google.android.exoplayer.util.Util;
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.players.analysis.PcmSignalAnalyzer;
+import com.jcanseco.radio.players.dsp.LoudnessNormalizer;
+
+import java.nio.ByteBuffer;
+
+// Catches up with the live edge by playing slightly faster where the platform can stretch time without changing
+// pitch (API 23 and up), and by dropping decoded buffers that are pure silence everywhere else. When a loudness
+// normalizer is given, every decoded buffer goes through it on its way to the AudioTrack.
+public class StreamAudioTrackRenderer extends MediaCodecAudioTrackRenderer {
+
+    // The message payload is a Boolean.
+    public static final int MSG_SET_CATCHING_UP = 10000;
+
+    // About -50 dBFS, quiet enough that dropping it goes unnoticed between tracks and talk.
+    private static final int SILENCE_THRESHOLD = 100;
+
+    private final float catchUpSpeed;
+    private final Counter skippedSilenceCounter;
+    private final PcmSignalAnalyzer signalAnalyzer;
+    private final LoudnessNormalizer loudnessNormalizer;
+    private ByteBuffer normalizedBuffer;
+    private final AudioOutputMonitor audioOutputMonitor;
+    private final AudioTrackResizer audioTrackResizer;
+    private android.media.MediaFormat outputFormat;
+
+    private boolean isSkippingSilence;
+    private int channelCount = 2;
+    private int sampleRate = 44100;
+
+    private int inspectedBufferIndex = -1;
+    private long inspectedPresentationTimeUs;
+    private boolean isInspectedBufferSkipped;
+
+    public StreamAudioTrackRenderer(SampleSource sampleSource, float catchUpSpeed, PcmSignalAnalyzer signalAnalyzer,
+                                    LoudnessNormalizer loudnessNormalizer, AudioOutputMonitor audioOutputMonitor,
+                                    MetricsRegistry metricsRegistry) {
+        super(sampleSource, MediaCodecSelector.DEFAULT);
+        this.catchUpSpeed = catchUpSpeed;
+        this.signalAnalyzer = signalAnalyzer;
+        this.loudnessNormalizer = loudnessNormalizer;
+        this.audioOutputMonitor = audioOutputMonitor;
+        this.audioTrackResizer = AudioTrackResizer.create(this);
+        metricsRegistry.gauge("audio.output.resizable").set(audioTrackResizer != null ? 1 : 0);
+        if (audioTrackResizer == null) {
+            metricsRegistry.counter("audio.output.resizer_unavailable").increment();
+        }
+        this.skippedSilenceCounter = metricsRegistry.counter("latency.skipped_silence_ms");
+    }
+
+    @Override
+    public void handleMessage(int messageType, Object message) throws ExoPlaybackException {
+        if (messageType == MSG_SET_CATCHING_UP) {
+            setCatchingUp((Boolean) message);
+        } else {
+            super.handleMessage(messageType, message);
+        }
+    }
+
+    private void setCatchingUp(boolean isCatchingUp) throws ExoPlaybackException {
+        if (Util.SDK_INT >= 23) {
+            super.handleMessage(MSG_SET_PLAYBACK_PARAMS, createPlaybackParams(isCatchingUp ? catchUpSpeed : 1f));
+        } else {
+            isSkippingSilence = isCatchingUp;
+        }
+    }
+
+    @TargetApi(23)
+    private static PlaybackParams createPlaybackParams(float speed) {
+        return new PlaybackParams()
+                .setSpeed(speed)
+                .setPitch(1f);
+    }
+
+    @Override
+    protected void onOutputFormatChanged(MediaCodec codec, android.media.MediaFormat outputFormat) throws ExoPlaybackException {
+        super.onOutputFormatChanged(codec, outputFormat);
+        this.outputFormat = outputFormat;
+        if (audioTrackResizer != null) {
+            audioTrackResizer.resizeIfEmpty(outputFormat, audioOutputMonitor.getBufferDurationInMillis());
+        }
+        channelCount = outputFormat.getInteger(android.media.MediaFormat.KEY_CHANNEL_COUNT);
+        sampleRate = outputFormat.getInteger(android.media.MediaFormat.KEY_SAMPLE_RATE);
+        signalAnalyzer.setFormat(sampleRate, channelCount);
+        if (loudnessNormalizer != null) {
+            loudnessNormalizer.setFormat(sampleRate, channelCount);
+        }
+    }
+
+    @Override
+    protected void onStarted() {
+        super.onStarted();
+        audioOutputMonitor.onStarted();
+    }
+
+    @Override
+    protected void onStopped() {
+        audioOutputMonitor.onStopped();
+        super.onStopped();
+    }
+
+    @Override
+    protected void doSomeWork(long positionUs, long elapsedRealtimeUs, boolean sourceIsReady) throws ExoPlaybackException {
+        super.doSomeWork(positionUs, elapsedRealtimeUs, sourceIsReady);
+        if (getState() != TrackRenderer.STATE_STARTED) {
+            return;
+        }
+
+        // This renderer is the player's clock, so the position is the AudioTrack's playback head.
+        audioOutputMonitor.onPositionSampled(positionUs);
+        // A growth request waits for the next underrun to drain the AudioTrack, so growing never cuts off audio
+        // that was still queued to play.
+        if (audioOutputMonitor.isBufferGrowthRequested() && audioTrackResizer != null && outputFormat != null
+                && audioTrackResizer.resizeIfEmpty(outputFormat, audioOutputMonitor.getBufferDurationInMillis())) {
+            audioOutputMonitor.consumeBufferGrowthRequest();
+            audioOutputMonitor.onStarted();
+        }
+    }
+
+    @Override
+    protected boolean processOutputBuffer(long positionUs, long elapsedRealtimeUs, MediaCodec codec, ByteBuffer buffer,
+                                          MediaCodec.BufferInfo bufferInfo, int bufferIndex, boolean shouldSkip)
+            throws ExoPlaybackException {
+        // A buffer can take several calls to be written out, and only a buffer nothing has been written from yet
+        // can be dropped, so the decision is made once, the first time each buffer comes through.
+        if (bufferIndex != inspectedBufferIndex || bufferInfo.presentationTimeUs != inspectedPresentationTimeUs) {
+            inspectedBufferIndex = bufferIndex;
+            inspectedPresentationTimeUs = bufferInfo.presentationTimeUs;
+            signalAnalyzer.analyze(buffer, bufferInfo.offset, bufferInfo.size);
+            isInspectedBufferSkipped = isSkippingSilence && isSilent(buffer, bufferInfo.offset, bufferInfo.size);
+            if (isInspectedBufferSkipped) {
+                skippedSilenceCounter.add(getDurationInMillis(bufferInfo.size));
+            } else if (loudnessNormalizer != null) {
+                normalize(buffer, bufferInfo);
+            }
+        }
+
+        if (loudnessNormalizer != null && !isInspectedBufferSkipped) {
+            // The AudioTrack keeps writing from the same buffer until it's consumed, and the codec's output buffers
+            // can be read-only, so it gets the normalized copy every time.
+            return super.processOutputBuffer(positionUs, elapsedRealtimeUs, codec, normalizedBuffer, bufferInfo,
+                    bufferIndex, shouldSkip);
+        }
+        return super.processOutputBuffer(positionUs, elapsedRealtimeUs, codec, buffer, bufferInfo, bufferIndex,
+                shouldSkip || isInspectedBufferSkipped);
+    }
+
+    private void normalize(ByteBuffer buffer, MediaCodec.BufferInfo bufferInfo) {
+        if (normalizedBuffer == null || normalizedBuffer.capacity() < bufferInfo.size) {
+            normalizedBuffer = ByteBuffer.allocateDirect(bufferInfo.size);
+        }
+        normalizedBuffer.clear();
+        loudnessNormalizer.process(buffer, bufferInfo.offset, bufferInfo.size, normalizedBuffer);
+        normalizedBuffer.limit(bufferInfo.size);
+        bufferInfo.set(0, bufferInfo.size, bufferInfo.presentationTimeUs, bufferInfo.flags);
+    }
+
+    private static boolean isSilent(ByteBuffer buffer, int offset, int size) {
+        // Decoders output 16-bit little-endian PCM.
+        for (int i = offset; i + 1 < offset + size; i += 2) {
+            int sample = (short) ((buffer.get(i) & 0xFF) | (buffer.get(i + 1) << 8));
+            if (sample > SILENCE_THRESHOLD || sample < -SILENCE_THRESHOLD) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long getDurationInMillis(int sizeInBytes) {
+        return sizeInBytes / (2L * channelCount) * 1000 / sampleRate;
+    }
+}
@@ -0,0 +1,31 @@
+package com.jcanseco.radio.players.trackrenderers;
+
+import com.jcanseco.radio.memory.MemoryPressure;
+import com.jcanseco.radio.memory.MemoryTrimmable;
+
+public class StreamBufferBudget implements MemoryTrimmable {
+
+    public static final int BUFFER_SEGMENT_SIZE_IN_BYTES = 1024;
+    private static final int DEFAULT_NUM_OF_SEGMENTS_TO_BUFFER = 64;
+
+    private volatile int numOfSegmentsToBuffer = DEFAULT_NUM_OF_SEGMENTS_TO_BUFFER;
+
+    /**
+     * Each step up in memory pressure halves the amount of audio buffered ahead of playback, down to an
+     * eighth of the default (roughly half a second of a 128 kbps stream) when memory is critically low.
+     * The new size takes effect the next time a renderer is built.
+     */
+    @Override
+    public void onMemoryPressureChanged(MemoryPressure memoryPressure) {
+        numOfSegmentsToBuffer = DEFAULT_NUM_OF_SEGMENTS_TO_BUFFER >> memoryPressure.ordinal();
+    }
+
+    public int getRequestedBufferSizeInBytes() {
+        return numOfSegmentsToBuffer * BUFFER_SEGMENT_SIZE_IN_BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StreamBufferBudget (%d bytes)", getRequestedBufferSizeInBytes());
+    }
+}
@@ -1,50 +1,73 @@
 package com.jcanseco.radio.players.trackrenderers;
 
-import android.content.Context;
 import android.net.Uri;
 
-import com.google.android.exoplayer.MediaCodecAudioTrackRenderer;
-import com.google.android.exoplayer.MediaCodecSelector;
 import com.google.android.exoplayer.SampleSource;
 import com.google.android.exoplayer.TrackRenderer;
 import com.google.android.exoplayer.extractor.ExtractorSampleSource;
 import com.google.android.exoplayer.upstream.Allocator;
-import com.google.android.exoplayer.upstream.DataSource;
 import com.google.android.exoplayer.upstream.DefaultAllocator;
-import com.google.android.exoplayer.upstream.DefaultUriDataSource;
-import com.jcanseco.radio.BuildConfig;
-import com.jcanseco.radio.R;
 import com.jcanseco.radio.constants.Constants;
+import com.jcanseco.radio.flightrecorder.FlightRecorder;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.players.LatencyPolicy;
+import com.jcanseco.radio.players.LoudnessPolicy;
+import com.jcanseco.radio.players.analysis.PcmSignalAnalyzer;
+import com.jcanseco.radio.players.analysis.SignalHealthMonitor;
+import com.jcanseco.radio.players.datasources.HandoverDataSource;
+import com.jcanseco.radio.players.datasources.StreamDataSourceFactory;
+import com.jcanseco.radio.players.datasources.StreamHandoverController;
+import com.jcanseco.radio.players.dsp.LoudnessNormalizer;
+import com.jcanseco.radio.players.mp3.LiveMp3Extractor;
+import com.jcanseco.radio.tracing.Tracer;
 
 public class TrackRendererFactory {
 
-    private static final int BUFFER_SEGMENT_SIZE_IN_BYTES = 1024;
-    private static final int NUM_OF_SEGMENTS_TO_BUFFER = 64;
-    private static final int REQUESTED_BUFFER_SIZE = NUM_OF_SEGMENTS_TO_BUFFER * BUFFER_SEGMENT_SIZE_IN_BYTES;
+    private final StreamDataSourceFactory streamDataSourceFactory;
+    private final StreamBufferBudget streamBufferBudget;
+    private final StreamHandoverController streamHandoverController;
+    private final LatencyPolicy latencyPolicy;
+    private final LoudnessPolicy loudnessPolicy;
+    private final SignalHealthMonitor signalHealthMonitor;
+    private final AudioOutputMonitor audioOutputMonitor;
+    private final FlightRecorder flightRecorder;
+    private final MetricsRegistry metricsRegistry;
 
-    public static TrackRenderer createAudioTrackRenderer(Context context) {
-        SampleSource sampleSource = createSampleSource(context);
-        return new MediaCodecAudioTrackRenderer(sampleSource, MediaCodecSelector.DEFAULT);
+    public TrackRendererFactory(StreamDataSourceFactory streamDataSourceFactory, StreamBufferBudget streamBufferBudget,
+                                StreamHandoverController streamHandoverController, LatencyPolicy latencyPolicy,
+                                LoudnessPolicy loudnessPolicy, SignalHealthMonitor signalHealthMonitor,
+                                AudioOutputMonitor audioOutputMonitor, FlightRecorder flightRecorder,
+                                MetricsRegistry metricsRegistry) {
+        this.streamDataSourceFactory = streamDataSourceFactory;
+        this.streamBufferBudget = streamBufferBudget;
+        this.streamHandoverController = streamHandoverController;
+        this.latencyPolicy = latencyPolicy;
+        this.loudnessPolicy = loudnessPolicy;
+        this.signalHealthMonitor = signalHealthMonitor;
+        this.audioOutputMonitor = audioOutputMonitor;
+        this.flightRecorder = flightRecorder;
+        this.metricsRegistry = metricsRegistry;
     }
 
-    private static SampleSource createSampleSource(Context context) {
-        Uri streamUri = Uri.parse(Constants.Endpoints.STREAM_URL);
-        DataSource dataSource = new DefaultUriDataSource(context, null, getUserAgent(context));
-        Allocator allocator = new DefaultAllocator(BUFFER_SEGMENT_SIZE_IN_BYTES);
-        return new ExtractorSampleSource(streamUri, dataSource, allocator, REQUESTED_BUFFER_SIZE);
-    }
-
-    private static String getUserAgent(Context context) {
-        String appName = getAppName(context);
-        String appBuildVersion = getAppBuildVersion();
-        return String.format("%s/%s", appName, appBuildVersion);
+    public TrackRenderer createAudioTrackRenderer() {
+        Tracer.beginSection("TrackRendererFactory.createAudioTrackRenderer");
+        try {
+            SampleSource sampleSource = createSampleSource();
+            PcmSignalAnalyzer signalAnalyzer = new PcmSignalAnalyzer(metricsRegistry, signalHealthMonitor);
+            LoudnessNormalizer loudnessNormalizer = loudnessPolicy.isEnabled() ? new LoudnessNormalizer(loudnessPolicy, metricsRegistry) : null;
+            return new StreamAudioTrackRenderer(sampleSource, latencyPolicy.getCatchUpSpeed(), signalAnalyzer, loudnessNormalizer,
+                    audioOutputMonitor, metricsRegistry);
+        } finally {
+            Tracer.endSection();
+        }
     }
 
-    private static String getAppName(Context context) {
-        return context.getString(R.string.app_name);
-    }
-
-    private static String getAppBuildVersion() {
-        return BuildConfig.VERSION_NAME;
+    private SampleSource createSampleSource() {
+        Uri streamUri = Uri.parse(Constants.Endpoints.STREAM_URL);
+        HandoverDataSource dataSource = new HandoverDataSource(streamDataSourceFactory, flightRecorder, metricsRegistry);
+        streamHandoverController.setActiveDataSource(dataSource);
+        Allocator allocator = new DefaultAllocator(StreamBufferBudget.BUFFER_SEGMENT_SIZE_IN_BYTES);
+        return new ExtractorSampleSource(streamUri, dataSource, allocator, streamBufferBudget.getRequestedBufferSizeInBytes(),
+                new LiveMp3Extractor(metricsRegistry));
     }
 }
@@ -0,0 +1,55 @@
+package com.jcanseco.radio.services;
+
+import android.net.wifi.WifiManager;
+import android.os.PowerManager;
+
+import com.jcanseco.radio.diagnostics.Dumpable;
+
+import java.io.PrintWriter;
+
+public class PlaybackLocks implements Dumpable {
+
+    private static final String LOCK_TAG = "RadioPlayback";
+
+    private final PowerManager.WakeLock wakeLock;
+    private final WifiManager.WifiLock wifiLock;
+
+    public PlaybackLocks(PowerManager powerManager, WifiManager wifiManager) {
+        wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, LOCK_TAG);
+        wakeLock.setReferenceCounted(false);
+
+        wifiLock = wifiManager.createWifiLock(WifiManager.WIFI_MODE_FULL_HIGH_PERF, LOCK_TAG);
+        wifiLock.setReferenceCounted(false);
+    }
+
+    public void acquire() {
+        if (!wakeLock.isHeld()) {
+            wakeLock.acquire();
+        }
+        if (!wifiLock.isHeld()) {
+            wifiLock.acquire();
+        }
+    }
+
+    public void release() {
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        if (wifiLock.isHeld()) {
+            wifiLock.release();
+        }
+    }
+
+    public boolean isWakeLockHeld() {
+        return wakeLock.isHeld();
+    }
+
+    public boolean isWifiLockHeld() {
+        return wifiLock.isHeld();
+    }
+
+    @Override
+    public void dumpState(PrintWriter writer) {
+        writer.printf("  wake lock held: %b, wifi lock held: %b%n", isWakeLockHeld(), isWifiLockHeld());
+    }
+}
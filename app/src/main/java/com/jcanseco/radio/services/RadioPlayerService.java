@@ -1,7 +1,12 @@
 package com.jcanseco.radio.services;
 
+import android.app.NotificationManager;
+import android.app.PendingIntent;
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
 import android.os.Binder;
 import android.os.IBinder;
 import android.support.annotation.Nullable;
@@ -9,17 +14,87 @@ import android.support.v4.content.LocalBroadcastManager;
 
 import com.jcanseco.radio.MainApplication;
 import com.jcanseco.radio.constants.Constants;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.datausage.NetworkType;
+import com.jcanseco.radio.diagnostics.Dumpable;
+import com.jcanseco.radio.flightrecorder.FlightEventType;
+import com.jcanseco.radio.flightrecorder.FlightRecorder;
+import com.jcanseco.radio.history.PlayHistoryEntry;
+import com.jcanseco.radio.history.PlayHistoryStore;
 import com.jcanseco.radio.injection.modules.PlayerModule;
+import com.jcanseco.radio.loaders.RadioContentLoader;
+import com.jcanseco.radio.memory.MemoryPressureCoordinator;
+import com.jcanseco.radio.network.CachingDns;
+import com.jcanseco.radio.notifications.PlaybackNotificationFactory;
+import com.jcanseco.radio.nowplaying.NowPlayingPublisher;
+import com.jcanseco.radio.nowplaying.NowPlayingState;
 import com.jcanseco.radio.players.RadioPlayer;
+import com.jcanseco.radio.players.datasources.StreamHandoverController;
+import com.jcanseco.radio.players.trackrenderers.StreamBufferBudget;
+import com.jcanseco.radio.services.broadcastreceivers.ConnectivityChangeBroadcastReceiver;
+import com.jcanseco.radio.tracing.Tracer;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 
 import javax.inject.Inject;
 
-public class RadioPlayerService extends Service implements RadioPlayer.Listener {
+public class RadioPlayerService extends Service implements RadioPlayer.Listener,
+        ConnectivityChangeBroadcastReceiver.BroadcastReceivedListener, NowPlayingPublisher.Subscriber {
+
+    private static final int DEFAULT_FLIGHT_RECORDER_EXPORT_IN_MINUTES = 15;
+    private static final int MAX_NUM_OF_PLAY_HISTORY_RESULTS = 50;
 
     @Inject
     RadioPlayer radioPlayer;
 
+    @Inject
+    PlaybackLocks playbackLocks;
+
+    @Inject
+    StreamBufferBudget streamBufferBudget;
+
+    @Inject
+    MemoryPressureCoordinator memoryPressureCoordinator;
+
+    @Inject
+    StreamHandoverController streamHandoverController;
+
+    @Inject
+    CachingDns cachingDns;
+
+    @Inject
+    DataUsageLedger dataUsageLedger;
+
+    @Inject
+    FlightRecorder flightRecorder;
+
+    @Inject
+    PlayHistoryStore playHistoryStore;
+
+    @Inject
+    NowPlayingPublisher nowPlayingPublisher;
+
+    @Inject
+    RadioContentLoader radioContentLoader;
+
+    @Inject
+    List<Dumpable> dumpables;
+
     private final IBinder radioPlayerBinder = new RadioPlayerBinder();
+    private final ConnectivityChangeBroadcastReceiver connectivityChangeBroadcastReceiver = new ConnectivityChangeBroadcastReceiver(this);
+    private boolean isConnectivityChangeBroadcastReceiverRegistered;
+    private boolean isInForeground;
+    private boolean isBound;
+    private boolean isLoadingContentInBackground;
 
     @Override
     public void onCreate() {
@@ -27,6 +102,28 @@ public class RadioPlayerService extends Service implements RadioPlayer.Listener
         injectDependencies();
 
         radioPlayer.setRadioPlayerListener(this);
+        memoryPressureCoordinator.register(streamBufferBudget);
+        memoryPressureCoordinator.register(radioPlayer);
+        registerConnectivityChangeBroadcastReceiver();
+        nowPlayingPublisher.subscribe(this);
+    }
+
+    public static PendingIntent createTogglePlaybackIntent(Context context) {
+        Intent intent = new Intent(context, RadioPlayerService.class);
+        intent.setAction(Constants.Actions.TOGGLE_PLAYBACK);
+        return PendingIntent.getService(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && Constants.Actions.TOGGLE_PLAYBACK.equals(intent.getAction())) {
+            if (isPlayingStream()) {
+                stopPlayingRadioStream();
+            } else {
+                startPlayingRadioStream();
+            }
+        }
+        return super.onStartCommand(intent, flags, startId);
     }
 
     private void injectDependencies() {
@@ -36,14 +133,74 @@ public class RadioPlayerService extends Service implements RadioPlayer.Listener
                 .inject(this);
     }
 
+    private void registerConnectivityChangeBroadcastReceiver() {
+        registerReceiver(connectivityChangeBroadcastReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        isConnectivityChangeBroadcastReceiverRegistered = true;
+    }
+
+    private void unregisterConnectivityChangeBroadcastReceiver() {
+        if (isConnectivityChangeBroadcastReceiverRegistered) {
+            unregisterReceiver(connectivityChangeBroadcastReceiver);
+            isConnectivityChangeBroadcastReceiverRegistered = false;
+        }
+    }
+
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
+        onBoundChanged(true);
         return radioPlayerBinder;
     }
 
+    @Override
+    public void onRebind(Intent intent) {
+        onBoundChanged(true);
+    }
+
+    @Override
+    public boolean onUnbind(Intent intent) {
+        onBoundChanged(false);
+        // So the player screen coming back goes through onRebind.
+        return true;
+    }
+
+    private void onBoundChanged(boolean isBound) {
+        this.isBound = isBound;
+        updateBackgroundContentLoading();
+    }
+
+    // The player screen polls for content while it's open. Once it's closed, the notification still needs to follow
+    // the tracks for as long as it's up, so the service polls instead.
+    private void updateBackgroundContentLoading() {
+        boolean shouldLoadContentInBackground = !isBound && isInForeground;
+        if (shouldLoadContentInBackground && !isLoadingContentInBackground) {
+            radioContentLoader.startScheduledLoadingOfContent();
+        } else if (!shouldLoadContentInBackground && isLoadingContentInBackground) {
+            radioContentLoader.stopScheduledLoadingOfContent();
+        }
+        isLoadingContentInBackground = shouldLoadContentInBackground;
+    }
+
+    @Override
+    public void onNowPlayingChanged(NowPlayingState state) {
+        if (isInForeground) {
+            NotificationManager notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+            notificationManager.notify(PlaybackNotificationFactory.PLAYBACK_NOTIFICATION_ID,
+                    PlaybackNotificationFactory.createPlaybackNotification(this, state));
+        }
+    }
+
     @Override
     public void onDestroy() {
+        nowPlayingPublisher.unsubscribe(this);
+        if (isLoadingContentInBackground) {
+            radioContentLoader.stopScheduledLoadingOfContent();
+            isLoadingContentInBackground = false;
+        }
+        unregisterConnectivityChangeBroadcastReceiver();
+        memoryPressureCoordinator.unregister(radioPlayer);
+        memoryPressureCoordinator.unregister(streamBufferBudget);
+        stopPlaybackInForeground();
         radioPlayer.release();
     }
 
@@ -53,22 +210,128 @@ public class RadioPlayerService extends Service implements RadioPlayer.Listener
 
     public void startPlayingRadioStream() {
         radioPlayer.play();
+        // Published before going into the foreground, so the notification is built with it rather than rebuilt.
+        nowPlayingPublisher.publishPlaybackState(true);
+        startPlaybackInForeground();
+        updateBackgroundContentLoading();
     }
 
     public void stopPlayingRadioStream() {
         radioPlayer.pause();
+        stopPlaybackInForeground();
+        nowPlayingPublisher.publishPlaybackState(false);
+        updateBackgroundContentLoading();
     }
 
     @Override
     public void onRadioPlayerStreamError() {
+        stopPlaybackInForeground();
+        nowPlayingPublisher.publishPlaybackState(false);
+        updateBackgroundContentLoading();
         sendOutFailedToPlayStreamBroadcast();
     }
 
+    @Override
+    public void onActiveNetworkChanged(int networkType) {
+        NetworkType dataUsageNetworkType = NetworkType.fromConnectivityType(networkType);
+        flightRecorder.record(FlightEventType.NETWORK_CHANGED, networkType, dataUsageNetworkType.name());
+        dataUsageLedger.setNetworkType(dataUsageNetworkType);
+        cachingDns.clear();
+        if (radioPlayer.isPlaying()) {
+            streamHandoverController.onNetworkChanged();
+        }
+    }
+
+    private void startPlaybackInForeground() {
+        playbackLocks.acquire();
+        startForeground(PlaybackNotificationFactory.PLAYBACK_NOTIFICATION_ID,
+                PlaybackNotificationFactory.createPlaybackNotification(this, nowPlayingPublisher.getState()));
+        isInForeground = true;
+    }
+
+    // Main thread only: the foreground state and the locks are never touched from timer or loader threads.
+    private void stopPlaybackInForeground() {
+        isInForeground = false;
+        stopForeground(true);
+        playbackLocks.release();
+    }
+
     private void sendOutFailedToPlayStreamBroadcast() {
         Intent intent = new Intent(Constants.Actions.FAILED_TO_PLAY_RADIO_STREAM);
         LocalBroadcastManager.getInstance(getApplicationContext()).sendBroadcast(intent);
     }
 
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        for (Dumpable dumpable : dumpables) {
+            dumpable.dumpState(writer);
+        }
+
+        // `adb shell dumpsys activity service .services.RadioPlayerService trace` exports the trace ring,
+        // `... flight [minutes]` prints the last minutes of the flight recorder, and `... history <words>` searches
+        // the play history.
+        List<String> arguments = args != null ? Arrays.asList(args) : Collections.<String>emptyList();
+        if (arguments.contains("trace")) {
+            exportTrace(writer);
+        }
+        int flightIndex = arguments.indexOf("flight");
+        if (flightIndex >= 0) {
+            exportFlightRecorder(writer, parseMinutes(arguments, flightIndex + 1));
+        }
+        int historyIndex = arguments.indexOf("history");
+        if (historyIndex >= 0) {
+            searchPlayHistory(writer, joinArguments(arguments, historyIndex + 1));
+        }
+    }
+
+    private void searchPlayHistory(PrintWriter writer, String query) {
+        long startTimeInNanos = System.nanoTime();
+        List<PlayHistoryEntry> entries = playHistoryStore.search(query, MAX_NUM_OF_PLAY_HISTORY_RESULTS);
+        long searchTimeInMicros = (System.nanoTime() - startTimeInNanos) / 1000;
+
+        writer.printf("PlayHistory \"%s\" (%d results in %d us)%n", query, entries.size(), searchTimeInMicros);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US);
+        for (PlayHistoryEntry entry : entries) {
+            writer.printf("  %s  %s%n", dateFormat.format(new Date(entry.getTimestampInUnixTime() * 1000)), entry.getTitle());
+        }
+    }
+
+    private static String joinArguments(List<String> arguments, int fromIndex) {
+        StringBuilder joinedArguments = new StringBuilder();
+        for (int i = fromIndex; i < arguments.size(); i++) {
+            if (joinedArguments.length() > 0) {
+                joinedArguments.append(' ');
+            }
+            joinedArguments.append(arguments.get(i));
+        }
+        return joinedArguments.toString();
+    }
+
+    private void exportFlightRecorder(PrintWriter writer, int minutes) {
+        writer.printf("FlightRecorder (last %d minutes)%n", minutes);
+        flightRecorder.export(writer, System.currentTimeMillis() - minutes * 60 * 1000L);
+    }
+
+    private static int parseMinutes(List<String> arguments, int index) {
+        if (index < arguments.size()) {
+            try {
+                return Integer.parseInt(arguments.get(index));
+            } catch (NumberFormatException e) {
+                // Not a number of minutes, so the default it is.
+            }
+        }
+        return DEFAULT_FLIGHT_RECORDER_EXPORT_IN_MINUTES;
+    }
+
+    private void exportTrace(PrintWriter writer) {
+        try {
+            File traceFile = Tracer.export(new File(getFilesDir(), "traces"), "trace-" + System.currentTimeMillis());
+            writer.printf("Trace exported to %s%n", traceFile);
+        } catch (IOException e) {
+            writer.printf("Trace export failed: %s%n", e);
+        }
+    }
+
 
     public class RadioPlayerBinder extends Binder {
         public RadioPlayerService getService() {
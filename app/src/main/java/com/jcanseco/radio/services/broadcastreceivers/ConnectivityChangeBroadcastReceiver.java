@@ -0,0 +1,44 @@
+package com.jcanseco.radio.services.broadcastreceivers;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+public class ConnectivityChangeBroadcastReceiver extends BroadcastReceiver {
+
+    private BroadcastReceivedListener broadcastReceivedListener;
+    private String lastConnectedNetworkKey;
+
+    public ConnectivityChangeBroadcastReceiver(BroadcastReceivedListener broadcastReceivedListener) {
+        this.broadcastReceivedListener = broadcastReceivedListener;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
+        if (activeNetworkInfo == null || !activeNetworkInfo.isConnected()) {
+            return;
+        }
+
+        String connectedNetworkKey = getNetworkKey(activeNetworkInfo);
+        boolean isNewNetwork = lastConnectedNetworkKey != null && !lastConnectedNetworkKey.equals(connectedNetworkKey);
+        lastConnectedNetworkKey = connectedNetworkKey;
+
+        if (isNewNetwork) {
+            broadcastReceivedListener.onActiveNetworkChanged(activeNetworkInfo.getType());
+        }
+    }
+
+    private String getNetworkKey(NetworkInfo networkInfo) {
+        return networkInfo.getType() + ":" + networkInfo.getExtraInfo();
+    }
+
+
+    public interface BroadcastReceivedListener {
+
+        void onActiveNetworkChanged(int networkType);
+    }
+}
@@ -0,0 +1,19 @@
+package com.jcanseco.radio.tasks;
+
+import com.jcanseco.radio.datausage.DataUsageLedger;
+
+import java.util.TimerTask;
+
+public class DataUsageLedgerFlushTimerTask extends TimerTask {
+
+    private DataUsageLedger dataUsageLedger;
+
+    public DataUsageLedgerFlushTimerTask(DataUsageLedger dataUsageLedger) {
+        this.dataUsageLedger = dataUsageLedger;
+    }
+
+    @Override
+    public void run() {
+        dataUsageLedger.flush();
+    }
+}
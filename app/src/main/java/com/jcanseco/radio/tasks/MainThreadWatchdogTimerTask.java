@@ -0,0 +1,19 @@
+package com.jcanseco.radio.tasks;
+
+import com.jcanseco.radio.watchdog.MainThreadWatchdog;
+
+import java.util.TimerTask;
+
+public class MainThreadWatchdogTimerTask extends TimerTask {
+
+    private MainThreadWatchdog mainThreadWatchdog;
+
+    public MainThreadWatchdogTimerTask(MainThreadWatchdog mainThreadWatchdog) {
+        this.mainThreadWatchdog = mainThreadWatchdog;
+    }
+
+    @Override
+    public void run() {
+        mainThreadWatchdog.onCheckDue();
+    }
+}
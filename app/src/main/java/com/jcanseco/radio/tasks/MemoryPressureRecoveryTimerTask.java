@@ -0,0 +1,19 @@
+package com.jcanseco.radio.tasks;
+
+import com.jcanseco.radio.memory.MemoryPressureCoordinator;
+
+import java.util.TimerTask;
+
+public class MemoryPressureRecoveryTimerTask extends TimerTask {
+
+    private MemoryPressureCoordinator memoryPressureCoordinator;
+
+    public MemoryPressureRecoveryTimerTask(MemoryPressureCoordinator memoryPressureCoordinator) {
+        this.memoryPressureCoordinator = memoryPressureCoordinator;
+    }
+
+    @Override
+    public void run() {
+        memoryPressureCoordinator.onMemoryPressureSubsided();
+    }
+}
@@ -1,5 +1,7 @@
 package com.jcanseco.radio.tasks;
 
+import android.os.Handler;
+
 import com.jcanseco.radio.players.RadioPlayer;
 
 import java.util.TimerTask;
@@ -7,13 +9,21 @@ import java.util.TimerTask;
 public class RadioPlayerBufferTimeoutTimerTask extends TimerTask {
 
     private RadioPlayer player;
+    private Handler mainThreadHandler;
 
-    public RadioPlayerBufferTimeoutTimerTask(RadioPlayer player) {
+    public RadioPlayerBufferTimeoutTimerTask(RadioPlayer player, Handler mainThreadHandler) {
         this.player = player;
+        this.mainThreadHandler = mainThreadHandler;
     }
 
+    // The timeout tears down the foreground service and publishes playback state, all of which belongs on the main thread.
     @Override
     public void run() {
-        player.onBufferingTimedOut();
+        mainThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                player.onBufferTimeoutElapsed();
+            }
+        });
     }
 }
@@ -0,0 +1,19 @@
+package com.jcanseco.radio.tasks;
+
+import com.jcanseco.radio.players.RadioPlayer;
+
+import java.util.TimerTask;
+
+public class RadioPlayerLatencyCheckTimerTask extends TimerTask {
+
+    private RadioPlayer player;
+
+    public RadioPlayerLatencyCheckTimerTask(RadioPlayer player) {
+        this.player = player;
+    }
+
+    @Override
+    public void run() {
+        player.onLatencyCheckDue();
+    }
+}
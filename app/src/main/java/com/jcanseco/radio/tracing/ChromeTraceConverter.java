@@ -0,0 +1,106 @@
+package com.jcanseco.radio.tracing;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Locale;
+
+// Turns an exported trace ring into the JSON that chrome://tracing and Perfetto load. Sections become duration
+// events on the thread that recorded them, with timestamps in microseconds from the first event in the export.
+public class ChromeTraceConverter {
+
+    private static final int PROCESS_ID = 1;
+
+    public static void convert(InputStream inputStream, Writer writer) throws IOException {
+        DataInputStream input = new DataInputStream(inputStream);
+        if (input.readInt() != TraceRing.MAGIC) {
+            throw new IOException("Not a trace ring export.");
+        }
+        int version = input.readInt();
+        if (version != TraceRing.VERSION) {
+            throw new IOException("Unsupported trace ring export version " + version + ".");
+        }
+        String[] names = readStrings(input);
+        String[] threadNames = readStrings(input);
+
+        writer.write("{\"traceEvents\":[");
+        boolean isFirstEvent = true;
+        for (int i = 0; i < threadNames.length; i++) {
+            isFirstEvent = writeSeparator(writer, isFirstEvent);
+            writer.write(String.format(Locale.US, "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":%d,\"tid\":%d,\"args\":{\"name\":\"%s\"}}",
+                    PROCESS_ID, i, escape(threadNames[i])));
+        }
+
+        int numOfEvents = input.readInt();
+        long firstTimestamp = 0;
+        boolean hasFirstTimestamp = false;
+        for (int i = 0; i < numOfEvents; i++) {
+            long timestamp = input.readLong();
+            long event = input.readLong();
+            int type = (int) (event & 0xFF);
+            int nameId = (int) ((event >>> 8) & 0xFFFFFF);
+            int threadIndex = (int) (event >>> 32);
+            if (!isValid(type, nameId, threadIndex, names.length, threadNames.length)) {
+                // Torn, or never written to.
+                continue;
+            }
+            if (!hasFirstTimestamp) {
+                firstTimestamp = timestamp;
+                hasFirstTimestamp = true;
+            }
+
+            isFirstEvent = writeSeparator(writer, isFirstEvent);
+            String timestampInMicros = String.format(Locale.US, "%.3f", (timestamp - firstTimestamp) / 1000.0);
+            if (type == TraceRing.TYPE_BEGIN) {
+                writer.write(String.format(Locale.US, "{\"name\":\"%s\",\"ph\":\"B\",\"pid\":%d,\"tid\":%d,\"ts\":%s}",
+                        escape(names[nameId - 1]), PROCESS_ID, threadIndex, timestampInMicros));
+            } else {
+                writer.write(String.format(Locale.US, "{\"ph\":\"E\",\"pid\":%d,\"tid\":%d,\"ts\":%s}",
+                        PROCESS_ID, threadIndex, timestampInMicros));
+            }
+        }
+        writer.write("]}");
+        writer.flush();
+    }
+
+    private static boolean isValid(int type, int nameId, int threadIndex, int numOfNames, int numOfThreads) {
+        if (threadIndex < 0 || threadIndex >= numOfThreads) {
+            return false;
+        }
+        if (type == TraceRing.TYPE_BEGIN) {
+            return nameId >= 1 && nameId <= numOfNames;
+        }
+        return type == TraceRing.TYPE_END;
+    }
+
+    private static boolean writeSeparator(Writer writer, boolean isFirstEvent) throws IOException {
+        if (!isFirstEvent) {
+            writer.write(',');
+        }
+        return false;
+    }
+
+    private static String[] readStrings(DataInputStream input) throws IOException {
+        String[] strings = new String[input.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = input.readUTF();
+        }
+        return strings;
+    }
+
+    private static String escape(String string) {
+        StringBuilder escaped = new StringBuilder(string.length());
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,127 @@
+package com.jcanseco.radio.tracing;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps the most recent trace events in two preallocated arrays. Recording an event claims a slot with a single
+// atomic increment and writes two longs into it, so the hot paths being traced never lock or allocate once their
+// section names and threads have been seen. Names and threads are written out as tables, and each event refers to
+// them by index.
+public class TraceRing {
+
+    static final int MAGIC = 0x52545243;
+    static final int VERSION = 1;
+
+    static final int TYPE_BEGIN = 1;
+    static final int TYPE_END = 2;
+
+    private static final int NO_NAME = 0;
+
+    private final long[] timestamps;
+    private final long[] events;
+    private final int mask;
+    private final AtomicLong nextIndex = new AtomicLong();
+
+    private final ConcurrentMap<String, Integer> nameIds = new ConcurrentHashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<String> threadNames = new ArrayList<>();
+    private final ThreadLocal<Integer> threadIndex = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return registerThread(Thread.currentThread().getName());
+        }
+    };
+
+    public TraceRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two.");
+        }
+        timestamps = new long[capacity];
+        events = new long[capacity];
+        mask = capacity - 1;
+        names.add(null);
+    }
+
+    public void begin(String name) {
+        record(TYPE_BEGIN, getNameId(name));
+    }
+
+    public void end() {
+        record(TYPE_END, NO_NAME);
+    }
+
+    private void record(int type, int nameId) {
+        long event = ((long) threadIndex.get() << 32) | ((long) nameId << 8) | type;
+        int slot = (int) (nextIndex.getAndIncrement() & mask);
+        timestamps[slot] = getCurrentTimeInNanos();
+        events[slot] = event;
+    }
+
+    private int getNameId(String name) {
+        Integer nameId = nameIds.get(name);
+        return nameId != null ? nameId : registerName(name);
+    }
+
+    private synchronized int registerName(String name) {
+        Integer nameId = nameIds.get(name);
+        if (nameId == null) {
+            nameId = names.size();
+            names.add(name);
+            nameIds.put(name, nameId);
+        }
+        return nameId;
+    }
+
+    private synchronized int registerThread(String threadName) {
+        threadNames.add(threadName);
+        return threadNames.size() - 1;
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    public long getNumOfEventsRecorded() {
+        return nextIndex.get();
+    }
+
+    // Events recorded while this runs can come out torn, which only ever affects the few at the very end or, once
+    // the ring has wrapped, at the very start of the export.
+    public void export(OutputStream outputStream) throws IOException {
+        long endIndex = nextIndex.get();
+        long startIndex = Math.max(0, endIndex - events.length);
+
+        DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        synchronized (this) {
+            writeStrings(output, names.subList(1, names.size()));
+            writeStrings(output, threadNames);
+        }
+
+        output.writeInt((int) (endIndex - startIndex));
+        for (long index = startIndex; index < endIndex; index++) {
+            int slot = (int) (index & mask);
+            output.writeLong(timestamps[slot]);
+            output.writeLong(events[slot]);
+        }
+        output.flush();
+    }
+
+    private static void writeStrings(DataOutputStream output, List<String> strings) throws IOException {
+        output.writeInt(strings.size());
+        for (String string : strings) {
+            output.writeUTF(string);
+        }
+    }
+
+    protected long getCurrentTimeInNanos() {
+        return System.nanoTime();
+    }
+}
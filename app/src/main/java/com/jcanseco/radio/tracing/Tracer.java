@@ -0,0 +1,79 @@
+package com.jcanseco.radio.tracing;
+
+import android.os.Build;
+
+import com.jcanseco.radio.BuildConfig;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+// Sections show up in systrace on API 18 and up, and in the trace ring on every device, so production builds can
+// export a timeline without a tethered profiler. The sections cut across the player, the loader and the UI, so like
+// android.os.Trace this is static rather than injected. With TRACING_ENABLED turned off in build.gradle, every
+// method here is empty and the calls cost nothing.
+public final class Tracer {
+
+    private static final int RING_CAPACITY = 16 * 1024;
+
+    private static final boolean IS_PLATFORM_TRACING_AVAILABLE = Build.VERSION.SDK_INT >= 18;
+    private static final TraceRing ring = new TraceRing(RING_CAPACITY);
+
+    private Tracer() {
+    }
+
+    // Names are at most 127 characters and should be literals, so they are only interned in the ring once.
+    public static void beginSection(String name) {
+        if (BuildConfig.TRACING_ENABLED) {
+            ring.begin(name);
+            if (IS_PLATFORM_TRACING_AVAILABLE) {
+                android.os.Trace.beginSection(name);
+            }
+        }
+    }
+
+    // Ends the section most recently begun on the calling thread.
+    public static void endSection() {
+        if (BuildConfig.TRACING_ENABLED) {
+            if (IS_PLATFORM_TRACING_AVAILABLE) {
+                android.os.Trace.endSection();
+            }
+            ring.end();
+        }
+    }
+
+    // Writes the ring and its Chrome trace conversion next to each other, and returns the JSON file.
+    public static File export(File directory, String baseName) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory + ".");
+        }
+
+        File ringFile = new File(directory, baseName + ".trace");
+        OutputStream outputStream = new FileOutputStream(ringFile);
+        try {
+            ring.export(outputStream);
+        } finally {
+            outputStream.close();
+        }
+
+        File jsonFile = new File(directory, baseName + ".json");
+        InputStream inputStream = new FileInputStream(ringFile);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(jsonFile), "UTF-8");
+        try {
+            ChromeTraceConverter.convert(inputStream, writer);
+        } finally {
+            inputStream.close();
+            writer.close();
+        }
+        return jsonFile;
+    }
+
+    public static TraceRing getRing() {
+        return ring;
+    }
+}
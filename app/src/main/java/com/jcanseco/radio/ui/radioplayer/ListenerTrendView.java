@@ -0,0 +1,135 @@
+package com.jcanseco.radio.ui.radioplayer;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.jcanseco.radio.listeners.ListenerCountSeries;
+
+// A sparkline of listener counts over a sliding time range. Each couple of pixels is a bucket drawn as a line from
+// its smallest to its largest count, joined to the last bucket with counts in it unless the app wasn't polling in
+// between.
+// Everything it draws from is allocated when its size changes, so refreshing and drawing allocate nothing.
+public class ListenerTrendView extends View {
+
+    private static final float BUCKET_WIDTH_IN_DP = 2;
+    private static final float LINE_WIDTH_IN_DP = 1.5f;
+
+    // Polls come once a track, so anything longer than a few tracks apart is a stretch the app wasn't open for.
+    private static final long MAX_JOINED_GAP_IN_SECONDS = 20 * 60;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float bucketWidthInPixels;
+
+    private ListenerCountSeries series;
+    private long rangeInSeconds;
+
+    private int[] minCounts = new int[0];
+    private int[] maxCounts = new int[0];
+    // Two segments a bucket, four coordinates a segment.
+    private float[] lines = new float[0];
+
+    public ListenerTrendView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        bucketWidthInPixels = BUCKET_WIDTH_IN_DP * density;
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeCap(Paint.Cap.ROUND);
+        linePaint.setStrokeWidth(LINE_WIDTH_IN_DP * density);
+    }
+
+    public void setLineColor(int color) {
+        linePaint.setColor(color);
+        invalidate();
+    }
+
+    public void setSeries(ListenerCountSeries series) {
+        this.series = series;
+        refresh();
+    }
+
+    public void setRangeInSeconds(long rangeInSeconds) {
+        this.rangeInSeconds = rangeInSeconds;
+        refresh();
+    }
+
+    public void refresh() {
+        if (series != null && rangeInSeconds > 0 && minCounts.length > 0) {
+            long nowInUnixTime = getCurrentTimeInUnixTime();
+            series.downsample(nowInUnixTime - rangeInSeconds, nowInUnixTime + 1, minCounts, maxCounts);
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        int numOfBuckets = Math.max(0, (int) ((width - getPaddingLeft() - getPaddingRight()) / bucketWidthInPixels));
+        if (numOfBuckets != minCounts.length) {
+            minCounts = new int[numOfBuckets];
+            maxCounts = new int[numOfBuckets];
+            lines = new float[numOfBuckets * 8];
+        }
+        refresh();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int lowestCount = Integer.MAX_VALUE;
+        int highestCount = Integer.MIN_VALUE;
+        for (int bucket = 0; bucket < minCounts.length; bucket++) {
+            if (minCounts[bucket] != ListenerCountSeries.NO_SAMPLES) {
+                lowestCount = Math.min(lowestCount, minCounts[bucket]);
+                highestCount = Math.max(highestCount, maxCounts[bucket]);
+            }
+        }
+        if (lowestCount > highestCount || rangeInSeconds <= 0) {
+            return;
+        }
+
+        float height = getHeight() - getPaddingTop() - getPaddingBottom();
+        float bottom = getPaddingTop() + height;
+        // A flat line sits in the middle rather than along the bottom.
+        float pixelsPerListener = highestCount > lowestCount ? height / (highestCount - lowestCount) : 0;
+        if (highestCount == lowestCount) {
+            bottom -= height / 2;
+        }
+
+        int maxJoinedGapInBuckets = (int) (MAX_JOINED_GAP_IN_SECONDS * minCounts.length / rangeInSeconds);
+        int numOfCoordinates = 0;
+        int previousBucket = -1;
+        float previousX = 0;
+        float previousY = 0;
+        for (int bucket = 0; bucket < minCounts.length; bucket++) {
+            if (minCounts[bucket] == ListenerCountSeries.NO_SAMPLES) {
+                continue;
+            }
+
+            float x = getPaddingLeft() + (bucket + 0.5f) * bucketWidthInPixels;
+            float minY = bottom - (minCounts[bucket] - lowestCount) * pixelsPerListener;
+            float maxY = bottom - (maxCounts[bucket] - lowestCount) * pixelsPerListener;
+            lines[numOfCoordinates++] = x;
+            lines[numOfCoordinates++] = minY;
+            lines[numOfCoordinates++] = x;
+            lines[numOfCoordinates++] = maxY;
+
+            float y = (minY + maxY) / 2;
+            if (previousBucket != -1 && bucket - previousBucket <= Math.max(1, maxJoinedGapInBuckets)) {
+                lines[numOfCoordinates++] = previousX;
+                lines[numOfCoordinates++] = previousY;
+                lines[numOfCoordinates++] = x;
+                lines[numOfCoordinates++] = y;
+            }
+            previousX = x;
+            previousY = y;
+            previousBucket = bucket;
+        }
+        canvas.drawLines(lines, 0, numOfCoordinates, linePaint);
+    }
+
+    protected long getCurrentTimeInUnixTime() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -1,22 +1,48 @@
 package com.jcanseco.radio.ui.radioplayer;
 
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
 import android.support.v4.content.LocalBroadcastManager;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SimpleItemAnimator;
+import android.text.format.Formatter;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
+import android.widget.ImageView;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import com.jcanseco.radio.MainApplication;
 import com.jcanseco.radio.R;
+import com.jcanseco.radio.avatars.DjAvatarLoader;
 import com.jcanseco.radio.constants.Constants;
+import com.jcanseco.radio.datausage.DataBudget;
 import com.jcanseco.radio.injection.modules.RadioPlayerActivityModule;
+import com.jcanseco.radio.listeners.ListenerCountStore;
+import com.jcanseco.radio.models.Dj;
+import com.jcanseco.radio.models.Track;
+import com.jcanseco.radio.models.TrackTimeText;
+import com.jcanseco.radio.nowplaying.NowPlayingPublisher;
+import com.jcanseco.radio.nowplaying.NowPlayingState;
 import com.jcanseco.radio.services.RadioPlayerService;
+import com.jcanseco.radio.watchdog.MainThreadWatchdog;
 import com.jcanseco.radio.ui.radioplayer.broadcastreceivers.FailedToPlayStreamBroadcastReceiver;
 import com.jcanseco.radio.ui.radioplayer.serviceconnections.RadioPlayerServiceConnection;
+import com.jcanseco.radio.ui.radioplayer.tracklists.TrackListAdapter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -25,7 +51,12 @@ import butterknife.ButterKnife;
 import butterknife.OnClick;
 
 public class RadioPlayerActivity extends AppCompatActivity implements RadioPlayerPresenter.View,
-        RadioPlayerServiceConnection.ServiceConnectionListener, FailedToPlayStreamBroadcastReceiver.BroadcastReceivedListener {
+        RadioPlayerServiceConnection.ServiceConnectionListener, FailedToPlayStreamBroadcastReceiver.BroadcastReceivedListener,
+        NowPlayingPublisher.Subscriber {
+
+    // Tapping the trend switches between the two.
+    private static final int LISTENER_TREND_RANGE_IN_HOURS = 6;
+    private static final int LISTENER_TREND_RANGE_IN_DAYS = 7;
 
     RadioPlayerService radioPlayerService;
 
@@ -38,27 +69,116 @@ public class RadioPlayerActivity extends AppCompatActivity implements RadioPlaye
     @Inject
     RadioPlayerPresenter radioPlayerPresenter;
 
+    @Inject
+    MainThreadWatchdog mainThreadWatchdog;
+
+    @Inject
+    DjAvatarLoader djAvatarLoader;
+
+    @Inject
+    ListenerCountStore listenerCountStore;
+
+    @Inject
+    NowPlayingPublisher nowPlayingPublisher;
+
     @Bind(R.id.track_title)
     TextView trackTitleView;
 
     @Bind(R.id.dj_name)
     TextView djNameView;
 
+    @Bind(R.id.dj_avatar)
+    ImageView djAvatarView;
+
     @Bind(R.id.num_of_listeners)
     TextView numOfListenersView;
 
+    @Bind(R.id.listener_trend_header)
+    TextView listenerTrendHeaderView;
+
+    @Bind(R.id.listener_trend)
+    ListenerTrendView listenerTrendView;
+
     @Bind(R.id.action_button)
     Button actionButton;
 
+    @Bind(R.id.track_progress_section)
+    View trackProgressSection;
+
+    @Bind(R.id.track_progress)
+    ProgressBar trackProgressBar;
+
+    @Bind(R.id.track_elapsed_time)
+    TextView trackElapsedTimeView;
+
+    @Bind(R.id.track_remaining_time)
+    TextView trackRemainingTimeView;
+
+    @Bind(R.id.queued_tracks)
+    RecyclerView queuedTracksView;
+
+    @Bind(R.id.last_played_tracks)
+    RecyclerView lastPlayedTracksView;
+
+    private boolean isListenerTrendShowingDays;
+
+    private final TrackListAdapter queuedTracksAdapter = new TrackListAdapter(TrackListAdapter.Kind.QUEUED);
+    private final TrackListAdapter lastPlayedTracksAdapter = new TrackListAdapter(TrackListAdapter.Kind.LAST_PLAYED);
+
+    private final Runnable trackProgressTick = new Runnable() {
+        @Override
+        public void run() {
+            radioPlayerPresenter.onTrackProgressTickDue();
+            trackProgressSection.postDelayed(this, TrackProgressTicker.TICK_INTERVAL_IN_MILLIS);
+        }
+    };
+
+    private final ViewTreeObserver.OnPreDrawListener trackTitlePreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            trackTitleView.getViewTreeObserver().removeOnPreDrawListener(this);
+            isTrackTitlePreDrawListenerAdded = false;
+            radioPlayerPresenter.onCurrentTrackTitleDisplayed();
+            return true;
+        }
+    };
+    private boolean isTrackTitlePreDrawListenerAdded;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_radio_player);
         injectDependencies();
+        setupTrackList(queuedTracksView, queuedTracksAdapter);
+        setupTrackList(lastPlayedTracksView, lastPlayedTracksAdapter);
+        setupListenerTrend();
 
         radioPlayerPresenter.attachView(this);
     }
 
+    private void setupTrackList(RecyclerView trackListView, TrackListAdapter adapter) {
+        trackListView.setLayoutManager(new LinearLayoutManager(this));
+        // Times are rebound every second, and a cross-fade on each of those would never stop.
+        ((SimpleItemAnimator) trackListView.getItemAnimator()).setSupportsChangeAnimations(false);
+        trackListView.setAdapter(adapter);
+    }
+
+    private void setupListenerTrend() {
+        listenerTrendView.setLineColor(ContextCompat.getColor(this, R.color.radio_white));
+        listenerTrendView.setSeries(listenerCountStore.getSeries());
+        showListenerTrendRange();
+    }
+
+    private void showListenerTrendRange() {
+        if (isListenerTrendShowingDays) {
+            listenerTrendView.setRangeInSeconds(TimeUnit.DAYS.toSeconds(LISTENER_TREND_RANGE_IN_DAYS));
+            listenerTrendHeaderView.setText(getString(R.string.listener_trend_days_header, LISTENER_TREND_RANGE_IN_DAYS));
+        } else {
+            listenerTrendView.setRangeInSeconds(TimeUnit.HOURS.toSeconds(LISTENER_TREND_RANGE_IN_HOURS));
+            listenerTrendHeaderView.setText(getString(R.string.listener_trend_hours_header, LISTENER_TREND_RANGE_IN_HOURS));
+        }
+    }
+
     private void injectDependencies() {
         ButterKnife.bind(this);
 
@@ -68,11 +188,39 @@ public class RadioPlayerActivity extends AppCompatActivity implements RadioPlaye
                 .inject(this);
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.radio_player, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(R.id.dj_watch).setChecked(radioPlayerPresenter.isDjWatchEnabled());
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.data_budget) {
+            radioPlayerPresenter.onDataBudgetMenuItemClicked();
+            return true;
+        }
+        if (item.getItemId() == R.id.dj_watch) {
+            radioPlayerPresenter.onDjWatchMenuItemClicked();
+            item.setChecked(radioPlayerPresenter.isDjWatchEnabled());
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
     @Override
     protected void onStart() {
         super.onStart();
 
+        mainThreadWatchdog.start();
         radioPlayerPresenter.onStart();
+        nowPlayingPublisher.subscribe(this);
     }
 
     @Override
@@ -93,7 +241,14 @@ public class RadioPlayerActivity extends AppCompatActivity implements RadioPlaye
     protected void onStop() {
         super.onStop();
 
+        nowPlayingPublisher.unsubscribe(this);
         radioPlayerPresenter.onStop();
+        mainThreadWatchdog.stop();
+    }
+
+    @Override
+    public void onNowPlayingChanged(NowPlayingState state) {
+        radioPlayerPresenter.onPlaybackStateChanged(state.isPlaying());
     }
 
     @Override
@@ -141,6 +296,12 @@ public class RadioPlayerActivity extends AppCompatActivity implements RadioPlaye
         radioPlayerPresenter.onFailedToPlayStreamBroadcastReceived();
     }
 
+    @OnClick({R.id.listener_trend_header, R.id.listener_trend})
+    public void onListenerTrendClick() {
+        isListenerTrendShowingDays = !isListenerTrendShowingDays;
+        showListenerTrendRange();
+    }
+
     @OnClick(R.id.action_button)
     public void onActionButtonClick() {
         radioPlayerPresenter.onActionButtonClicked();
@@ -159,6 +320,12 @@ public class RadioPlayerActivity extends AppCompatActivity implements RadioPlaye
     @Override
     public void showCurrentTrackTitle(String title) {
         trackTitleView.setText(title);
+
+        // The next draw is the first one with the new title in it.
+        if (!isTrackTitlePreDrawListenerAdded) {
+            trackTitleView.getViewTreeObserver().addOnPreDrawListener(trackTitlePreDrawListener);
+            isTrackTitlePreDrawListenerAdded = true;
+        }
     }
 
     @Override
@@ -166,12 +333,64 @@ public class RadioPlayerActivity extends AppCompatActivity implements RadioPlaye
         djNameView.setText(name);
     }
 
+    @Override
+    public void showCurrentDjAvatar(Dj dj) {
+        djAvatarLoader.load(dj, djAvatarView);
+    }
+
     @Override
     public void showNumOfListeners(int numOfListeners) {
         String numOfListenersText = getString(R.string.num_of_listeners, numOfListeners);
         numOfListenersView.setText(numOfListenersText);
     }
 
+    @Override
+    public void refreshListenerTrend() {
+        listenerTrendView.refresh();
+    }
+
+    @Override
+    public void showQueuedTracks(List<Track> queuedTracks) {
+        queuedTracksAdapter.setTracks(queuedTracks);
+    }
+
+    @Override
+    public void showLastPlayedTracks(List<Track> lastPlayedTracks) {
+        lastPlayedTracksAdapter.setTracks(lastPlayedTracks);
+    }
+
+    @Override
+    public void refreshTrackListTimes() {
+        queuedTracksAdapter.refreshTimes();
+        lastPlayedTracksAdapter.refreshTimes();
+    }
+
+    @Override
+    public void startTrackProgressTicks() {
+        trackProgressSection.removeCallbacks(trackProgressTick);
+        trackProgressSection.post(trackProgressTick);
+    }
+
+    @Override
+    public void stopTrackProgressTicks() {
+        trackProgressSection.removeCallbacks(trackProgressTick);
+    }
+
+    @Override
+    public void showTrackProgress(int elapsedTimeInSeconds, int lengthInSeconds, TrackTimeText elapsedTimeText,
+                                  TrackTimeText remainingTimeText) {
+        trackProgressBar.setMax(lengthInSeconds);
+        trackProgressBar.setProgress(elapsedTimeInSeconds);
+        trackElapsedTimeView.setText(elapsedTimeText.getChars(), 0, elapsedTimeText.getLength());
+        trackRemainingTimeView.setText(remainingTimeText.getChars(), 0, remainingTimeText.getLength());
+        trackProgressSection.setVisibility(View.VISIBLE);
+    }
+
+    @Override
+    public void hideTrackProgress() {
+        trackProgressSection.setVisibility(View.INVISIBLE);
+    }
+
     @Override
     public void startPlayingRadioStream() {
         radioPlayerService.startPlayingRadioStream();
@@ -192,6 +411,31 @@ public class RadioPlayerActivity extends AppCompatActivity implements RadioPlaye
         Toast.makeText(this, R.string.failed_to_load_stream, Toast.LENGTH_SHORT).show();
     }
 
+    @Override
+    public void showDataBudgetOptions(final long[] budgetsInBytes, long currentBudgetInBytes, long bytesUsedToday) {
+        String[] budgetLabels = new String[budgetsInBytes.length];
+        int checkedBudgetIndex = -1;
+        for (int i = 0; i < budgetsInBytes.length; i++) {
+            budgetLabels[i] = budgetsInBytes[i] == DataBudget.NO_BUDGET
+                    ? getString(R.string.no_data_budget)
+                    : Formatter.formatShortFileSize(this, budgetsInBytes[i]);
+            if (budgetsInBytes[i] == currentBudgetInBytes) {
+                checkedBudgetIndex = i;
+            }
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.data_budget_title, Formatter.formatShortFileSize(this, bytesUsedToday)))
+                .setSingleChoiceItems(budgetLabels, checkedBudgetIndex, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        radioPlayerPresenter.onDataBudgetSelected(budgetsInBytes[which]);
+                        dialog.dismiss();
+                    }
+                })
+                .show();
+    }
+
     private Intent getServiceIntent() {
         return new Intent(this, RadioPlayerService.class);
     }
@@ -1,31 +1,58 @@
 package com.jcanseco.radio.ui.radioplayer;
 
+import com.jcanseco.radio.datausage.DataBudget;
+import com.jcanseco.radio.djwatch.DjWatcher;
 import com.jcanseco.radio.loaders.RadioContentLoader;
 import com.jcanseco.radio.models.Dj;
 import com.jcanseco.radio.models.NowPlayingTrack;
 import com.jcanseco.radio.models.RadioContent;
+import com.jcanseco.radio.models.Track;
+import com.jcanseco.radio.tracing.Tracer;
+import com.jcanseco.radio.ui.radioplayer.tracklists.LastPlayedTrackHistory;
+
+import java.util.List;
 
 public class RadioPlayerPresenter implements RadioContentLoader.RadioContentListener {
 
+    static final long[] DATA_BUDGET_OPTIONS_IN_BYTES = {
+            DataBudget.NO_BUDGET,
+            50L * 1024 * 1024,
+            100L * 1024 * 1024,
+            250L * 1024 * 1024,
+            500L * 1024 * 1024,
+            1024L * 1024 * 1024
+    };
+
+    private static final int NO_DJ_ID = -1;
+
     private RadioPlayerPresenter.View radioPlayerView;
     private RadioContentLoader radioContentLoader;
+    private DataBudget dataBudget;
+    private DjWatcher djWatcher;
+    private final TrackProgressTicker trackProgressTicker = new TrackProgressTicker();
+    private final LastPlayedTrackHistory lastPlayedTrackHistory = new LastPlayedTrackHistory();
 
+    private int shownDjAvatarId = NO_DJ_ID;
     private boolean isPlayerPlaying;
     private boolean isRadioPlayerServiceConnected;
 
-    public RadioPlayerPresenter(RadioContentLoader radioContentLoader) {
+    public RadioPlayerPresenter(RadioContentLoader radioContentLoader, DataBudget dataBudget, DjWatcher djWatcher) {
         this.radioContentLoader = radioContentLoader;
         this.radioContentLoader.setRadioContentListener(this);
+        this.dataBudget = dataBudget;
+        this.djWatcher = djWatcher;
     }
 
     public void attachView(RadioPlayerPresenter.View radioPlayerView) {
         this.radioPlayerView = radioPlayerView;
+        this.trackProgressTicker.setView(radioPlayerView);
     }
 
     public void onStart() {
         radioPlayerView.startRadioPlayerService();
         radioPlayerView.bindToRadioPlayerService();
         radioPlayerView.registerFailedToPlayStreamBroadcastReceiver();
+        radioPlayerView.startTrackProgressTicks();
     }
 
     public void onResume() {
@@ -39,6 +66,7 @@ public class RadioPlayerPresenter implements RadioContentLoader.RadioContentList
     public void onStop() {
         radioPlayerView.unbindFromRadioPlayerService();
         radioPlayerView.unregisterFailedToPlayStreamBroadcastReceiver();
+        radioPlayerView.stopTrackProgressTicks();
     }
 
     public void onRadioPlayerServiceConnected(boolean isServiceCurrentlyPlayingStream) {
@@ -62,6 +90,32 @@ public class RadioPlayerPresenter implements RadioContentLoader.RadioContentList
         }
     }
 
+    // Playback can also be started and stopped from the notification and the widget.
+    public void onPlaybackStateChanged(boolean isPlaying) {
+        if (isPlaying && !isPlayerPlaying()) {
+            setPlayerStateAsPlaying();
+        } else if (!isPlaying && isPlayerPlaying()) {
+            setPlayerStateAsPaused();
+        }
+    }
+
+    public void onDataBudgetMenuItemClicked() {
+        radioPlayerView.showDataBudgetOptions(DATA_BUDGET_OPTIONS_IN_BYTES, dataBudget.getDailyMobileBudgetInBytes(),
+                dataBudget.getMobileBytesUsedToday());
+    }
+
+    public void onDataBudgetSelected(long budgetInBytes) {
+        dataBudget.setDailyMobileBudgetInBytes(budgetInBytes);
+    }
+
+    public void onDjWatchMenuItemClicked() {
+        djWatcher.setEnabled(!djWatcher.isEnabled());
+    }
+
+    public boolean isDjWatchEnabled() {
+        return djWatcher.isEnabled();
+    }
+
     protected boolean isPlayerPlaying() {
         return isPlayerPlaying;
     }
@@ -84,12 +138,44 @@ public class RadioPlayerPresenter implements RadioContentLoader.RadioContentList
 
     @Override
     public void onRadioContentLoadSuccess(RadioContent radioContent) {
-        NowPlayingTrack currentTrack = radioContent.getCurrentTrack();
-        Dj currentDj = radioContent.getCurrentDj();
+        Tracer.beginSection("RadioPlayerPresenter.showRadioContent");
+        try {
+            NowPlayingTrack currentTrack = radioContent.getCurrentTrack();
+            Dj currentDj = radioContent.getCurrentDj();
+
+            radioPlayerView.showCurrentTrackTitle(currentTrack.getTitle());
+            radioPlayerView.showCurrentDjName(currentDj.getName());
+            // Every poll returns the DJ, but the avatar only needs loading again when it's someone else.
+            if (currentDj.getId() != shownDjAvatarId) {
+                radioPlayerView.showCurrentDjAvatar(currentDj);
+                shownDjAvatarId = currentDj.getId();
+            }
+            radioPlayerView.showNumOfListeners(radioContent.getNumOfListeners());
+            radioPlayerView.refreshListenerTrend();
+
+            List<Track> queuedTracks = radioContent.getQueuedTracks();
+            if (queuedTracks != null) {
+                radioPlayerView.showQueuedTracks(queuedTracks);
+            }
+            List<Track> lastPlayedTracks = radioContent.getLastPlayedTracks();
+            if (lastPlayedTracks != null) {
+                radioPlayerView.showLastPlayedTracks(lastPlayedTrackHistory.add(lastPlayedTracks));
+            }
+
+            trackProgressTicker.setTrack(currentTrack);
+            trackProgressTicker.tick();
+        } finally {
+            Tracer.endSection();
+        }
+    }
+
+    public void onTrackProgressTickDue() {
+        trackProgressTicker.tick();
+        radioPlayerView.refreshTrackListTimes();
+    }
 
-        radioPlayerView.showCurrentTrackTitle(currentTrack.getTitle());
-        radioPlayerView.showCurrentDjName(currentDj.getName());
-        radioPlayerView.showNumOfListeners(radioContent.getNumOfListeners());
+    public void onCurrentTrackTitleDisplayed() {
+        radioContentLoader.onCurrentTrackTitleDisplayed();
     }
 
     @Override
@@ -108,17 +194,27 @@ public class RadioPlayerPresenter implements RadioContentLoader.RadioContentList
     }
 
     private void setPlayerStateAsPaused() {
-        radioPlayerView.showPlayButton();
+        Tracer.beginSection("RadioPlayerPresenter.showPlayButton");
+        try {
+            radioPlayerView.showPlayButton();
+        } finally {
+            Tracer.endSection();
+        }
         isPlayerPlaying = false;
     }
 
     private void setPlayerStateAsPlaying() {
-        radioPlayerView.showPauseButton();
+        Tracer.beginSection("RadioPlayerPresenter.showPauseButton");
+        try {
+            radioPlayerView.showPauseButton();
+        } finally {
+            Tracer.endSection();
+        }
         isPlayerPlaying = true;
     }
 
 
-    public interface View {
+    public interface View extends TrackProgressTicker.View {
 
         void startRadioPlayerService();
 
@@ -138,8 +234,22 @@ public class RadioPlayerPresenter implements RadioContentLoader.RadioContentList
 
         void showCurrentDjName(String name);
 
+        void showCurrentDjAvatar(Dj dj);
+
         void showNumOfListeners(int numOfListeners);
 
+        void refreshListenerTrend();
+
+        void showQueuedTracks(List<Track> queuedTracks);
+
+        void showLastPlayedTracks(List<Track> lastPlayedTracks);
+
+        void refreshTrackListTimes();
+
+        void startTrackProgressTicks();
+
+        void stopTrackProgressTicks();
+
         void startPlayingRadioStream();
 
         void stopPlayingRadioStream();
@@ -147,5 +257,7 @@ public class RadioPlayerPresenter implements RadioContentLoader.RadioContentList
         void showCouldNotLoadRadioContentErrorMessage();
 
         void showCouldNotPlayRadioStreamErrorMessage();
+
+        void showDataBudgetOptions(long[] budgetsInBytes, long currentBudgetInBytes, long bytesUsedToday);
     }
 }
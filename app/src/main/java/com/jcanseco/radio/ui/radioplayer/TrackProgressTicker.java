@@ -0,0 +1,49 @@
+package com.jcanseco.radio.ui.radioplayer;
+
+import com.jcanseco.radio.models.NowPlayingTrack;
+import com.jcanseco.radio.models.TrackTimeText;
+
+// Works out how far into the current track the station is, once a second while the player is on screen. Everything
+// it needs is allocated up front, so a tick leaves no garbage behind for the collector to stop the UI over.
+public class TrackProgressTicker {
+
+    public static final long TICK_INTERVAL_IN_MILLIS = 1000;
+
+    private final TrackTimeText elapsedTimeText = new TrackTimeText();
+    private final TrackTimeText remainingTimeText = new TrackTimeText();
+
+    private TrackProgressTicker.View view;
+    private NowPlayingTrack track;
+
+    public void setView(TrackProgressTicker.View view) {
+        this.view = view;
+    }
+
+    public void setTrack(NowPlayingTrack track) {
+        this.track = track;
+    }
+
+    public void tick() {
+        int lengthInSeconds = track != null ? track.getLengthInSeconds() : NowPlayingTrack.INVALID_TIME_VALUE;
+        int elapsedTimeInSeconds = track != null ? track.getElapsedTimeInSeconds() : NowPlayingTrack.INVALID_TIME_VALUE;
+        if (lengthInSeconds == NowPlayingTrack.INVALID_TIME_VALUE || elapsedTimeInSeconds == NowPlayingTrack.INVALID_TIME_VALUE) {
+            view.hideTrackProgress();
+            return;
+        }
+
+        // Tracks regularly run past the end time the station gave for them, until the next response catches up.
+        elapsedTimeInSeconds = Math.min(elapsedTimeInSeconds, lengthInSeconds);
+        elapsedTimeText.set(elapsedTimeInSeconds);
+        remainingTimeText.set(lengthInSeconds - elapsedTimeInSeconds);
+        view.showTrackProgress(elapsedTimeInSeconds, lengthInSeconds, elapsedTimeText, remainingTimeText);
+    }
+
+
+    public interface View {
+
+        void showTrackProgress(int elapsedTimeInSeconds, int lengthInSeconds, TrackTimeText elapsedTimeText,
+                               TrackTimeText remainingTimeText);
+
+        void hideTrackProgress();
+    }
+}
@@ -0,0 +1,48 @@
+package com.jcanseco.radio.ui.radioplayer.tracklists;
+
+import com.jcanseco.radio.models.Track;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The API only ever returns the last few tracks, so the history shown grows from every poll while the player is
+// open, newest first.
+public class LastPlayedTrackHistory {
+
+    // Plenty to scroll back through a long listening session without holding on to every track forever.
+    static final int MAX_NUM_OF_TRACKS = 500;
+
+    private final List<Track> tracks = new ArrayList<>();
+
+    public List<Track> add(List<Track> lastPlayedTracks) {
+        for (int i = lastPlayedTracks.size() - 1; i >= 0; i--) {
+            Track track = lastPlayedTracks.get(i);
+            if (!contains(track)) {
+                tracks.add(getInsertionIndex(track), track);
+            }
+        }
+
+        while (tracks.size() > MAX_NUM_OF_TRACKS) {
+            tracks.remove(tracks.size() - 1);
+        }
+        return Collections.unmodifiableList(tracks);
+    }
+
+    private boolean contains(Track track) {
+        for (int i = 0; i < tracks.size(); i++) {
+            if (tracks.get(i).isSameEntryAs(track)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getInsertionIndex(Track track) {
+        int index = 0;
+        while (index < tracks.size() && tracks.get(index).getTimestampInUnixTime() > track.getTimestampInUnixTime()) {
+            index++;
+        }
+        return index;
+    }
+}
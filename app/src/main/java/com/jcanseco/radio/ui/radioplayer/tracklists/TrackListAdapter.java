@@ -0,0 +1,140 @@
+package com.jcanseco.radio.ui.radioplayer.tracklists;
+
+import android.support.v7.widget.RecyclerView;
+import android.text.format.DateUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.jcanseco.radio.R;
+import com.jcanseco.radio.models.Track;
+import com.jcanseco.radio.models.TrackTimeText;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import butterknife.Bind;
+import butterknife.ButterKnife;
+
+// Each row's time comes from the track's timestamp: a countdown to when a queued track starts, or how long ago a
+// last played track did.
+public class TrackListAdapter extends RecyclerView.Adapter<TrackListAdapter.TrackViewHolder> implements TrackListDiffer.Callback {
+
+    public enum Kind {
+        QUEUED,
+        LAST_PLAYED
+    }
+
+    private static final Object PAYLOAD_TIME = new Object();
+
+    private final Kind kind;
+    private final List<Track> tracks = new ArrayList<>();
+    private long timesRefreshedAtInUnixTime;
+
+    public TrackListAdapter(Kind kind) {
+        this.kind = kind;
+    }
+
+    public void setTracks(List<Track> updatedTracks) {
+        TrackListDiffer.apply(tracks, updatedTracks, kind == Kind.QUEUED, this);
+    }
+
+    public void refreshTimes() {
+        long currentTimeInUnixTime = getCurrentTimeInUnixTime();
+        // "5 minutes ago" only changes once a minute, but a countdown changes every second.
+        if (kind == Kind.LAST_PLAYED && currentTimeInUnixTime / 60 == timesRefreshedAtInUnixTime / 60) {
+            return;
+        }
+        timesRefreshedAtInUnixTime = currentTimeInUnixTime;
+        notifyItemRangeChanged(0, tracks.size(), PAYLOAD_TIME);
+    }
+
+    @Override
+    public int getItemCount() {
+        return tracks.size();
+    }
+
+    @Override
+    public TrackViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_track, parent, false);
+        return new TrackViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(TrackViewHolder holder, int position) {
+        Track track = tracks.get(position);
+        holder.titleView.setText(track.getTitle());
+        bindTime(holder, track);
+    }
+
+    @Override
+    public void onBindViewHolder(TrackViewHolder holder, int position, List<Object> payloads) {
+        if (!payloads.isEmpty() && isOnlyTimePayloads(payloads)) {
+            bindTime(holder, tracks.get(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    private boolean isOnlyTimePayloads(List<Object> payloads) {
+        for (int i = 0; i < payloads.size(); i++) {
+            if (payloads.get(i) != PAYLOAD_TIME) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void bindTime(TrackViewHolder holder, Track track) {
+        long currentTimeInUnixTime = getCurrentTimeInUnixTime();
+        if (kind == Kind.QUEUED) {
+            TrackTimeText countdown = holder.timeText.set((int) (track.getTimestampInUnixTime() - currentTimeInUnixTime));
+            holder.timeView.setText(countdown.getChars(), 0, countdown.getLength());
+        } else {
+            holder.timeView.setText(DateUtils.getRelativeTimeSpanString(track.getTimestampInUnixTime() * 1000,
+                    currentTimeInUnixTime * 1000, DateUtils.MINUTE_IN_MILLIS));
+        }
+    }
+
+    protected long getCurrentTimeInUnixTime() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    @Override
+    public void onInserted(int position) {
+        notifyItemInserted(position);
+    }
+
+    @Override
+    public void onRemoved(int position) {
+        notifyItemRemoved(position);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        notifyItemMoved(fromPosition, toPosition);
+    }
+
+    @Override
+    public void onTimeChanged(int position) {
+        notifyItemChanged(position, PAYLOAD_TIME);
+    }
+
+
+    public static class TrackViewHolder extends RecyclerView.ViewHolder {
+
+        @Bind(R.id.track_list_item_title)
+        TextView titleView;
+
+        @Bind(R.id.track_list_item_time)
+        TextView timeView;
+
+        final TrackTimeText timeText = new TrackTimeText();
+
+        TrackViewHolder(View itemView) {
+            super(itemView);
+            ButterKnife.bind(this, itemView);
+        }
+    }
+}
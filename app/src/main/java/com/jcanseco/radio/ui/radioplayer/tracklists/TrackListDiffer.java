@@ -0,0 +1,80 @@
+package com.jcanseco.radio.ui.radioplayer.tracklists;
+
+import com.jcanseco.radio.models.Track;
+
+import java.util.List;
+
+// Turns the displayed list into the updated one with removals, moves and insertions, reporting each as it's made so
+// a RecyclerView only touches the rows that changed. Polls mostly shift the lists by a track or two, which this
+// handles in a single pass; anything else costs a search of the rest of the displayed list per out-of-place track.
+//
+// A queued track's expected start time shifts whenever the one playing runs long or short, so queue entries are
+// matched on their titles, in order, and a new time is reported as a change to the row rather than a new one.
+public class TrackListDiffer {
+
+    public static void apply(List<Track> displayedTracks, List<Track> updatedTracks, boolean isQueue,
+                             TrackListDiffer.Callback callback) {
+        for (int i = displayedTracks.size() - 1; i >= 0; i--) {
+            if (indexOf(updatedTracks, displayedTracks.get(i), 0, isQueue) == -1) {
+                displayedTracks.remove(i);
+                callback.onRemoved(i);
+            }
+        }
+
+        for (int i = 0; i < updatedTracks.size(); i++) {
+            Track updatedTrack = updatedTracks.get(i);
+            if (i < displayedTracks.size() && isSameEntry(displayedTracks.get(i), updatedTrack, isQueue)) {
+                updateTime(displayedTracks, i, updatedTrack, callback);
+                continue;
+            }
+
+            int displayedIndex = indexOf(displayedTracks, updatedTrack, i + 1, isQueue);
+            if (displayedIndex != -1) {
+                displayedTracks.add(i, displayedTracks.remove(displayedIndex));
+                callback.onMoved(displayedIndex, i);
+                updateTime(displayedTracks, i, updatedTrack, callback);
+            } else {
+                displayedTracks.add(i, updatedTrack);
+                callback.onInserted(i);
+            }
+        }
+
+        // Only left over when the updated list repeats an entry.
+        while (displayedTracks.size() > updatedTracks.size()) {
+            displayedTracks.remove(displayedTracks.size() - 1);
+            callback.onRemoved(displayedTracks.size());
+        }
+    }
+
+    private static void updateTime(List<Track> displayedTracks, int index, Track updatedTrack, TrackListDiffer.Callback callback) {
+        if (displayedTracks.get(index).getTimestampInUnixTime() != updatedTrack.getTimestampInUnixTime()) {
+            displayedTracks.set(index, updatedTrack);
+            callback.onTimeChanged(index);
+        }
+    }
+
+    private static int indexOf(List<Track> tracks, Track track, int fromIndex, boolean isQueue) {
+        for (int i = fromIndex; i < tracks.size(); i++) {
+            if (isSameEntry(tracks.get(i), track, isQueue)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isSameEntry(Track track, Track other, boolean isQueue) {
+        return isQueue ? track.hasSameTitleAs(other) : track.isSameEntryAs(other);
+    }
+
+
+    public interface Callback {
+
+        void onInserted(int position);
+
+        void onRemoved(int position);
+
+        void onMoved(int fromPosition, int toPosition);
+
+        void onTimeChanged(int position);
+    }
+}
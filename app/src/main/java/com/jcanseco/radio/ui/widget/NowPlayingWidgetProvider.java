@@ -0,0 +1,25 @@
+package com.jcanseco.radio.ui.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.Context;
+
+import com.jcanseco.radio.MainApplication;
+import com.jcanseco.radio.nowplaying.NowPlayingPublisher;
+
+import javax.inject.Inject;
+
+// The widget never asks for updates on a schedule: it's drawn from the last known state when it's added, and after
+// that NowPlayingWidgetUpdater pushes changes as the app learns of them.
+public class NowPlayingWidgetProvider extends AppWidgetProvider {
+
+    @Inject
+    NowPlayingPublisher nowPlayingPublisher;
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        MainApplication.getInstance(context).getMainComponent().inject(this);
+        appWidgetManager.updateAppWidget(appWidgetIds,
+                NowPlayingWidgetUpdater.createRemoteViews(context, nowPlayingPublisher.getState()));
+    }
+}
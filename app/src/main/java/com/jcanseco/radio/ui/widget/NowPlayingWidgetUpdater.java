@@ -0,0 +1,42 @@
+package com.jcanseco.radio.ui.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.widget.RemoteViews;
+
+import com.jcanseco.radio.R;
+import com.jcanseco.radio.notifications.PlaybackNotificationFactory;
+import com.jcanseco.radio.nowplaying.NowPlayingPublisher;
+import com.jcanseco.radio.nowplaying.NowPlayingState;
+import com.jcanseco.radio.services.RadioPlayerService;
+
+// Pushes what's playing to every widget on the home screen, and only when the publisher says it has changed.
+public class NowPlayingWidgetUpdater implements NowPlayingPublisher.Subscriber {
+
+    private final Context context;
+
+    public NowPlayingWidgetUpdater(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public void onNowPlayingChanged(NowPlayingState state) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, NowPlayingWidgetProvider.class));
+        if (appWidgetIds.length > 0) {
+            appWidgetManager.updateAppWidget(appWidgetIds, createRemoteViews(context, state));
+        }
+    }
+
+    static RemoteViews createRemoteViews(Context context, NowPlayingState state) {
+        RemoteViews remoteViews = new RemoteViews(context.getPackageName(), R.layout.widget_now_playing);
+        remoteViews.setTextViewText(R.id.widget_track_title, state.getTrackTitle() != null
+                ? state.getTrackTitle() : context.getString(R.string.app_name));
+        remoteViews.setTextViewText(R.id.widget_dj_and_listeners, PlaybackNotificationFactory.formatDjAndListeners(context, state));
+        remoteViews.setImageViewResource(R.id.widget_action_button, state.isPlaying() ? R.drawable.pause : R.drawable.play);
+        remoteViews.setOnClickPendingIntent(R.id.widget_now_playing, PlaybackNotificationFactory.createOpenRadioPlayerIntent(context));
+        remoteViews.setOnClickPendingIntent(R.id.widget_action_button, RadioPlayerService.createTogglePlaybackIntent(context));
+        return remoteViews;
+    }
+}
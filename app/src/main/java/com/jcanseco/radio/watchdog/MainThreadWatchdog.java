@@ -0,0 +1,221 @@
+package com.jcanseco.radio.watchdog;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Printer;
+
+import com.jcanseco.radio.diagnostics.Dumpable;
+import com.jcanseco.radio.flightrecorder.FlightEventType;
+import com.jcanseco.radio.flightrecorder.FlightRecorder;
+import com.jcanseco.radio.metrics.Counter;
+import com.jcanseco.radio.metrics.Histogram;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.tasks.MainThreadWatchdogTimerTask;
+
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Timer;
+
+// The main looper logs the start and end of every message it dispatches to this, which only notes the time and
+// counts the dispatch. A timer thread looks in a few times per threshold, and only when a dispatch has been running
+// for longer than the threshold does it capture the main thread's stack. Stalls are aggregated by the top frames of
+// that stack, so the same slow call site shows up once with a count however often it stalls.
+//
+// The looper builds a log line for every message while this is installed, so it's only installed while the UI is
+// visible.
+public class MainThreadWatchdog implements Printer, Dumpable {
+
+    private static final int NUM_OF_CHECKS_PER_THRESHOLD = 2;
+    private static final int NUM_OF_SIGNATURE_FRAMES = 4;
+    private static final int NUM_OF_STACK_FRAMES_TO_DUMP = 12;
+    private static final int MAX_NUM_OF_SIGNATURES = 32;
+    private static final String APP_PACKAGE_PREFIX = "com.jcanseco.radio.";
+
+    private final long thresholdInMillis;
+    private final FlightRecorder flightRecorder;
+    private final Counter stallCounter;
+    private final Histogram stallDurationHistogram;
+    private final Counter droppedSignatureCounter;
+
+    private volatile boolean isDispatching;
+    private volatile long dispatchSequence;
+    private volatile long dispatchStartedAtMillis;
+    private volatile long sampledDispatchSequence = -1;
+    private volatile Stall sampledStall;
+
+    private final Map<String, Stall> stallsBySignature = new LinkedHashMap<>();
+
+    private Thread mainThread;
+    private Looper mainLooper;
+    private Timer timer;
+
+    public MainThreadWatchdog(long thresholdInMillis, FlightRecorder flightRecorder, MetricsRegistry metricsRegistry) {
+        this.thresholdInMillis = thresholdInMillis;
+        this.flightRecorder = flightRecorder;
+        this.stallCounter = metricsRegistry.counter("main_thread.stalls");
+        this.stallDurationHistogram = metricsRegistry.histogram("main_thread.stall_ms");
+        this.droppedSignatureCounter = metricsRegistry.counter("main_thread.stall_signatures_dropped");
+    }
+
+    // Both of these are called from the main thread.
+    public void start() {
+        if (timer == null) {
+            mainLooper = Looper.getMainLooper();
+            mainThread = mainLooper.getThread();
+            mainLooper.setMessageLogging(this);
+            timer = initNewTimer();
+            long checkIntervalInMillis = thresholdInMillis / NUM_OF_CHECKS_PER_THRESHOLD;
+            timer.schedule(new MainThreadWatchdogTimerTask(this), checkIntervalInMillis, checkIntervalInMillis);
+        }
+    }
+
+    public void stop() {
+        if (timer != null) {
+            mainLooper.setMessageLogging(null);
+            timer.cancel();
+            timer = null;
+            isDispatching = false;
+        }
+    }
+
+    @Override
+    public void println(String line) {
+        // ">>>>> Dispatching to ..." and "<<<<< Finished to ...", respectively.
+        if (line.charAt(0) == '>') {
+            onDispatchStarted();
+        } else if (line.charAt(0) == '<') {
+            onDispatchFinished();
+        }
+    }
+
+    private void onDispatchStarted() {
+        dispatchStartedAtMillis = getUptimeMillis();
+        dispatchSequence++;
+        isDispatching = true;
+    }
+
+    private void onDispatchFinished() {
+        isDispatching = false;
+        if (sampledDispatchSequence == dispatchSequence) {
+            long durationInMillis = getUptimeMillis() - dispatchStartedAtMillis;
+            stallDurationHistogram.record(durationInMillis);
+            Stall stall = sampledStall;
+            if (stall != null) {
+                synchronized (stallsBySignature) {
+                    stall.onFinished(durationInMillis);
+                }
+            }
+        }
+    }
+
+    public void onCheckDue() {
+        long sequence = dispatchSequence;
+        long startedAtMillis = dispatchStartedAtMillis;
+        if (!isDispatching || sequence == sampledDispatchSequence) {
+            return;
+        }
+        long stalledForMillis = getUptimeMillis() - startedAtMillis;
+        if (stalledForMillis < thresholdInMillis) {
+            return;
+        }
+
+        StackTraceElement[] stack = captureMainThreadStack();
+        // isDispatching is read first, so a dispatch that finished and a next one that started meanwhile still shows
+        // up as a new sequence.
+        if (!isDispatching || dispatchSequence != sequence) {
+            // Finished while the stack was being captured, so the stack belongs to something else, or to the looper
+            // waiting for the next message.
+            return;
+        }
+        String signature = getSignature(stack);
+        sampledStall = recordStall(signature, stack);
+        sampledDispatchSequence = sequence;
+
+        stallCounter.increment();
+        // Recorded now rather than when the dispatch finishes, in case it never does.
+        flightRecorder.record(FlightEventType.MAIN_THREAD_STALL, stalledForMillis, signature);
+    }
+
+    private Stall recordStall(String signature, StackTraceElement[] stack) {
+        synchronized (stallsBySignature) {
+            Stall stall = stallsBySignature.get(signature);
+            if (stall == null) {
+                if (stallsBySignature.size() >= MAX_NUM_OF_SIGNATURES) {
+                    droppedSignatureCounter.increment();
+                    return null;
+                }
+                stall = new Stall(stack);
+                stallsBySignature.put(signature, stall);
+            }
+            stall.count++;
+            return stall;
+        }
+    }
+
+    // The app's own frames say the most about what stalled, so the signature starts at the first of them.
+    static String getSignature(StackTraceElement[] stack) {
+        int firstFrame = 0;
+        for (int i = 0; i < stack.length; i++) {
+            if (stack[i].getClassName().startsWith(APP_PACKAGE_PREFIX)) {
+                firstFrame = i;
+                break;
+            }
+        }
+
+        StringBuilder signature = new StringBuilder();
+        for (int i = firstFrame; i < stack.length && i < firstFrame + NUM_OF_SIGNATURE_FRAMES; i++) {
+            if (i > firstFrame) {
+                signature.append(" < ");
+            }
+            String className = stack[i].getClassName();
+            signature.append(className.substring(className.lastIndexOf('.') + 1))
+                    .append('.').append(stack[i].getMethodName())
+                    .append(':').append(stack[i].getLineNumber());
+        }
+        return signature.toString();
+    }
+
+    protected StackTraceElement[] captureMainThreadStack() {
+        return mainThread.getStackTrace();
+    }
+
+    protected long getUptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    protected Timer initNewTimer() {
+        return new Timer("MainThreadWatchdog", true);
+    }
+
+    @Override
+    public void dumpState(PrintWriter writer) {
+        writer.println("MainThreadWatchdog");
+        writer.printf("  threshold: %d ms%n", thresholdInMillis);
+        synchronized (stallsBySignature) {
+            for (Map.Entry<String, Stall> entry : stallsBySignature.entrySet()) {
+                Stall stall = entry.getValue();
+                writer.printf("  %d stalls, longest %d ms: %s%n", stall.count, stall.maxDurationInMillis, entry.getKey());
+                for (int i = 0; i < stall.stack.length && i < NUM_OF_STACK_FRAMES_TO_DUMP; i++) {
+                    writer.printf("      at %s%n", stall.stack[i]);
+                }
+            }
+        }
+    }
+
+
+    private static class Stall {
+
+        private final StackTraceElement[] stack;
+        private int count;
+        private long maxDurationInMillis;
+
+        private Stall(StackTraceElement[] stack) {
+            this.stack = stack;
+        }
+
+        private void onFinished(long durationInMillis) {
+            maxDurationInMillis = Math.max(maxDurationInMillis, durationInMillis);
+        }
+    }
+}
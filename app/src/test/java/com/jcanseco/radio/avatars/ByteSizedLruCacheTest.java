@@ -0,0 +1,78 @@
+package com.jcanseco.radio.avatars;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ByteSizedLruCacheTest {
+
+    private ByteSizedLruCache<String> cache;
+
+    @Before
+    public void setup() {
+        // Each value takes up as many bytes as it has characters.
+        cache = new ByteSizedLruCache<String>(10) {
+            @Override
+            protected long getSizeInBytes(String value) {
+                return value.length();
+            }
+        };
+    }
+
+    @Test
+    public void whenFull_thenEvictLeastRecentlyUsedUntilNewValueFits() {
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a");
+
+        cache.put("c", "cccc");
+
+        assertThat(cache.get("a")).isEqualTo("aaaa");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("cccc");
+        assertThat(cache.getSizeInBytes()).isEqualTo(8);
+    }
+
+    @Test
+    public void whenValueIsReplaced_thenOnlyCountTheNewOne() {
+        cache.put("a", "aaaa");
+        cache.put("a", "aa");
+
+        assertThat(cache.getSizeInBytes()).isEqualTo(2);
+        assertThat(cache.getNumOfEntries()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenValueIsLargerThanTheWholeCache_thenDontCacheIt() {
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbbbbbbbbbb");
+
+        assertThat(cache.get("a")).isEqualTo("aaaa");
+        assertThat(cache.get("b")).isNull();
+    }
+
+    @Test
+    public void whenTrimmed_thenKeepMostRecentlyUsed() {
+        cache.put("a", "aaa");
+        cache.put("b", "bbb");
+        cache.put("c", "ccc");
+
+        cache.trimToSize(5);
+
+        assertThat(cache.getNumOfEntries()).isEqualTo(1);
+        assertThat(cache.get("c")).isEqualTo("ccc");
+    }
+
+    @Test
+    public void whenKeysRemovedByPrefix_thenOnlyThoseAreRemoved() {
+        cache.put("dj-avatar:1\nresize", "aaa");
+        cache.put("dj-avatar:12\nresize", "bbb");
+        cache.put("dj-avatar:2\nresize", "ccc");
+
+        cache.removeKeysStartingWith("dj-avatar:1");
+
+        assertThat(cache.getNumOfEntries()).isEqualTo(1);
+        assertThat(cache.getSizeInBytes()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,88 @@
+package com.jcanseco.radio.avatars;
+
+import com.jcanseco.radio.models.Dj;
+import com.jcanseco.radio.models.RadioContent;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DjAvatarLoaderTest {
+
+    private static final int AVATAR_SIZE_IN_PIXELS = 240;
+
+    @Mock
+    private Picasso picasso;
+
+    @Mock
+    private RequestCreator requestCreator;
+
+    private DjAvatarLoader djAvatarLoader;
+
+    @Before
+    public void setup() {
+        when(picasso.load(anyString())).thenReturn(requestCreator);
+        when(requestCreator.stableKey(anyString())).thenReturn(requestCreator);
+        when(requestCreator.resize(anyInt(), anyInt())).thenReturn(requestCreator);
+        when(requestCreator.centerCrop()).thenReturn(requestCreator);
+
+        djAvatarLoader = new DjAvatarLoader(picasso, AVATAR_SIZE_IN_PIXELS);
+    }
+
+    @Test
+    public void whenPrefetching_thenDecodeDownToTheAvatarSizeUnderAKeyForTheDj() {
+        djAvatarLoader.prefetch(createDj(18));
+
+        verify(requestCreator).stableKey("dj-avatar:18");
+        verify(requestCreator).resize(AVATAR_SIZE_IN_PIXELS, AVATAR_SIZE_IN_PIXELS);
+        verify(requestCreator).fetch();
+    }
+
+    @Test
+    public void whenDjHasNotChanged_thenDontPrefetchAgain() {
+        djAvatarLoader.prefetch(createDj(18));
+        djAvatarLoader.prefetch(createDj(18));
+
+        verify(requestCreator, times(1)).fetch();
+    }
+
+    @Test
+    public void whenDjChanges_thenPrefetchTheNewAvatar() {
+        djAvatarLoader.prefetch(createDj(18));
+        djAvatarLoader.prefetch(createDj(20));
+
+        verify(requestCreator, times(2)).fetch();
+        verify(picasso).load("http://r-a-d.io/api/dj-image/20");
+    }
+
+    @Test
+    public void whenRadioContentIsLoaded_thenPrefetchTheCurrentDjAvatar() {
+        RadioContent radioContent = mock(RadioContent.class);
+        Dj dj = createDj(18);
+        when(radioContent.getCurrentDj()).thenReturn(dj);
+
+        djAvatarLoader.onRadioContentLoaded(radioContent);
+
+        verify(picasso).load("http://r-a-d.io/api/dj-image/18");
+        verify(requestCreator).fetch();
+    }
+
+    private static Dj createDj(int id) {
+        Dj dj = mock(Dj.class);
+        when(dj.getId()).thenReturn(id);
+        when(dj.getAvatarUrl()).thenReturn("http://r-a-d.io/api/dj-image/" + id);
+        return dj;
+    }
+}
@@ -0,0 +1,120 @@
+package com.jcanseco.radio.datausage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class DataUsageLedgerTest {
+
+    private static final long ONE_DAY_IN_MILLIS = 24L * 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+    private long currentTimeInMillis;
+    private DataUsageLedger dataUsageLedger;
+
+    @Before
+    public void setup() {
+        directory = new File(temporaryFolder.getRoot(), "data_usage");
+        // Midday, so a few hours either way in the test machine's time zone stays on the same day.
+        currentTimeInMillis = 100 * ONE_DAY_IN_MILLIS + ONE_DAY_IN_MILLIS / 2;
+        dataUsageLedger = createDataUsageLedger();
+    }
+
+    @Test
+    public void whenBytesAreRecorded_thenTheyCountTowardsTodayBeforeBeingFlushed() {
+        dataUsageLedger.setNetworkType(NetworkType.MOBILE);
+
+        dataUsageLedger.record(TrafficCategory.STREAM, 1000);
+        dataUsageLedger.record(TrafficCategory.API, 200);
+
+        assertThat(dataUsageLedger.getBytesUsedToday(NetworkType.MOBILE)).isEqualTo(1200);
+        assertThat(dataUsageLedger.getBytesUsedToday(TrafficCategory.API, NetworkType.MOBILE)).isEqualTo(200);
+        assertThat(dataUsageLedger.getBytesUsedToday(NetworkType.WIFI)).isEqualTo(0);
+    }
+
+    @Test
+    public void whenFlushed_thenTodaysUsageIsReadBackByTheNextLedger() {
+        dataUsageLedger.setNetworkType(NetworkType.MOBILE);
+        dataUsageLedger.record(TrafficCategory.STREAM, 1000);
+        dataUsageLedger.flush();
+        dataUsageLedger.setNetworkType(NetworkType.WIFI);
+        dataUsageLedger.record(TrafficCategory.IMAGES, 300);
+        dataUsageLedger.flush();
+
+        DataUsageLedger nextDataUsageLedger = createDataUsageLedger();
+        nextDataUsageLedger.flush();
+
+        assertThat(nextDataUsageLedger.getBytesUsedToday(TrafficCategory.STREAM, NetworkType.MOBILE)).isEqualTo(1000);
+        assertThat(nextDataUsageLedger.getBytesUsedToday(TrafficCategory.IMAGES, NetworkType.WIFI)).isEqualTo(300);
+    }
+
+    @Test
+    public void whenFlushedTwice_thenBytesAreOnlyCountedOnce() {
+        dataUsageLedger.record(TrafficCategory.STREAM, 1000);
+        dataUsageLedger.flush();
+        dataUsageLedger.flush();
+
+        assertThat(dataUsageLedger.getBytesUsedToday(NetworkType.OTHER)).isEqualTo(1000);
+    }
+
+    @Test
+    public void whenTheDayChanges_thenUsageStartsFromZero() {
+        dataUsageLedger.record(TrafficCategory.STREAM, 1000);
+        dataUsageLedger.flush();
+
+        currentTimeInMillis += ONE_DAY_IN_MILLIS;
+        dataUsageLedger.flush();
+
+        assertThat(dataUsageLedger.getBytesUsedToday(NetworkType.OTHER)).isEqualTo(0);
+    }
+
+    @Test
+    public void whenTheDayChanges_thenDaysOlderThanAMonthAreDeleted() {
+        dataUsageLedger.record(TrafficCategory.STREAM, 1000);
+        dataUsageLedger.flush();
+        File firstDayFile = directory.listFiles()[0];
+
+        currentTimeInMillis += 40 * ONE_DAY_IN_MILLIS;
+        dataUsageLedger.flush();
+
+        assertThat(firstDayFile.exists()).isFalse();
+    }
+
+    @Test
+    public void whenTheLastLineWasCutShort_thenTheRestOfTheDayIsStillLoaded() throws IOException {
+        dataUsageLedger.record(TrafficCategory.STREAM, 1000);
+        dataUsageLedger.flush();
+        FileOutputStream outputStream = new FileOutputStream(directory.listFiles()[0], true);
+        outputStream.write("12345 STREAM MOB".getBytes("UTF-8"));
+        outputStream.close();
+
+        DataUsageLedger nextDataUsageLedger = createDataUsageLedger();
+        nextDataUsageLedger.flush();
+
+        assertThat(nextDataUsageLedger.getBytesUsedToday(NetworkType.OTHER)).isEqualTo(1000);
+    }
+
+    private DataUsageLedger createDataUsageLedger() {
+        return new DataUsageLedger(directory, null) {
+            @Override
+            protected NetworkType lookupActiveNetworkType() {
+                return null;
+            }
+
+            @Override
+            protected long getCurrentTimeInMillis() {
+                return currentTimeInMillis;
+            }
+        };
+    }
+}
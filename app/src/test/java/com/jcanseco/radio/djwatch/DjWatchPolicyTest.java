@@ -0,0 +1,61 @@
+package com.jcanseco.radio.djwatch;
+
+import com.jcanseco.radio.models.NowPlayingTrack;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class DjWatchPolicyTest {
+
+    private final DjWatchPolicy djWatchPolicy = new DjWatchPolicy();
+
+    @Test
+    public void whenTrackEndsWithinTheWindow_thenPollJustAfterItEnds() {
+        assertThat(djWatchPolicy.getNextPollDelayInMillis(true, 20 * 60, false))
+                .isEqualTo(20 * 60 * 1000L + DjWatchPolicy.END_TIME_SLACK_IN_MILLIS);
+        assertThat(djWatchPolicy.getNextPollDelayInMillis(false, 7 * 60, false))
+                .isEqualTo(7 * 60 * 1000L + DjWatchPolicy.END_TIME_SLACK_IN_MILLIS);
+    }
+
+    @Test
+    public void whenTrackEndsBeforeTheWindow_thenPollAtTheFirstEstimatedTrackBoundaryInsideIt() {
+        long untilTrackEndsInMillis = 3 * 60 * 1000L + DjWatchPolicy.END_TIME_SLACK_IN_MILLIS;
+
+        assertThat(djWatchPolicy.getNextPollDelayInMillis(true, 3 * 60, false))
+                .isEqualTo(untilTrackEndsInMillis + 3 * DjWatchPolicy.ESTIMATED_TRACK_LENGTH_IN_MILLIS)
+                .isGreaterThanOrEqualTo(DjWatchPolicy.AUTOMATION_MIN_DELAY_IN_MILLIS);
+        assertThat(djWatchPolicy.getNextPollDelayInMillis(false, 3 * 60, false))
+                .isEqualTo(untilTrackEndsInMillis + DjWatchPolicy.ESTIMATED_TRACK_LENGTH_IN_MILLIS)
+                .isGreaterThanOrEqualTo(DjWatchPolicy.LIVE_MIN_DELAY_IN_MILLIS);
+    }
+
+    @Test
+    public void whenTrackEndsBeforeTheWindow_thenPollNeverLandsOutsideIt() {
+        for (int remainingTrackTimeInSeconds = 0; remainingTrackTimeInSeconds < 15 * 60; remainingTrackTimeInSeconds++) {
+            assertThat(djWatchPolicy.getNextPollDelayInMillis(true, remainingTrackTimeInSeconds, false))
+                    .isBetween(DjWatchPolicy.AUTOMATION_MIN_DELAY_IN_MILLIS, DjWatchPolicy.AUTOMATION_MAX_DELAY_IN_MILLIS);
+            assertThat(djWatchPolicy.getNextPollDelayInMillis(false, remainingTrackTimeInSeconds, false))
+                    .isBetween(DjWatchPolicy.LIVE_MIN_DELAY_IN_MILLIS, DjWatchPolicy.LIVE_MAX_DELAY_IN_MILLIS);
+        }
+    }
+
+    @Test
+    public void whenTrackEndsAfterTheWindow_thenPollNoLaterThanTheWindowCloses() {
+        assertThat(djWatchPolicy.getNextPollDelayInMillis(true, 60 * 60, false)).isEqualTo(DjWatchPolicy.AUTOMATION_MAX_DELAY_IN_MILLIS);
+        assertThat(djWatchPolicy.getNextPollDelayInMillis(false, 60 * 60, false)).isEqualTo(DjWatchPolicy.LIVE_MAX_DELAY_IN_MILLIS);
+    }
+
+    @Test
+    public void whenRemainingTrackTimeIsInvalid_thenPollAsSoonAsTheWindowOpens() {
+        assertThat(djWatchPolicy.getNextPollDelayInMillis(true, NowPlayingTrack.INVALID_TIME_VALUE, false))
+                .isEqualTo(DjWatchPolicy.AUTOMATION_MIN_DELAY_IN_MILLIS);
+    }
+
+    @Test
+    public void whenOverBudget_thenPollHourly() {
+        assertThat(djWatchPolicy.getNextPollDelayInMillis(false, 60, true)).isEqualTo(DjWatchPolicy.OVER_BUDGET_DELAY_IN_MILLIS);
+        assertThat(djWatchPolicy.getFailedPollDelayInMillis(true)).isEqualTo(DjWatchPolicy.OVER_BUDGET_DELAY_IN_MILLIS);
+        assertThat(djWatchPolicy.getFailedPollDelayInMillis(false)).isEqualTo(DjWatchPolicy.FAILED_POLL_DELAY_IN_MILLIS);
+    }
+}
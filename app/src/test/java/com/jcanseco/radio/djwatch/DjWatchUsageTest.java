@@ -0,0 +1,37 @@
+package com.jcanseco.radio.djwatch;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class DjWatchUsageTest {
+
+    @Test
+    public void whenWakeupIsOnTheSameDay_thenAddItUp() {
+        DjWatchUsage usage = new DjWatchUsage("2016-03-18", 2, 4000, 30).plusWakeup("2016-03-18", 2000, 15);
+
+        assertThat(usage.getDay()).isEqualTo("2016-03-18");
+        assertThat(usage.getNumOfWakeups()).isEqualTo(3);
+        assertThat(usage.getNumOfBytes()).isEqualTo(6000);
+        assertThat(usage.getCpuTimeInMillis()).isEqualTo(45);
+    }
+
+    @Test
+    public void whenWakeupIsOnAnotherDay_thenStartOver() {
+        DjWatchUsage usage = new DjWatchUsage("2016-03-18", 2, 4000, 30).plusWakeup("2016-03-19", 2000, 15);
+
+        assertThat(usage.getDay()).isEqualTo("2016-03-19");
+        assertThat(usage.getNumOfWakeups()).isEqualTo(1);
+        assertThat(usage.getNumOfBytes()).isEqualTo(2000);
+        assertThat(usage.getCpuTimeInMillis()).isEqualTo(15);
+    }
+
+    @Test
+    public void whenAnyPartOfTheBudgetIsUsedUp_thenBeOverBudgetForTheRestOfTheDay() {
+        assertThat(new DjWatchUsage("2016-03-18", 10, 4000, 30).isOverBudget("2016-03-18")).isFalse();
+        assertThat(new DjWatchUsage("2016-03-18", DjWatchUsage.TARGET_WAKEUPS_PER_DAY, 0, 0).isOverBudget("2016-03-18")).isTrue();
+        assertThat(new DjWatchUsage("2016-03-18", 1, DjWatchUsage.TARGET_BYTES_PER_DAY, 0).isOverBudget("2016-03-18")).isTrue();
+        assertThat(new DjWatchUsage("2016-03-18", 1, 0, DjWatchUsage.TARGET_CPU_TIME_PER_DAY_IN_MILLIS).isOverBudget("2016-03-18")).isTrue();
+        assertThat(new DjWatchUsage("2016-03-18", DjWatchUsage.TARGET_WAKEUPS_PER_DAY, 0, 0).isOverBudget("2016-03-19")).isFalse();
+    }
+}
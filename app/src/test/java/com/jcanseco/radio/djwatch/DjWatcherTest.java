@@ -0,0 +1,262 @@
+package com.jcanseco.radio.djwatch;
+
+import com.jcanseco.radio.api.RadioRestService;
+import com.jcanseco.radio.datausage.DataBudget;
+import com.jcanseco.radio.datausage.DataBudgetState;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.datausage.TrafficCategory;
+import com.jcanseco.radio.models.Dj;
+import com.jcanseco.radio.models.NowPlayingTrack;
+import com.jcanseco.radio.models.RadioContent;
+import com.jcanseco.radio.notifications.DjLiveNotifier;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DjWatcherTest {
+
+    private static final long NOW_IN_MILLIS = 1458341547000L;
+    private static final String TODAY = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date(NOW_IN_MILLIS));
+    private static final int AUTOMATION_DJ_ID = 18;
+    private static final int LIVE_DJ_ID = 10;
+
+    @Mock
+    private RadioRestService radioRestService;
+
+    @Mock
+    private Call<RadioContent> radioContentCall;
+
+    @Mock
+    private RadioContent radioContent;
+
+    @Mock
+    private NowPlayingTrack currentTrack;
+
+    @Mock
+    private Dj currentDj;
+
+    @Mock
+    private DjWatchStore djWatchStore;
+
+    @Mock
+    private DjWatchScheduler djWatchScheduler;
+
+    @Mock
+    private DjLiveNotifier djLiveNotifier;
+
+    @Mock
+    private DataBudget dataBudget;
+
+    @Mock
+    private DataUsageLedger dataUsageLedger;
+
+    private DjWatcher djWatcher;
+
+    @Before
+    public void setup() throws IOException {
+        djWatcher = new DjWatcher(radioRestService, djWatchStore, djWatchScheduler, new DjWatchPolicy(), djLiveNotifier,
+                dataBudget, dataUsageLedger) {
+            @Override
+            protected long getThreadCpuTimeInMillis() {
+                return 0;
+            }
+
+            @Override
+            protected long getCurrentTimeInMillis() {
+                return NOW_IN_MILLIS;
+            }
+        };
+
+        when(djWatchStore.isEnabled()).thenReturn(true);
+        when(djWatchStore.getUsage()).thenReturn(new DjWatchUsage(TODAY, 0, 0, 0));
+        when(dataBudget.getState()).thenReturn(DataBudgetState.WITHIN_BUDGET);
+        when(radioRestService.getRadioContent()).thenReturn(radioContentCall);
+        when(radioContentCall.execute()).thenReturn(Response.success(radioContent));
+        when(radioContent.getCurrentTrack()).thenReturn(currentTrack);
+        when(radioContent.getCurrentDj()).thenReturn(currentDj);
+        when(currentTrack.getRemainingTimeInSeconds()).thenReturn(NowPlayingTrack.INVALID_TIME_VALUE);
+    }
+
+    @Test
+    public void whenLiveDjComesOnAfterAnotherDj_thenNotifyAndRememberThem() {
+        onAir(LIVE_DJ_ID, false);
+        when(djWatchStore.getLastSeenDjId()).thenReturn(AUTOMATION_DJ_ID);
+
+        djWatcher.poll();
+
+        verify(djLiveNotifier).notifyDjWentLive(currentDj);
+        verify(djWatchStore).setLastSeenDjId(LIVE_DJ_ID);
+    }
+
+    @Test
+    public void whenAutomationComesOn_thenDontNotify() {
+        onAir(AUTOMATION_DJ_ID, true);
+        when(djWatchStore.getLastSeenDjId()).thenReturn(LIVE_DJ_ID);
+
+        djWatcher.poll();
+
+        verify(djLiveNotifier, never()).notifyDjWentLive(any(Dj.class));
+        verify(djWatchStore).setLastSeenDjId(AUTOMATION_DJ_ID);
+    }
+
+    @Test
+    public void whenFirstPollFindsALiveDj_thenOnlyRememberThem() {
+        onAir(LIVE_DJ_ID, false);
+        when(djWatchStore.getLastSeenDjId()).thenReturn(DjWatchStore.NO_DJ_ID);
+
+        djWatcher.poll();
+
+        verify(djLiveNotifier, never()).notifyDjWentLive(any(Dj.class));
+        verify(djWatchStore).setLastSeenDjId(LIVE_DJ_ID);
+    }
+
+    @Test
+    public void whenSameDjIsStillOn_thenDontNotify() {
+        onAir(LIVE_DJ_ID, false);
+        when(djWatchStore.getLastSeenDjId()).thenReturn(LIVE_DJ_ID);
+
+        djWatcher.poll();
+
+        verify(djLiveNotifier, never()).notifyDjWentLive(any(Dj.class));
+        verify(djWatchStore, never()).setLastSeenDjId(anyInt());
+    }
+
+    @Test
+    public void whenPolled_thenAddTheWakeupAndItsBytesToTodaysUsage() {
+        onAir(AUTOMATION_DJ_ID, true);
+        when(dataUsageLedger.getBytesUsedToday(TrafficCategory.DJ_WATCH)).thenReturn(10000L, 13000L);
+
+        djWatcher.poll();
+
+        ArgumentCaptor<DjWatchUsage> usageCaptor = ArgumentCaptor.forClass(DjWatchUsage.class);
+        verify(djWatchStore).setUsage(usageCaptor.capture());
+        assertThat(usageCaptor.getValue().getDay()).isEqualTo(TODAY);
+        assertThat(usageCaptor.getValue().getNumOfWakeups()).isEqualTo(1);
+        assertThat(usageCaptor.getValue().getNumOfBytes()).isEqualTo(3000L);
+    }
+
+    @Test
+    public void whenPolledDuringAutomation_thenScheduleNextPollInTheAutomationWindow() {
+        onAir(AUTOMATION_DJ_ID, true);
+        when(currentTrack.getRemainingTimeInSeconds()).thenReturn(20 * 60);
+
+        assertThat(djWatcher.poll()).isEqualTo(20 * 60 * 1000L + DjWatchPolicy.END_TIME_SLACK_IN_MILLIS);
+    }
+
+    @Test
+    public void whenOverTodaysBudget_thenScheduleNextPollAnHourFromNow() {
+        onAir(LIVE_DJ_ID, false);
+        when(djWatchStore.getUsage()).thenReturn(new DjWatchUsage(TODAY, DjWatchUsage.TARGET_WAKEUPS_PER_DAY, 0, 0));
+
+        assertThat(djWatcher.poll()).isEqualTo(DjWatchPolicy.OVER_BUDGET_DELAY_IN_MILLIS);
+    }
+
+    @Test
+    public void whenDataBudgetIsExhausted_thenDontLoadButStillScheduleNextPoll() {
+        when(dataBudget.getState()).thenReturn(DataBudgetState.EXHAUSTED);
+
+        assertThat(djWatcher.poll()).isEqualTo(DjWatchPolicy.OVER_BUDGET_DELAY_IN_MILLIS);
+
+        verify(radioRestService, never()).getRadioContent();
+    }
+
+    @Test
+    public void whenPollFails_thenScheduleARetry() throws IOException {
+        when(radioContentCall.execute()).thenThrow(new IOException());
+
+        assertThat(djWatcher.poll()).isEqualTo(DjWatchPolicy.FAILED_POLL_DELAY_IN_MILLIS);
+    }
+
+    @Test
+    public void whenResponseHasNoCurrentTrack_thenScheduleARetry() {
+        onAir(LIVE_DJ_ID, false);
+        when(radioContent.getCurrentTrack()).thenReturn(null);
+
+        assertThat(djWatcher.poll()).isEqualTo(DjWatchPolicy.FAILED_POLL_DELAY_IN_MILLIS);
+    }
+
+    @Test
+    public void whenHandlingTheResponseThrows_thenStillRecordTheWakeupAndScheduleARetry() {
+        when(radioContent.getCurrentDj()).thenThrow(new NullPointerException());
+
+        assertThat(djWatcher.poll()).isEqualTo(DjWatchPolicy.FAILED_POLL_DELAY_IN_MILLIS);
+
+        verify(djWatchStore).setUsage(any(DjWatchUsage.class));
+    }
+
+    @Test
+    public void whenPolled_thenLeaveSchedulingTheNextPollToTheCaller() {
+        onAir(AUTOMATION_DJ_ID, true);
+
+        djWatcher.poll();
+
+        verify(djWatchScheduler, never()).schedule(anyLong());
+    }
+
+    @Test
+    public void whenNextPollIsScheduled_thenScheduleItWithTheGivenDelay() {
+        djWatcher.scheduleNextPoll(DjWatchPolicy.FAILED_POLL_DELAY_IN_MILLIS);
+
+        verify(djWatchScheduler).schedule(DjWatchPolicy.FAILED_POLL_DELAY_IN_MILLIS);
+    }
+
+    @Test
+    public void whenNextPollIsScheduled_afterBeingTurnedOff_thenDontScheduleIt() {
+        when(djWatchStore.isEnabled()).thenReturn(false);
+
+        djWatcher.scheduleNextPoll(DjWatchPolicy.FAILED_POLL_DELAY_IN_MILLIS);
+
+        verify(djWatchScheduler, never()).schedule(anyLong());
+    }
+
+    @Test
+    public void whenDisabled_thenDoNothing() {
+        when(djWatchStore.isEnabled()).thenReturn(false);
+
+        assertThat(djWatcher.poll()).isEqualTo(DjWatcher.NO_NEXT_POLL);
+
+        verify(radioRestService, never()).getRadioContent();
+    }
+
+    @Test
+    public void whenTurnedOn_thenForgetLastSeenDjAndPollStraightAway() {
+        djWatcher.setEnabled(true);
+
+        verify(djWatchStore).setLastSeenDjId(DjWatchStore.NO_DJ_ID);
+        verify(djWatchScheduler).schedule(0);
+    }
+
+    @Test
+    public void whenTurnedOff_thenCancelNextPoll() {
+        djWatcher.setEnabled(false);
+
+        verify(djWatchStore).setEnabled(false);
+        verify(djWatchScheduler).cancel();
+    }
+
+    private void onAir(int djId, boolean isAfkStream) {
+        when(currentDj.getId()).thenReturn(djId);
+        when(radioContent.isAfkStream()).thenReturn(isAfkStream);
+    }
+}
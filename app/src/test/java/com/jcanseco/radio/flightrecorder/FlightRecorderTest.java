@@ -0,0 +1,149 @@
+package com.jcanseco.radio.flightrecorder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class FlightRecorderTest {
+
+    private TimeZone defaultTimeZone;
+    private ByteBuffer buffer;
+    private long currentTimeInMillis;
+    private FlightRecorder flightRecorder;
+
+    @Before
+    public void setup() {
+        defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        buffer = ByteBuffer.allocate(FlightRecorder.getSizeInBytes(4));
+        currentTimeInMillis = 60 * 60 * 1000;
+        flightRecorder = createFlightRecorder();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void testThatEventsAreExportedOldestFirstInCompactText() {
+        flightRecorder.record(FlightEventType.PLAY, 0);
+        currentTimeInMillis += 1500;
+        flightRecorder.record(FlightEventType.PLAYER_STATE, 1, "buffering");
+        currentTimeInMillis += 10;
+        flightRecorder.record(FlightEventType.BUFFER_LEVEL, 4200);
+
+        assertThat(export(0)).isEqualTo(
+                "01-01 01:00:00.000 PLAY\n"
+                        + "01-01 01:00:01.500 PLAYER_STATE play_when_ready=1 buffering\n"
+                        + "01-01 01:00:01.510 BUFFER_LEVEL buffered_ms=4200\n");
+    }
+
+    @Test
+    public void whenExportingTheLastFewMinutes_thenOlderEventsAreLeftOut() {
+        flightRecorder.record(FlightEventType.PLAY, 0);
+        currentTimeInMillis += 10 * 60 * 1000;
+        flightRecorder.record(FlightEventType.PAUSE, 0);
+
+        assertThat(export(currentTimeInMillis - 5 * 60 * 1000)).isEqualTo("01-01 01:10:00.000 PAUSE\n");
+    }
+
+    @Test
+    public void whenTheRingIsFull_thenTheOldestEventsAreOverwritten() {
+        for (int attempt = 1; attempt <= 6; attempt++) {
+            flightRecorder.record(FlightEventType.RECONNECT, attempt);
+        }
+
+        assertThat(export(0)).isEqualTo(
+                "01-01 01:00:00.000 RECONNECT attempt=3\n"
+                        + "01-01 01:00:00.000 RECONNECT attempt=4\n"
+                        + "01-01 01:00:00.000 RECONNECT attempt=5\n"
+                        + "01-01 01:00:00.000 RECONNECT attempt=6\n");
+    }
+
+    @Test
+    public void whenReopenedOnTheSameBuffer_thenEarlierEventsSurviveAndNewOnesFollowThem() {
+        flightRecorder.record(FlightEventType.PLAY, 0);
+        flightRecorder.record(FlightEventType.PLAYER_ERROR, 0, "ExoPlaybackException");
+
+        FlightRecorder reopenedFlightRecorder = createFlightRecorder();
+        reopenedFlightRecorder.record(FlightEventType.PROCESS_STARTED, 0);
+
+        StringWriter writer = new StringWriter();
+        reopenedFlightRecorder.export(new PrintWriter(writer), 0);
+        assertThat(writer.toString()).isEqualTo(
+                "01-01 01:00:00.000 PLAY\n"
+                        + "01-01 01:00:00.000 PLAYER_ERROR ExoPlaybackException\n"
+                        + "01-01 01:00:00.000 PROCESS_STARTED\n");
+    }
+
+    @Test(timeout = 10000)
+    public void whenExportingWhileAnotherThreadRecords_thenNoRecordIsExportedHalfWritten() throws Exception {
+        buffer = ByteBuffer.allocate(FlightRecorder.getSizeInBytes(8));
+        flightRecorder = createFlightRecorder();
+        Thread recordingThread = new Thread() {
+            @Override
+            public void run() {
+                for (int attempt = 1; attempt <= 200000; attempt++) {
+                    flightRecorder.record(FlightEventType.RECONNECT, attempt, "attempt " + attempt);
+                }
+            }
+        };
+        recordingThread.start();
+
+        while (recordingThread.isAlive()) {
+            for (String line : export(0).split("\n")) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String attempt = line.substring(line.indexOf("attempt=") + "attempt=".length(), line.indexOf(' ', line.indexOf("attempt=")));
+                assertThat(line).endsWith(" attempt " + attempt);
+            }
+        }
+        recordingThread.join();
+    }
+
+    @Test
+    public void whenDetailIsTooLongOrNotAscii_thenItIsCutShortAndSanitized() {
+        StringBuilder longDetail = new StringBuilder("caf\u00e9\n");
+        for (int i = 0; i < 200; i++) {
+            longDetail.append('x');
+        }
+
+        flightRecorder.record(FlightEventType.PLAYER_ERROR, 0, longDetail.toString());
+
+        String line = export(0).trim();
+        assertThat(line).startsWith("01-01 01:00:00.000 PLAYER_ERROR caf??xxx");
+        assertThat(line.length()).isLessThan(150);
+    }
+
+    @Test
+    public void testThatDescribingAnErrorListsItsCausesWithoutRepeatingThem() {
+        Exception error = new RuntimeException(new IOException("Connection reset"));
+
+        assertThat(FlightRecorder.describe(error)).isEqualTo("RuntimeException <- IOException: Connection reset");
+    }
+
+    private FlightRecorder createFlightRecorder() {
+        return new FlightRecorder(buffer) {
+            @Override
+            protected long getCurrentTimeInMillis() {
+                return currentTimeInMillis;
+            }
+        };
+    }
+
+    private String export(long sinceTimeInMillis) {
+        StringWriter writer = new StringWriter();
+        flightRecorder.export(new PrintWriter(writer), sinceTimeInMillis);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package com.jcanseco.radio.history;
+
+import com.jcanseco.radio.models.Track;
+import com.jcanseco.radio.testutilities.Benchmark;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+// A year of polls, each returning the last five tracks like the API does, from a library of a few thousand artists.
+// Titles are built from random syllables, so artist names are as spread out across the index as real ones are.
+@Category(Benchmark.class)
+public class PlayHistoryStoreBenchmarkTest {
+
+    private static final long YEAR_START_IN_UNIX_TIME = 1451606400;
+    private static final int AVERAGE_TRACK_LENGTH_IN_SECONDS = 240;
+    private static final int NUM_OF_PLAYS = 365 * 24 * 60 * 60 / AVERAGE_TRACK_LENGTH_IN_SECONDS;
+    private static final int NUM_OF_ARTISTS = 2000;
+    private static final int NUM_OF_SONGS_PER_ARTIST = 10;
+    private static final int NUM_OF_TRACKS_PER_POLL = 5;
+    private static final int NUM_OF_SEARCHES = 200;
+
+    private static final String[] SYLLABLES = {
+            "ka", "ki", "ku", "ke", "ko", "sa", "shi", "su", "se", "so", "ta", "chi", "tsu", "te", "to", "na", "ni",
+            "nu", "ne", "no", "ha", "hi", "fu", "he", "ho", "ma", "mi", "mu", "me", "mo", "ya", "yu", "yo", "ra", "ri",
+            "ru", "re", "ro", "wa", "n"
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private long currentTimeInUnixTime;
+
+    @Test
+    public void benchmarkIngestionAndSearchOverAYearOfHistory() {
+        Random random = new Random(42);
+        String[] artists = new String[NUM_OF_ARTISTS];
+        for (int i = 0; i < NUM_OF_ARTISTS; i++) {
+            artists[i] = buildWord(random) + " " + buildWord(random);
+        }
+        String[] titles = new String[NUM_OF_ARTISTS * NUM_OF_SONGS_PER_ARTIST];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = artists[i / NUM_OF_SONGS_PER_ARTIST] + " - " + buildWord(random) + " " + buildWord(random);
+        }
+        List<Track> plays = new ArrayList<>(NUM_OF_PLAYS);
+        for (int i = 0; i < NUM_OF_PLAYS; i++) {
+            // A few popular artists get most of the plays, like on the real station.
+            int titleIndex = (int) (Math.pow(random.nextDouble(), 3) * titles.length);
+            plays.add(new Track(titles[titleIndex], YEAR_START_IN_UNIX_TIME + (long) i * AVERAGE_TRACK_LENGTH_IN_SECONDS));
+        }
+        currentTimeInUnixTime = plays.get(plays.size() - 1).getTimestampInUnixTime();
+
+        File file = new File(temporaryFolder.getRoot(), "play_history");
+        PlayHistoryStore playHistoryStore = createPlayHistoryStore(file);
+        long startTimeInNanos = System.nanoTime();
+        for (int i = 0; i < NUM_OF_PLAYS; i++) {
+            playHistoryStore.ingest(getLastPlayedTracks(plays, i));
+        }
+        long ingestionTimeInNanos = System.nanoTime() - startTimeInNanos;
+
+        startTimeInNanos = System.nanoTime();
+        PlayHistoryStore reopenedPlayHistoryStore = createPlayHistoryStore(file);
+        long loadTimeInNanos = System.nanoTime() - startTimeInNanos;
+
+        long worstSearchTimeInNanos = 0;
+        long totalSearchTimeInNanos = 0;
+        int numOfResults = 0;
+        for (int i = 0; i < NUM_OF_SEARCHES; i++) {
+            String artist = artists[random.nextInt(NUM_OF_ARTISTS)];
+            startTimeInNanos = System.nanoTime();
+            numOfResults += reopenedPlayHistoryStore.search(artist, Integer.MAX_VALUE).size();
+            long searchTimeInNanos = System.nanoTime() - startTimeInNanos;
+            worstSearchTimeInNanos = Math.max(worstSearchTimeInNanos, searchTimeInNanos);
+            totalSearchTimeInNanos += searchTimeInNanos;
+        }
+
+        System.out.printf("PlayHistoryStore: %d plays of %d titles in %d KB, ingested at %d us per poll, loaded in %d ms, "
+                        + "searched in %d us on average and %d us at worst (%d results)%n",
+                reopenedPlayHistoryStore.getNumOfPlays(), reopenedPlayHistoryStore.getNumOfTitles(), file.length() / 1024,
+                ingestionTimeInNanos / NUM_OF_PLAYS / 1000, loadTimeInNanos / 1000000,
+                totalSearchTimeInNanos / NUM_OF_SEARCHES / 1000, worstSearchTimeInNanos / 1000, numOfResults);
+        assertThat(reopenedPlayHistoryStore.getNumOfPlays()).isEqualTo(NUM_OF_PLAYS);
+        // Plays are 9 bytes each, and titles are only written once.
+        assertThat(file.length()).isLessThan(NUM_OF_PLAYS * 9L + titles.length * 64L);
+    }
+
+    // The poll that came after a play, which returns it along with the four before it, newest first.
+    private static List<Track> getLastPlayedTracks(List<Track> plays, int newestPlayIndex) {
+        List<Track> lastPlayedTracks = new ArrayList<>(NUM_OF_TRACKS_PER_POLL);
+        for (int i = newestPlayIndex; i >= 0 && i > newestPlayIndex - NUM_OF_TRACKS_PER_POLL; i--) {
+            lastPlayedTracks.add(plays.get(i));
+        }
+        return lastPlayedTracks;
+    }
+
+    private static String buildWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int numOfSyllables = 2 + random.nextInt(3);
+        for (int i = 0; i < numOfSyllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    private PlayHistoryStore createPlayHistoryStore(File file) {
+        PlayHistoryStore playHistoryStore = new PlayHistoryStore(file) {
+            @Override
+            protected Executor initNewExecutor() {
+                return new Executor() {
+                    @Override
+                    public void execute(Runnable runnable) {
+                        runnable.run();
+                    }
+                };
+            }
+
+            @Override
+            protected long getCurrentTimeInUnixTime() {
+                return currentTimeInUnixTime;
+            }
+        };
+        playHistoryStore.open();
+        return playHistoryStore;
+    }
+}
@@ -0,0 +1,204 @@
+package com.jcanseco.radio.history;
+
+import com.jcanseco.radio.models.RadioContent;
+import com.jcanseco.radio.models.Track;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PlayHistoryStoreTest {
+
+    private static final long NOW_IN_UNIX_TIME = 1458341547;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private long currentTimeInUnixTime;
+    private PlayHistoryStore playHistoryStore;
+
+    @Before
+    public void setup() {
+        file = new File(temporaryFolder.getRoot(), "play_history");
+        currentTimeInUnixTime = NOW_IN_UNIX_TIME;
+        playHistoryStore = openPlayHistoryStore();
+    }
+
+    @Test
+    public void whenSearched_thenReturnPlaysOfTitlesWithEveryWordNewestFirst() {
+        playHistoryStore.ingest(Arrays.asList(
+                new Track("Ayumi Hamasaki - Dearest", NOW_IN_UNIX_TIME - 300),
+                new Track("Hamasaki Ayumi - Moments", NOW_IN_UNIX_TIME - 200),
+                new Track("Ayumi Hamasaki - Dearest", NOW_IN_UNIX_TIME - 100),
+                new Track("Yoshida Hitomi - Kono Sora no Mukou", NOW_IN_UNIX_TIME - 50)));
+
+        List<PlayHistoryEntry> entries = playHistoryStore.search("hamasaki AYUMI", 10);
+
+        assertThat(getTitles(entries)).containsExactly("Ayumi Hamasaki - Dearest", "Hamasaki Ayumi - Moments",
+                "Ayumi Hamasaki - Dearest");
+        assertThat(entries.get(0).getTimestampInUnixTime()).isEqualTo(NOW_IN_UNIX_TIME - 100);
+        assertThat(playHistoryStore.search("hamasaki sora", 10)).isEmpty();
+        assertThat(playHistoryStore.search("", 10)).isEmpty();
+    }
+
+    @Test
+    public void whenSearched_thenReturnNoMoreThanTheMaxNumOfResults() {
+        playHistoryStore.ingest(Arrays.asList(new Track("a - b", NOW_IN_UNIX_TIME - 3), new Track("a - b", NOW_IN_UNIX_TIME - 2),
+                new Track("a - b", NOW_IN_UNIX_TIME - 1)));
+
+        assertThat(playHistoryStore.search("a", 2)).hasSize(2);
+    }
+
+    @Test
+    public void whenPollsOverlap_thenEachPlayIsOnlyKeptOnce() {
+        playHistoryStore.ingest(Arrays.asList(new Track("c", NOW_IN_UNIX_TIME - 20), new Track("b", NOW_IN_UNIX_TIME - 30),
+                new Track("a", NOW_IN_UNIX_TIME - 40)));
+        playHistoryStore.ingest(Arrays.asList(new Track("d", NOW_IN_UNIX_TIME - 10), new Track("c", NOW_IN_UNIX_TIME - 20),
+                new Track("b", NOW_IN_UNIX_TIME - 30)));
+
+        assertThat(playHistoryStore.getNumOfPlays()).isEqualTo(4);
+        assertThat(playHistoryStore.getNumOfTitles()).isEqualTo(4);
+    }
+
+    @Test
+    public void whenSameTitleIsPlayedAgain_thenOnlyStoreTheTitleOnce() {
+        playHistoryStore.ingest(Arrays.asList(new Track("a", NOW_IN_UNIX_TIME - 10), new Track("a", NOW_IN_UNIX_TIME - 30)));
+
+        assertThat(playHistoryStore.getNumOfPlays()).isEqualTo(2);
+        assertThat(playHistoryStore.getNumOfTitles()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenTrackHasNoTitleOrTimestamp_thenSkipIt() {
+        playHistoryStore.ingest(Arrays.asList(new Track(null, NOW_IN_UNIX_TIME - 30), new Track("a", 0)));
+
+        assertThat(playHistoryStore.getNumOfPlays()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenRadioContentIsLoaded_thenIngestItsLastPlayedTracks() {
+        RadioContent radioContent = mock(RadioContent.class);
+        when(radioContent.getLastPlayedTracks()).thenReturn(Arrays.asList(new Track("a - title", NOW_IN_UNIX_TIME - 10)));
+
+        playHistoryStore.onRadioContentLoaded(radioContent);
+
+        assertThat(getTitles(playHistoryStore.search("title", 10))).containsExactly("a - title");
+    }
+
+    @Test
+    public void whenRadioContentHasNoLastPlayedTracks_thenIngestNothing() {
+        playHistoryStore.onRadioContentLoaded(mock(RadioContent.class));
+
+        assertThat(playHistoryStore.getNumOfPlays()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenReopened_thenEverythingIngestedIsReadBack() {
+        playHistoryStore.ingest(Arrays.asList(new Track("b - title", NOW_IN_UNIX_TIME - 20),
+                new Track("a - title", NOW_IN_UNIX_TIME - 30)));
+        playHistoryStore.ingest(Arrays.asList(new Track("a - title", NOW_IN_UNIX_TIME - 10)));
+
+        PlayHistoryStore reopenedPlayHistoryStore = openPlayHistoryStore();
+
+        assertThat(reopenedPlayHistoryStore.getNumOfPlays()).isEqualTo(3);
+        assertThat(getTitles(reopenedPlayHistoryStore.search("title", 10))).containsExactly("a - title", "b - title", "a - title");
+    }
+
+    @Test
+    public void whenLastRecordWasOnlyPartlyWritten_thenDropItAndKeepAppending() throws IOException {
+        playHistoryStore.ingest(Arrays.asList(new Track("b", NOW_IN_UNIX_TIME - 20), new Track("a", NOW_IN_UNIX_TIME - 30)));
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(file.length() - 3);
+        randomAccessFile.close();
+
+        PlayHistoryStore reopenedPlayHistoryStore = openPlayHistoryStore();
+        reopenedPlayHistoryStore.ingest(Arrays.asList(new Track("c", NOW_IN_UNIX_TIME - 10)));
+
+        assertThat(openPlayHistoryStore().getNumOfPlays()).isEqualTo(2);
+        assertThat(getTitles(openPlayHistoryStore().search("c", 10))).containsExactly("c");
+    }
+
+    @Test
+    public void whenFileIsNotAPlayHistory_thenStartOver() throws IOException {
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        outputStream.close();
+
+        PlayHistoryStore playHistoryStore = openPlayHistoryStore();
+        playHistoryStore.ingest(Arrays.asList(new Track("a", NOW_IN_UNIX_TIME - 10)));
+
+        assertThat(openPlayHistoryStore().getNumOfPlays()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenEnoughPlaysHaveBeenAppended_thenCompactAwayExpiredPlaysAndTheirTitles() {
+        long expiredTimestamp = NOW_IN_UNIX_TIME - PlayHistoryStore.RETENTION_IN_SECONDS - 1;
+        playHistoryStore.ingest(Arrays.asList(new Track("expired", expiredTimestamp)));
+
+        List<Track> tracks = new ArrayList<>();
+        for (int i = 1; i < PlayHistoryStore.NUM_OF_APPENDED_PLAYS_BETWEEN_COMPACTIONS; i++) {
+            tracks.add(new Track("kept " + (i % 10), NOW_IN_UNIX_TIME - i));
+        }
+        playHistoryStore.ingest(tracks);
+
+        assertThat(playHistoryStore.getNumOfPlays()).isEqualTo(PlayHistoryStore.NUM_OF_APPENDED_PLAYS_BETWEEN_COMPACTIONS - 1);
+        assertThat(playHistoryStore.getNumOfTitles()).isEqualTo(10);
+        assertThat(playHistoryStore.search("expired", 10)).isEmpty();
+        assertThat(openPlayHistoryStore().getNumOfPlays()).isEqualTo(PlayHistoryStore.NUM_OF_APPENDED_PLAYS_BETWEEN_COMPACTIONS - 1);
+    }
+
+    @Test
+    public void whenOpenedWithExpiredPlays_thenCompactStraightAway() {
+        playHistoryStore.ingest(Arrays.asList(new Track("new", NOW_IN_UNIX_TIME), new Track("old", NOW_IN_UNIX_TIME - 100)));
+
+        currentTimeInUnixTime = NOW_IN_UNIX_TIME + PlayHistoryStore.RETENTION_IN_SECONDS - 50;
+        PlayHistoryStore reopenedPlayHistoryStore = openPlayHistoryStore();
+
+        assertThat(reopenedPlayHistoryStore.getNumOfPlays()).isEqualTo(1);
+        assertThat(reopenedPlayHistoryStore.getNumOfTitles()).isEqualTo(1);
+    }
+
+    private PlayHistoryStore openPlayHistoryStore() {
+        PlayHistoryStore playHistoryStore = new PlayHistoryStore(file) {
+            @Override
+            protected Executor initNewExecutor() {
+                return new Executor() {
+                    @Override
+                    public void execute(Runnable runnable) {
+                        runnable.run();
+                    }
+                };
+            }
+
+            @Override
+            protected long getCurrentTimeInUnixTime() {
+                return currentTimeInUnixTime;
+            }
+        };
+        playHistoryStore.open();
+        return playHistoryStore;
+    }
+
+    private static List<String> getTitles(List<PlayHistoryEntry> entries) {
+        List<String> titles = new ArrayList<>();
+        for (PlayHistoryEntry entry : entries) {
+            titles.add(entry.getTitle());
+        }
+        return titles;
+    }
+}
@@ -0,0 +1,98 @@
+package com.jcanseco.radio.listeners;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ListenerCountSeriesTest {
+
+    private static final int NO_SAMPLES = ListenerCountSeries.NO_SAMPLES;
+
+    @Test
+    public void whenFull_thenOverwriteOldestSamples() {
+        ListenerCountSeries series = new ListenerCountSeries(3);
+        for (int i = 1; i <= 5; i++) {
+            series.add(i * 10, i);
+        }
+
+        assertThat(series.size()).isEqualTo(3);
+        assertThat(series.getTimestamp(0)).isEqualTo(30);
+        assertThat(series.getCount(0)).isEqualTo(3);
+        assertThat(series.getTimestamp(2)).isEqualTo(50);
+        assertThat(series.getCount(2)).isEqualTo(5);
+    }
+
+    @Test
+    public void whenSampleIsNotNewerThanNewest_thenDropIt() {
+        ListenerCountSeries series = new ListenerCountSeries(3);
+        series.add(20, 1);
+
+        assertThat(series.add(20, 2)).isFalse();
+        assertThat(series.add(10, 2)).isFalse();
+        assertThat(series.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenDownsampled_thenKeepSmallestAndLargestCountOfEachBucket() {
+        ListenerCountSeries series = new ListenerCountSeries(16);
+        series.add(100, 5);
+        series.add(101, 9);
+        series.add(102, 7);
+        series.add(115, 3);
+        series.add(130, 4);
+        int[] minCounts = new int[4];
+        int[] maxCounts = new int[4];
+
+        int numOfFilledBuckets = series.downsample(100, 140, minCounts, maxCounts);
+
+        assertThat(numOfFilledBuckets).isEqualTo(3);
+        assertThat(minCounts).containsExactly(5, 3, NO_SAMPLES, 4);
+        assertThat(maxCounts).containsExactly(9, 3, NO_SAMPLES, 4);
+    }
+
+    @Test
+    public void whenDownsampled_thenLeaveOutSamplesOutsideTheRange() {
+        ListenerCountSeries series = new ListenerCountSeries(16);
+        series.add(50, 100);
+        series.add(110, 1);
+        series.add(200, 100);
+        int[] minCounts = new int[2];
+        int[] maxCounts = new int[2];
+
+        series.downsample(100, 200, minCounts, maxCounts);
+
+        assertThat(minCounts).containsExactly(1, NO_SAMPLES);
+        assertThat(maxCounts).containsExactly(1, NO_SAMPLES);
+    }
+
+    @Test
+    public void whenDownsampledAfterWrappingAround_thenSamplesStayInTimeOrder() {
+        ListenerCountSeries series = new ListenerCountSeries(4);
+        for (int i = 0; i < 10; i++) {
+            series.add(i, i);
+        }
+        int[] minCounts = new int[4];
+        int[] maxCounts = new int[4];
+
+        series.downsample(6, 10, minCounts, maxCounts);
+
+        assertThat(minCounts).containsExactly(6, 7, 8, 9);
+        assertThat(series.indexOfFirstAtOrAfter(8)).isEqualTo(2);
+    }
+
+    @Test
+    public void whenCopiedAfterWrappingAround_thenOnlySamplesFromTheTimestampOnAreCopiedInTimeOrder() {
+        ListenerCountSeries series = new ListenerCountSeries(4);
+        for (int i = 0; i < 10; i++) {
+            series.add(i, i * 10);
+        }
+        long[] timestampsInUnixTime = new long[3];
+        int[] counts = new int[3];
+
+        int numOfSamples = series.copySamplesAtOrAfter(7, timestampsInUnixTime, counts);
+
+        assertThat(numOfSamples).isEqualTo(3);
+        assertThat(timestampsInUnixTime).containsExactly(7, 8, 9);
+        assertThat(counts).containsExactly(70, 80, 90);
+    }
+}
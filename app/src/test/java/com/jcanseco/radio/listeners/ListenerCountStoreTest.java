@@ -0,0 +1,152 @@
+package com.jcanseco.radio.listeners;
+
+import com.jcanseco.radio.models.RadioContent;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ListenerCountStoreTest {
+
+    private static final long NOW_IN_UNIX_TIME = 1458341547;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private long currentTimeInUnixTime;
+    private ListenerCountStore listenerCountStore;
+
+    @Before
+    public void setup() {
+        file = new File(temporaryFolder.getRoot(), "listener_counts");
+        currentTimeInUnixTime = NOW_IN_UNIX_TIME;
+        listenerCountStore = openListenerCountStore();
+    }
+
+    @Test
+    public void whenReopened_thenEveryRecordedCountIsReadBack() {
+        recordEvery(240, 253, 260, 241, 0, 1000000);
+
+        ListenerCountSeries series = openListenerCountStore().getSeries();
+
+        assertThat(series.size()).isEqualTo(5);
+        for (int i = 0; i < series.size(); i++) {
+            assertThat(series.getTimestamp(i)).isEqualTo(listenerCountStore.getSeries().getTimestamp(i));
+            assertThat(series.getCount(i)).isEqualTo(listenerCountStore.getSeries().getCount(i));
+        }
+    }
+
+    @Test
+    public void whenRadioContentIsLoaded_thenRecordItsNumOfListeners() {
+        RadioContent radioContent = mock(RadioContent.class);
+        when(radioContent.getNumOfListeners()).thenReturn(253);
+
+        listenerCountStore.onRadioContentLoaded(radioContent);
+
+        assertThat(listenerCountStore.getSeries().size()).isEqualTo(1);
+        assertThat(listenerCountStore.getSeries().getCount(0)).isEqualTo(253);
+    }
+
+    @Test
+    public void whenCountsChangeALittleEachPoll_thenEachSampleTakesAFewBytes() {
+        for (int i = 0; i < 1000; i++) {
+            recordEvery(240, 250 + i % 7);
+        }
+
+        // A header, then a 2 byte time delta and a 1 byte count delta a sample, after the first.
+        assertThat(file.length()).isLessThan(5 + 1000 * 3 + 10);
+    }
+
+    @Test
+    public void whenClockGoesBackwards_thenDropTheCount() {
+        recordEvery(240, 253);
+        currentTimeInUnixTime -= 60;
+        listenerCountStore.record(300);
+
+        assertThat(listenerCountStore.getSeries().size()).isEqualTo(1);
+        assertThat(openListenerCountStore().getSeries().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenLastSampleWasOnlyPartlyWritten_thenDropItAndKeepAppending() throws IOException {
+        recordEvery(240, 253, 300000);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(file.length() - 1);
+        randomAccessFile.close();
+
+        ListenerCountStore reopenedListenerCountStore = openListenerCountStore();
+        currentTimeInUnixTime += 240;
+        reopenedListenerCountStore.record(42);
+
+        ListenerCountSeries series = openListenerCountStore().getSeries();
+        assertThat(series.size()).isEqualTo(2);
+        assertThat(series.getCount(0)).isEqualTo(253);
+        assertThat(series.getCount(1)).isEqualTo(42);
+        assertThat(series.getTimestamp(1)).isEqualTo(currentTimeInUnixTime);
+    }
+
+    @Test
+    public void whenFileIsNotAListenerCountLog_thenStartOver() throws IOException {
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        outputStream.close();
+
+        listenerCountStore = openListenerCountStore();
+        recordEvery(240, 253);
+
+        assertThat(openListenerCountStore().getSeries().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenFileHoldsTwiceWhatTheSeriesCan_thenRewriteItWithTheSeries() {
+        for (int i = 0; i < 2 * ListenerCountStore.CAPACITY; i++) {
+            recordEvery(240, i);
+        }
+
+        ListenerCountSeries series = openListenerCountStore().getSeries();
+
+        assertThat(file.length()).isLessThan(5 + ListenerCountStore.CAPACITY * 4 + 10);
+        assertThat(series.size()).isEqualTo(ListenerCountStore.CAPACITY);
+        assertThat(series.getCount(series.size() - 1)).isEqualTo(2 * ListenerCountStore.CAPACITY - 1);
+    }
+
+    private void recordEvery(int intervalInSeconds, int... counts) {
+        for (int count : counts) {
+            currentTimeInUnixTime += intervalInSeconds;
+            listenerCountStore.record(count);
+        }
+    }
+
+    private ListenerCountStore openListenerCountStore() {
+        ListenerCountStore listenerCountStore = new ListenerCountStore(file) {
+            @Override
+            protected Executor initNewExecutor() {
+                return new Executor() {
+                    @Override
+                    public void execute(Runnable runnable) {
+                        runnable.run();
+                    }
+                };
+            }
+
+            @Override
+            protected long getCurrentTimeInUnixTime() {
+                return currentTimeInUnixTime;
+            }
+        };
+        listenerCountStore.open();
+        return listenerCountStore;
+    }
+}
@@ -0,0 +1,110 @@
+package com.jcanseco.radio.loaders;
+
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.models.NowPlayingTrack;
+import com.jcanseco.radio.models.RadioContent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MetadataLagTrackerTest {
+
+    // The server's clock runs two seconds ahead of ours.
+    private static final long SERVER_CLOCK_OFFSET_IN_MILLIS = 2000;
+
+    private MetricsRegistry metricsRegistry;
+    private MetadataLagTracker metadataLagTracker;
+
+    private long currentTimeInMillis;
+
+    @Before
+    public void setup() {
+        metricsRegistry = new MetricsRegistry();
+        metadataLagTracker = new MetadataLagTracker(metricsRegistry) {
+            @Override
+            protected long getCurrentTimeInMillis() {
+                return currentTimeInMillis;
+            }
+        };
+    }
+
+    @Test
+    public void onTrackChange_shouldRecordLagFromServerTrackStartToDisplayBrokenDownIntoItsParts() {
+        load(100400, 90);
+        metadataLagTracker.onTrackTitleDisplayed();
+
+        // The new track started at 108 s server time, which is 106 s local time.
+        load(110400, 108);
+        currentTimeInMillis = 110700;
+        metadataLagTracker.onTrackTitleDisplayed();
+
+        assertThat(metricsRegistry.gauge("metadata.server_clock_offset_ms").get()).isEqualTo(SERVER_CLOCK_OFFSET_IN_MILLIS);
+        assertThat(metricsRegistry.histogram("metadata.lag.total_ms").getCount()).isEqualTo(1);
+        assertThat(metricsRegistry.histogram("metadata.lag.total_ms").getMax()).isEqualTo(4700);
+        assertThat(metricsRegistry.histogram("metadata.lag.scheduling_ms").getMax()).isEqualTo(4400);
+        assertThat(metricsRegistry.histogram("metadata.lag.network_ms").getMax()).isEqualTo(200);
+        assertThat(metricsRegistry.histogram("metadata.lag.parse_ms").getMax()).isEqualTo(50);
+        assertThat(metricsRegistry.histogram("metadata.lag.ui_dispatch_ms").getMax()).isEqualTo(50);
+    }
+
+    @Test
+    public void whenFirstTrackIsSeen_thenDontRecordLagSinceItCouldHaveStartedLongAgo() {
+        load(100400, 90);
+        metadataLagTracker.onTrackTitleDisplayed();
+
+        assertThat(metricsRegistry.histogram("metadata.lag.total_ms").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenTrackIsUnchanged_thenDontRecordLag() {
+        load(100400, 90);
+        load(105400, 90);
+        metadataLagTracker.onTrackTitleDisplayed();
+
+        assertThat(metricsRegistry.histogram("metadata.lag.total_ms").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenTitleIsDisplayedAgain_thenOnlyRecordLagOnce() {
+        load(100400, 90);
+        load(110400, 108);
+        metadataLagTracker.onTrackTitleDisplayed();
+        metadataLagTracker.onTrackTitleDisplayed();
+
+        assertThat(metricsRegistry.histogram("metadata.lag.total_ms").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenReset_thenNextTrackSeenIsNotTakenAsATrackChange() {
+        load(100400, 90);
+        metadataLagTracker.reset();
+        load(500400, 480);
+        metadataLagTracker.onTrackTitleDisplayed();
+
+        assertThat(metricsRegistry.histogram("metadata.lag.total_ms").getCount()).isEqualTo(0);
+    }
+
+    // The response takes 200 ms to arrive and 50 ms to parse, and the server stamps it halfway through the round trip.
+    private void load(long requestStartedAtMillis, long trackStartTimeInUnixTime) {
+        currentTimeInMillis = requestStartedAtMillis;
+        metadataLagTracker.onRequestStarted();
+
+        long parseStartedAtMillis = requestStartedAtMillis + 200;
+        long serverTimeInMillis = requestStartedAtMillis + 100 + SERVER_CLOCK_OFFSET_IN_MILLIS;
+        Date serverDate = new Date(serverTimeInMillis / 1000 * 1000);
+
+        RadioContent radioContent = mock(RadioContent.class);
+        when(radioContent.getCurrentTrack()).thenReturn(new NowPlayingTrack("title", trackStartTimeInUnixTime, trackStartTimeInUnixTime + 200));
+        when(radioContent.getParseStartedAtMillis()).thenReturn(parseStartedAtMillis);
+        when(radioContent.getParseFinishedAtMillis()).thenReturn(parseStartedAtMillis + 50);
+
+        currentTimeInMillis = parseStartedAtMillis + 50;
+        metadataLagTracker.onRadioContentLoaded(radioContent, serverDate);
+    }
+}
@@ -1,6 +1,8 @@
 package com.jcanseco.radio.loaders;
 
 import com.jcanseco.radio.api.RadioRestService;
+import com.jcanseco.radio.datausage.DataBudget;
+import com.jcanseco.radio.datausage.DataBudgetState;
 import com.jcanseco.radio.models.NowPlayingTrack;
 import com.jcanseco.radio.models.RadioContent;
 
@@ -11,6 +13,8 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Arrays;
+import java.util.Date;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -51,9 +55,22 @@ public class RadioContentLoaderTest {
     @Mock
     private Timer timer;
 
+    @Mock
+    private DataBudget dataBudget;
+
+    @Mock
+    private MetadataLagTracker metadataLagTracker;
+
+    @Mock
+    private RadioContentLoader.RadioContentSubscriber firstRadioContentSubscriber;
+
+    @Mock
+    private RadioContentLoader.RadioContentSubscriber secondRadioContentSubscriber;
+
     @Before
     public void setup() {
-        radioContentLoader = spy(new RadioContentLoader(radioRestService));
+        radioContentLoader = spy(new RadioContentLoader(radioRestService, dataBudget, metadataLagTracker,
+                Arrays.asList(firstRadioContentSubscriber, secondRadioContentSubscriber)));
         radioContentLoader.setRadioContentListener(radioContentListener);
 
         when(radioContentLoader.initNewTimer()).thenReturn(timer);
@@ -61,6 +78,7 @@ public class RadioContentLoaderTest {
         doNothing().when(timer).schedule(any(TimerTask.class), anyLong());
 
         when(radioRestService.getRadioContent()).thenReturn(radioContentCall);
+        when(dataBudget.getState()).thenReturn(DataBudgetState.WITHIN_BUDGET);
     }
 
     @Test
@@ -141,6 +159,31 @@ public class RadioContentLoaderTest {
         verify(timer).schedule(any(TimerTask.class), eq(5000L));
     }
 
+    @Test
+    public void onNetworkResponseSuccess_ifDataBudgetIsNearlyExhausted_thenScheduleNextLoadTaskNoSoonerThanAMinuteFromNow() {
+        when(radioContentLoader.isSetupForScheduledLoading()).thenReturn(true);
+        when(radioContent.getCurrentTrack()).thenReturn(mock(NowPlayingTrack.class));
+        when(radioContent.getCurrentTrack().getRemainingTimeInSeconds()).thenReturn(NowPlayingTrack.INVALID_TIME_VALUE);
+        when(dataBudget.getState()).thenReturn(DataBudgetState.NEARLY_EXHAUSTED);
+
+        radioContentLoader.onResponse(radioContentCall, getSuccessfulNetworkResponse());
+
+        verify(timer).schedule(any(TimerTask.class), eq(60000L));
+    }
+
+    @Test
+    public void onNetworkResponseSuccess_ifDataBudgetIsExhausted_thenDontScheduleNextLoadTask() {
+        when(radioContentLoader.isSetupForScheduledLoading()).thenReturn(true);
+        when(radioContent.getCurrentTrack()).thenReturn(mock(NowPlayingTrack.class));
+        when(radioContent.getCurrentTrack().getRemainingTimeInSeconds()).thenReturn(142);
+        when(dataBudget.getState()).thenReturn(DataBudgetState.EXHAUSTED);
+
+        radioContentLoader.onResponse(radioContentCall, getSuccessfulNetworkResponse());
+
+        verify(timer, never()).schedule(any(TimerTask.class), anyLong());
+        verify(radioContentListener).onRadioContentLoadSuccess(radioContent);
+    }
+
     @Test
     public void onNetworkResponseSuccess_shouldNotifyListenerOfLoadSuccess() {
         radioContentLoader.onResponse(radioContentCall, getSuccessfulNetworkResponse());
@@ -148,6 +191,56 @@ public class RadioContentLoaderTest {
         verify(radioContentListener).onRadioContentLoadSuccess(any(RadioContent.class));
     }
 
+    @Test
+    public void onNetworkResponseSuccess_shouldPassLoadedContentToMetadataLagTrackerBeforeNotifyingListener() {
+        radioContentLoader.onResponse(radioContentCall, getSuccessfulNetworkResponse());
+
+        InOrder inOrder = inOrder(metadataLagTracker, radioContentListener);
+        inOrder.verify(metadataLagTracker).onRadioContentLoaded(eq(radioContent), any(Date.class));
+        inOrder.verify(radioContentListener).onRadioContentLoadSuccess(radioContent);
+    }
+
+    @Test
+    public void onNetworkResponseSuccess_shouldHandLoadedContentToSubscribersInOrderBeforeNotifyingListener() {
+        radioContentLoader.onResponse(radioContentCall, getSuccessfulNetworkResponse());
+
+        InOrder inOrder = inOrder(firstRadioContentSubscriber, secondRadioContentSubscriber, radioContentListener);
+        inOrder.verify(firstRadioContentSubscriber).onRadioContentLoaded(radioContent);
+        inOrder.verify(secondRadioContentSubscriber).onRadioContentLoaded(radioContent);
+        inOrder.verify(radioContentListener).onRadioContentLoadSuccess(radioContent);
+    }
+
+    @Test
+    public void onNetworkResponseSuccess_withoutListener_shouldStillHandLoadedContentToSubscribers() {
+        radioContentLoader.setRadioContentListener(null);
+
+        radioContentLoader.onResponse(radioContentCall, getSuccessfulNetworkResponse());
+
+        verify(firstRadioContentSubscriber).onRadioContentLoaded(radioContent);
+        verify(secondRadioContentSubscriber).onRadioContentLoaded(radioContent);
+    }
+
+    @Test
+    public void onNetworkResponseFailure_shouldNotHandAnythingToSubscribers() {
+        radioContentLoader.onResponse(radioContentCall, getFailedNetworkResponse());
+
+        verify(firstRadioContentSubscriber, never()).onRadioContentLoaded(any(RadioContent.class));
+    }
+
+    @Test
+    public void whenLoadContentInvoked_shouldTellMetadataLagTrackerThatRequestStarted() {
+        radioContentLoader.loadContent();
+
+        verify(metadataLagTracker).onRequestStarted();
+    }
+
+    @Test
+    public void whenStopScheduledLoadingOfContentInvoked_shouldResetMetadataLagTracker() {
+        radioContentLoader.stopScheduledLoadingOfContent();
+
+        verify(metadataLagTracker).reset();
+    }
+
     @Test
     public void onNetworkResponseFailure_shouldNotifyListenerOfLoadFailure() {
         radioContentLoader.onResponse(radioContentCall, getFailedNetworkResponse());
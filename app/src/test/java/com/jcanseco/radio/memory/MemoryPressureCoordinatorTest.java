@@ -0,0 +1,181 @@
+package com.jcanseco.radio.memory;
+
+import android.content.ComponentCallbacks2;
+
+import com.jcanseco.radio.players.trackrenderers.StreamBufferBudget;
+import com.jcanseco.radio.tasks.MemoryPressureRecoveryTimerTask;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MemoryPressureCoordinatorTest {
+
+    private static final int DEFAULT_STREAM_BUFFER_SIZE_IN_BYTES = 64 * 1024;
+
+    private MemoryPressureCoordinator memoryPressureCoordinator;
+    private StreamBufferBudget streamBufferBudget;
+
+    @Mock
+    private MemoryTrimmable trimmable;
+
+    @Mock
+    private Timer timer;
+
+    @Before
+    public void setup() {
+        memoryPressureCoordinator = spy(new MemoryPressureCoordinator());
+        doReturn(timer).when(memoryPressureCoordinator).initNewTimer();
+        doReturn(timer).when(memoryPressureCoordinator).getTimer();
+        doNothing().when(timer).schedule(any(TimerTask.class), anyLong());
+
+        streamBufferBudget = new StreamBufferBudget();
+        memoryPressureCoordinator.register(streamBufferBudget);
+        memoryPressureCoordinator.register(trimmable);
+    }
+
+    @Test
+    public void shouldNotBeUnderMemoryPressureByDefault() {
+        assertThat(memoryPressureCoordinator.getMemoryPressure()).isEqualTo(MemoryPressure.NONE);
+        assertThat(streamBufferBudget.getRequestedBufferSizeInBytes()).isEqualTo(DEFAULT_STREAM_BUFFER_SIZE_IN_BYTES);
+    }
+
+    @Test
+    public void onTrimMemory_withRunningModerate_thenHalveStreamBuffer() {
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+
+        assertThat(memoryPressureCoordinator.getMemoryPressure()).isEqualTo(MemoryPressure.MODERATE);
+        assertThat(streamBufferBudget.getRequestedBufferSizeInBytes()).isEqualTo(DEFAULT_STREAM_BUFFER_SIZE_IN_BYTES / 2);
+    }
+
+    @Test
+    public void onTrimMemory_withRunningLow_thenQuarterStreamBuffer() {
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertThat(memoryPressureCoordinator.getMemoryPressure()).isEqualTo(MemoryPressure.HIGH);
+        assertThat(streamBufferBudget.getRequestedBufferSizeInBytes()).isEqualTo(DEFAULT_STREAM_BUFFER_SIZE_IN_BYTES / 4);
+    }
+
+    @Test
+    public void onTrimMemory_withComplete_thenShrinkStreamBufferToAnEighth() {
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+
+        assertThat(memoryPressureCoordinator.getMemoryPressure()).isEqualTo(MemoryPressure.CRITICAL);
+        assertThat(streamBufferBudget.getRequestedBufferSizeInBytes()).isEqualTo(DEFAULT_STREAM_BUFFER_SIZE_IN_BYTES / 8);
+    }
+
+    @Test
+    public void onLowMemory_shouldBeTreatedAsCriticalMemoryPressure() {
+        memoryPressureCoordinator.onLowMemory();
+
+        verify(trimmable).onMemoryPressureChanged(MemoryPressure.CRITICAL);
+    }
+
+    @Test
+    public void onTrimMemory_withLowerLevelThanCurrentPressure_thenDontLowerPressure() {
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+        assertThat(memoryPressureCoordinator.getMemoryPressure()).isEqualTo(MemoryPressure.CRITICAL);
+    }
+
+    @Test
+    public void onTrimMemory_withSameLevelTwice_thenNotifyTrimmablesOnlyOnce() {
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        verify(trimmable, times(1)).onMemoryPressureChanged(MemoryPressure.HIGH);
+    }
+
+    @Test
+    public void onTrimMemory_shouldScheduleRecoveryFromMemoryPressure() {
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        verify(timer).schedule(any(MemoryPressureRecoveryTimerTask.class), eq(60000L));
+    }
+
+    @Test
+    public void onMemoryPressureSubsided_shouldRestoreStreamBuffer() {
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+
+        memoryPressureCoordinator.onMemoryPressureSubsided();
+
+        assertThat(memoryPressureCoordinator.getMemoryPressure()).isEqualTo(MemoryPressure.NONE);
+        assertThat(streamBufferBudget.getRequestedBufferSizeInBytes()).isEqualTo(DEFAULT_STREAM_BUFFER_SIZE_IN_BYTES);
+        verify(trimmable).onMemoryPressureChanged(MemoryPressure.NONE);
+    }
+
+    @Test
+    public void whenRegisterInvoked_whileUnderMemoryPressure_thenTrimmableShouldBeTrimmedRightAway() {
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+        StreamBufferBudget lateStreamBufferBudget = new StreamBufferBudget();
+
+        memoryPressureCoordinator.register(lateStreamBufferBudget);
+
+        assertThat(lateStreamBufferBudget.getRequestedBufferSizeInBytes()).isEqualTo(DEFAULT_STREAM_BUFFER_SIZE_IN_BYTES / 4);
+    }
+
+    @Test
+    public void whenUnregisterInvoked_thenTrimmableShouldNoLongerBeNotified() {
+        memoryPressureCoordinator.unregister(trimmable);
+
+        memoryPressureCoordinator.onLowMemory();
+
+        verify(trimmable, times(0)).onMemoryPressureChanged(MemoryPressure.CRITICAL);
+    }
+
+    @Test
+    public void onTrimMemory_withUiHiddenOrBackground_thenKeepStreamBufferAndDontNotifyTrimmables() {
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+        assertThat(memoryPressureCoordinator.getMemoryPressure()).isEqualTo(MemoryPressure.NONE);
+        assertThat(streamBufferBudget.getRequestedBufferSizeInBytes()).isEqualTo(DEFAULT_STREAM_BUFFER_SIZE_IN_BYTES);
+        verify(trimmable, times(0)).onMemoryPressureChanged(MemoryPressure.MODERATE);
+    }
+
+    @Test
+    public void whenMemoryPressureChanges_thenNotifyTrimmablesWithoutHoldingTheCoordinatorsLock() {
+        final boolean[] wasLockHeld = new boolean[1];
+        memoryPressureCoordinator.register(new MemoryTrimmable() {
+            @Override
+            public void onMemoryPressureChanged(MemoryPressure memoryPressure) {
+                wasLockHeld[0] |= Thread.holdsLock(memoryPressureCoordinator);
+            }
+        });
+
+        memoryPressureCoordinator.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        memoryPressureCoordinator.onMemoryPressureSubsided();
+
+        assertThat(wasLockHeld[0]).isFalse();
+    }
+
+    @Test
+    public void testTrimLevelsMapToMemoryPressure() {
+        assertThat(MemoryPressure.fromTrimLevel(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE)).isEqualTo(MemoryPressure.MODERATE);
+        assertThat(MemoryPressure.fromTrimLevel(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)).isEqualTo(MemoryPressure.HIGH);
+        assertThat(MemoryPressure.fromTrimLevel(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)).isEqualTo(MemoryPressure.CRITICAL);
+        assertThat(MemoryPressure.fromTrimLevel(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)).isEqualTo(MemoryPressure.NONE);
+        assertThat(MemoryPressure.fromTrimLevel(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND)).isEqualTo(MemoryPressure.NONE);
+        assertThat(MemoryPressure.fromTrimLevel(ComponentCallbacks2.TRIM_MEMORY_MODERATE)).isEqualTo(MemoryPressure.HIGH);
+        assertThat(MemoryPressure.fromTrimLevel(ComponentCallbacks2.TRIM_MEMORY_COMPLETE)).isEqualTo(MemoryPressure.CRITICAL);
+    }
+}
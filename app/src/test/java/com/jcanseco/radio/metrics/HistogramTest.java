@@ -0,0 +1,49 @@
+package com.jcanseco.radio.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class HistogramTest {
+
+    private Histogram histogram;
+
+    @Before
+    public void setup() {
+        histogram = new Histogram();
+    }
+
+    @Test
+    public void whenNothingRecorded_thenEverythingIsZero() {
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.getMin()).isEqualTo(0);
+        assertThat(histogram.getMax()).isEqualTo(0);
+        assertThat(histogram.getMean()).isEqualTo(0);
+        assertThat(histogram.getPercentile(50)).isEqualTo(0);
+    }
+
+    @Test
+    public void testThatCountMinMaxAndMeanAreExact() {
+        histogram.record(10);
+        histogram.record(20);
+        histogram.record(90);
+
+        assertThat(histogram.getCount()).isEqualTo(3);
+        assertThat(histogram.getMin()).isEqualTo(10);
+        assertThat(histogram.getMax()).isEqualTo(90);
+        assertThat(histogram.getMean()).isEqualTo(40);
+    }
+
+    @Test
+    public void testThatPercentilesAreUpperBoundsOfPowerOfTwoBuckets() {
+        for (int i = 0; i < 99; i++) {
+            histogram.record(5);
+        }
+        histogram.record(1000);
+
+        assertThat(histogram.getPercentile(50)).isEqualTo(7);
+        assertThat(histogram.getPercentile(99)).isEqualTo(7);
+        assertThat(histogram.getPercentile(100)).isEqualTo(1000);
+    }
+}
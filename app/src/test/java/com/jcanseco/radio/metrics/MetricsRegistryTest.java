@@ -0,0 +1,40 @@
+package com.jcanseco.radio.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class MetricsRegistryTest {
+
+    private MetricsRegistry metricsRegistry;
+
+    @Before
+    public void setup() {
+        metricsRegistry = new MetricsRegistry();
+    }
+
+    @Test
+    public void testThatMetricsWithTheSameNameAreShared() {
+        assertThat(metricsRegistry.counter("a")).isSameAs(metricsRegistry.counter("a"));
+        assertThat(metricsRegistry.gauge("a")).isSameAs(metricsRegistry.gauge("a"));
+        assertThat(metricsRegistry.histogram("a")).isSameAs(metricsRegistry.histogram("a"));
+    }
+
+    @Test
+    public void whenDumpStateInvoked_thenPrintEveryMetricSortedByName() {
+        metricsRegistry.counter("stream.b").add(3);
+        metricsRegistry.counter("stream.a").increment();
+        metricsRegistry.gauge("lag_ms").set(250);
+
+        StringWriter output = new StringWriter();
+        metricsRegistry.dumpState(new PrintWriter(output, true));
+
+        String dump = output.toString();
+        assertThat(dump).contains("stream.a: 1", "stream.b: 3", "lag_ms: 250");
+        assertThat(dump.indexOf("stream.a")).isLessThan(dump.indexOf("stream.b"));
+    }
+}
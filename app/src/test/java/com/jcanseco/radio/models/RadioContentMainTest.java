@@ -58,6 +58,11 @@ public class RadioContentMainTest {
         assertThat(radioContentMain.getNumOfListeners()).isEqualTo(283);
     }
 
+    @Test
+    public void testIsAfkStream() {
+        assertThat(radioContentMain.isAfkStream()).isTrue();
+    }
+
     @Test
     public void testGetQueuedTracks() {
         List<Track> expectedTracks = new ArrayList<Track>() {{
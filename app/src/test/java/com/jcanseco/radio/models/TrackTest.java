@@ -20,4 +20,22 @@ public class TrackTest {
     public void testGetTitle() {
         assertThat(track.getTitle()).isEqualTo("Yoshida Hitomi - Kono Sora no Mukou");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetTimestampInUnixTime() {
+        assertThat(track.getTimestampInUnixTime()).isEqualTo(1458341547);
+    }
+
+    @Test
+    public void whenTitleAndTimestampMatch_thenTracksAreTheSameEntry() {
+        assertThat(new Track("title", 100).isSameEntryAs(new Track("title", 100))).isTrue();
+        assertThat(new Track("title", 100).isSameEntryAs(new Track("title", 200))).isFalse();
+        assertThat(new Track("title", 100).isSameEntryAs(new Track("other title", 100))).isFalse();
+    }
+
+    @Test
+    public void whenOnlyTitlesMatch_thenTracksHaveTheSameTitle() {
+        assertThat(new Track("title", 100).hasSameTitleAs(new Track("title", 200))).isTrue();
+        assertThat(new Track("title", 100).hasSameTitleAs(new Track("other title", 100))).isFalse();
+    }
+}
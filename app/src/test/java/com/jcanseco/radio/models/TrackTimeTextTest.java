@@ -0,0 +1,33 @@
+package com.jcanseco.radio.models;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TrackTimeTextTest {
+
+    private TrackTimeText trackTimeText = new TrackTimeText();
+
+    @Test
+    public void shouldPadMinutesAndSecondsToTwoDigits() {
+        assertThat(trackTimeText.set(65).toString()).isEqualTo("01:05");
+        assertThat(trackTimeText.getLength()).isEqualTo(5);
+    }
+
+    @Test
+    public void whenTimeIsAnHourOrLonger_thenKeepCountingInMinutes() {
+        assertThat(trackTimeText.set(6000).toString()).isEqualTo("100:00");
+    }
+
+    @Test
+    public void whenSetAgain_thenOverwriteThePreviousTime() {
+        trackTimeText.set(6000);
+
+        assertThat(trackTimeText.set(0).toString()).isEqualTo("00:00");
+    }
+
+    @Test
+    public void whenTimeIsNegative_thenShowZero() {
+        assertThat(trackTimeText.set(-3).toString()).isEqualTo("00:00");
+    }
+}
@@ -0,0 +1,100 @@
+package com.jcanseco.radio.network;
+
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class CachingDnsTest {
+
+    private static final long TTL_IN_MILLIS = 60 * 1000;
+
+    private MetricsRegistry metricsRegistry;
+    private CachingDns cachingDns;
+
+    private long currentTimeInMillis;
+    private int numOfUncachedLookups;
+    private boolean isResolverFailing;
+
+    @Before
+    public void setup() {
+        metricsRegistry = new MetricsRegistry();
+        cachingDns = new CachingDns(metricsRegistry, TTL_IN_MILLIS) {
+            @Override
+            protected List<InetAddress> lookupUncached(String hostname) throws UnknownHostException {
+                numOfUncachedLookups++;
+                if (isResolverFailing) {
+                    throw new UnknownHostException(hostname);
+                }
+                return Collections.singletonList(InetAddress.getByAddress(hostname, new byte[] {(byte) 192, 0, 2, (byte) numOfUncachedLookups}));
+            }
+
+            @Override
+            protected long getCurrentTimeInMillis() {
+                return currentTimeInMillis;
+            }
+        };
+    }
+
+    @Test
+    public void whenHostIsLookedUpAgainWithinTtl_thenReturnCachedAddresses() throws Exception {
+        List<InetAddress> firstAddresses = cachingDns.lookup("r-a-d.io");
+        currentTimeInMillis += TTL_IN_MILLIS - 1;
+        List<InetAddress> secondAddresses = cachingDns.lookup("r-a-d.io");
+
+        assertThat(secondAddresses).isEqualTo(firstAddresses);
+        assertThat(numOfUncachedLookups).isEqualTo(1);
+        assertThat(metricsRegistry.counter("dns.cache.hits").get()).isEqualTo(1);
+        assertThat(metricsRegistry.counter("dns.cache.misses").get()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenTtlHasExpired_thenLookUpHostAgain() throws Exception {
+        cachingDns.lookup("r-a-d.io");
+        currentTimeInMillis += TTL_IN_MILLIS;
+        List<InetAddress> addresses = cachingDns.lookup("r-a-d.io");
+
+        assertThat(addresses.get(0).getHostAddress()).isEqualTo("192.0.2.2");
+        assertThat(numOfUncachedLookups).isEqualTo(2);
+    }
+
+    @Test
+    public void testThatHostsAreCachedSeparately() throws Exception {
+        cachingDns.lookup("r-a-d.io");
+        cachingDns.lookup("stream.r-a-d.io");
+
+        assertThat(numOfUncachedLookups).isEqualTo(2);
+    }
+
+    @Test
+    public void whenLookupFails_thenFailureIsNotCached() throws Exception {
+        isResolverFailing = true;
+        try {
+            cachingDns.lookup("r-a-d.io");
+        } catch (UnknownHostException e) {
+            // Expected.
+        }
+
+        isResolverFailing = false;
+        List<InetAddress> addresses = cachingDns.lookup("r-a-d.io");
+
+        assertThat(addresses).hasSize(1);
+        assertThat(numOfUncachedLookups).isEqualTo(2);
+    }
+
+    @Test
+    public void whenCleared_thenLookUpHostAgain() throws Exception {
+        cachingDns.lookup("r-a-d.io");
+        cachingDns.clear();
+        cachingDns.lookup("r-a-d.io");
+
+        assertThat(numOfUncachedLookups).isEqualTo(2);
+    }
+}
@@ -0,0 +1,77 @@
+package com.jcanseco.radio.network;
+
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.SSLSession;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TlsHandshakeRecorderTest {
+
+    private MetricsRegistry metricsRegistry;
+    private TlsHandshakeRecorder tlsHandshakeRecorder;
+
+    private long currentTimeInMillis;
+
+    @Before
+    public void setup() {
+        metricsRegistry = new MetricsRegistry();
+        tlsHandshakeRecorder = new TlsHandshakeRecorder(metricsRegistry) {
+            @Override
+            protected long getCurrentTimeInMillis() {
+                return currentTimeInMillis;
+            }
+        };
+        currentTimeInMillis = 10000;
+    }
+
+    @Test
+    public void whenSessionWasCreatedDuringHandshake_thenRecordFullHandshake() {
+        recordHandshake(currentTimeInMillis + 100, 300);
+
+        assertThat(metricsRegistry.counter("tls.handshakes.full").get()).isEqualTo(1);
+        assertThat(metricsRegistry.counter("tls.handshakes.resumed").get()).isEqualTo(0);
+        assertThat(metricsRegistry.histogram("tls.handshake.full_duration_ms").getMean()).isEqualTo(300);
+    }
+
+    @Test
+    public void whenSessionPredatesHandshake_thenRecordResumedHandshake() {
+        recordHandshake(currentTimeInMillis - 60000, 100);
+
+        assertThat(metricsRegistry.counter("tls.handshakes.full").get()).isEqualTo(0);
+        assertThat(metricsRegistry.counter("tls.handshakes.resumed").get()).isEqualTo(1);
+        assertThat(metricsRegistry.histogram("tls.handshake.resumed_duration_ms").getMean()).isEqualTo(100);
+    }
+
+    @Test
+    public void testThatTimeSavedIsDifferenceInMeanDurationsTimesResumedHandshakes() {
+        recordHandshake(currentTimeInMillis + 10, 300);
+        recordHandshake(currentTimeInMillis + 10, 500);
+        recordHandshake(currentTimeInMillis - 60000, 100);
+        recordHandshake(currentTimeInMillis - 60000, 100);
+        recordHandshake(currentTimeInMillis - 60000, 100);
+
+        assertThat(metricsRegistry.gauge("tls.handshake.time_saved_ms").get()).isEqualTo((400 - 100) * 3);
+    }
+
+    @Test
+    public void whenNoFullHandshakeWasRecorded_thenTimeSavedIsUnknown() {
+        recordHandshake(currentTimeInMillis - 60000, 100);
+
+        assertThat(metricsRegistry.gauge("tls.handshake.time_saved_ms").get()).isEqualTo(0);
+    }
+
+    private void recordHandshake(long sessionCreationTimeInMillis, long durationInMillis) {
+        SSLSession session = mock(SSLSession.class);
+        when(session.getCreationTime()).thenReturn(sessionCreationTimeInMillis);
+
+        long handshakeStartedAtMillis = currentTimeInMillis;
+        currentTimeInMillis += durationInMillis;
+        tlsHandshakeRecorder.recordHandshake(session, handshakeStartedAtMillis);
+    }
+}
@@ -0,0 +1,104 @@
+package com.jcanseco.radio.nowplaying;
+
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class NowPlayingPublisherTest {
+
+    private MetricsRegistry metricsRegistry;
+    private NowPlayingPublisher nowPlayingPublisher;
+    private List<NowPlayingState> publishedStates;
+
+    @Before
+    public void setup() {
+        metricsRegistry = new MetricsRegistry();
+        nowPlayingPublisher = new NowPlayingPublisher(metricsRegistry);
+        publishedStates = new ArrayList<>();
+        nowPlayingPublisher.subscribe(new NowPlayingPublisher.Subscriber() {
+            @Override
+            public void onNowPlayingChanged(NowPlayingState state) {
+                publishedStates.add(state);
+            }
+        });
+    }
+
+    @Test
+    public void whenContentChanges_thenPublishIt() {
+        nowPlayingPublisher.publishContent("track title", "dj name", 253);
+
+        assertThat(publishedStates).hasSize(1);
+        assertThat(publishedStates.get(0).getTrackTitle()).isEqualTo("track title");
+        assertThat(publishedStates.get(0).getDjName()).isEqualTo("dj name");
+        assertThat(publishedStates.get(0).getListenerBucket()).isEqualTo(250);
+    }
+
+    @Test
+    public void whenPollReturnsWhatIsAlreadyShown_thenDontPublishIt() {
+        nowPlayingPublisher.publishContent("track title", "dj name", 253);
+        nowPlayingPublisher.publishContent("track title", "dj name", 253);
+
+        assertThat(publishedStates).hasSize(1);
+        assertThat(metricsRegistry.counter("nowplaying.updates_unchanged").get()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenListenersComeAndGoWithinABucket_thenDontPublishIt() {
+        nowPlayingPublisher.publishContent("track title", "dj name", 250);
+        nowPlayingPublisher.publishContent("track title", "dj name", 259);
+        nowPlayingPublisher.publishContent("track title", "dj name", 260);
+
+        assertThat(publishedStates).hasSize(2);
+        assertThat(publishedStates.get(1).getListenerBucket()).isEqualTo(260);
+    }
+
+    @Test
+    public void whenPlaybackStateChanges_thenPublishItWithTheContentAlreadyShown() {
+        nowPlayingPublisher.publishContent("track title", "dj name", 253);
+        nowPlayingPublisher.publishPlaybackState(true);
+        nowPlayingPublisher.publishPlaybackState(true);
+
+        assertThat(publishedStates).hasSize(2);
+        assertThat(publishedStates.get(1).isPlaying()).isTrue();
+        assertThat(publishedStates.get(1).getTrackTitle()).isEqualTo("track title");
+    }
+
+    @Test
+    public void whenScreenIsOff_thenHoldChangesBackAndPublishOnlyTheLatestOnceItsOn() {
+        nowPlayingPublisher.setScreenOn(false);
+        nowPlayingPublisher.publishContent("first track", "dj name", 253);
+        nowPlayingPublisher.publishContent("second track", "dj name", 253);
+
+        assertThat(publishedStates).isEmpty();
+
+        nowPlayingPublisher.setScreenOn(true);
+
+        assertThat(publishedStates).hasSize(1);
+        assertThat(publishedStates.get(0).getTrackTitle()).isEqualTo("second track");
+        assertThat(metricsRegistry.counter("nowplaying.updates_deferred").get()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenScreenComesOnWithNothingChanged_thenDontPublish() {
+        nowPlayingPublisher.publishContent("track title", "dj name", 253);
+        nowPlayingPublisher.setScreenOn(false);
+        nowPlayingPublisher.publishContent("track title", "dj name", 253);
+        nowPlayingPublisher.setScreenOn(true);
+
+        assertThat(publishedStates).hasSize(1);
+    }
+
+    @Test
+    public void testThatSmallListenerCountsAreExact() {
+        assertThat(NowPlayingPublisher.toListenerBucket(0)).isEqualTo(0);
+        assertThat(NowPlayingPublisher.toListenerBucket(7)).isEqualTo(7);
+        assertThat(NowPlayingPublisher.toListenerBucket(10)).isEqualTo(10);
+        assertThat(NowPlayingPublisher.toListenerBucket(19)).isEqualTo(10);
+    }
+}
@@ -0,0 +1,98 @@
+package com.jcanseco.radio.players;
+
+import com.google.android.exoplayer.ExoPlayer;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class LatencyControllerTest {
+
+    private static final long TARGET_LAG_IN_MILLIS = 8000;
+    private static final long TOLERANCE_IN_MILLIS = 2000;
+
+    private MetricsRegistry metricsRegistry;
+    private LatencyController latencyController;
+
+    private long currentTimeInMillis;
+
+    @Before
+    public void setup() {
+        metricsRegistry = new MetricsRegistry();
+        latencyController = new LatencyController(new LatencyPolicy(TARGET_LAG_IN_MILLIS, TOLERANCE_IN_MILLIS, 1.03f), metricsRegistry) {
+            @Override
+            protected long getCurrentTimeInMillis() {
+                return currentTimeInMillis;
+            }
+        };
+    }
+
+    @Test
+    public void testThatLagIsDistanceFromEndOfBufferToPlaybackPosition() {
+        latencyController.update(1000, 5000);
+
+        assertThat(latencyController.getLagInMillis()).isEqualTo(4000);
+        assertThat(metricsRegistry.gauge("latency.lag_ms").get()).isEqualTo(4000);
+    }
+
+    @Test
+    public void whenBufferStopsGrowingDuringStall_thenLagGrowsWithElapsedTime() {
+        latencyController.update(0, 5000);
+
+        // Playback drains the buffer and then stalls while the live edge keeps moving.
+        currentTimeInMillis += 5000;
+        latencyController.update(5000, 5000);
+        currentTimeInMillis += 3000;
+        latencyController.update(5000, 5000);
+
+        assertThat(latencyController.getLagInMillis()).isEqualTo(8000);
+    }
+
+    @Test
+    public void whenStreamKeepsUpWithRealTime_thenLagStaysConstant() {
+        latencyController.update(0, 5000);
+        currentTimeInMillis += 10000;
+        latencyController.update(10000, 15000);
+
+        assertThat(latencyController.getLagInMillis()).isEqualTo(5000);
+    }
+
+    @Test
+    public void whenLagExceedsTargetByLessThanTolerance_thenDoNotCatchUp() {
+        assertThat(latencyController.update(0, TARGET_LAG_IN_MILLIS + TOLERANCE_IN_MILLIS)).isFalse();
+    }
+
+    @Test
+    public void whenLagExceedsTargetByMoreThanTolerance_thenCatchUpUntilLagIsBackOnTarget() {
+        assertThat(latencyController.update(0, 11000)).isTrue();
+
+        currentTimeInMillis += 1000;
+        assertThat(latencyController.update(2000, 11000)).isTrue();
+
+        currentTimeInMillis += 1000;
+        assertThat(latencyController.update(5000, 11000)).isFalse();
+        assertThat(metricsRegistry.counter("latency.catch_ups").get()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenPositionsAreUnknown_thenKeepPreviousState() {
+        latencyController.update(0, 11000);
+
+        assertThat(latencyController.update(ExoPlayer.UNKNOWN_TIME, ExoPlayer.UNKNOWN_TIME)).isTrue();
+        assertThat(latencyController.getLagInMillis()).isEqualTo(11000);
+    }
+
+    @Test
+    public void whenReset_thenStopCatchingUpAndForgetLiveEdge() {
+        latencyController.update(0, 11000);
+
+        latencyController.reset();
+        currentTimeInMillis += 60000;
+        latencyController.update(0, 4000);
+
+        assertThat(latencyController.isCatchingUp()).isFalse();
+        assertThat(latencyController.getLagInMillis()).isEqualTo(4000);
+    }
+}
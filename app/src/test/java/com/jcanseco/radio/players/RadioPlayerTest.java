@@ -1,19 +1,30 @@
 package com.jcanseco.radio.players;
 
-import android.app.Application;
+import android.os.Handler;
 
 import com.google.android.exoplayer.ExoPlaybackException;
 import com.google.android.exoplayer.ExoPlayer;
 import com.google.android.exoplayer.TrackRenderer;
+import com.jcanseco.radio.flightrecorder.FlightEventType;
+import com.jcanseco.radio.flightrecorder.FlightRecorder;
+import com.jcanseco.radio.memory.MemoryPressure;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.players.trackrenderers.StreamAudioTrackRenderer;
+import com.jcanseco.radio.players.trackrenderers.TrackRendererFactory;
 import com.jcanseco.radio.tasks.RadioPlayerBufferTimeoutTimerTask;
+import com.jcanseco.radio.tasks.RadioPlayerLatencyCheckTimerTask;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -22,12 +33,15 @@ import static org.mockito.AdditionalMatchers.not;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RadioPlayerTest {
@@ -38,7 +52,7 @@ public class RadioPlayerTest {
     ExoPlayer exoPlayer;
 
     @Mock
-    Application application;
+    TrackRendererFactory trackRendererFactory;
 
     @Mock
     RadioPlayer.Listener radioPlayerListener;
@@ -49,15 +63,26 @@ public class RadioPlayerTest {
     @Mock
     Timer timer;
 
+    @Mock
+    Handler mainThreadHandler;
+
+    @Mock
+    FlightRecorder flightRecorder;
+
+    PausePolicy pausePolicy = new PausePolicy(30000, 300000);
+
+    LatencyController latencyController = new LatencyController(new LatencyPolicy(8000, 2000, 1.03f), new MetricsRegistry());
+
     @Before
     public void setup() {
-        radioPlayer = spy(new RadioPlayer(exoPlayer, application));
+        radioPlayer = spy(new RadioPlayer(exoPlayer, pausePolicy, trackRendererFactory, latencyController, flightRecorder));
         radioPlayer.setRadioPlayerListener(radioPlayerListener);
 
         doReturn(audioTrackRenderer).when(radioPlayer).createAudioTrackRenderer();
 
         doReturn(timer).when(radioPlayer).initNewTimer();
         doReturn(timer).when(radioPlayer).getTimer();
+        doReturn(mainThreadHandler).when(radioPlayer).getMainThreadHandler();
         doNothing().when(timer).schedule(any(TimerTask.class), anyLong());
     }
 
@@ -232,6 +257,27 @@ public class RadioPlayerTest {
         assertThat(radioPlayer.isCurrentlyCountingDownForBufferTimeout()).isFalse();
     }
 
+    @Test
+    public void onBufferTimeoutElapsed_whileCountingDownForBufferTimeout_thenTimeOut() {
+        doReturn(true).when(radioPlayer).isCurrentlyCountingDownForBufferTimeout();
+
+        radioPlayer.onBufferTimeoutElapsed();
+
+        verify(radioPlayer).onBufferingTimedOut();
+        verify(radioPlayerListener).onRadioPlayerStreamError();
+    }
+
+    @Test
+    public void onBufferTimeoutElapsed_afterCountdownForBufferTimeoutStopped_thenDontTimeOut() {
+        radioPlayer.onPlayerStateChanged(true, ExoPlayer.STATE_BUFFERING);
+        radioPlayer.onPlayerStateChanged(true, ExoPlayer.STATE_READY);
+
+        radioPlayer.onBufferTimeoutElapsed();
+
+        verify(radioPlayer, never()).onBufferingTimedOut();
+        verify(radioPlayerListener, never()).onRadioPlayerStreamError();
+    }
+
     @Test
     public void onPlayerError_shouldNotifyRadioPlayerListenerOfStreamError() {
         String irrelevantErrorMessage = "";
@@ -258,4 +304,235 @@ public class RadioPlayerTest {
 
         assertThat(radioPlayer.isPlaying()).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void onPlayerError_shouldRecordErrorWithItsCausesInFlightRecorder() {
+        ExoPlaybackException error = new ExoPlaybackException(new IOException("Connection reset"));
+
+        radioPlayer.onPlayerError(error);
+
+        verify(flightRecorder).record(FlightEventType.PLAYER_ERROR, 0, "ExoPlaybackException <- IOException: Connection reset");
+    }
+
+    @Test
+    public void onBufferingTimedOut_shouldRecordHowMuchWasBufferedInFlightRecorder() {
+        when(exoPlayer.getCurrentPosition()).thenReturn(20000L);
+        when(exoPlayer.getBufferedPosition()).thenReturn(21500L);
+
+        radioPlayer.onBufferingTimedOut();
+
+        verify(flightRecorder).record(FlightEventType.BUFFERING_TIMED_OUT, 1500);
+    }
+
+    @Test
+    public void shouldNotHoldAnyResourcesByDefault() {
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.IDLE);
+    }
+
+    @Test
+    public void whenPlayInvoked_thenResourceStateShouldBePlaying() {
+        radioPlayer.play();
+
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.PLAYING);
+    }
+
+    @Test
+    public void whenPauseInvoked_whilePlaying_thenResourceStateShouldBePaused() {
+        radioPlayer.play();
+
+        radioPlayer.pause();
+
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.PAUSED);
+    }
+
+    @Test
+    public void whenPauseInvoked_whilePlaying_thenScheduleStreamToDisconnectAfterPausePolicyGracePeriod() {
+        radioPlayer.play();
+
+        radioPlayer.pause();
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mainThreadHandler).postDelayed(runnableCaptor.capture(), eq(pausePolicy.getDisconnectStreamAfterMillis()));
+        runnableCaptor.getValue().run();
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.STREAM_DISCONNECTED);
+    }
+
+    @Test
+    public void whenPauseInvoked_whilePlaying_thenScheduleResourcesToBeReleasedAfterPausePolicyGracePeriod() {
+        radioPlayer.play();
+
+        radioPlayer.pause();
+
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mainThreadHandler).postDelayed(runnableCaptor.capture(), eq(pausePolicy.getReleaseResourcesAfterMillis()));
+        runnableCaptor.getValue().run();
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.IDLE);
+    }
+
+    @Test
+    public void whenPauseInvoked_whileIdle_thenDontSchedulePausePolicy() {
+        radioPlayer.pause();
+
+        verify(mainThreadHandler, never()).postDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void whenPlayInvoked_thenCancelAnyPendingPausePolicy() {
+        radioPlayer.play();
+        radioPlayer.pause();
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mainThreadHandler, times(2)).postDelayed(runnableCaptor.capture(), anyLong());
+
+        radioPlayer.play();
+
+        for (Runnable runnable : runnableCaptor.getAllValues()) {
+            verify(mainThreadHandler, atLeastOnce()).removeCallbacks(runnable);
+        }
+    }
+
+    @Test
+    public void onStreamDisconnectGracePeriodElapsed_whilePaused_thenDisableAudioTrackToCloseStreamConnection() {
+        radioPlayer.play();
+        radioPlayer.pause();
+
+        radioPlayer.onStreamDisconnectGracePeriodElapsed();
+
+        verify(exoPlayer).setSelectedTrack(0, ExoPlayer.TRACK_DISABLED);
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.STREAM_DISCONNECTED);
+    }
+
+    @Test
+    public void onStreamDisconnectGracePeriodElapsed_whilePlaying_thenDoNothing() {
+        radioPlayer.play();
+
+        radioPlayer.onStreamDisconnectGracePeriodElapsed();
+
+        verify(exoPlayer, never()).setSelectedTrack(0, ExoPlayer.TRACK_DISABLED);
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.PLAYING);
+    }
+
+    @Test
+    public void whenPlayInvoked_whileStreamDisconnected_thenReconnectToLiveEdgeWithoutPreparingExoPlayerAgain() {
+        doReturn(true).when(radioPlayer).isExoPlayerPreparedForPlayback();
+        radioPlayer.play();
+        radioPlayer.pause();
+        radioPlayer.onStreamDisconnectGracePeriodElapsed();
+
+        radioPlayer.play();
+
+        InOrder inOrder = inOrder(exoPlayer);
+        inOrder.verify(exoPlayer).setSelectedTrack(0, ExoPlayer.TRACK_DEFAULT);
+        inOrder.verify(exoPlayer).seekTo(0);
+        verify(exoPlayer, never()).prepare(audioTrackRenderer);
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.PLAYING);
+    }
+
+    @Test
+    public void onResourceReleaseGracePeriodElapsed_whileStreamDisconnected_thenStopExoPlayerAndRestoreAudioTrack() {
+        radioPlayer.play();
+        radioPlayer.pause();
+        radioPlayer.onStreamDisconnectGracePeriodElapsed();
+
+        radioPlayer.onResourceReleaseGracePeriodElapsed();
+
+        InOrder inOrder = inOrder(exoPlayer);
+        inOrder.verify(exoPlayer).stop();
+        inOrder.verify(exoPlayer).setSelectedTrack(0, ExoPlayer.TRACK_DEFAULT);
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.IDLE);
+    }
+
+    @Test
+    public void onResourceReleaseGracePeriodElapsed_whilePlaying_thenDoNothing() {
+        radioPlayer.play();
+
+        radioPlayer.onResourceReleaseGracePeriodElapsed();
+
+        verify(exoPlayer, never()).stop();
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.PLAYING);
+    }
+
+    @Test
+    public void onPlayerError_shouldReleaseAllResources() {
+        radioPlayer.play();
+
+        radioPlayer.onPlayerError(new ExoPlaybackException(""));
+
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.IDLE);
+    }
+
+    @Test
+    public void dumpState_shouldIncludeResourceStateTransitionsAndHeldResources() {
+        radioPlayer.play();
+        radioPlayer.pause();
+        StringWriter output = new StringWriter();
+
+        radioPlayer.dumpState(new PrintWriter(output));
+
+        assertThat(output.toString())
+                .contains("resource state: PAUSED (holding " + PlayerResourceState.PAUSED.getHeldResources() + ")")
+                .contains("IDLE -> PLAYING")
+                .contains("PLAYING -> PAUSED");
+    }
+
+    @Test
+    public void onMemoryPressureChanged_toModerate_whilePaused_thenDisconnectStreamRightAway() {
+        radioPlayer.play();
+        radioPlayer.pause();
+
+        radioPlayer.onMemoryPressureChanged(MemoryPressure.MODERATE);
+
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.STREAM_DISCONNECTED);
+    }
+
+    @Test
+    public void onMemoryPressureChanged_toHigh_whilePaused_thenReleaseResourcesRightAway() {
+        radioPlayer.play();
+        radioPlayer.pause();
+
+        radioPlayer.onMemoryPressureChanged(MemoryPressure.HIGH);
+
+        verify(exoPlayer).stop();
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.IDLE);
+    }
+
+    @Test
+    public void onMemoryPressureChanged_toCritical_whilePlaying_thenKeepPlaying() {
+        radioPlayer.play();
+
+        radioPlayer.onMemoryPressureChanged(MemoryPressure.CRITICAL);
+
+        verify(exoPlayer, never()).stop();
+        assertThat(radioPlayer.getResourceState()).isEqualTo(PlayerResourceState.PLAYING);
+    }
+
+    @Test
+    public void whenPlayInvoked_thenStartCheckingLatencyEverySecond() {
+        radioPlayer.play();
+
+        verify(timer).schedule(any(RadioPlayerLatencyCheckTimerTask.class), eq(1000L), eq(1000L));
+    }
+
+    @Test
+    public void whenLagExceedsTarget_thenTellAudioTrackRendererToCatchUp() {
+        doReturn(false).when(radioPlayer).isExoPlayerPreparedForPlayback();
+        radioPlayer.play();
+        when(exoPlayer.getCurrentPosition()).thenReturn(0L);
+        when(exoPlayer.getBufferedPosition()).thenReturn(11000L);
+
+        radioPlayer.onLatencyCheckDue();
+
+        verify(exoPlayer).sendMessage(audioTrackRenderer, StreamAudioTrackRenderer.MSG_SET_CATCHING_UP, true);
+    }
+
+    @Test
+    public void whenLagIsWithinTarget_thenDoNotTellAudioTrackRendererToCatchUp() {
+        doReturn(false).when(radioPlayer).isExoPlayerPreparedForPlayback();
+        radioPlayer.play();
+        when(exoPlayer.getCurrentPosition()).thenReturn(0L);
+        when(exoPlayer.getBufferedPosition()).thenReturn(4000L);
+
+        radioPlayer.onLatencyCheckDue();
+
+        verify(exoPlayer, never()).sendMessage(any(TrackRenderer.class), eq(StreamAudioTrackRenderer.MSG_SET_CATCHING_UP), any());
+    }
+}
@@ -0,0 +1,70 @@
+package com.jcanseco.radio.players.analysis;
+
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.testutilities.Benchmark;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+// The analyzer runs on the playback thread for every decoded buffer, so what matters is the worst case: a full
+// fingerprint history and a signal that never repeats, which scans all of it every time.
+@Category(Benchmark.class)
+public class PcmSignalAnalyzerBenchmarkTest {
+
+    private static final int BUFFER_SIZE_IN_BYTES = 1152 * 2 * 2;
+    private static final int NUM_OF_DISTINCT_BUFFERS = 4096;
+
+    // One hour of 44.1 kHz audio.
+    private static final int NUM_OF_BUFFERS = 60 * 60 * 44100 / 1152;
+    private static final int NUM_OF_RUNS = 5;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void benchmarkCpuTimeAndAllocationsPerBuffer() {
+        ByteBuffer[] buffers = buildDistinctBuffers();
+        PcmSignalAnalyzer signalAnalyzer = new PcmSignalAnalyzer(new MetricsRegistry(), null);
+        signalAnalyzer.setFormat(44100, 2);
+
+        long bestCpuTimeNanos = Long.MAX_VALUE;
+        long allocatedBytes = 0;
+        for (int run = 0; run < NUM_OF_RUNS; run++) {
+            long threadId = Thread.currentThread().getId();
+            long startAllocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+            long startCpuTimeNanos = threadMXBean.getCurrentThreadCpuTime();
+
+            for (int i = 0; i < NUM_OF_BUFFERS; i++) {
+                ByteBuffer buffer = buffers[i % NUM_OF_DISTINCT_BUFFERS];
+                signalAnalyzer.analyze(buffer, 0, BUFFER_SIZE_IN_BYTES);
+            }
+
+            bestCpuTimeNanos = Math.min(bestCpuTimeNanos, threadMXBean.getCurrentThreadCpuTime() - startCpuTimeNanos);
+            allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - startAllocatedBytes;
+        }
+
+        System.out.printf("PcmSignalAnalyzer: %d us per buffer, CPU time per hour of audio %d ms, %d bytes allocated%n",
+                bestCpuTimeNanos / NUM_OF_BUFFERS / 1000, bestCpuTimeNanos / 1000000, allocatedBytes);
+        assertThat(signalAnalyzer.getSignalHealth()).isEqualTo(SignalHealth.HEALTHY);
+        // Warmed up by the earlier runs, the last one shouldn't allocate anything at all.
+        assertThat(allocatedBytes).isLessThan(1024);
+    }
+
+    private static ByteBuffer[] buildDistinctBuffers() {
+        Random random = new Random(42);
+        ByteBuffer[] buffers = new ByteBuffer[NUM_OF_DISTINCT_BUFFERS];
+        for (int i = 0; i < NUM_OF_DISTINCT_BUFFERS; i++) {
+            byte[] samples = new byte[BUFFER_SIZE_IN_BYTES];
+            random.nextBytes(samples);
+            buffers[i] = ByteBuffer.allocateDirect(BUFFER_SIZE_IN_BYTES);
+            buffers[i].put(samples);
+        }
+        return buffers;
+    }
+}
@@ -0,0 +1,175 @@
+package com.jcanseco.radio.players.analysis;
+
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.fail;
+
+public class PcmSignalAnalyzerTest {
+
+    // One decoded MP3 frame: 1152 stereo samples, 26 ms at 44.1 kHz.
+    private static final int BUFFER_SIZE_IN_BYTES = 1152 * 2 * 2;
+    private static final int NUM_OF_BUFFERS_PER_SECOND = 44100 / 1152;
+
+    private MetricsRegistry metricsRegistry;
+    private PcmSignalAnalyzer signalAnalyzer;
+    private List<SignalHealth> signalHealthChanges;
+    private Random random;
+
+    @Before
+    public void setup() {
+        metricsRegistry = new MetricsRegistry();
+        signalHealthChanges = new ArrayList<>();
+        signalAnalyzer = new PcmSignalAnalyzer(metricsRegistry, new PcmSignalAnalyzer.Listener() {
+            @Override
+            public void onSignalHealthChanged(SignalHealth signalHealth) {
+                signalHealthChanges.add(signalHealth);
+            }
+        });
+        signalAnalyzer.setFormat(44100, 2);
+        random = new Random(42);
+    }
+
+    @Test
+    public void testThatRmsAndPeakAreComputedPerWindow() {
+        ByteBuffer squareWave = buildSquareWave(1000);
+
+        // Just over a second of audio.
+        for (int i = 0; i < 40; i++) {
+            analyze(squareWave);
+        }
+
+        assertThat(signalAnalyzer.getNumOfWindows()).isEqualTo(10);
+        assertThat(signalAnalyzer.getWindowRms(0)).isEqualTo(1000);
+        assertThat(signalAnalyzer.getWindowPeak(0)).isEqualTo(1000);
+        assertThat(metricsRegistry.gauge("signal.peak").get()).isEqualTo(1000);
+    }
+
+    @Test
+    public void whenAskedForAWindowThatIsNoLongerKept_thenThrowIndexOutOfBounds() {
+        for (int i = 0; i < 3 * PcmSignalAnalyzer.NUM_OF_WINDOWS_TO_KEEP * 4; i++) {
+            analyze(buildSquareWave(1000));
+        }
+        assertThat(signalAnalyzer.getWindowPeak(PcmSignalAnalyzer.NUM_OF_WINDOWS_TO_KEEP - 1)).isEqualTo(1000);
+
+        try {
+            signalAnalyzer.getWindowPeak(PcmSignalAnalyzer.NUM_OF_WINDOWS_TO_KEEP);
+            fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // Expected.
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void whenAskedForAWindowBeforeTheFirstOne_thenThrowIndexOutOfBounds() {
+        analyze(buildSquareWave(1000));
+
+        signalAnalyzer.getWindowRms(0);
+    }
+
+    @Test
+    public void whenMusicIsPlaying_thenSignalStaysHealthy() {
+        for (int i = 0; i < 60 * NUM_OF_BUFFERS_PER_SECOND; i++) {
+            analyze(buildNoise(8000));
+        }
+
+        assertThat(signalAnalyzer.getSignalHealth()).isEqualTo(SignalHealth.HEALTHY);
+        assertThat(signalHealthChanges).isEmpty();
+    }
+
+    @Test
+    public void whenSilenceIsShorterThanThreshold_thenSignalStaysHealthy() {
+        analyzeSilence(5);
+        analyze(buildNoise(8000));
+
+        assertThat(signalHealthChanges).isEmpty();
+    }
+
+    @Test
+    public void whenSilenceIsSustained_thenSignalIsSilentUntilAudioComesBack() {
+        analyzeSilence(11);
+
+        assertThat(signalAnalyzer.getSignalHealth()).isEqualTo(SignalHealth.SILENT);
+
+        for (int i = 0; i < 5; i++) {
+            analyze(buildNoise(8000));
+        }
+
+        assertThat(signalHealthChanges).containsExactly(SignalHealth.SILENT, SignalHealth.HEALTHY);
+    }
+
+    @Test
+    public void whenDitherIsBelowThreshold_thenItCountsAsSilence() {
+        ByteBuffer dither = buildNoise(PcmSignalAnalyzer.SILENCE_PEAK_THRESHOLD);
+
+        for (int i = 0; i < 11 * NUM_OF_BUFFERS_PER_SECOND; i++) {
+            analyze(dither);
+        }
+
+        assertThat(signalAnalyzer.getSignalHealth()).isEqualTo(SignalHealth.SILENT);
+    }
+
+    @Test
+    public void whenTheSameAudioLoops_thenSignalIsFrozen() {
+        List<ByteBuffer> loop = new ArrayList<>();
+        for (int i = 0; i < 2 * NUM_OF_BUFFERS_PER_SECOND; i++) {
+            loop.add(buildNoise(8000));
+        }
+
+        for (int i = 0; i < 15 * NUM_OF_BUFFERS_PER_SECOND; i++) {
+            analyze(loop.get(i % loop.size()));
+        }
+
+        assertThat(signalHealthChanges).containsExactly(SignalHealth.FROZEN);
+    }
+
+    @Test
+    public void whenReset_thenSignalIsHealthyAgain() {
+        analyzeSilence(11);
+
+        signalAnalyzer.reset();
+
+        assertThat(signalAnalyzer.getSignalHealth()).isEqualTo(SignalHealth.HEALTHY);
+        assertThat(signalHealthChanges).containsExactly(SignalHealth.SILENT, SignalHealth.HEALTHY);
+    }
+
+    private void analyzeSilence(int seconds) {
+        ByteBuffer silence = ByteBuffer.allocateDirect(BUFFER_SIZE_IN_BYTES);
+        for (int i = 0; i < seconds * NUM_OF_BUFFERS_PER_SECOND; i++) {
+            analyze(silence);
+        }
+    }
+
+    private void analyze(ByteBuffer buffer) {
+        signalAnalyzer.analyze(buffer, 0, buffer.capacity());
+    }
+
+    private ByteBuffer buildNoise(int maxAmplitude) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE_IN_BYTES);
+        for (int i = 0; i < BUFFER_SIZE_IN_BYTES; i += 2) {
+            putSample(buffer, i, random.nextInt(2 * maxAmplitude + 1) - maxAmplitude);
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer buildSquareWave(int amplitude) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE_IN_BYTES);
+        for (int i = 0; i < BUFFER_SIZE_IN_BYTES; i += 2) {
+            putSample(buffer, i, (i / 2) % 100 < 50 ? amplitude : -amplitude);
+        }
+        return buffer;
+    }
+
+    private static void putSample(ByteBuffer buffer, int index, int sample) {
+        buffer.put(index, (byte) sample);
+        buffer.put(index + 1, (byte) (sample >> 8));
+    }
+}
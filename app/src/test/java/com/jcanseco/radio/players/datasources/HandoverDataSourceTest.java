@@ -0,0 +1,376 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.upstream.ByteArrayDataSource;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.jcanseco.radio.BuildConfig;
+import com.jcanseco.radio.constants.Constants;
+import com.jcanseco.radio.flightrecorder.FlightRecorder;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.FRAME_SIZE_IN_BYTES;
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.buildFrame;
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.buildStream;
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.concat;
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.getFrameIndex;
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.getStreamId;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class HandoverDataSourceTest {
+
+    private HandoverDataSource handoverDataSource;
+    private FakeStreamDataSourceFactory dataSourceFactory;
+    private MetricsRegistry metricsRegistry;
+    private FlightRecorder flightRecorder;
+
+    private DataSpec streamDataSpec;
+
+    @Before
+    public void setup() {
+        streamDataSpec = new DataSpec(Uri.parse(Constants.Endpoints.STREAM_URL));
+
+        dataSourceFactory = new FakeStreamDataSourceFactory();
+        metricsRegistry = new MetricsRegistry();
+        flightRecorder = new FlightRecorder(ByteBuffer.allocate(FlightRecorder.getSizeInBytes(64)));
+        handoverDataSource = new HandoverDataSource(dataSourceFactory, flightRecorder, metricsRegistry) {
+            @Override
+            protected void waitBeforeReconnecting(int attempt) {}
+        };
+    }
+
+    @Test
+    public void testThatOnlyWholeFramesAreDeliveredWhenStreamStartsMidFrame() throws IOException {
+        byte[] partialFrame = Arrays.copyOfRange(buildStream(1, 0, 1), 100, FRAME_SIZE_IN_BYTES);
+        dataSourceFactory.enqueue(new ByteArrayDataSource(concat(partialFrame, buildStream(1, 1, 20))));
+
+        handoverDataSource.open(streamDataSpec);
+        byte[] output = readUntilEndOfInput();
+
+        assertThat(output).isEqualTo(buildStream(1, 1, 20));
+    }
+
+    @Test
+    public void whenNetworkChanges_thenContinueOnNewConnectionAtFrameBoundary() throws IOException {
+        dataSourceFactory.enqueue(new ByteArrayDataSource(buildStream(1, 0, 200)));
+        dataSourceFactory.enqueue(new ByteArrayDataSource(buildStream(2, 500, 100)));
+
+        handoverDataSource.open(streamDataSpec);
+        List<byte[]> framesBeforeNetworkChange = readFrames(10);
+        handoverDataSource.startHandover();
+        byte[] output = concat(concatFrames(framesBeforeNetworkChange), readUntilEndOfInput());
+
+        assertThat(output.length % FRAME_SIZE_IN_BYTES).isEqualTo(0);
+        int numOfFramesFromOldConnection = 0;
+        while (getStreamId(output, numOfFramesFromOldConnection * FRAME_SIZE_IN_BYTES) == 1) {
+            assertThat(getFrameIndex(output, numOfFramesFromOldConnection * FRAME_SIZE_IN_BYTES)).isEqualTo(numOfFramesFromOldConnection);
+            numOfFramesFromOldConnection++;
+        }
+        assertThat(numOfFramesFromOldConnection).isGreaterThanOrEqualTo(10);
+
+        byte[] framesFromNewConnection = Arrays.copyOfRange(output, numOfFramesFromOldConnection * FRAME_SIZE_IN_BYTES, output.length);
+        assertThat(framesFromNewConnection).isEqualTo(buildStream(2, 500, 100));
+        assertThat(metricsRegistry.counter("stream.handover.count").get()).isEqualTo(1);
+        assertThat(metricsRegistry.histogram("stream.handover.duration_ms").getCount()).isEqualTo(1);
+    }
+
+    @Test(timeout = 5000)
+    public void whenOldConnectionStallsAfterNetworkChange_thenCloseItAndContinueOnNewConnection() throws IOException {
+        StallingDataSource stallingDataSource = new StallingDataSource(buildStream(1, 0, 5));
+        dataSourceFactory.enqueue(stallingDataSource);
+        dataSourceFactory.enqueue(new ByteArrayDataSource(buildStream(2, 100, 50)));
+
+        handoverDataSource.open(streamDataSpec);
+        handoverDataSource.startHandover();
+        byte[] output = readUntilEndOfInput();
+
+        int lastFrameOffset = output.length - FRAME_SIZE_IN_BYTES;
+        assertThat(getStreamId(output, lastFrameOffset)).isEqualTo(2);
+        assertThat(getFrameIndex(output, lastFrameOffset)).isEqualTo(149);
+        assertThat(stallingDataSource.isClosed()).isTrue();
+    }
+
+    @Test(timeout = 5000)
+    public void whenNewConnectionFails_thenKeepPlayingFromOldConnection() throws Exception {
+        dataSourceFactory.enqueue(new ByteArrayDataSource(buildStream(1, 0, 100)));
+        dataSourceFactory.enqueue(new FailingDataSource());
+
+        handoverDataSource.open(streamDataSpec);
+        handoverDataSource.startHandover();
+        while (metricsRegistry.counter("stream.handover.failures").get() == 0) {
+            Thread.sleep(10);
+        }
+        byte[] output = readUntilEndOfInput();
+
+        assertThat(output).isEqualTo(buildStream(1, 0, 100));
+        assertThat(metricsRegistry.counter("stream.handover.count").get()).isEqualTo(0);
+    }
+
+    @Test(expected = IOException.class)
+    public void whenOldConnectionFailsWithoutNetworkChange_andReconnectingFails_thenPropagateError() throws IOException {
+        StallingDataSource stallingDataSource = new StallingDataSource(buildStream(1, 0, 5));
+        stallingDataSource.close();
+        dataSourceFactory.enqueue(stallingDataSource);
+
+        handoverDataSource.open(streamDataSpec);
+        readUntilEndOfInput();
+    }
+
+    @Test(timeout = 5000)
+    public void whenNewConnectionStartsBehindOldOne_thenSkipFramesThatWereAlreadyDelivered() throws IOException {
+        dataSourceFactory.enqueue(new ByteArrayDataSource(buildStream(1, 0, 200)));
+        dataSourceFactory.enqueue(new ByteArrayDataSource(buildStream(1, 5, 300)));
+
+        handoverDataSource.open(streamDataSpec);
+        List<byte[]> framesBeforeNetworkChange = readFrames(30);
+        handoverDataSource.startHandover();
+        byte[] output = concat(concatFrames(framesBeforeNetworkChange), readUntilEndOfInput());
+
+        assertThat(output).isEqualTo(buildStream(1, 0, 305));
+        assertThat(metricsRegistry.counter("stream.splice.aligned").get()).isEqualTo(1);
+    }
+
+    @Test(timeout = 5000)
+    public void whenNewConnectionStartsAheadOfOldOne_thenKeepReadingOldOneUntilTheyLineUp() throws IOException {
+        dataSourceFactory.enqueue(new ByteArrayDataSource(buildStream(1, 0, 200)));
+        dataSourceFactory.enqueue(new ByteArrayDataSource(buildStream(1, 40, 300)));
+
+        handoverDataSource.open(streamDataSpec);
+        List<byte[]> framesBeforeNetworkChange = readFrames(10);
+        handoverDataSource.startHandover();
+        byte[] output = concat(concatFrames(framesBeforeNetworkChange), readUntilEndOfInput());
+
+        assertThat(output).isEqualTo(buildStream(1, 0, 340));
+        assertThat(metricsRegistry.counter("stream.splice.misses").get()).isEqualTo(0);
+    }
+
+    @Test(timeout = 10000)
+    public void whenConnectionDropsAtRandomOffsets_thenReconnectedStreamContinuesWithoutGapsOrRepeats() throws IOException {
+        ReplayingLiveStreamServer server = new ReplayingLiveStreamServer(new Random(42), 4);
+        handoverDataSource = new HandoverDataSource(server, flightRecorder, metricsRegistry) {
+            @Override
+            protected void waitBeforeReconnecting(int attempt) {}
+        };
+
+        handoverDataSource.open(streamDataSpec);
+        List<byte[]> frames = readFrames(3000);
+
+        int firstFrameIndex = getFrameIndex(frames.get(0), 0);
+        for (int i = 0; i < frames.size(); i++) {
+            assertThat(getFrameIndex(frames.get(i), 0)).isEqualTo(firstFrameIndex + i);
+        }
+        assertThat(frames.get(frames.size() - 1)).isEqualTo(buildFrame(1, firstFrameIndex + frames.size() - 1));
+        assertThat(metricsRegistry.counter("stream.reconnect.count").get()).isGreaterThan(10);
+        assertThat(metricsRegistry.counter("stream.splice.misses").get()).isEqualTo(0);
+    }
+
+    @Test(timeout = 10000)
+    public void whenReconnectedStreamStartsAheadOfWhatWasDelivered_thenCountMissedSplice() throws IOException {
+        StallingDataSource stallingDataSource = new StallingDataSource(buildStream(1, 0, 50));
+        stallingDataSource.close();
+        dataSourceFactory.enqueue(stallingDataSource);
+        dataSourceFactory.enqueue(new ByteArrayDataSource(buildStream(1, 60, 50)));
+
+        handoverDataSource.open(streamDataSpec);
+        byte[] output = readUntilEndOfInput();
+
+        assertThat(output).isEqualTo(concat(buildStream(1, 0, 50), buildStream(1, 60, 50)));
+        assertThat(metricsRegistry.counter("stream.splice.misses").get()).isEqualTo(1);
+    }
+
+    private List<byte[]> readFrames(int numOfFrames) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = 0; i < numOfFrames; i++) {
+            byte[] frame = new byte[FRAME_SIZE_IN_BYTES];
+            int offset = 0;
+            while (offset < frame.length) {
+                offset += handoverDataSource.read(frame, offset, frame.length - offset);
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private byte[] readUntilEndOfInput() throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        byte[] chunk = new byte[100];
+        int numOfBytesRead;
+        while ((numOfBytesRead = handoverDataSource.read(chunk, 0, chunk.length)) != C.RESULT_END_OF_INPUT) {
+            chunks.add(Arrays.copyOf(chunk, numOfBytesRead));
+        }
+        return concatFrames(chunks);
+    }
+
+    private byte[] concatFrames(List<byte[]> frames) {
+        return concat(frames.toArray(new byte[frames.size()][]));
+    }
+
+
+    private static class FakeStreamDataSourceFactory implements StreamDataSourceFactory {
+
+        private final LinkedList<DataSource> dataSources = new LinkedList<>();
+
+        private synchronized void enqueue(DataSource dataSource) {
+            dataSources.add(dataSource);
+        }
+
+        @Override
+        public synchronized DataSource createDataSource() {
+            // Once the scripted connections run out, the server keeps accepting connections but sends nothing.
+            return dataSources.isEmpty() ? new ByteArrayDataSource(new byte[0]) : dataSources.removeFirst();
+        }
+    }
+
+
+    private static class StallingDataSource implements DataSource {
+
+        private final byte[] data;
+        private int position;
+        private final CountDownLatch closedLatch = new CountDownLatch(1);
+
+        private StallingDataSource(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) {
+            return C.LENGTH_UNBOUNDED;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int readLength) throws IOException {
+            if (position < data.length) {
+                int numOfBytesToCopy = Math.min(readLength, data.length - position);
+                System.arraycopy(data, position, buffer, offset, numOfBytesToCopy);
+                position += numOfBytesToCopy;
+                return numOfBytesToCopy;
+            }
+
+            // Behaves like a socket on a network that has gone away: blocks until closed from elsewhere.
+            try {
+                closedLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Connection reset");
+        }
+
+        @Override
+        public void close() {
+            closedLatch.countDown();
+        }
+
+        private boolean isClosed() {
+            return closedLatch.getCount() == 0;
+        }
+    }
+
+
+    private static class FailingDataSource implements DataSource {
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            throw new IOException("Network unreachable");
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int readLength) throws IOException {
+            throw new IOException("Not opened");
+        }
+
+        @Override
+        public void close() {}
+    }
+
+
+    private static class ReplayingLiveStreamServer implements StreamDataSourceFactory {
+
+        private static final int MIN_BYTES_BEFORE_DISCONNECT = 8 * 1024;
+        private static final int MAX_BYTES_BEFORE_DISCONNECT = 64 * 1024;
+        private static final int MAX_BURST_IN_FRAMES = 60;
+
+        private final Random random;
+        private final int minBurstInFrames;
+        private int lastServedFrameIndex = 1000;
+
+        private ReplayingLiveStreamServer(Random random, int minBurstInFrames) {
+            this.random = random;
+            this.minBurstInFrames = minBurstInFrames;
+        }
+
+        @Override
+        public synchronized DataSource createDataSource() {
+            // Like a real server, each new listener gets a burst of recent audio, so consecutive connections overlap.
+            int burstInFrames = minBurstInFrames + random.nextInt(MAX_BURST_IN_FRAMES - minBurstInFrames);
+            int firstFrameIndex = lastServedFrameIndex + 1 - burstInFrames;
+            int bytesBeforeDisconnect = MIN_BYTES_BEFORE_DISCONNECT + random.nextInt(MAX_BYTES_BEFORE_DISCONNECT - MIN_BYTES_BEFORE_DISCONNECT);
+            return new ReplayingConnection(firstFrameIndex, bytesBeforeDisconnect);
+        }
+
+        private synchronized void onFrameServed(int frameIndex) {
+            lastServedFrameIndex = frameIndex;
+        }
+
+
+        private class ReplayingConnection implements DataSource {
+
+            private final int firstFrameIndex;
+            private final int bytesBeforeDisconnect;
+            private int position;
+            private byte[] currentFrame;
+
+            private ReplayingConnection(int firstFrameIndex, int bytesBeforeDisconnect) {
+                this.firstFrameIndex = firstFrameIndex;
+                this.bytesBeforeDisconnect = bytesBeforeDisconnect;
+            }
+
+            @Override
+            public long open(DataSpec dataSpec) {
+                return C.LENGTH_UNBOUNDED;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int readLength) throws IOException {
+                if (position >= bytesBeforeDisconnect) {
+                    throw new IOException("Connection reset");
+                }
+
+                int frameIndex = firstFrameIndex + position / FRAME_SIZE_IN_BYTES;
+                int offsetInFrame = position % FRAME_SIZE_IN_BYTES;
+                if (offsetInFrame == 0 || currentFrame == null) {
+                    currentFrame = buildFrame(1, frameIndex);
+                }
+
+                int numOfBytesToCopy = Math.min(readLength, Math.min(FRAME_SIZE_IN_BYTES - offsetInFrame, bytesBeforeDisconnect - position));
+                System.arraycopy(currentFrame, offsetInFrame, buffer, offset, numOfBytesToCopy);
+                position += numOfBytesToCopy;
+                if (position % FRAME_SIZE_IN_BYTES == 0) {
+                    onFrameServed(frameIndex);
+                }
+                return numOfBytesToCopy;
+            }
+
+            @Override
+            public void close() {}
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.DefaultHttpDataSource;
+import com.jcanseco.radio.BuildConfig;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.network.TlsHandshakeRecorder;
+import com.jcanseco.radio.testfakes.FakeStreamServer;
+import com.jcanseco.radio.testutilities.Benchmark;
+import com.jcanseco.radio.testutilities.TlsTestingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.Dns;
+
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.buildStream;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// Compares the NIO connection against ExoPlayer's HttpURLConnection based data source, reading the same stream
+// from local HTTP and HTTPS servers with the buffer size ExtractorSampleSource reads with.
+@Category(Benchmark.class)
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class NioHttpConnectionBenchmarkTest {
+
+    private static final int NUM_OF_BYTES_PER_RUN = 16 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE_IN_BYTES = 4096;
+    private static final int NUM_OF_RUNS = 5;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private FakeStreamServer httpServer;
+    private FakeStreamServer httpsServer;
+    private SSLContext clientSslContext;
+
+    @Before
+    public void setup() throws Exception {
+        byte[] audio = buildStream(1, 0, 100);
+        httpServer = new FakeStreamServer(0, FakeStreamServer.Failure.NONE, audio);
+        httpsServer = new FakeStreamServer(0, FakeStreamServer.Failure.NONE, audio, TlsTestingUtilities.createServerSslContext());
+        clientSslContext = TlsTestingUtilities.createClientSslContext();
+    }
+
+    @After
+    public void teardown() throws IOException {
+        httpServer.shutdown();
+        httpsServer.shutdown();
+    }
+
+    @Test
+    public void benchmarkCpuTimeAndAllocationsPerMegabyte() throws Exception {
+        DirectByteBufferPool bufferPool = new DirectByteBufferPool(4);
+
+        for (FakeStreamServer server : new FakeStreamServer[] {httpServer, httpsServer}) {
+            Result nioResult = null;
+            Result httpUrlConnectionResult = null;
+            for (int i = 0; i < NUM_OF_RUNS; i++) {
+                nioResult = Result.best(nioResult, runNioHttpConnection(server, bufferPool));
+                httpUrlConnectionResult = Result.best(httpUrlConnectionResult, runDefaultHttpDataSource(server));
+            }
+
+            System.out.printf("NioHttpConnection (%s): %s%n", Uri.parse(server.getUrl()).getScheme(), nioResult);
+            System.out.printf("DefaultHttpDataSource (%s): %s%n", Uri.parse(server.getUrl()).getScheme(), httpUrlConnectionResult);
+        }
+    }
+
+    private Result runNioHttpConnection(FakeStreamServer server, DirectByteBufferPool bufferPool) throws Exception {
+        NioHttpConnection.Factory connectionFactory = new NioHttpConnection.Factory("Radio/test", Dns.SYSTEM, clientSslContext,
+                TlsTestingUtilities.createLoopbackHostnameVerifier(), new TlsHandshakeRecorder(new MetricsRegistry()), mock(DataUsageLedger.class),
+                bufferPool, 8000);
+        StreamEndpoint endpoint = new StreamEndpoint(Uri.parse(server.getUrl()), InetAddress.getByName("127.0.0.1"));
+        byte[] buffer = new byte[READ_BUFFER_SIZE_IN_BYTES];
+
+        Measurement measurement = new Measurement();
+        NioHttpConnection connection = connectionFactory.create(endpoint);
+        connection.connect();
+        int numOfBytesRead = 0;
+        while (numOfBytesRead < NUM_OF_BYTES_PER_RUN) {
+            numOfBytesRead += connection.read(buffer, 0, buffer.length);
+        }
+        connection.close();
+        assertThat(numOfBytesRead).isGreaterThanOrEqualTo(NUM_OF_BYTES_PER_RUN);
+        return measurement.finish(numOfBytesRead);
+    }
+
+    private Result runDefaultHttpDataSource(FakeStreamServer server) throws Exception {
+        // HttpURLConnection only picks up TLS settings through these process wide defaults.
+        SSLSocketFactory defaultSslSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        HostnameVerifier defaultHostnameVerifier = HttpsURLConnection.getDefaultHostnameVerifier();
+        HttpsURLConnection.setDefaultSSLSocketFactory(clientSslContext.getSocketFactory());
+        HttpsURLConnection.setDefaultHostnameVerifier(TlsTestingUtilities.createLoopbackHostnameVerifier());
+        try {
+            DefaultHttpDataSource dataSource = new DefaultHttpDataSource("Radio/test", null);
+            byte[] buffer = new byte[READ_BUFFER_SIZE_IN_BYTES];
+
+            Measurement measurement = new Measurement();
+            dataSource.open(new DataSpec(Uri.parse(server.getUrl())));
+            int numOfBytesRead = 0;
+            while (numOfBytesRead < NUM_OF_BYTES_PER_RUN) {
+                numOfBytesRead += dataSource.read(buffer, 0, buffer.length);
+            }
+            dataSource.close();
+            assertThat(numOfBytesRead).isGreaterThanOrEqualTo(NUM_OF_BYTES_PER_RUN);
+            return measurement.finish(numOfBytesRead);
+        } finally {
+            HttpsURLConnection.setDefaultSSLSocketFactory(defaultSslSocketFactory);
+            HttpsURLConnection.setDefaultHostnameVerifier(defaultHostnameVerifier);
+        }
+    }
+
+
+    private class Measurement {
+
+        private final long startCpuTimeNanos = threadMXBean.getCurrentThreadCpuTime();
+        private final long startAllocatedBytes = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+        private Result finish(int numOfBytesRead) {
+            long cpuTimeNanos = threadMXBean.getCurrentThreadCpuTime() - startCpuTimeNanos;
+            long allocatedBytes = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - startAllocatedBytes;
+            double numOfMegabytesRead = numOfBytesRead / (1024.0 * 1024.0);
+            return new Result((long) (cpuTimeNanos / numOfMegabytesRead), (long) (allocatedBytes / numOfMegabytesRead));
+        }
+    }
+
+
+    private static class Result {
+
+        private final long cpuTimeNanos;
+        private final long allocatedBytes;
+
+        private Result(long cpuTimeNanos, long allocatedBytes) {
+            this.cpuTimeNanos = cpuTimeNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        private static Result best(Result result, Result otherResult) {
+            if (result == null) {
+                return otherResult;
+            }
+            return new Result(Math.min(result.cpuTimeNanos, otherResult.cpuTimeNanos),
+                    Math.min(result.allocatedBytes, otherResult.allocatedBytes));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("CPU time %d us per MB, %d bytes allocated per MB", cpuTimeNanos / 1000, allocatedBytes);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.net.Uri;
+
+import com.jcanseco.radio.BuildConfig;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.datausage.TrafficCategory;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.network.TlsHandshakeRecorder;
+import com.jcanseco.radio.testfakes.FakeStreamServer;
+import com.jcanseco.radio.testutilities.TlsTestingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+import okhttp3.Dns;
+
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.buildStream;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.fail;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class NioHttpConnectionTest {
+
+    private static final int TIMEOUT_IN_MILLIS = 500;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<FakeStreamServer> servers = new ArrayList<>();
+    private byte[] audio;
+    private SSLContext serverSslContext;
+    private SSLContext clientSslContext;
+    private DirectByteBufferPool bufferPool;
+    private MetricsRegistry metricsRegistry;
+    private TlsHandshakeRecorder handshakeRecorder;
+    private DataUsageLedger dataUsageLedger;
+
+    @Before
+    public void setup() throws IOException, GeneralSecurityException {
+        audio = buildStream(1, 0, 40);
+        serverSslContext = TlsTestingUtilities.createServerSslContext();
+        clientSslContext = TlsTestingUtilities.createClientSslContext();
+        bufferPool = new DirectByteBufferPool(4);
+        metricsRegistry = new MetricsRegistry();
+        handshakeRecorder = new TlsHandshakeRecorder(metricsRegistry);
+        dataUsageLedger = new DataUsageLedger(temporaryFolder.getRoot(), null);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        for (FakeStreamServer server : servers) {
+            server.shutdown();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testThatAudioIsReadOverPlainHttp() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, null);
+
+        NioHttpConnection connection = connect(server);
+
+        assertThat(readFully(connection, audio.length * 3)).isEqualTo(repeat(audio, 3));
+        assertThat(server.getLastRequest())
+                .startsWith("GET /main.mp3 HTTP/1.1\r\n")
+                .contains("Host: 127.0.0.1:")
+                .contains("User-Agent: Radio/test\r\n");
+        connection.close();
+    }
+
+    @Test(timeout = 5000)
+    public void testThatAudioIsReadOverHttps() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, serverSslContext);
+
+        NioHttpConnection connection = connect(server);
+
+        assertThat(readFully(connection, audio.length * 3)).isEqualTo(repeat(audio, 3));
+        assertThat(server.getLastRequest()).startsWith("GET /main.mp3 HTTP/1.1\r\n");
+        connection.close();
+    }
+
+    @Test(timeout = 5000)
+    public void whenReconnectingToTheSameHost_thenTlsSessionIsResumed() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, serverSslContext);
+
+        connect(server).close();
+        Thread.sleep(10);
+        connect(server).close();
+
+        assertThat(metricsRegistry.counter("tls.handshakes.full").get()).isEqualTo(1);
+        assertThat(metricsRegistry.counter("tls.handshakes.resumed").get()).isEqualTo(1);
+    }
+
+    @Test(timeout = 5000)
+    public void testThatChunkedAudioIsDecodedOverHttps() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, serverSslContext);
+        server.setChunkedTransferEncoding(true);
+
+        NioHttpConnection connection = connect(server);
+
+        assertThat(readFully(connection, audio.length * 3)).isEqualTo(repeat(audio, 3));
+        connection.close();
+    }
+
+    @Test(timeout = 5000, expected = SSLException.class)
+    public void whenHostnameIsNotVerified_thenConnectFails() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, serverSslContext);
+        HostnameVerifier rejectingVerifier = new HostnameVerifier() {
+            @Override
+            public boolean verify(String hostname, SSLSession session) {
+                return false;
+            }
+        };
+
+        createConnection(server, rejectingVerifier).connect();
+    }
+
+    @Test(timeout = 5000)
+    public void whenServerSendsHeadersButNoAudio_thenConnectTimesOut() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.HEADERS_WITHOUT_AUDIO, null);
+        NioHttpConnection connection = createConnection(server, TlsTestingUtilities.createLoopbackHostnameVerifier());
+
+        long startedAtMillis = System.currentTimeMillis();
+        try {
+            connection.connect();
+            fail("Connecting to a silent server should have timed out.");
+        } catch (SocketTimeoutException e) {
+            assertThat(System.currentTimeMillis() - startedAtMillis).isBetween((long) TIMEOUT_IN_MILLIS, 2000L);
+        }
+        connection.close();
+    }
+
+    @Test(timeout = 5000)
+    public void whenAudioIsReceivedButNeverRead_thenItStillCountsTowardsStreamDataUsage() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, null);
+
+        NioHttpConnection connection = connect(server);
+        readFully(connection, 100);
+        connection.close();
+
+        // The request, the response headers and whatever audio arrived past the 100 bytes handed out.
+        assertThat(dataUsageLedger.getBytesUsedToday(TrafficCategory.STREAM))
+                .isGreaterThan(server.getLastRequest().length() + 100);
+    }
+
+    @Test(timeout = 5000)
+    public void whenConnectingOverTls_thenHandshakeBytesCountTowardsStreamDataUsage() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, serverSslContext);
+
+        NioHttpConnection connection = connect(server);
+        readFully(connection, 100);
+        connection.close();
+
+        // Certificates alone take far more than the plain request and headers.
+        assertThat(dataUsageLedger.getBytesUsedToday(TrafficCategory.STREAM))
+                .isGreaterThan(server.getLastRequest().length() + 100 + 1000);
+    }
+
+    @Test(timeout = 5000)
+    public void whenClosedFromAnotherThread_thenConnectIsCancelledImmediately() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.HEADERS_WITHOUT_AUDIO, serverSslContext);
+        final NioHttpConnection connection = new NioHttpConnection.Factory("Radio/test", Dns.SYSTEM, clientSslContext,
+                TlsTestingUtilities.createLoopbackHostnameVerifier(), handshakeRecorder, dataUsageLedger, bufferPool, 30000)
+                .create(endpointFor(server));
+
+        Thread closingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                connection.closeQuietly();
+            }
+        });
+        closingThread.start();
+
+        long startedAtMillis = System.currentTimeMillis();
+        try {
+            connection.connect();
+            fail("Closing the connection should have cancelled connect().");
+        } catch (IOException e) {
+            assertThat(System.currentTimeMillis() - startedAtMillis).isLessThan(2000);
+        }
+        closingThread.join();
+    }
+
+    // The close lands at a different point of connect() each time, including between the closed check and the
+    // selector calls, where the cancelled key and the closed selector used to escape as unchecked exceptions.
+    @Test(timeout = 20000)
+    public void whenClosedFromAnotherThreadAtAnyPoint_thenConnectOnlyFailsWithIOException() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.HEADERS_WITHOUT_AUDIO, null);
+        NioHttpConnection.Factory factory = new NioHttpConnection.Factory("Radio/test", Dns.SYSTEM, clientSslContext,
+                TlsTestingUtilities.createLoopbackHostnameVerifier(), handshakeRecorder, dataUsageLedger, bufferPool, 30000);
+
+        for (int i = 0; i < 200; i++) {
+            final NioHttpConnection connection = factory.create(endpointFor(server));
+            final long closeDelayInNanos = (i % 20) * 50000L;
+            Thread closingThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long closeAtNanos = System.nanoTime() + closeDelayInNanos;
+                    while (System.nanoTime() < closeAtNanos) {
+                        // Spins, since sleeping can't land this precisely.
+                    }
+                    connection.closeQuietly();
+                }
+            });
+            closingThread.start();
+
+            try {
+                connection.connect();
+                fail("Closing the connection should have cancelled connect().");
+            } catch (IOException e) {
+                // Expected, whichever point the close landed at.
+            }
+            closingThread.join();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void whenConnectionIsClosed_thenItsBuffersAreReusedByTheNextOne() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, serverSslContext);
+
+        NioHttpConnection connection = connect(server);
+        connection.close();
+        int numOfPooledBuffers = bufferPool.getNumOfPooledBuffers();
+        NioHttpConnection nextConnection = connect(server);
+
+        assertThat(numOfPooledBuffers).isEqualTo(3);
+        assertThat(bufferPool.getNumOfPooledBuffers()).isEqualTo(0);
+        nextConnection.close();
+    }
+
+    @Test(timeout = 5000)
+    public void whenServerRedirects_thenFollowTheRedirect() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, serverSslContext);
+        server.setRedirectLocation("/live.mp3");
+
+        NioHttpConnection connection = connect(server);
+
+        assertThat(readFully(connection, audio.length)).isEqualTo(audio);
+        assertThat(server.getLastRequest()).startsWith("GET /live.mp3 HTTP/1.1\r\n");
+        assertThat(server.getNumOfAcceptedConnections()).isEqualTo(2);
+        connection.close();
+    }
+
+    @Test(timeout = 5000, expected = ProtocolException.class)
+    public void whenServerKeepsRedirecting_thenConnectFails() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, null);
+        server.setRedirectLocation("/main.mp3");
+
+        connect(server);
+    }
+
+    @Test(timeout = 5000, expected = ProtocolException.class)
+    public void whenServerRedirectsFromHttpsToHttp_thenConnectFails() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.NONE, serverSslContext);
+        server.setRedirectLocation(startServer(FakeStreamServer.Failure.NONE, null).getUrl());
+
+        connect(server);
+    }
+
+    @Test(timeout = 5000)
+    public void whenConnectingThreadIsInterrupted_thenConnectStopsImmediately() throws Exception {
+        FakeStreamServer server = startServer(FakeStreamServer.Failure.HEADERS_WITHOUT_AUDIO, null);
+        final NioHttpConnection connection = new NioHttpConnection.Factory("Radio/test", Dns.SYSTEM, clientSslContext,
+                TlsTestingUtilities.createLoopbackHostnameVerifier(), handshakeRecorder, dataUsageLedger, bufferPool, 30000)
+                .create(endpointFor(server));
+        final Thread connectingThread = Thread.currentThread();
+
+        Thread interruptingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                connectingThread.interrupt();
+            }
+        });
+        interruptingThread.start();
+
+        long startedAtMillis = System.currentTimeMillis();
+        try {
+            connection.connect();
+            fail("Interrupting the thread should have cancelled connect().");
+        } catch (InterruptedIOException e) {
+            assertThat(System.currentTimeMillis() - startedAtMillis).isLessThan(2000);
+        } finally {
+            Thread.interrupted();
+            interruptingThread.join();
+            connection.close();
+        }
+    }
+
+    @Test(timeout = 5000, expected = IOException.class)
+    public void whenReadingAfterClose_thenThrowIOException() throws Exception {
+        NioHttpConnection connection = connect(startServer(FakeStreamServer.Failure.NONE, null));
+        connection.close();
+
+        connection.read(new byte[16], 0, 16);
+    }
+
+    private FakeStreamServer startServer(FakeStreamServer.Failure failure, SSLContext sslContext) throws IOException {
+        FakeStreamServer server = new FakeStreamServer(0, failure, audio, sslContext);
+        servers.add(server);
+        return server;
+    }
+
+    private NioHttpConnection connect(FakeStreamServer server) throws IOException {
+        NioHttpConnection connection = createConnection(server, TlsTestingUtilities.createLoopbackHostnameVerifier());
+        connection.connect();
+        return connection;
+    }
+
+    private NioHttpConnection createConnection(FakeStreamServer server, HostnameVerifier hostnameVerifier) throws IOException {
+        return new NioHttpConnection.Factory("Radio/test", Dns.SYSTEM, clientSslContext, hostnameVerifier, handshakeRecorder,
+                dataUsageLedger, bufferPool, TIMEOUT_IN_MILLIS)
+                .create(endpointFor(server));
+    }
+
+    private StreamEndpoint endpointFor(FakeStreamServer server) throws IOException {
+        return new StreamEndpoint(Uri.parse(server.getUrl()), InetAddress.getByName("127.0.0.1"));
+    }
+
+    private static byte[] readFully(NioHttpConnection connection, int length) throws IOException {
+        byte[] buffer = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            offset += connection.read(buffer, offset, length - offset);
+        }
+        return buffer;
+    }
+
+    private static byte[] repeat(byte[] data, int times) {
+        byte[] repeated = new byte[data.length * times];
+        for (int i = 0; i < times; i++) {
+            System.arraycopy(data, 0, repeated, i * data.length, data.length);
+        }
+        return repeated;
+    }
+}
@@ -0,0 +1,114 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.jcanseco.radio.BuildConfig;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.network.TlsHandshakeRecorder;
+import com.jcanseco.radio.testfakes.FakeStreamServer;
+import com.jcanseco.radio.testutilities.TlsTestingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.GeneralSecurityException;
+import java.util.Collections;
+
+import okhttp3.Dns;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class RacingStreamDataSourceTest {
+
+    private FakeStreamServer slowPrimaryServer;
+    private FakeStreamServer fastMirrorServer;
+
+    private PreferredStreamEndpointStore preferredEndpointStore;
+    private StreamEndpointResolver loopbackResolver;
+    private NioHttpConnection.Factory connectionFactory;
+
+    @Before
+    public void setup() throws IOException, GeneralSecurityException {
+        slowPrimaryServer = new FakeStreamServer(1500, FakeStreamServer.Failure.NONE, new byte[] {1});
+        fastMirrorServer = new FakeStreamServer(0, FakeStreamServer.Failure.NONE, new byte[] {2});
+
+        preferredEndpointStore = new PreferredStreamEndpointStore(
+                RuntimeEnvironment.application.getSharedPreferences("stream_endpoints", Context.MODE_PRIVATE));
+        loopbackResolver = new StreamEndpointResolver() {
+            @Override
+            protected InetAddress[] lookup(String host) throws UnknownHostException {
+                return new InetAddress[] {InetAddress.getByName("127.0.0.1")};
+            }
+        };
+        connectionFactory = new NioHttpConnection.Factory("Radio/test", Dns.SYSTEM, TlsTestingUtilities.createClientSslContext(),
+                TlsTestingUtilities.createLoopbackHostnameVerifier(), new TlsHandshakeRecorder(new MetricsRegistry()), mock(DataUsageLedger.class),
+                new DirectByteBufferPool(4), 8000);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        slowPrimaryServer.shutdown();
+        fastMirrorServer.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testThatWinningEndpointIsTriedFirstNextTime() throws IOException {
+        RacingStreamDataSource firstDataSource = createDataSource();
+        firstDataSource.open(new DataSpec(Uri.parse(slowPrimaryServer.getUrl())));
+        firstDataSource.close();
+
+        assertThat(preferredEndpointStore.getPreferredEndpointKey()).startsWith(fastMirrorServer.getUrl());
+
+        // Had the primary been tried first again, it would have been given an attempt delay's head start.
+        int numOfPrimaryConnectionsBefore = slowPrimaryServer.getNumOfAcceptedConnections();
+        RacingStreamDataSource secondDataSource = createDataSource();
+        secondDataSource.open(new DataSpec(Uri.parse(slowPrimaryServer.getUrl())));
+
+        assertThat(secondDataSource.getUri()).isEqualTo(fastMirrorServer.getUrl());
+        assertThat(slowPrimaryServer.getNumOfAcceptedConnections()).isEqualTo(numOfPrimaryConnectionsBefore);
+        secondDataSource.close();
+    }
+
+    @Test(timeout = 10000, expected = IOException.class)
+    public void whenClosedFromAnotherThreadBetweenReads_thenNextReadThrowsIOException() throws Exception {
+        final RacingStreamDataSource dataSource = createDataSource();
+        dataSource.open(new DataSpec(Uri.parse(fastMirrorServer.getUrl())));
+        byte[] buffer = new byte[100];
+        assertThat(dataSource.read(buffer, 0, buffer.length)).isGreaterThan(0);
+
+        Thread closingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    dataSource.close();
+                } catch (IOException e) {
+                    // The next read fails either way.
+                }
+            }
+        });
+        closingThread.start();
+        closingThread.join();
+
+        dataSource.read(buffer, 0, buffer.length);
+    }
+
+    private RacingStreamDataSource createDataSource() {
+        StreamConnectionRacer connectionRacer = new StreamConnectionRacer(connectionFactory, new MetricsRegistry(), 500);
+        return new RacingStreamDataSource(Collections.singletonList(Uri.parse(fastMirrorServer.getUrl())), loopbackResolver,
+                connectionRacer, preferredEndpointStore);
+    }
+}
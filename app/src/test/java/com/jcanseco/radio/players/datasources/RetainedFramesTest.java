@@ -0,0 +1,83 @@
+package com.jcanseco.radio.players.datasources;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.FRAME_SIZE_IN_BYTES;
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.buildFrame;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class RetainedFramesTest {
+
+    private RetainedFrames retainedFrames;
+
+    @Before
+    public void setup() {
+        // Room for ten frames plus a tail that's too short for another one.
+        retainedFrames = new RetainedFrames(10 * FRAME_SIZE_IN_BYTES + 100);
+    }
+
+    @Test
+    public void testThatOnlyTheNewestFramesThatFitAreRetained() {
+        addFrames(0, 25);
+
+        assertThat(retainedFrames.size()).isEqualTo(10);
+        assertThat(retainedFrames.findNumOfFramesAlreadyDelivered(buildFrames(15, 4))).isEqualTo(10);
+        assertThat(retainedFrames.findNumOfFramesAlreadyDelivered(buildFrames(14, 4))).isEqualTo(RetainedFrames.NO_MATCH);
+    }
+
+    @Test
+    public void whenNewFramesStartWithinRetainedWindow_thenCountFramesFromTheirStart() {
+        addFrames(0, 25);
+
+        assertThat(retainedFrames.findNumOfFramesAlreadyDelivered(buildFrames(20, 8))).isEqualTo(5);
+        assertThat(retainedFrames.findNumOfFramesAlreadyDelivered(buildFrames(21, 4))).isEqualTo(4);
+    }
+
+    @Test
+    public void whenNewFramesStartBeforeRetainedWindow_thenCountFramesUpToNewestRetainedFrame() {
+        addFrames(0, 25);
+
+        assertThat(retainedFrames.findNumOfFramesAlreadyDelivered(buildFrames(5, 40))).isEqualTo(20);
+    }
+
+    @Test
+    public void whenNewFramesStartAfterNewestRetainedFrame_thenReturnNoMatch() {
+        addFrames(0, 25);
+
+        assertThat(retainedFrames.findNumOfFramesAlreadyDelivered(buildFrames(25, 10))).isEqualTo(RetainedFrames.NO_MATCH);
+    }
+
+    @Test
+    public void whenFewerFramesThanMinimumRunAreAvailable_thenReturnNoMatch() {
+        addFrames(0, RetainedFrames.MIN_MATCHING_RUN_IN_FRAMES - 1);
+
+        assertThat(retainedFrames.findNumOfFramesAlreadyDelivered(buildFrames(0, 10))).isEqualTo(RetainedFrames.NO_MATCH);
+    }
+
+    @Test
+    public void whenCleared_thenNothingMatches() {
+        addFrames(0, 25);
+        retainedFrames.clear();
+
+        assertThat(retainedFrames.size()).isEqualTo(0);
+        assertThat(retainedFrames.findNumOfFramesAlreadyDelivered(buildFrames(20, 5))).isEqualTo(RetainedFrames.NO_MATCH);
+    }
+
+    private void addFrames(int firstFrameIndex, int numOfFrames) {
+        for (byte[] frame : buildFrames(firstFrameIndex, numOfFrames)) {
+            retainedFrames.add(frame, frame.length);
+        }
+    }
+
+    private List<byte[]> buildFrames(int firstFrameIndex, int numOfFrames) {
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = 0; i < numOfFrames; i++) {
+            frames.add(buildFrame(1, firstFrameIndex + i));
+        }
+        return frames;
+    }
+}
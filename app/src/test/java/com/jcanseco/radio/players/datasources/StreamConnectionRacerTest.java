@@ -0,0 +1,144 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.net.Uri;
+
+import com.jcanseco.radio.BuildConfig;
+import com.jcanseco.radio.datausage.DataUsageLedger;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.network.TlsHandshakeRecorder;
+import com.jcanseco.radio.testfakes.FakeStreamServer;
+import com.jcanseco.radio.testutilities.TlsTestingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.Dns;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class StreamConnectionRacerTest {
+
+    private static final byte[] AUDIO = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    private final List<FakeStreamServer> servers = new ArrayList<>();
+    private MetricsRegistry metricsRegistry;
+    private NioHttpConnection.Factory connectionFactory;
+
+    @Before
+    public void setup() throws IOException, GeneralSecurityException {
+        metricsRegistry = new MetricsRegistry();
+        connectionFactory = new NioHttpConnection.Factory("Radio/test", Dns.SYSTEM, TlsTestingUtilities.createClientSslContext(),
+                TlsTestingUtilities.createLoopbackHostnameVerifier(), new TlsHandshakeRecorder(metricsRegistry), mock(DataUsageLedger.class),
+                new DirectByteBufferPool(4), 8000);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        for (FakeStreamServer server : servers) {
+            server.shutdown();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void whenFirstEndpointIsSlow_thenLaterFasterEndpointWinsAndSlowOneIsCancelled() throws Exception {
+        FakeStreamServer slowServer = startServer(3000, FakeStreamServer.Failure.NONE);
+        FakeStreamServer fastServer = startServer(0, FakeStreamServer.Failure.NONE);
+
+        long startedAtMillis = System.currentTimeMillis();
+        NioHttpConnection connection = createRacer(250).race(endpointsFor(slowServer, fastServer));
+
+        assertThat(connection.getEndpoint().getUri().toString()).isEqualTo(fastServer.getUrl());
+        assertThat(System.currentTimeMillis() - startedAtMillis).isLessThan(2000);
+        awaitCancelledConnection(slowServer);
+        connection.close();
+    }
+
+    @Test(timeout = 5000)
+    public void whenEndpointFails_thenNextAttemptStartsWithoutWaitingForAttemptDelay() throws Exception {
+        FakeStreamServer failingServer = startServer(0, FakeStreamServer.Failure.SERVICE_UNAVAILABLE);
+        FakeStreamServer closingServer = startServer(0, FakeStreamServer.Failure.CLOSE_WITHOUT_RESPONSE);
+        FakeStreamServer workingServer = startServer(0, FakeStreamServer.Failure.NONE);
+
+        long startedAtMillis = System.currentTimeMillis();
+        NioHttpConnection connection = createRacer(10000).race(endpointsFor(failingServer, closingServer, workingServer));
+
+        assertThat(connection.getEndpoint().getUri().toString()).isEqualTo(workingServer.getUrl());
+        assertThat(System.currentTimeMillis() - startedAtMillis).isLessThan(3000);
+        assertThat(metricsRegistry.counter("stream.race.failed_attempts").get()).isEqualTo(2);
+        connection.close();
+    }
+
+    @Test(timeout = 5000)
+    public void whenEndpointSendsHeadersButNoAudio_thenEndpointThatSendsAudioWins() throws Exception {
+        FakeStreamServer silentServer = startServer(0, FakeStreamServer.Failure.HEADERS_WITHOUT_AUDIO);
+        FakeStreamServer workingServer = startServer(500, FakeStreamServer.Failure.NONE);
+
+        NioHttpConnection connection = createRacer(100).race(endpointsFor(silentServer, workingServer));
+
+        assertThat(connection.getEndpoint().getUri().toString()).isEqualTo(workingServer.getUrl());
+        awaitCancelledConnection(silentServer);
+        connection.close();
+    }
+
+    @Test(timeout = 5000)
+    public void testThatWinningConnectionDeliversAudioFromItsFirstByte() throws Exception {
+        FakeStreamServer server = startServer(0, FakeStreamServer.Failure.NONE);
+
+        NioHttpConnection connection = createRacer(250).race(endpointsFor(server));
+        byte[] buffer = new byte[AUDIO.length];
+        int offset = 0;
+        while (offset < buffer.length) {
+            offset += connection.read(buffer, offset, buffer.length - offset);
+        }
+
+        assertThat(buffer).isEqualTo(AUDIO);
+        assertThat(server.getLastRequest()).startsWith("GET /main.mp3 HTTP/1.1\r\n").contains("User-Agent: Radio/test\r\n");
+        connection.close();
+    }
+
+    @Test(timeout = 5000, expected = IOException.class)
+    public void whenEveryEndpointFails_thenThrowIOException() throws Exception {
+        FakeStreamServer failingServer = startServer(0, FakeStreamServer.Failure.SERVICE_UNAVAILABLE);
+        FakeStreamServer closingServer = startServer(0, FakeStreamServer.Failure.CLOSE_WITHOUT_RESPONSE);
+
+        createRacer(250).race(endpointsFor(failingServer, closingServer));
+    }
+
+    private FakeStreamServer startServer(long responseDelayInMillis, FakeStreamServer.Failure failure) throws IOException {
+        FakeStreamServer server = new FakeStreamServer(responseDelayInMillis, failure, AUDIO);
+        servers.add(server);
+        return server;
+    }
+
+    private StreamConnectionRacer createRacer(long connectionAttemptDelayInMillis) {
+        return new StreamConnectionRacer(connectionFactory, metricsRegistry, connectionAttemptDelayInMillis);
+    }
+
+    private List<StreamEndpoint> endpointsFor(FakeStreamServer... servers) throws IOException {
+        List<StreamEndpoint> endpoints = new ArrayList<>();
+        for (FakeStreamServer server : Arrays.asList(servers)) {
+            endpoints.add(new StreamEndpoint(Uri.parse(server.getUrl()), InetAddress.getByName("127.0.0.1")));
+        }
+        return endpoints;
+    }
+
+    private void awaitCancelledConnection(FakeStreamServer server) throws InterruptedException {
+        while (server.getNumOfCancelledConnections() == 0) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.jcanseco.radio.players.datasources;
+
+import android.net.Uri;
+
+import com.jcanseco.radio.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class StreamEndpointResolverTest {
+
+    private Uri primaryUri;
+    private Uri mirrorUri;
+    private Uri unresolvableUri;
+
+    private StreamEndpointResolver streamEndpointResolver;
+
+    @Before
+    public void setup() {
+        primaryUri = Uri.parse("https://primary.example/main.mp3");
+        mirrorUri = Uri.parse("https://mirror.example/main.mp3");
+        unresolvableUri = Uri.parse("https://unresolvable.example/main.mp3");
+
+        streamEndpointResolver = new StreamEndpointResolver() {
+            @Override
+            protected InetAddress[] lookup(String host) throws UnknownHostException {
+                switch (host) {
+                    case "primary.example":
+                        return new InetAddress[] {address("2001:db8::1"), address("2001:db8::2"), address("192.0.2.1")};
+                    case "mirror.example":
+                        return new InetAddress[] {address("192.0.2.2")};
+                    default:
+                        throw new UnknownHostException(host);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testThatAddressFamiliesAlternateStartingWithFirstResolvedFamily() throws Exception {
+        List<StreamEndpoint> endpoints = streamEndpointResolver.resolve(Arrays.asList(primaryUri, mirrorUri), null);
+
+        assertThat(getKeys(endpoints)).containsExactly(
+                key(primaryUri, "2001:db8::1"),
+                key(primaryUri, "192.0.2.1"),
+                key(primaryUri, "2001:db8::2"),
+                key(mirrorUri, "192.0.2.2"));
+    }
+
+    @Test
+    public void whenPreferredEndpointIsAmongResolvedEndpoints_thenTryItFirst() throws Exception {
+        List<StreamEndpoint> endpoints = streamEndpointResolver.resolve(Arrays.asList(primaryUri, mirrorUri), key(mirrorUri, "192.0.2.2"));
+
+        assertThat(getKeys(endpoints).get(0)).isEqualTo(key(mirrorUri, "192.0.2.2"));
+        assertThat(endpoints).hasSize(4);
+    }
+
+    @Test
+    public void whenMirrorDoesntResolve_thenSkipIt() throws Exception {
+        List<StreamEndpoint> endpoints = streamEndpointResolver.resolve(Arrays.asList(unresolvableUri, mirrorUri), null);
+
+        assertThat(getKeys(endpoints)).containsExactly(key(mirrorUri, "192.0.2.2"));
+    }
+
+    private static List<String> getKeys(List<StreamEndpoint> endpoints) {
+        List<String> keys = new ArrayList<>();
+        for (StreamEndpoint endpoint : endpoints) {
+            keys.add(endpoint.getKey());
+        }
+        return keys;
+    }
+
+    private static String key(Uri uri, String addressLiteral) throws UnknownHostException {
+        return new StreamEndpoint(uri, address(addressLiteral)).getKey();
+    }
+
+    private static InetAddress address(String literal) throws UnknownHostException {
+        return InetAddress.getByName(literal);
+    }
+}
@@ -0,0 +1,68 @@
+package com.jcanseco.radio.players.dsp;
+
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.players.LoudnessPolicy;
+import com.jcanseco.radio.testutilities.Benchmark;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@Category(Benchmark.class)
+public class LoudnessNormalizerBenchmarkTest {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BUFFER_SIZE_IN_BYTES = 1152 * 2 * 2;
+    private static final int NUM_OF_SAMPLES_PER_BUFFER = BUFFER_SIZE_IN_BYTES / 2;
+
+    // One hour of 44.1 kHz audio.
+    private static final int NUM_OF_BUFFERS = 60 * 60 * SAMPLE_RATE / 1152;
+    private static final int NUM_OF_RUNS = 5;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void benchmarkSamplesProcessedPerSecond() {
+        ByteBuffer input = buildLoudNoise();
+        ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE_IN_BYTES);
+        LoudnessNormalizer loudnessNormalizer = new LoudnessNormalizer(new LoudnessPolicy(true, -18f, 12f, -1f), new MetricsRegistry());
+        loudnessNormalizer.setFormat(SAMPLE_RATE, 2);
+
+        long bestCpuTimeNanos = Long.MAX_VALUE;
+        long allocatedBytes = 0;
+        for (int run = 0; run < NUM_OF_RUNS; run++) {
+            long threadId = Thread.currentThread().getId();
+            long startAllocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+            long startCpuTimeNanos = threadMXBean.getCurrentThreadCpuTime();
+
+            for (int i = 0; i < NUM_OF_BUFFERS; i++) {
+                loudnessNormalizer.process(input, 0, BUFFER_SIZE_IN_BYTES, output);
+            }
+
+            bestCpuTimeNanos = Math.min(bestCpuTimeNanos, threadMXBean.getCurrentThreadCpuTime() - startCpuTimeNanos);
+            allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - startAllocatedBytes;
+        }
+
+        long numOfSamples = (long) NUM_OF_BUFFERS * NUM_OF_SAMPLES_PER_BUFFER;
+        System.out.printf("LoudnessNormalizer: %d samples per second of CPU time (%dx real time), %d bytes allocated%n",
+                numOfSamples * 1000000000L / bestCpuTimeNanos, numOfSamples * 1000000000L / bestCpuTimeNanos / (2 * SAMPLE_RATE),
+                allocatedBytes);
+        // The loud input keeps the limiter busy, which is the expensive path.
+        assertThat(loudnessNormalizer.getGainInDb()).isLessThan(0f);
+        assertThat(allocatedBytes).isLessThan(1024);
+    }
+
+    private static ByteBuffer buildLoudNoise() {
+        byte[] samples = new byte[BUFFER_SIZE_IN_BYTES];
+        new Random(42).nextBytes(samples);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE_IN_BYTES);
+        buffer.put(samples);
+        return buffer;
+    }
+}
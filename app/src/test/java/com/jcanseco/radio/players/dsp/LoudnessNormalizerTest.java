@@ -0,0 +1,140 @@
+package com.jcanseco.radio.players.dsp;
+
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.players.LoudnessPolicy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.within;
+
+public class LoudnessNormalizerTest {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BUFFER_SIZE_IN_BYTES = 1152 * 2 * 2;
+    private static final int NUM_OF_BUFFERS_PER_SECOND = SAMPLE_RATE / 1152;
+
+    private static final float TARGET_LOUDNESS_IN_LUFS = -18f;
+    private static final float CEILING_IN_DBFS = -1f;
+
+    private LoudnessNormalizer loudnessNormalizer;
+    private ByteBuffer output;
+    private int numOfFramesGenerated;
+
+    @Before
+    public void setup() {
+        LoudnessPolicy loudnessPolicy = new LoudnessPolicy(true, TARGET_LOUDNESS_IN_LUFS, 12f, CEILING_IN_DBFS);
+        loudnessNormalizer = new LoudnessNormalizer(loudnessPolicy, new MetricsRegistry());
+        loudnessNormalizer.setFormat(SAMPLE_RATE, 2);
+        output = ByteBuffer.allocateDirect(BUFFER_SIZE_IN_BYTES);
+    }
+
+    @Test
+    public void testThatShortTermLoudnessOfSineMatchesItsLevel() {
+        // Per BS.1770, a 1 kHz sine on both channels measures about as many LUFS as its peak has dBFS.
+        process(-20, 4);
+
+        assertThat(loudnessNormalizer.getShortTermLoudnessInLufs()).isCloseTo(-20f, within(0.5f));
+    }
+
+    @Test
+    public void whenAudioIsQuiet_thenItIsBroughtUpToTarget() {
+        process(-28, 20);
+
+        assertThat(loudnessNormalizer.getGainInDb()).isCloseTo(10f, within(0.5f));
+        assertThat(toDbfs(getOutputPeak())).isCloseTo(TARGET_LOUDNESS_IN_LUFS, within(0.5));
+    }
+
+    @Test
+    public void whenAudioIsLoud_thenItIsBroughtDownToTarget() {
+        process(-6, 20);
+
+        assertThat(toDbfs(getOutputPeak())).isCloseTo(TARGET_LOUDNESS_IN_LUFS, within(0.5));
+    }
+
+    @Test
+    public void whenGainIsOutOfRange_thenItIsCappedAtMaxGain() {
+        process(-50, 20);
+
+        assertThat(loudnessNormalizer.getGainInDb()).isCloseTo(12f, within(0.5f));
+    }
+
+    @Test
+    public void whenLoudAudioFollowsQuietAudio_thenLimiterKeepsPeaksUnderCeiling() {
+        process(-28, 20);
+
+        // Full scale, with some 10 dB of gain still applied to it.
+        int maxOutputPeak = 0;
+        for (int i = 0; i < 3 * NUM_OF_BUFFERS_PER_SECOND; i++) {
+            processBuffer(0);
+            maxOutputPeak = Math.max(maxOutputPeak, getOutputPeak());
+        }
+
+        assertThat(maxOutputPeak).isLessThanOrEqualTo((int) Math.ceil(Math.pow(10, CEILING_IN_DBFS / 20) * 32767));
+        assertThat(maxOutputPeak).isGreaterThan(16384);
+    }
+
+    @Test
+    public void whenAudioStops_thenGainIsHeldInsteadOfBoostingSilence() {
+        process(-6, 20);
+        float gainInDb = loudnessNormalizer.getGainInDb();
+
+        ByteBuffer silence = ByteBuffer.allocateDirect(BUFFER_SIZE_IN_BYTES);
+        for (int i = 0; i < 10 * NUM_OF_BUFFERS_PER_SECOND; i++) {
+            loudnessNormalizer.process(silence, 0, BUFFER_SIZE_IN_BYTES, output);
+        }
+
+        assertThat(loudnessNormalizer.getGainInDb()).isCloseTo(gainInDb, within(0.5f));
+        assertThat(getOutputPeak()).isEqualTo(0);
+    }
+
+    @Test
+    public void testThatOutputIsDelayedByLookAhead() {
+        ByteBuffer impulse = ByteBuffer.allocateDirect(BUFFER_SIZE_IN_BYTES);
+        impulse.put(0, (byte) 0x00).put(1, (byte) 0x10);
+
+        loudnessNormalizer.process(impulse, 0, BUFFER_SIZE_IN_BYTES, output);
+
+        int delayedIndex = loudnessNormalizer.getLookAheadInFrames() * 4;
+        assertThat(output.get(1)).isEqualTo((byte) 0);
+        assertThat(output.get(delayedIndex + 1)).isNotEqualTo((byte) 0);
+    }
+
+    private void process(double levelInDbfs, int seconds) {
+        for (int i = 0; i < seconds * NUM_OF_BUFFERS_PER_SECOND; i++) {
+            processBuffer(levelInDbfs);
+        }
+    }
+
+    private void processBuffer(double levelInDbfs) {
+        ByteBuffer input = buildSine(levelInDbfs);
+        loudnessNormalizer.process(input, 0, BUFFER_SIZE_IN_BYTES, output);
+    }
+
+    private ByteBuffer buildSine(double levelInDbfs) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE_IN_BYTES);
+        double amplitude = Math.pow(10, levelInDbfs / 20) * 32767;
+        for (int i = 0; i < BUFFER_SIZE_IN_BYTES; i += 4) {
+            int sample = (int) Math.round(amplitude * Math.sin(2 * Math.PI * 1000 * numOfFramesGenerated++ / SAMPLE_RATE));
+            buffer.put(i, (byte) sample).put(i + 1, (byte) (sample >> 8));
+            buffer.put(i + 2, (byte) sample).put(i + 3, (byte) (sample >> 8));
+        }
+        return buffer;
+    }
+
+    private int getOutputPeak() {
+        int peak = 0;
+        for (int i = 0; i < BUFFER_SIZE_IN_BYTES; i += 2) {
+            int sample = (short) ((output.get(i) & 0xFF) | (output.get(i + 1) << 8));
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        return peak;
+    }
+
+    private static double toDbfs(int peak) {
+        return 20 * Math.log10(peak / 32767.0);
+    }
+}
@@ -0,0 +1,163 @@
+package com.jcanseco.radio.players.mp3;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.extractor.DefaultExtractorInput;
+import com.google.android.exoplayer.extractor.Extractor;
+import com.google.android.exoplayer.extractor.ExtractorInput;
+import com.google.android.exoplayer.extractor.PositionHolder;
+import com.google.android.exoplayer.extractor.mp3.Mp3Extractor;
+import com.google.android.exoplayer.upstream.ByteArrayDataSource;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.jcanseco.radio.BuildConfig;
+import com.jcanseco.radio.constants.Constants;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.testfakes.FakeExtractorOutput;
+import com.jcanseco.radio.testutilities.Benchmark;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.buildStream;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+// Compares the live extractor against what ExtractorSampleSource does without explicit extractors: sniff with
+// every default extractor until one accepts the stream, then extract with it.
+@Category(Benchmark.class)
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class LiveMp3ExtractorBenchmarkTest {
+
+    private static final String[] DEFAULT_EXTRACTOR_CLASS_NAMES = {
+            "com.google.android.exoplayer.extractor.webm.WebmExtractor",
+            "com.google.android.exoplayer.extractor.mp4.FragmentedMp4Extractor",
+            "com.google.android.exoplayer.extractor.mp4.Mp4Extractor",
+            "com.google.android.exoplayer.extractor.mp3.Mp3Extractor",
+            "com.google.android.exoplayer.extractor.ts.AdtsExtractor",
+            "com.google.android.exoplayer.extractor.ts.TsExtractor",
+            "com.google.android.exoplayer.extractor.flv.FlvExtractor",
+            "com.google.android.exoplayer.extractor.ogg.OggExtractor",
+            "com.google.android.exoplayer.extractor.ts.PsExtractor",
+            "com.google.android.exoplayer.extractor.wav.WavExtractor"
+    };
+
+    // Ten minutes of 128 kbps, 44.1 kHz audio.
+    private static final int NUM_OF_FRAMES = 10 * 60 * 44100 / 1152;
+    private static final int NUM_OF_RUNS = 5;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void benchmarkTimeToFirstSampleAndCpuTimePerHourOfAudio() throws Exception {
+        byte[] fixture = buildStream(1, 0, NUM_OF_FRAMES);
+
+        Result liveResult = null;
+        Result defaultResult = null;
+        for (int i = 0; i < NUM_OF_RUNS; i++) {
+            liveResult = Result.best(liveResult, run(fixture, true));
+            defaultResult = Result.best(defaultResult, run(fixture, false));
+        }
+
+        System.out.printf("LiveMp3Extractor: %s%n", liveResult);
+        System.out.printf("Default extractors: %s%n", defaultResult);
+        assertThat(liveResult.numOfSamples).isEqualTo(NUM_OF_FRAMES);
+        assertThat(defaultResult.numOfSamples).isEqualTo(NUM_OF_FRAMES);
+    }
+
+    private Result run(byte[] fixture, boolean useLiveExtractor) throws Exception {
+        FakeExtractorOutput extractorOutput = new FakeExtractorOutput();
+        ExtractorInput input = openInput(fixture);
+
+        long startCpuTimeNanos = threadMXBean.getCurrentThreadCpuTime();
+        long startTimeNanos = System.nanoTime();
+
+        Extractor extractor = useLiveExtractor ? new LiveMp3Extractor(new MetricsRegistry()) : sniffWithDefaultExtractors(input);
+        extractor.init(extractorOutput);
+        PositionHolder seekPosition = new PositionHolder();
+
+        long timeToFirstSampleNanos = 0;
+        int result = Extractor.RESULT_CONTINUE;
+        while (result == Extractor.RESULT_CONTINUE) {
+            result = extractor.read(input, seekPosition);
+            if (timeToFirstSampleNanos == 0 && extractorOutput.getNumOfSamples() > 0) {
+                timeToFirstSampleNanos = System.nanoTime() - startTimeNanos;
+            }
+        }
+
+        long cpuTimeNanos = threadMXBean.getCurrentThreadCpuTime() - startCpuTimeNanos;
+        return new Result(extractorOutput.getNumOfSamples(), timeToFirstSampleNanos, cpuTimeNanos);
+    }
+
+    private Extractor sniffWithDefaultExtractors(ExtractorInput input) throws Exception {
+        for (Extractor extractor : createDefaultExtractors()) {
+            try {
+                if (extractor.sniff(input)) {
+                    return extractor;
+                }
+            } finally {
+                input.resetPeekPosition();
+            }
+        }
+        throw new AssertionError("No default extractor accepted the fixture.");
+    }
+
+    private List<Extractor> createDefaultExtractors() throws Exception {
+        List<Extractor> extractors = new ArrayList<>();
+        for (String className : DEFAULT_EXTRACTOR_CLASS_NAMES) {
+            try {
+                extractors.add((Extractor) Class.forName(className).newInstance());
+            } catch (ClassNotFoundException e) {
+                // Not part of this ExoPlayer release.
+            }
+        }
+        assertThat(extractors).hasAtLeastOneElementOfType(Mp3Extractor.class);
+        return extractors;
+    }
+
+    private ExtractorInput openInput(byte[] fixture) throws Exception {
+        DataSource dataSource = new ByteArrayDataSource(fixture);
+        dataSource.open(new DataSpec(Uri.parse(Constants.Endpoints.STREAM_URL)));
+        return new DefaultExtractorInput(dataSource, 0, C.LENGTH_UNBOUNDED);
+    }
+
+
+    private static class Result {
+
+        private static final long NUM_OF_FRAMES_PER_HOUR = 60 * 60 * 44100 / 1152;
+
+        private final int numOfSamples;
+        private final long timeToFirstSampleNanos;
+        private final long cpuTimeNanos;
+
+        private Result(int numOfSamples, long timeToFirstSampleNanos, long cpuTimeNanos) {
+            this.numOfSamples = numOfSamples;
+            this.timeToFirstSampleNanos = timeToFirstSampleNanos;
+            this.cpuTimeNanos = cpuTimeNanos;
+        }
+
+        private static Result best(Result result, Result otherResult) {
+            if (result == null) {
+                return otherResult;
+            }
+            return new Result(otherResult.numOfSamples,
+                    Math.min(result.timeToFirstSampleNanos, otherResult.timeToFirstSampleNanos),
+                    Math.min(result.cpuTimeNanos, otherResult.cpuTimeNanos));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("time to first sample %d us, CPU time per hour of audio %d ms",
+                    timeToFirstSampleNanos / 1000, cpuTimeNanos * NUM_OF_FRAMES_PER_HOUR / numOfSamples / 1000000);
+        }
+    }
+}
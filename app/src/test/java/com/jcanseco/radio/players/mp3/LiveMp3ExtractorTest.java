@@ -0,0 +1,132 @@
+package com.jcanseco.radio.players.mp3;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.ParserException;
+import com.google.android.exoplayer.extractor.DefaultExtractorInput;
+import com.google.android.exoplayer.extractor.Extractor;
+import com.google.android.exoplayer.extractor.ExtractorInput;
+import com.google.android.exoplayer.extractor.PositionHolder;
+import com.google.android.exoplayer.upstream.ByteArrayDataSource;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.jcanseco.radio.BuildConfig;
+import com.jcanseco.radio.constants.Constants;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.testfakes.FakeExtractorOutput;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.FRAME_SIZE_IN_BYTES;
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.buildStream;
+import static com.jcanseco.radio.testutilities.Mp3TestingUtilities.concat;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class LiveMp3ExtractorTest {
+
+    private LiveMp3Extractor liveMp3Extractor;
+    private MetricsRegistry metricsRegistry;
+    private FakeExtractorOutput extractorOutput;
+
+    @Before
+    public void setup() {
+        metricsRegistry = new MetricsRegistry();
+        liveMp3Extractor = new LiveMp3Extractor(metricsRegistry);
+        extractorOutput = new FakeExtractorOutput();
+        liveMp3Extractor.init(extractorOutput);
+    }
+
+    @Test
+    public void testThatSniffAcceptsStreamWithoutReadingIt() throws Exception {
+        ExtractorInput input = mock(ExtractorInput.class);
+
+        assertThat(liveMp3Extractor.sniff(input)).isTrue();
+        verifyZeroInteractions(input);
+    }
+
+    @Test
+    public void testThatStreamIsUnseekable() {
+        assertThat(extractorOutput.seekMap.isSeekable()).isFalse();
+    }
+
+    @Test
+    public void testThatEveryFrameIsOutputAsSyncSampleWithIncreasingTimestamps() throws Exception {
+        extract(buildStream(1, 0, 10));
+
+        assertThat(extractorOutput.format.mimeType).isEqualTo("audio/mpeg");
+        assertThat(extractorOutput.format.sampleRate).isEqualTo(44100);
+        assertThat(extractorOutput.format.channelCount).isEqualTo(2);
+        assertThat(extractorOutput.getNumOfSamples()).isEqualTo(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(extractorOutput.sampleTimesUs.get(i)).isEqualTo(i * 1152 * C.MICROS_PER_SECOND / 44100);
+            assertThat(extractorOutput.sampleFlags.get(i)).isEqualTo(C.SAMPLE_FLAG_SYNC);
+            assertThat(extractorOutput.sampleSizes.get(i)).isEqualTo(FRAME_SIZE_IN_BYTES);
+        }
+    }
+
+    @Test
+    public void whenGarbageInterruptsStream_thenSkipItAndResumeAtNextFrame() throws Exception {
+        byte[] garbage = new byte[300];
+        Arrays.fill(garbage, (byte) 0x55);
+        byte[] truncatedFrame = Arrays.copyOf(buildStream(1, 5, 1), 200);
+
+        extract(concat(buildStream(1, 0, 5), garbage, truncatedFrame, buildStream(1, 6, 5)));
+
+        assertThat(extractorOutput.getNumOfSamples()).isEqualTo(10);
+        assertThat(extractorOutput.numOfSampleBytes).isEqualTo(10 * FRAME_SIZE_IN_BYTES);
+        assertThat(metricsRegistry.counter("extractor.skipped_bytes").get()).isEqualTo(500);
+        assertThat(metricsRegistry.counter("extractor.resyncs").get()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenStreamStartsMidFrame_thenSkipToFirstWholeFrame() throws Exception {
+        byte[] partialFrame = Arrays.copyOfRange(buildStream(1, 0, 1), 100, FRAME_SIZE_IN_BYTES);
+
+        extract(concat(partialFrame, buildStream(1, 1, 5)));
+
+        assertThat(extractorOutput.getNumOfSamples()).isEqualTo(5);
+        assertThat(metricsRegistry.counter("extractor.skipped_bytes").get()).isEqualTo(FRAME_SIZE_IN_BYTES - 100);
+    }
+
+    @Test(expected = ParserException.class)
+    public void whenNoFrameHeaderIsFoundForTooLong_thenFail() throws Exception {
+        extract(new byte[256 * 1024]);
+    }
+
+    @Test
+    public void whenSeekInvoked_thenTimestampsStartOver() throws Exception {
+        extract(buildStream(1, 0, 5));
+        liveMp3Extractor.seek();
+        extract(buildStream(1, 100, 5));
+
+        assertThat(extractorOutput.getNumOfSamples()).isEqualTo(10);
+        assertThat(extractorOutput.sampleTimesUs.get(5)).isEqualTo(0);
+    }
+
+    private void extract(byte[] data) throws Exception {
+        runExtractor(liveMp3Extractor, data);
+    }
+
+    static void runExtractor(Extractor extractor, byte[] data) throws Exception {
+        DataSource dataSource = new ByteArrayDataSource(data);
+        dataSource.open(new DataSpec(Uri.parse(Constants.Endpoints.STREAM_URL)));
+        ExtractorInput input = new DefaultExtractorInput(dataSource, 0, C.LENGTH_UNBOUNDED);
+        PositionHolder seekPosition = new PositionHolder();
+
+        int result = Extractor.RESULT_CONTINUE;
+        while (result == Extractor.RESULT_CONTINUE) {
+            result = extractor.read(input, seekPosition);
+        }
+    }
+}
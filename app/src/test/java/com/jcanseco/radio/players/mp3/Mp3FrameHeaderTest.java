@@ -0,0 +1,61 @@
+package com.jcanseco.radio.players.mp3;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class Mp3FrameHeaderTest {
+
+    @Test
+    public void testGetFrameSizeInBytes_forMpeg1Layer3() {
+        assertThat(Mp3FrameHeader.getFrameSizeInBytes(0xFFFB9044)).isEqualTo(417);
+        assertThat(Mp3FrameHeader.getFrameSizeInBytes(0xFFFB9244)).isEqualTo(418);
+        assertThat(Mp3FrameHeader.getFrameSizeInBytes(0xFFFBE044)).isEqualTo(1044);
+    }
+
+    @Test
+    public void testGetFrameSizeInBytes_forMpeg2Layer3() {
+        assertThat(Mp3FrameHeader.getFrameSizeInBytes(0xFFF39044)).isEqualTo(208);
+        assertThat(Mp3FrameHeader.getSamplesPerFrame(0xFFF39044)).isEqualTo(576);
+        assertThat(Mp3FrameHeader.getSampleRate(0xFFF39044)).isEqualTo(22050);
+    }
+
+    @Test
+    public void testGetFrameSizeInBytes_forMpeg1Layer2() {
+        assertThat(Mp3FrameHeader.getFrameSizeInBytes(0xFFFD9044)).isEqualTo(417);
+        assertThat(Mp3FrameHeader.getMimeType(0xFFFD9044)).isEqualTo("audio/mpeg-L2");
+    }
+
+    @Test
+    public void whenSyncWordIsMissing_thenHeaderIsInvalid() {
+        assertThat(Mp3FrameHeader.isValid(0x7FFB9044)).isFalse();
+    }
+
+    @Test
+    public void whenBitrateIndexIsFreeOrBad_thenHeaderIsInvalid() {
+        assertThat(Mp3FrameHeader.isValid(0xFFFB0044)).isFalse();
+        assertThat(Mp3FrameHeader.isValid(0xFFFBF044)).isFalse();
+    }
+
+    @Test
+    public void whenSampleRateIndexIsReserved_thenHeaderIsInvalid() {
+        assertThat(Mp3FrameHeader.isValid(0xFFFB9C44)).isFalse();
+    }
+
+    @Test
+    public void whenVersionOrLayerIsReserved_thenHeaderIsInvalid() {
+        assertThat(Mp3FrameHeader.isValid(0xFFEB9044)).isFalse();
+        assertThat(Mp3FrameHeader.isValid(0xFFF99044)).isFalse();
+    }
+
+    @Test
+    public void testThatPaddingAndBitrateDontAffectWhetherHeadersBelongToSameStream() {
+        assertThat(Mp3FrameHeader.isSameStream(0xFFFB9044, 0xFFFBE244)).isTrue();
+        assertThat(Mp3FrameHeader.isSameStream(0xFFFB9044, 0xFFFB9444)).isFalse();
+    }
+
+    @Test
+    public void testGetFrameDurationInMicros() {
+        assertThat(Mp3FrameHeader.getFrameDurationInMicros(0xFFFB9044)).isEqualTo(26122);
+    }
+}
@@ -0,0 +1,133 @@
+package com.jcanseco.radio.players.trackrenderers;
+
+import com.jcanseco.radio.metrics.MetricsRegistry;
+import com.jcanseco.radio.players.AudioOutputPolicy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class AudioOutputMonitorTest {
+
+    private static final long INITIAL_BUFFER_DURATION_IN_MILLIS = 500;
+    private static final long MAX_BUFFER_DURATION_IN_MILLIS = 1500;
+    private static final long UNDERRUN_WINDOW_IN_MILLIS = 60 * 1000;
+
+    private MetricsRegistry metricsRegistry;
+    private AudioOutputMonitor audioOutputMonitor;
+
+    private long currentTimeInMillis;
+    private long positionUs;
+
+    @Before
+    public void setup() {
+        metricsRegistry = new MetricsRegistry();
+        AudioOutputPolicy audioOutputPolicy = new AudioOutputPolicy(INITIAL_BUFFER_DURATION_IN_MILLIS, MAX_BUFFER_DURATION_IN_MILLIS,
+                3, UNDERRUN_WINDOW_IN_MILLIS);
+        audioOutputMonitor = new AudioOutputMonitor(audioOutputPolicy, metricsRegistry) {
+            @Override
+            protected long getCurrentTimeInMillis() {
+                return currentTimeInMillis;
+            }
+        };
+
+        currentTimeInMillis = 1000;
+        audioOutputMonitor.onStarted();
+    }
+
+    @Test
+    public void whenPositionKeepsUpWithRealTime_thenNoUnderrunIsReported() {
+        play(10000);
+
+        assertThat(audioOutputMonitor.isStalled()).isFalse();
+        assertThat(metricsRegistry.counter("audio.output.underruns").get()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenPositionStopsWhileStarted_thenUnderrunIsReportedOnceWithItsDuration() {
+        play(2000);
+
+        stall(700);
+        assertThat(audioOutputMonitor.isStalled()).isTrue();
+        play(1000);
+
+        assertThat(audioOutputMonitor.isStalled()).isFalse();
+        assertThat(metricsRegistry.counter("audio.output.underruns").get()).isEqualTo(1);
+        assertThat(metricsRegistry.counter("audio.output.stalled_ms").get()).isEqualTo(700);
+        assertThat(metricsRegistry.histogram("audio.output.underrun_duration_ms").getMean()).isEqualTo(800);
+    }
+
+    @Test
+    public void whenPositionStopsRightAfterStarting_thenItIsNotAnUnderrun() {
+        stall(400);
+        play(2000);
+
+        assertThat(metricsRegistry.counter("audio.output.underruns").get()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenStopped_thenPositionIsNotSampled() {
+        play(2000);
+
+        audioOutputMonitor.onStopped();
+        stall(5000);
+
+        assertThat(metricsRegistry.counter("audio.output.underruns").get()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenUnderrunsRepeatWithinWindow_thenBufferGrowsUpToMax() {
+        play(2000);
+
+        for (int i = 0; i < 3; i++) {
+            underrun();
+        }
+        assertThat(audioOutputMonitor.isBufferGrowthRequested()).isTrue();
+        assertThat(audioOutputMonitor.consumeBufferGrowthRequest()).isTrue();
+        assertThat(audioOutputMonitor.consumeBufferGrowthRequest()).isFalse();
+        assertThat(audioOutputMonitor.isBufferGrowthRequested()).isFalse();
+        assertThat(audioOutputMonitor.getBufferDurationInMillis()).isEqualTo(1000);
+
+        for (int i = 0; i < 6; i++) {
+            underrun();
+        }
+        assertThat(audioOutputMonitor.getBufferDurationInMillis()).isEqualTo(MAX_BUFFER_DURATION_IN_MILLIS);
+        assertThat(metricsRegistry.counter("audio.output.buffer_growths").get()).isEqualTo(2);
+        assertThat(metricsRegistry.gauge("audio.output.buffer_ms").get()).isEqualTo(MAX_BUFFER_DURATION_IN_MILLIS);
+    }
+
+    @Test
+    public void whenUnderrunsAreFurtherApartThanWindow_thenBufferDoesNotGrow() {
+        play(2000);
+
+        for (int i = 0; i < 5; i++) {
+            underrun();
+            play(UNDERRUN_WINDOW_IN_MILLIS / 2);
+        }
+
+        assertThat(metricsRegistry.counter("audio.output.underruns").get()).isEqualTo(5);
+        assertThat(audioOutputMonitor.consumeBufferGrowthRequest()).isFalse();
+        assertThat(audioOutputMonitor.getBufferDurationInMillis()).isEqualTo(INITIAL_BUFFER_DURATION_IN_MILLIS);
+    }
+
+    private void underrun() {
+        stall(300);
+        play(1000);
+    }
+
+    private void play(long durationInMillis) {
+        for (long elapsedInMillis = 0; elapsedInMillis < durationInMillis; elapsedInMillis += 100) {
+            currentTimeInMillis += 100;
+            positionUs += 100 * 1000;
+            audioOutputMonitor.onPositionSampled(positionUs);
+        }
+    }
+
+    private void stall(long durationInMillis) {
+        for (long elapsedInMillis = 0; elapsedInMillis < durationInMillis; elapsedInMillis += 100) {
+            currentTimeInMillis += 100;
+            audioOutputMonitor.onPositionSampled(positionUs);
+        }
+    }
+}
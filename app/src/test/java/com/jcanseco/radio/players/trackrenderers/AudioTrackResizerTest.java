@@ -0,0 +1,60 @@
+package com.jcanseco.radio.players.trackrenderers;
+
+import android.media.MediaFormat;
+
+import com.google.android.exoplayer.audio.AudioTrack;
+import com.jcanseco.radio.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class AudioTrackResizerTest {
+
+    private AudioTrack audioTrack;
+    private AudioTrackResizer audioTrackResizer;
+    private MediaFormat outputFormat;
+
+    @Before
+    public void setup() {
+        audioTrack = mock(AudioTrack.class);
+        audioTrackResizer = new AudioTrackResizer(audioTrack);
+        outputFormat = MediaFormat.createAudioFormat("audio/raw", 44100, 2);
+    }
+
+    @Test
+    public void whenAudioTrackIsEmpty_thenRecreateItWithTheRequestedBufferSize() {
+        when(audioTrack.hasPendingData()).thenReturn(false);
+
+        assertThat(audioTrackResizer.resizeIfEmpty(outputFormat, 1000)).isTrue();
+
+        InOrder inOrder = inOrder(audioTrack);
+        inOrder.verify(audioTrack).reset();
+        inOrder.verify(audioTrack).configure(outputFormat, false, 44100 * 4);
+    }
+
+    @Test
+    public void whenAudioTrackStillHasAudioQueued_thenLeaveItPlaying() {
+        when(audioTrack.hasPendingData()).thenReturn(true);
+
+        assertThat(audioTrackResizer.resizeIfEmpty(outputFormat, 1000)).isFalse();
+
+        verify(audioTrack, never()).reset();
+        verify(audioTrack, never()).configure(any(MediaFormat.class), anyBoolean(), anyInt());
+    }
+}
@@ -0,0 +1,67 @@
+package com.jcanseco.radio.services;
+
+import android.content.Context;
+import android.net.wifi.WifiManager;
+import android.os.PowerManager;
+
+import com.jcanseco.radio.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowPowerManager;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class PlaybackLocksTest {
+
+    private PlaybackLocks playbackLocks;
+
+    @Before
+    public void setup() {
+        Context context = RuntimeEnvironment.application;
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        WifiManager wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
+
+        playbackLocks = new PlaybackLocks(powerManager, wifiManager);
+    }
+
+    @Test
+    public void shouldNotHoldAnyLocksByDefault() {
+        assertThat(playbackLocks.isWakeLockHeld()).isFalse();
+        assertThat(playbackLocks.isWifiLockHeld()).isFalse();
+    }
+
+    @Test
+    public void whenAcquireInvoked_holdPartialWakeLockAndWifiLock() {
+        playbackLocks.acquire();
+
+        assertThat(ShadowPowerManager.getLatestWakeLock().isHeld()).isTrue();
+        assertThat(playbackLocks.isWakeLockHeld()).isTrue();
+        assertThat(playbackLocks.isWifiLockHeld()).isTrue();
+    }
+
+    @Test
+    public void whenAcquireInvokedTwice_thenASingleReleaseShouldReleaseBothLocks() {
+        playbackLocks.acquire();
+        playbackLocks.acquire();
+
+        playbackLocks.release();
+
+        assertThat(playbackLocks.isWakeLockHeld()).isFalse();
+        assertThat(playbackLocks.isWifiLockHeld()).isFalse();
+    }
+
+    @Test
+    public void whenReleaseInvokedWithoutAcquiring_thenDoNothing() {
+        playbackLocks.release();
+
+        assertThat(playbackLocks.isWakeLockHeld()).isFalse();
+        assertThat(playbackLocks.isWifiLockHeld()).isFalse();
+    }
+}
@@ -2,27 +2,43 @@ package com.jcanseco.radio.services;
 
 import android.content.BroadcastReceiver;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.jcanseco.radio.BuildConfig;
 import com.jcanseco.radio.constants.Constants;
+import com.jcanseco.radio.diagnostics.Dumpable;
 import com.jcanseco.radio.players.RadioPlayer;
+import com.jcanseco.radio.tasks.RadioPlayerBufferTimeoutTimerTask;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricGradleTestRunner;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadows.ShadowApplication;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowPowerManager;
 import org.robolectric.util.ServiceController;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
 import static com.jcanseco.radio.testutilities.BroadcastTestingUtilities.buildMockLocalBroadcastReceiver;
 import static com.jcanseco.radio.testutilities.BroadcastTestingUtilities.verifyThatReceiverReceivedExpectedBroadcast;
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
 
 @RunWith(RobolectricGradleTestRunner.class)
 @Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
@@ -102,4 +118,100 @@ public class RadioPlayerServiceTest {
 
         verifyThatReceiverReceivedExpectedBroadcast(receiver, expectedBroadcastIntentAction);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void whenDumped_thenDumpEveryDumpableInOrder() {
+        Dumpable firstDumpable = mock(Dumpable.class);
+        Dumpable secondDumpable = mock(Dumpable.class);
+        radioPlayerService.dumpables = Arrays.asList(firstDumpable, secondDumpable);
+        PrintWriter writer = new PrintWriter(new StringWriter());
+
+        radioPlayerService.dump(null, writer, new String[0]);
+
+        InOrder inOrder = inOrder(firstDumpable, secondDumpable);
+        inOrder.verify(firstDumpable).dumpState(writer);
+        inOrder.verify(secondDumpable).dumpState(writer);
+    }
+
+    @Test
+    public void whenStartPlayingRadioStreamInvoked_acquireWakeLockAndWifiLock() {
+        radioPlayerService.startPlayingRadioStream();
+
+        assertThat(ShadowPowerManager.getLatestWakeLock().isHeld()).isTrue();
+        assertThat(radioPlayerService.playbackLocks.isWakeLockHeld()).isTrue();
+        assertThat(radioPlayerService.playbackLocks.isWifiLockHeld()).isTrue();
+    }
+
+    @Test
+    public void whenStartPlayingRadioStreamInvoked_runServiceInForegroundWithNotification() {
+        radioPlayerService.startPlayingRadioStream();
+
+        assertThat(shadowOf(radioPlayerService).getLastForegroundNotification()).isNotNull();
+        assertThat(shadowOf(radioPlayerService).isForegroundStopped()).isFalse();
+    }
+
+    @Test
+    public void whenStopPlayingRadioStreamInvoked_releaseWakeLockAndWifiLock() {
+        radioPlayerService.startPlayingRadioStream();
+
+        radioPlayerService.stopPlayingRadioStream();
+
+        assertThat(ShadowPowerManager.getLatestWakeLock().isHeld()).isFalse();
+        assertThat(radioPlayerService.playbackLocks.isWifiLockHeld()).isFalse();
+    }
+
+    @Test
+    public void whenStopPlayingRadioStreamInvoked_stopRunningServiceInForeground() {
+        radioPlayerService.startPlayingRadioStream();
+
+        radioPlayerService.stopPlayingRadioStream();
+
+        assertThat(shadowOf(radioPlayerService).isForegroundStopped()).isTrue();
+    }
+
+    @Test
+    public void onRadioPlayerStreamError_shouldReleaseLocksAndStopRunningServiceInForeground() {
+        radioPlayerService.startPlayingRadioStream();
+
+        radioPlayerService.onRadioPlayerStreamError();
+
+        assertThat(radioPlayerService.playbackLocks.isWakeLockHeld()).isFalse();
+        assertThat(radioPlayerService.playbackLocks.isWifiLockHeld()).isFalse();
+        assertThat(shadowOf(radioPlayerService).isForegroundStopped()).isTrue();
+    }
+
+    @Test
+    public void whenBufferTimesOutOnTimerThread_thenLeaveForegroundOnlyOnceTheMainThreadRuns() throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                radioPlayerService.onRadioPlayerStreamError();
+                return null;
+            }
+        }).when(radioPlayer).onBufferTimeoutElapsed();
+        radioPlayerService.startPlayingRadioStream();
+        ShadowLooper.pauseMainLooper();
+
+        Thread timerThread = new Thread(new RadioPlayerBufferTimeoutTimerTask(radioPlayer, new Handler(Looper.getMainLooper())));
+        timerThread.start();
+        timerThread.join();
+
+        assertThat(radioPlayerService.playbackLocks.isWakeLockHeld()).isTrue();
+        assertThat(shadowOf(radioPlayerService).isForegroundStopped()).isFalse();
+
+        ShadowLooper.unPauseMainLooper();
+
+        assertThat(radioPlayerService.playbackLocks.isWakeLockHeld()).isFalse();
+        assertThat(shadowOf(radioPlayerService).isForegroundStopped()).isTrue();
+    }
+
+    @Test
+    public void onDestroy_shouldReleaseLocks() {
+        radioPlayerService.startPlayingRadioStream();
+
+        serviceController.destroy();
+
+        assertThat(radioPlayerService.playbackLocks.isWakeLockHeld()).isFalse();
+        assertThat(radioPlayerService.playbackLocks.isWifiLockHeld()).isFalse();
+    }
+}
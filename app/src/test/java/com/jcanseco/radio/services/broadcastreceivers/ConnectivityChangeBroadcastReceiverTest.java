@@ -0,0 +1,88 @@
+package com.jcanseco.radio.services.broadcastreceivers;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import com.jcanseco.radio.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowNetworkInfo;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, manifest = "src/main/AndroidManifest.xml")
+public class ConnectivityChangeBroadcastReceiverTest {
+
+    private ConnectivityChangeBroadcastReceiver connectivityChangeBroadcastReceiver;
+    private ConnectivityChangeBroadcastReceiver.BroadcastReceivedListener broadcastReceivedListener;
+
+    private Context context;
+    private ConnectivityManager connectivityManager;
+
+    @Before
+    public void setup() {
+        broadcastReceivedListener = mock(ConnectivityChangeBroadcastReceiver.BroadcastReceivedListener.class);
+        connectivityChangeBroadcastReceiver = new ConnectivityChangeBroadcastReceiver(broadcastReceivedListener);
+
+        context = RuntimeEnvironment.application;
+        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    @Test
+    public void whenFirstBroadcastReceived_thenDontNotifyListener() {
+        connectTo(ConnectivityManager.TYPE_WIFI, true);
+
+        verify(broadcastReceivedListener, never()).onActiveNetworkChanged(anyInt());
+    }
+
+    @Test
+    public void whenSameNetworkIsBroadcastAgain_thenDontNotifyListener() {
+        connectTo(ConnectivityManager.TYPE_WIFI, true);
+        connectTo(ConnectivityManager.TYPE_WIFI, true);
+
+        verify(broadcastReceivedListener, never()).onActiveNetworkChanged(anyInt());
+    }
+
+    @Test
+    public void whenActiveNetworkChanges_thenNotifyListenerWithNewNetworkType() {
+        connectTo(ConnectivityManager.TYPE_WIFI, true);
+        connectTo(ConnectivityManager.TYPE_MOBILE, true);
+
+        verify(broadcastReceivedListener).onActiveNetworkChanged(ConnectivityManager.TYPE_MOBILE);
+    }
+
+    @Test
+    public void whenNetworkIsLostAndThenRegained_thenNotifyListenerOnlyIfNetworkChanged() {
+        connectTo(ConnectivityManager.TYPE_WIFI, true);
+        connectTo(ConnectivityManager.TYPE_WIFI, false);
+        connectTo(ConnectivityManager.TYPE_WIFI, true);
+
+        verify(broadcastReceivedListener, never()).onActiveNetworkChanged(anyInt());
+
+        connectTo(ConnectivityManager.TYPE_MOBILE, false);
+        connectTo(ConnectivityManager.TYPE_MOBILE, true);
+
+        verify(broadcastReceivedListener).onActiveNetworkChanged(ConnectivityManager.TYPE_MOBILE);
+    }
+
+    private void connectTo(int networkType, boolean isConnected) {
+        NetworkInfo networkInfo = ShadowNetworkInfo.newInstance(
+                isConnected ? NetworkInfo.DetailedState.CONNECTED : NetworkInfo.DetailedState.DISCONNECTED,
+                networkType, 0, true, isConnected);
+        shadowOf(connectivityManager).setActiveNetworkInfo(networkInfo);
+
+        connectivityChangeBroadcastReceiver.onReceive(context, new Intent(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+}
@@ -0,0 +1,32 @@
+package com.jcanseco.radio.tasks;
+
+import com.jcanseco.radio.memory.MemoryPressureCoordinator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MemoryPressureRecoveryTimerTaskTest {
+
+    private MemoryPressureRecoveryTimerTask memoryPressureRecoveryTimerTask;
+
+    @Mock
+    private MemoryPressureCoordinator memoryPressureCoordinator;
+
+    @Before
+    public void setup() {
+        memoryPressureRecoveryTimerTask = new MemoryPressureRecoveryTimerTask(memoryPressureCoordinator);
+    }
+
+    @Test
+    public void whenRun_notifyCoordinatorThatMemoryPressureSubsided() {
+        memoryPressureRecoveryTimerTask.run();
+
+        verify(memoryPressureCoordinator).onMemoryPressureSubsided();
+    }
+}
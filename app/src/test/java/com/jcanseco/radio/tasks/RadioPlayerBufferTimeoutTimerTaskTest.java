@@ -1,13 +1,17 @@
 package com.jcanseco.radio.tasks;
 
+import android.os.Handler;
+
 import com.jcanseco.radio.players.RadioPlayer;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -18,15 +22,24 @@ public class RadioPlayerBufferTimeoutTimerTaskTest {
     @Mock
     private RadioPlayer radioPlayer;
 
+    @Mock
+    private Handler mainThreadHandler;
+
     @Before
     public void setup() {
-        radioPlayerBufferTimeoutTimerTask = new RadioPlayerBufferTimeoutTimerTask(radioPlayer);
+        radioPlayerBufferTimeoutTimerTask = new RadioPlayerBufferTimeoutTimerTask(radioPlayer, mainThreadHandler);
     }
 
     @Test
-    public void whenRun_notifyRadioPlayerThatBufferingTimedOut() {
+    public void whenRun_notifyRadioPlayerThatBufferTimeoutElapsed_onTheMainThread() {
         radioPlayerBufferTimeoutTimerTask.run();
 
-        verify(radioPlayer).onBufferingTimedOut();
+        ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mainThreadHandler).post(runnableCaptor.capture());
+        verify(radioPlayer, never()).onBufferTimeoutElapsed();
+
+        runnableCaptor.getValue().run();
+
+        verify(radioPlayer).onBufferTimeoutElapsed();
     }
-}
\ No newline at end of file
+}
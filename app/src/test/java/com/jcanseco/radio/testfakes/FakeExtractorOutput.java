@@ -0,0 +1,77 @@
+package com.jcanseco.radio.testfakes;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.MediaFormat;
+import com.google.android.exoplayer.drm.DrmInitData;
+import com.google.android.exoplayer.extractor.ExtractorInput;
+import com.google.android.exoplayer.extractor.ExtractorOutput;
+import com.google.android.exoplayer.extractor.SeekMap;
+import com.google.android.exoplayer.extractor.TrackOutput;
+import com.google.android.exoplayer.util.ParsableByteArray;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FakeExtractorOutput implements ExtractorOutput, TrackOutput {
+
+    private final byte[] scratch = new byte[4096];
+
+    public MediaFormat format;
+    public SeekMap seekMap;
+    public final List<Long> sampleTimesUs = new ArrayList<>();
+    public final List<Integer> sampleFlags = new ArrayList<>();
+    public final List<Integer> sampleSizes = new ArrayList<>();
+    public long numOfSampleBytes;
+
+    @Override
+    public TrackOutput track(int trackId) {
+        return this;
+    }
+
+    @Override
+    public void endTracks() {}
+
+    @Override
+    public void seekMap(SeekMap seekMap) {
+        this.seekMap = seekMap;
+    }
+
+    @Override
+    public void drmInitData(DrmInitData drmInitData) {}
+
+    @Override
+    public void format(MediaFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public int sampleData(ExtractorInput input, int length, boolean allowEndOfInput) throws IOException, InterruptedException {
+        int numOfBytesRead = input.read(scratch, 0, Math.min(length, scratch.length));
+        if (numOfBytesRead == C.RESULT_END_OF_INPUT) {
+            if (allowEndOfInput) {
+                return C.RESULT_END_OF_INPUT;
+            }
+            throw new IOException("Unexpected end of input.");
+        }
+        numOfSampleBytes += numOfBytesRead;
+        return numOfBytesRead;
+    }
+
+    @Override
+    public void sampleData(ParsableByteArray data, int length) {
+        data.skipBytes(length);
+        numOfSampleBytes += length;
+    }
+
+    @Override
+    public void sampleMetadata(long timeUs, int flags, int size, int offset, byte[] encryptionKey) {
+        sampleTimesUs.add(timeUs);
+        sampleFlags.add(flags);
+        sampleSizes.add(size);
+    }
+
+    public int getNumOfSamples() {
+        return sampleTimesUs.size();
+    }
+}
@@ -0,0 +1,189 @@
+package com.jcanseco.radio.testfakes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+// Serves a looping byte pattern over HTTP or HTTPS on the loopback interface, with injectable latency and failures.
+public class FakeStreamServer {
+
+    public enum Failure {
+        NONE,
+        SERVICE_UNAVAILABLE,
+        CLOSE_WITHOUT_RESPONSE,
+        HEADERS_WITHOUT_AUDIO
+    }
+
+    private final ServerSocket serverSocket;
+    private final boolean isSecure;
+    private final long responseDelayInMillis;
+    private final Failure failure;
+    private final byte[] audio;
+
+    private final AtomicInteger numOfAcceptedConnections = new AtomicInteger();
+    private final AtomicInteger numOfCancelledConnections = new AtomicInteger();
+    private volatile String lastRequest;
+    private volatile boolean isChunkedTransferEncoding;
+    private volatile String redirectLocation;
+
+    public FakeStreamServer(long responseDelayInMillis, Failure failure, byte[] audio) throws IOException {
+        this(responseDelayInMillis, failure, audio, null);
+    }
+
+    public FakeStreamServer(long responseDelayInMillis, Failure failure, byte[] audio, SSLContext sslContext) throws IOException {
+        InetAddress loopbackAddress = InetAddress.getByName("127.0.0.1");
+        this.serverSocket = sslContext != null
+                ? sslContext.getServerSocketFactory().createServerSocket(0, 50, loopbackAddress)
+                : new ServerSocket(0, 50, loopbackAddress);
+        this.isSecure = sslContext != null;
+        this.responseDelayInMillis = responseDelayInMillis;
+        this.failure = failure;
+        this.audio = audio;
+
+        Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "FakeStreamServer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public String getUrl() {
+        return (isSecure ? "https" : "http") + "://127.0.0.1:" + serverSocket.getLocalPort() + "/main.mp3";
+    }
+
+    // Sends the audio as HTTP/1.1 chunks, one per repetition of the pattern.
+    public void setChunkedTransferEncoding(boolean isChunkedTransferEncoding) {
+        this.isChunkedTransferEncoding = isChunkedTransferEncoding;
+    }
+
+    // Answers requests for the stream's own path with a redirect, and serves the audio on any other path.
+    public void setRedirectLocation(String redirectLocation) {
+        this.redirectLocation = redirectLocation;
+    }
+
+    public int getNumOfAcceptedConnections() {
+        return numOfAcceptedConnections.get();
+    }
+
+    public int getNumOfCancelledConnections() {
+        return numOfCancelledConnections.get();
+    }
+
+    public String getLastRequest() {
+        return lastRequest;
+    }
+
+    public void shutdown() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                numOfAcceptedConnections.incrementAndGet();
+                Thread connectionThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                }, "FakeStreamServerConnection");
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            lastRequest = readRequest(socket.getInputStream());
+            if (responseDelayInMillis > 0 && isClosedByClientWithin(socket, responseDelayInMillis)) {
+                numOfCancelledConnections.incrementAndGet();
+                return;
+            }
+
+            OutputStream outputStream = socket.getOutputStream();
+            if (redirectLocation != null && lastRequest.startsWith("GET /main.mp3 ")) {
+                outputStream.write(("HTTP/1.1 302 Found\r\nLocation: " + redirectLocation + "\r\n\r\n").getBytes("ISO-8859-1"));
+                return;
+            }
+            switch (failure) {
+                case CLOSE_WITHOUT_RESPONSE:
+                    return;
+                case SERVICE_UNAVAILABLE:
+                    outputStream.write("HTTP/1.0 503 Service Unavailable\r\n\r\n".getBytes("ISO-8859-1"));
+                    return;
+                case HEADERS_WITHOUT_AUDIO:
+                    outputStream.write("HTTP/1.0 200 OK\r\nContent-Type: audio/mpeg\r\n\r\n".getBytes("ISO-8859-1"));
+                    outputStream.flush();
+                    if (isClosedByClientWithin(socket, 30000)) {
+                        numOfCancelledConnections.incrementAndGet();
+                    }
+                    return;
+                default:
+                    if (isChunkedTransferEncoding) {
+                        writeChunkedAudio(outputStream);
+                    } else {
+                        outputStream.write("HTTP/1.0 200 OK\r\nContent-Type: audio/mpeg\r\n\r\n".getBytes("ISO-8859-1"));
+                        while (true) {
+                            outputStream.write(audio);
+                        }
+                    }
+            }
+        } catch (IOException e) {
+            // The client went away.
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to clean up.
+            }
+        }
+    }
+
+    private void writeChunkedAudio(OutputStream outputStream) throws IOException {
+        outputStream.write("HTTP/1.1 200 OK\r\nContent-Type: audio/mpeg\r\nTransfer-Encoding: chunked\r\n\r\n".getBytes("ISO-8859-1"));
+        byte[] chunkHeader = (Integer.toHexString(audio.length) + "\r\n").getBytes("ISO-8859-1");
+        byte[] chunkTrailer = "\r\n".getBytes("ISO-8859-1");
+        while (true) {
+            outputStream.write(chunkHeader);
+            outputStream.write(audio);
+            outputStream.write(chunkTrailer);
+        }
+    }
+
+    private static String readRequest(InputStream inputStream) throws IOException {
+        StringBuilder request = new StringBuilder();
+        while (request.indexOf("\r\n\r\n") == -1) {
+            int character = inputStream.read();
+            if (character == -1) {
+                throw new IOException("Client closed the connection mid-request.");
+            }
+            request.append((char) character);
+        }
+        return request.toString();
+    }
+
+    private static boolean isClosedByClientWithin(Socket socket, long timeoutInMillis) throws IOException {
+        socket.setSoTimeout((int) timeoutInMillis);
+        try {
+            return socket.getInputStream().read() == -1;
+        } catch (SocketTimeoutException e) {
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.jcanseco.radio.testutilities;
+
+// JUnit category for tests that only measure and print numbers. They're left out of the regular build, and run with
+// `./gradlew testDebugUnitTest -Pbenchmarks`.
+public interface Benchmark {
+}
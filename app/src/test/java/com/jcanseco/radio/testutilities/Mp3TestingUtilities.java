@@ -0,0 +1,56 @@
+package com.jcanseco.radio.testutilities;
+
+import java.io.ByteArrayOutputStream;
+
+public class Mp3TestingUtilities {
+
+    // MPEG-1 Layer III, 128 kbps, 44.1 kHz, no padding, joint stereo.
+    public static final int FRAME_HEADER = 0xFFFB9044;
+    public static final int FRAME_SIZE_IN_BYTES = 417;
+
+    public static byte[] buildFrame(int streamId, int frameIndex) {
+        byte[] frame = new byte[FRAME_SIZE_IN_BYTES];
+        frame[0] = (byte) (FRAME_HEADER >>> 24);
+        frame[1] = (byte) (FRAME_HEADER >>> 16);
+        frame[2] = (byte) (FRAME_HEADER >>> 8);
+        frame[3] = (byte) FRAME_HEADER;
+        frame[4] = (byte) streamId;
+        frame[5] = (byte) (frameIndex >>> 24);
+        frame[6] = (byte) (frameIndex >>> 16);
+        frame[7] = (byte) (frameIndex >>> 8);
+        frame[8] = (byte) frameIndex;
+        for (int i = 9; i < FRAME_SIZE_IN_BYTES; i++) {
+            // Deterministic filler that never forms a sync word.
+            frame[i] = (byte) ((frameIndex * 31 + i * 7) & 0x7F);
+        }
+        return frame;
+    }
+
+    public static byte[] buildStream(int streamId, int firstFrameIndex, int numOfFrames) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < numOfFrames; i++) {
+            byte[] frame = buildFrame(streamId, firstFrameIndex + i);
+            stream.write(frame, 0, frame.length);
+        }
+        return stream.toByteArray();
+    }
+
+    public static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            stream.write(part, 0, part.length);
+        }
+        return stream.toByteArray();
+    }
+
+    public static int getStreamId(byte[] data, int frameOffset) {
+        return data[frameOffset + 4];
+    }
+
+    public static int getFrameIndex(byte[] data, int frameOffset) {
+        return ((data[frameOffset + 5] & 0xFF) << 24)
+                | ((data[frameOffset + 6] & 0xFF) << 16)
+                | ((data[frameOffset + 7] & 0xFF) << 8)
+                | (data[frameOffset + 8] & 0xFF);
+    }
+}
@@ -0,0 +1,60 @@
+package com.jcanseco.radio.testutilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManagerFactory;
+
+public class TlsTestingUtilities {
+
+    // A self-signed certificate for 127.0.0.1, generated with:
+    // keytool -genkeypair -alias test-server -keyalg RSA -keysize 2048 -validity 36500 -dname "CN=127.0.0.1"
+    //         -ext SAN=ip:127.0.0.1 -storetype JKS -keystore test-server.jks -storepass password -keypass password
+    private static final String KEY_STORE_FILENAME = "test-server.jks";
+    private static final char[] KEY_STORE_PASSWORD = "password".toCharArray();
+
+    public static SSLContext createServerSslContext() throws IOException, GeneralSecurityException {
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(loadKeyStore(), KEY_STORE_PASSWORD);
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        return sslContext;
+    }
+
+    // Trusts only the test certificate, so the handshake is validated for real.
+    public static SSLContext createClientSslContext() throws IOException, GeneralSecurityException {
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(loadKeyStore());
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+        return sslContext;
+    }
+
+    public static HostnameVerifier createLoopbackHostnameVerifier() {
+        return new HostnameVerifier() {
+            @Override
+            public boolean verify(String hostname, SSLSession session) {
+                return "127.0.0.1".equals(hostname);
+            }
+        };
+    }
+
+    private static KeyStore loadKeyStore() throws IOException, GeneralSecurityException {
+        InputStream inputStream = TlsTestingUtilities.class.getClassLoader().getResourceAsStream(KEY_STORE_FILENAME);
+        try {
+            KeyStore keyStore = KeyStore.getInstance("JKS");
+            keyStore.load(inputStream, KEY_STORE_PASSWORD);
+            return keyStore;
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.jcanseco.radio.tracing;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TraceRingTest {
+
+    private long currentTimeInNanos;
+    private TraceRing traceRing;
+
+    @Before
+    public void setup() {
+        currentTimeInNanos = 5000000;
+        traceRing = createTraceRing(8);
+    }
+
+    @Test
+    public void whenSectionsAreNested_thenTheyConvertToNestedDurationEventsOnTheRecordingThread() throws IOException {
+        traceRing.begin("RadioPlayer.play");
+        currentTimeInNanos += 1500;
+        traceRing.begin("RadioPlayer.prepareExoPlayerForPlayback");
+        currentTimeInNanos += 2000;
+        traceRing.end();
+        traceRing.end();
+
+        String json = exportAsChromeTrace(traceRing);
+
+        assertThat(json).startsWith("{\"traceEvents\":[");
+        assertThat(json).contains("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":\"" + Thread.currentThread().getName() + "\"}}");
+        assertThat(json).contains("{\"name\":\"RadioPlayer.play\",\"ph\":\"B\",\"pid\":1,\"tid\":0,\"ts\":0.000}");
+        assertThat(json).contains("{\"name\":\"RadioPlayer.prepareExoPlayerForPlayback\",\"ph\":\"B\",\"pid\":1,\"tid\":0,\"ts\":1.500}");
+        assertThat(json).endsWith("{\"ph\":\"E\",\"pid\":1,\"tid\":0,\"ts\":3.500},{\"ph\":\"E\",\"pid\":1,\"tid\":0,\"ts\":3.500}]}");
+    }
+
+    @Test
+    public void whenSectionsAreRecordedOnAnotherThread_thenTheyGetAThreadOfTheirOwn() throws Exception {
+        traceRing.begin("main");
+        traceRing.end();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                traceRing.begin("RadioContentLoader.onResponse");
+                traceRing.end();
+            }
+        }, "OkHttp Dispatcher");
+        thread.start();
+        thread.join();
+
+        String json = exportAsChromeTrace(traceRing);
+
+        assertThat(json).contains("\"tid\":1,\"args\":{\"name\":\"OkHttp Dispatcher\"}");
+        assertThat(json).contains("{\"name\":\"RadioContentLoader.onResponse\",\"ph\":\"B\",\"pid\":1,\"tid\":1,");
+    }
+
+    @Test
+    public void whenTheRingWraps_thenOnlyTheMostRecentEventsAreExported() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            traceRing.begin("section" + i);
+            traceRing.end();
+        }
+
+        String json = exportAsChromeTrace(traceRing);
+
+        assertThat(traceRing.getNumOfEventsRecorded()).isEqualTo(10);
+        assertThat(json).doesNotContain("\"name\":\"section0\"");
+        assertThat(json).contains("\"name\":\"section1\"");
+        assertThat(json).contains("\"name\":\"section4\"");
+    }
+
+    @Test
+    public void whenNamesNeedEscaping_thenTheJsonStaysValid() throws IOException {
+        traceRing.begin("say \"hi\"\\");
+        traceRing.end();
+
+        assertThat(exportAsChromeTrace(traceRing)).contains("\"name\":\"say \\\"hi\\\"\\\\\"");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenCapacityIsNotAPowerOfTwo_thenThrow() {
+        createTraceRing(10);
+    }
+
+    @Test(expected = IOException.class)
+    public void whenConvertingSomethingOtherThanAnExport_thenThrow() throws IOException {
+        ChromeTraceConverter.convert(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}), new StringWriter());
+    }
+
+    private TraceRing createTraceRing(int capacity) {
+        return new TraceRing(capacity) {
+            @Override
+            protected long getCurrentTimeInNanos() {
+                return currentTimeInNanos;
+            }
+        };
+    }
+
+    private static String exportAsChromeTrace(TraceRing traceRing) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        traceRing.export(outputStream);
+        StringWriter writer = new StringWriter();
+        ChromeTraceConverter.convert(new ByteArrayInputStream(outputStream.toByteArray()), writer);
+        return writer.toString();
+    }
+}
@@ -1,19 +1,31 @@
 package com.jcanseco.radio.ui.radioplayer;
 
+import com.jcanseco.radio.datausage.DataBudget;
+import com.jcanseco.radio.djwatch.DjWatcher;
 import com.jcanseco.radio.loaders.RadioContentLoader;
+import com.jcanseco.radio.models.Dj;
+import com.jcanseco.radio.models.Track;
+import com.jcanseco.radio.models.TrackTimeText;
 import com.jcanseco.radio.testfakes.FakeRadioContent;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.List;
+
 import static junit.framework.Assert.assertEquals;
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,9 +40,15 @@ public class RadioPlayerPresenterTest {
     @Mock
     private RadioPlayerPresenter.View radioPlayerView;
 
+    @Mock
+    private DataBudget dataBudget;
+
+    @Mock
+    private DjWatcher djWatcher;
+
     @Before
     public void setup() {
-        radioPlayerPresenter = spy(new RadioPlayerPresenter(radioContentLoader));
+        radioPlayerPresenter = spy(new RadioPlayerPresenter(radioContentLoader, dataBudget, djWatcher));
         radioPlayerPresenter.attachView(radioPlayerView);
     }
 
@@ -55,6 +73,13 @@ public class RadioPlayerPresenterTest {
         verify(radioPlayerView).registerFailedToPlayStreamBroadcastReceiver();
     }
 
+    @Test
+    public void onStart_shouldStartTrackProgressTicks() {
+        radioPlayerPresenter.onStart();
+
+        verify(radioPlayerView).startTrackProgressTicks();
+    }
+
     @Test
     public void onResume_shouldStartScheduledLoadingOfRadioContent() {
         radioPlayerPresenter.onResume();
@@ -83,6 +108,13 @@ public class RadioPlayerPresenterTest {
         radioPlayerView.unregisterFailedToPlayStreamBroadcastReceiver();
     }
 
+    @Test
+    public void onStop_shouldStopTrackProgressTicks() {
+        radioPlayerPresenter.onStop();
+
+        verify(radioPlayerView).stopTrackProgressTicks();
+    }
+
     @Test
     public void radioPlayerServiceShouldNotBeConnectedByDefault() {
         assertThat(radioPlayerPresenter.isRadioPlayerServiceConnected()).isFalse();
@@ -122,8 +154,8 @@ public class RadioPlayerPresenterTest {
 
     @Test
     public void onRadioPlayerServiceConnected_shouldIndicateThatServiceIsConnected_regardlessOfWhetherServiceIsCurrentlyPlayingStream() {
-        RadioPlayerPresenter radioPlayerPresenter1 = spy(new RadioPlayerPresenter(mock(RadioContentLoader.class)));
-        RadioPlayerPresenter radioPlayerPresenter2 = spy(new RadioPlayerPresenter(mock(RadioContentLoader.class)));
+        RadioPlayerPresenter radioPlayerPresenter1 = spy(new RadioPlayerPresenter(mock(RadioContentLoader.class), dataBudget, djWatcher));
+        RadioPlayerPresenter radioPlayerPresenter2 = spy(new RadioPlayerPresenter(mock(RadioContentLoader.class), dataBudget, djWatcher));
         radioPlayerPresenter1.attachView(mock(RadioPlayerPresenter.View.class));
         radioPlayerPresenter2.attachView(mock(RadioPlayerPresenter.View.class));
 
@@ -141,6 +173,22 @@ public class RadioPlayerPresenterTest {
         assertThat(radioPlayerPresenter.isRadioPlayerServiceConnected()).isFalse();
     }
 
+    @Test
+    public void onPlaybackStateChanged_ifPlaybackStartedElsewhere_thenShowPauseButton() {
+        radioPlayerPresenter.onPlaybackStateChanged(true);
+
+        verify(radioPlayerView).showPauseButton();
+        assertThat(radioPlayerPresenter.isPlayerPlaying()).isTrue();
+    }
+
+    @Test
+    public void onPlaybackStateChanged_ifAlreadyShowingThatState_thenDoNothing() {
+        radioPlayerPresenter.onPlaybackStateChanged(false);
+
+        verify(radioPlayerView, never()).showPlayButton();
+        verify(radioPlayerView, never()).showPauseButton();
+    }
+
     @Test
     public void playerShouldBePausedByDefault() {
         assertThat(radioPlayerPresenter.isPlayerPlaying()).isFalse();
@@ -312,6 +360,75 @@ public class RadioPlayerPresenterTest {
         verify(radioPlayerView).showNumOfListeners(253);
     }
 
+    @Test
+    public void onRadioContentLoadSuccess_shouldRefreshListenerTrend() {
+        radioPlayerPresenter.onRadioContentLoadSuccess(new FakeRadioContent());
+
+        verify(radioPlayerView).refreshListenerTrend();
+    }
+
+    @Test
+    public void onRadioContentLoadSuccess_shouldShowCurrentTrackProgress() {
+        radioPlayerPresenter.onRadioContentLoadSuccess(new FakeRadioContent());
+
+        verify(radioPlayerView).showTrackProgress(eq(80), eq(222), any(TrackTimeText.class), any(TrackTimeText.class));
+    }
+
+    @Test
+    public void onRadioContentLoadSuccess_shouldShowCurrentDjAvatar() {
+        radioPlayerPresenter.onRadioContentLoadSuccess(new FakeRadioContent());
+
+        verify(radioPlayerView).showCurrentDjAvatar(any(Dj.class));
+    }
+
+    @Test
+    public void onRadioContentLoadSuccess_ifDjHasNotChanged_shouldNotLoadTheirAvatarAgain() {
+        radioPlayerPresenter.onRadioContentLoadSuccess(new FakeRadioContent());
+        radioPlayerPresenter.onRadioContentLoadSuccess(new FakeRadioContent());
+
+        verify(radioPlayerView, times(1)).showCurrentDjAvatar(any(Dj.class));
+    }
+
+    @Test
+    public void onRadioContentLoadSuccess_shouldShowQueuedTracks() {
+        FakeRadioContent radioContent = new FakeRadioContent();
+
+        radioPlayerPresenter.onRadioContentLoadSuccess(radioContent);
+
+        verify(radioPlayerView).showQueuedTracks(anyListOf(Track.class));
+    }
+
+    @Test
+    public void onRadioContentLoadSuccess_shouldShowLastPlayedTracksFromEveryPollSoFar() {
+        radioPlayerPresenter.onRadioContentLoadSuccess(new FakeRadioContent());
+        radioPlayerPresenter.onRadioContentLoadSuccess(new FakeRadioContent());
+
+        ArgumentCaptor<List> lastPlayedTracksCaptor = ArgumentCaptor.forClass(List.class);
+        verify(radioPlayerView, times(2)).showLastPlayedTracks(lastPlayedTracksCaptor.capture());
+        assertThat(lastPlayedTracksCaptor.getValue()).hasSize(10);
+    }
+
+    @Test
+    public void onTrackProgressTickDue_shouldRefreshTrackListTimes() {
+        radioPlayerPresenter.onTrackProgressTickDue();
+
+        verify(radioPlayerView).refreshTrackListTimes();
+    }
+
+    @Test
+    public void onTrackProgressTickDue_beforeAnyContentIsLoaded_shouldHideTrackProgress() {
+        radioPlayerPresenter.onTrackProgressTickDue();
+
+        verify(radioPlayerView).hideTrackProgress();
+    }
+
+    @Test
+    public void onCurrentTrackTitleDisplayed_shouldLetLoaderKnowSoItCanMeasureDisplayLag() {
+        radioPlayerPresenter.onCurrentTrackTitleDisplayed();
+
+        verify(radioContentLoader).onCurrentTrackTitleDisplayed();
+    }
+
     @Test
     public void onRadioContentLoadFailed_shouldShowCouldNotLoadRadioContentErrorMessage() {
         radioPlayerPresenter.onRadioContentLoadFailed();
@@ -339,4 +456,39 @@ public class RadioPlayerPresenterTest {
 
         verify(radioPlayerPresenter).pausePlayer();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void onDataBudgetMenuItemClicked_shouldShowDataBudgetOptionsWithCurrentBudgetAndUsage() {
+        when(dataBudget.getDailyMobileBudgetInBytes()).thenReturn(100L * 1024 * 1024);
+        when(dataBudget.getMobileBytesUsedToday()).thenReturn(4200L);
+
+        radioPlayerPresenter.onDataBudgetMenuItemClicked();
+
+        verify(radioPlayerView).showDataBudgetOptions(RadioPlayerPresenter.DATA_BUDGET_OPTIONS_IN_BYTES, 100L * 1024 * 1024, 4200L);
+    }
+
+    @Test
+    public void onDataBudgetSelected_shouldSetDailyMobileBudget() {
+        radioPlayerPresenter.onDataBudgetSelected(50L * 1024 * 1024);
+
+        verify(dataBudget).setDailyMobileBudgetInBytes(50L * 1024 * 1024);
+    }
+
+    @Test
+    public void onDjWatchMenuItemClicked_ifDjWatchIsDisabled_thenEnableIt() {
+        when(djWatcher.isEnabled()).thenReturn(false);
+
+        radioPlayerPresenter.onDjWatchMenuItemClicked();
+
+        verify(djWatcher).setEnabled(true);
+    }
+
+    @Test
+    public void onDjWatchMenuItemClicked_ifDjWatchIsEnabled_thenDisableIt() {
+        when(djWatcher.isEnabled()).thenReturn(true);
+
+        radioPlayerPresenter.onDjWatchMenuItemClicked();
+
+        verify(djWatcher).setEnabled(false);
+    }
+}
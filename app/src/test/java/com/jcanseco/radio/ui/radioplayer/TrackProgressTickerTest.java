@@ -0,0 +1,136 @@
+package com.jcanseco.radio.ui.radioplayer;
+
+import com.jcanseco.radio.models.NowPlayingTrack;
+import com.jcanseco.radio.models.TrackTimeText;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TrackProgressTickerTest {
+
+    private static final long START_TIME_IN_UNIX_TIME = 1458194205;
+
+    private TrackProgressTicker trackProgressTicker;
+    private RecordingView view;
+    private ClockedNowPlayingTrack track;
+
+    @Before
+    public void setup() {
+        view = new RecordingView();
+        track = new ClockedNowPlayingTrack(START_TIME_IN_UNIX_TIME, START_TIME_IN_UNIX_TIME + 306);
+        track.currentTimeInUnixTime = START_TIME_IN_UNIX_TIME + 15;
+
+        trackProgressTicker = new TrackProgressTicker();
+        trackProgressTicker.setView(view);
+        trackProgressTicker.setTrack(track);
+    }
+
+    @Test
+    public void onTick_shouldShowElapsedAndRemainingTime() {
+        trackProgressTicker.tick();
+
+        assertThat(view.elapsedTimeInSeconds).isEqualTo(15);
+        assertThat(view.lengthInSeconds).isEqualTo(306);
+        assertThat(view.elapsedTimeText).isEqualTo("00:15");
+        assertThat(view.remainingTimeText).isEqualTo("04:51");
+    }
+
+    @Test
+    public void whenTrackRunsPastItsEndTime_thenShowItAsFinished() {
+        track.currentTimeInUnixTime = START_TIME_IN_UNIX_TIME + 400;
+
+        trackProgressTicker.tick();
+
+        assertThat(view.elapsedTimeInSeconds).isEqualTo(306);
+        assertThat(view.remainingTimeText).isEqualTo("00:00");
+    }
+
+    @Test
+    public void whenTrackHasNoValidLength_thenHideProgress() {
+        trackProgressTicker.setTrack(new ClockedNowPlayingTrack(0, 0));
+
+        trackProgressTicker.tick();
+
+        assertThat(view.isHidden).isTrue();
+    }
+
+    @Test
+    public void whenThereIsNoTrackYet_thenHideProgress() {
+        trackProgressTicker.setTrack(null);
+
+        trackProgressTicker.tick();
+
+        assertThat(view.isHidden).isTrue();
+    }
+
+    @Test
+    public void steadyStateTicksShouldNotAllocate() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        view.isRecordingText = false;
+
+        // Warms up the ticker, and finds out what the measurement allocates on its own so it can be left out.
+        tick(10000);
+        long measurementStartBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long measurementAllocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - measurementStartBytes;
+
+        long allocatedBytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        tick(10000);
+        long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytesBefore;
+
+        assertThat(allocatedBytes - measurementAllocatedBytes).isEqualTo(0);
+    }
+
+    private void tick(int count) {
+        for (int i = 0; i < count; i++) {
+            track.currentTimeInUnixTime = START_TIME_IN_UNIX_TIME + i % 306;
+            trackProgressTicker.tick();
+        }
+    }
+
+
+    private static class ClockedNowPlayingTrack extends NowPlayingTrack {
+
+        long currentTimeInUnixTime;
+
+        ClockedNowPlayingTrack(long startTimeInUnixTime, long endTimeInUnixTime) {
+            super("track title", startTimeInUnixTime, endTimeInUnixTime);
+        }
+
+        @Override
+        protected long getCurrentTimeInUnixTime() {
+            return currentTimeInUnixTime;
+        }
+    }
+
+    private static class RecordingView implements TrackProgressTicker.View {
+
+        boolean isRecordingText = true;
+        int elapsedTimeInSeconds;
+        int lengthInSeconds;
+        String elapsedTimeText;
+        String remainingTimeText;
+        boolean isHidden;
+
+        @Override
+        public void showTrackProgress(int elapsedTimeInSeconds, int lengthInSeconds, TrackTimeText elapsedTimeText,
+                                      TrackTimeText remainingTimeText) {
+            this.elapsedTimeInSeconds = elapsedTimeInSeconds;
+            this.lengthInSeconds = lengthInSeconds;
+            if (isRecordingText) {
+                this.elapsedTimeText = elapsedTimeText.toString();
+                this.remainingTimeText = remainingTimeText.toString();
+            }
+            isHidden = false;
+        }
+
+        @Override
+        public void hideTrackProgress() {
+            isHidden = true;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.jcanseco.radio.ui.radioplayer.tracklists;
+
+import com.jcanseco.radio.models.Track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class LastPlayedTrackHistoryTest {
+
+    private LastPlayedTrackHistory lastPlayedTrackHistory = new LastPlayedTrackHistory();
+
+    @Test
+    public void shouldKeepTracksFromEarlierPollsNewestFirst() {
+        lastPlayedTrackHistory.add(Arrays.asList(new Track("c", 3), new Track("b", 2), new Track("a", 1)));
+
+        List<Track> tracks = lastPlayedTrackHistory.add(Arrays.asList(new Track("e", 5), new Track("d", 4), new Track("c", 3)));
+
+        assertThat(getTitles(tracks)).containsExactly("e", "d", "c", "b", "a");
+    }
+
+    @Test
+    public void whenSameSongIsPlayedAgain_thenKeepBothPlays() {
+        lastPlayedTrackHistory.add(Arrays.asList(new Track("a", 1)));
+
+        List<Track> tracks = lastPlayedTrackHistory.add(Arrays.asList(new Track("a", 9), new Track("a", 1)));
+
+        assertThat(tracks).hasSize(2);
+    }
+
+    @Test
+    public void shouldDropTheOldestTracksOnceFull() {
+        List<Track> tracks = new ArrayList<>();
+        for (int i = 0; i <= LastPlayedTrackHistory.MAX_NUM_OF_TRACKS; i++) {
+            tracks = lastPlayedTrackHistory.add(Arrays.asList(new Track("track " + i, i)));
+        }
+
+        assertThat(tracks).hasSize(LastPlayedTrackHistory.MAX_NUM_OF_TRACKS);
+        assertThat(tracks.get(tracks.size() - 1).getTitle()).isEqualTo("track 1");
+    }
+
+    private static List<String> getTitles(List<Track> tracks) {
+        List<String> titles = new ArrayList<>();
+        for (Track track : tracks) {
+            titles.add(track.getTitle());
+        }
+        return titles;
+    }
+}
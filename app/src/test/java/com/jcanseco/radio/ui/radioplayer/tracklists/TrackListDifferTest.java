@@ -0,0 +1,166 @@
+package com.jcanseco.radio.ui.radioplayer.tracklists;
+
+import com.jcanseco.radio.models.Track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TrackListDifferTest {
+
+    private final Track a = new Track("a", 1);
+    private final Track b = new Track("b", 2);
+    private final Track c = new Track("c", 3);
+    private final Track d = new Track("d", 4);
+    private final Track e = new Track("e", 5);
+
+    private final RecordingCallback callback = new RecordingCallback();
+
+    @Test
+    public void whenListsAreTheSame_thenReportNothing() {
+        List<Track> displayedTracks = apply(tracks(a, b, c), tracks(new Track("a", 1), new Track("b", 2), new Track("c", 3)));
+
+        assertThat(callback.operations).isEmpty();
+        assertThat(displayedTracks).containsExactly(a, b, c);
+    }
+
+    @Test
+    public void whenQueueAdvancesByOneTrack_thenRemoveTheFirstAndInsertAtTheEnd() {
+        List<Track> displayedTracks = apply(tracks(a, b, c), tracks(b, c, d));
+
+        assertThat(callback.operations).containsExactly("remove 0", "insert 2");
+        assertThat(displayedTracks).containsExactly(b, c, d);
+    }
+
+    @Test
+    public void whenHistoryGrowsByOneTrack_thenOnlyInsertAtTheTop() {
+        List<Track> displayedTracks = apply(tracks(c, b, a), tracks(d, c, b, a));
+
+        assertThat(callback.operations).containsExactly("insert 0");
+        assertThat(displayedTracks).containsExactly(d, c, b, a);
+    }
+
+    @Test
+    public void whenTrackIsReordered_thenMoveIt() {
+        List<Track> displayedTracks = apply(tracks(a, b, c, d), tracks(a, d, b, c));
+
+        assertThat(callback.operations).containsExactly("move 3 1");
+        assertThat(displayedTracks).containsExactly(a, d, b, c);
+    }
+
+    @Test
+    public void whenListsHaveNothingInCommon_thenReplaceEverything() {
+        List<Track> displayedTracks = apply(tracks(a, b), tracks(c, d, e));
+
+        assertThat(callback.operations).containsExactly("remove 1", "remove 0", "insert 0", "insert 1", "insert 2");
+        assertThat(displayedTracks).containsExactly(c, d, e);
+    }
+
+    @Test
+    public void whenSameSongIsPlayedAgain_thenTreatItAsANewEntry() {
+        Track aPlayedAgain = new Track("a", 6);
+
+        List<Track> displayedTracks = apply(tracks(a, b), tracks(aPlayedAgain, a, b));
+
+        assertThat(callback.operations).containsExactly("insert 0");
+        assertThat(displayedTracks).containsExactly(aPlayedAgain, a, b);
+    }
+
+    @Test
+    public void whenUpdatedListRepeatsAnEntry_thenDisplayedListStillMatchesIt() {
+        List<Track> displayedTracks = apply(tracks(a, b), tracks(a, a));
+
+        assertThat(displayedTracks).hasSize(2);
+        assertThat(displayedTracks.get(1).isSameEntryAs(a)).isTrue();
+        assertThat(callback.size).isEqualTo(2);
+    }
+
+    @Test
+    public void whenQueuedTracksAreExpectedLater_thenOnlyReportTheirTimesChanging() {
+        Track aLater = new Track("a", 11);
+        Track bLater = new Track("b", 12);
+        Track cLater = new Track("c", 13);
+
+        List<Track> displayedTracks = applyToQueue(tracks(a, b, c), tracks(aLater, bLater, cLater));
+
+        assertThat(callback.operations).containsExactly("time 0", "time 1", "time 2");
+        assertThat(displayedTracks).containsExactly(aLater, bLater, cLater);
+    }
+
+    @Test
+    public void whenQueueAdvancesAndItsTimesShift_thenKeepTheRowsThatStayed() {
+        Track bSooner = new Track("b", 1);
+        Track cSooner = new Track("c", 2);
+
+        List<Track> displayedTracks = applyToQueue(tracks(a, b, c), tracks(bSooner, cSooner, d));
+
+        assertThat(callback.operations).containsExactly("remove 0", "time 0", "time 1", "insert 2");
+        assertThat(displayedTracks).containsExactly(bSooner, cSooner, d);
+    }
+
+    @Test
+    public void whenQueueRepeatsASong_thenEachOccurrenceKeepsItsRow() {
+        Track aAgain = new Track("a", 3);
+        Track aLater = new Track("a", 11);
+        Track bLater = new Track("b", 12);
+        Track aAgainLater = new Track("a", 13);
+
+        List<Track> displayedTracks = applyToQueue(tracks(a, b, aAgain), tracks(aLater, bLater, aAgainLater));
+
+        assertThat(callback.operations).containsExactly("time 0", "time 1", "time 2");
+        assertThat(displayedTracks).containsExactly(aLater, bLater, aAgainLater);
+    }
+
+    private List<Track> apply(List<Track> displayedTracks, List<Track> updatedTracks) {
+        callback.size = displayedTracks.size();
+        TrackListDiffer.apply(displayedTracks, updatedTracks, false, callback);
+        return displayedTracks;
+    }
+
+    private List<Track> applyToQueue(List<Track> displayedTracks, List<Track> updatedTracks) {
+        callback.size = displayedTracks.size();
+        TrackListDiffer.apply(displayedTracks, updatedTracks, true, callback);
+        return displayedTracks;
+    }
+
+    private static List<Track> tracks(Track... tracks) {
+        return new ArrayList<>(Arrays.asList(tracks));
+    }
+
+
+    // Tracks the size a RecyclerView would believe the list to be, so the reported operations can't drift from it.
+    private static class RecordingCallback implements TrackListDiffer.Callback {
+
+        final List<String> operations = new ArrayList<>();
+        int size;
+
+        @Override
+        public void onInserted(int position) {
+            assertThat(position).isBetween(0, size);
+            size++;
+            operations.add("insert " + position);
+        }
+
+        @Override
+        public void onRemoved(int position) {
+            assertThat(position).isBetween(0, size - 1);
+            size--;
+            operations.add("remove " + position);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            operations.add("move " + fromPosition + " " + toPosition);
+        }
+
+        @Override
+        public void onTimeChanged(int position) {
+            assertThat(position).isBetween(0, size - 1);
+            operations.add("time " + position);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.jcanseco.radio.watchdog;
+
+import com.jcanseco.radio.flightrecorder.FlightRecorder;
+import com.jcanseco.radio.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class MainThreadWatchdogTest {
+
+    private static final long THRESHOLD_IN_MILLIS = 200;
+
+    private static final StackTraceElement[] BIND_SERVICE_STACK = {
+            new StackTraceElement("android.os.BinderProxy", "transactNative", null, -2),
+            new StackTraceElement("android.app.ContextImpl", "bindService", "ContextImpl.java", 1200),
+            new StackTraceElement("com.jcanseco.radio.ui.radioplayer.RadioPlayerActivity", "bindToRadioPlayerService", "RadioPlayerActivity.java", 140),
+            new StackTraceElement("com.jcanseco.radio.ui.radioplayer.RadioPlayerPresenter", "onStart", "RadioPlayerPresenter.java", 39),
+            new StackTraceElement("com.jcanseco.radio.ui.radioplayer.RadioPlayerActivity", "onStart", "RadioPlayerActivity.java", 112),
+            new StackTraceElement("android.app.Activity", "performStart", "Activity.java", 6000),
+    };
+
+    private static final StackTraceElement[] FRAMEWORK_ONLY_STACK = {
+            new StackTraceElement("android.view.View", "draw", "View.java", 15000),
+            new StackTraceElement("android.view.ViewRootImpl", "performDraw", "ViewRootImpl.java", 2500),
+    };
+
+    private MetricsRegistry metricsRegistry;
+    private FlightRecorder flightRecorder;
+    private MainThreadWatchdog mainThreadWatchdog;
+
+    private long uptimeMillis;
+    private StackTraceElement[] mainThreadStack;
+    private int numOfStacksCaptured;
+    private boolean isDispatchFinishedWhileCapturing;
+
+    @Before
+    public void setup() {
+        metricsRegistry = new MetricsRegistry();
+        flightRecorder = new FlightRecorder(ByteBuffer.allocate(FlightRecorder.getSizeInBytes(16)));
+        mainThreadStack = BIND_SERVICE_STACK;
+        mainThreadWatchdog = new MainThreadWatchdog(THRESHOLD_IN_MILLIS, flightRecorder, metricsRegistry) {
+            @Override
+            protected StackTraceElement[] captureMainThreadStack() {
+                numOfStacksCaptured++;
+                if (isDispatchFinishedWhileCapturing) {
+                    mainThreadWatchdog.println("<<<<< Finished to Handler");
+                }
+                return mainThreadStack;
+            }
+
+            @Override
+            protected long getUptimeMillis() {
+                return uptimeMillis;
+            }
+        };
+    }
+
+    @Test
+    public void whenDispatchesAreFast_thenNeverCaptureTheStack() {
+        for (int i = 0; i < 100; i++) {
+            dispatch(THRESHOLD_IN_MILLIS / 2);
+        }
+
+        assertThat(numOfStacksCaptured).isEqualTo(0);
+        assertThat(metricsRegistry.counter("main_thread.stalls").get()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenDispatchRunsPastThreshold_thenCaptureStackOnceAndRecordStall() {
+        mainThreadWatchdog.println(">>>>> Dispatching to Handler (android.app.ActivityThread$H) {1} null: 100");
+        uptimeMillis += THRESHOLD_IN_MILLIS + 50;
+        mainThreadWatchdog.onCheckDue();
+        uptimeMillis += 100;
+        mainThreadWatchdog.onCheckDue();
+        mainThreadWatchdog.println("<<<<< Finished to Handler (android.app.ActivityThread$H) {1} null");
+
+        assertThat(numOfStacksCaptured).isEqualTo(1);
+        assertThat(metricsRegistry.counter("main_thread.stalls").get()).isEqualTo(1);
+        assertThat(metricsRegistry.histogram("main_thread.stall_ms").getMax()).isEqualTo(THRESHOLD_IN_MILLIS + 150);
+        assertThat(exportFlightRecorder()).contains("MAIN_THREAD_STALL stalled_ms=250 RadioPlayerActivity.bindToRadioPlayerService:140");
+    }
+
+    @Test
+    public void whenDispatchFinishesWhileStackIsCaptured_thenRecordNoStall() {
+        isDispatchFinishedWhileCapturing = true;
+        mainThreadWatchdog.println(">>>>> Dispatching to Handler");
+        uptimeMillis += THRESHOLD_IN_MILLIS + 50;
+
+        mainThreadWatchdog.onCheckDue();
+
+        assertThat(numOfStacksCaptured).isEqualTo(1);
+        assertThat(metricsRegistry.counter("main_thread.stalls").get()).isEqualTo(0);
+        assertThat(exportFlightRecorder()).doesNotContain("MAIN_THREAD_STALL");
+        assertThat(dumpState()).doesNotContain("stalls");
+    }
+
+    @Test
+    public void whenSameCallSiteStallsRepeatedly_thenStallsAreAggregatedUnderOneSignature() {
+        stall(300);
+        stall(500);
+
+        String dump = dumpState();
+        assertThat(dump).contains("2 stalls, longest 500 ms: RadioPlayerActivity.bindToRadioPlayerService:140 < "
+                + "RadioPlayerPresenter.onStart:39 < RadioPlayerActivity.onStart:112 < Activity.performStart:6000");
+        assertThat(dump).contains("at android.app.ContextImpl.bindService(ContextImpl.java:1200)");
+    }
+
+    @Test
+    public void whenStackHasNoAppFrames_thenSignatureStartsAtTheTop() {
+        assertThat(MainThreadWatchdog.getSignature(FRAMEWORK_ONLY_STACK)).isEqualTo("View.draw:15000 < ViewRootImpl.performDraw:2500");
+    }
+
+    private void dispatch(long durationInMillis) {
+        mainThreadWatchdog.println(">>>>> Dispatching to Handler");
+        uptimeMillis += durationInMillis;
+        mainThreadWatchdog.onCheckDue();
+        mainThreadWatchdog.println("<<<<< Finished to Handler");
+    }
+
+    private void stall(long durationInMillis) {
+        dispatch(durationInMillis);
+        uptimeMillis += 1000;
+    }
+
+    private String exportFlightRecorder() {
+        StringWriter writer = new StringWriter();
+        flightRecorder.export(new PrintWriter(writer), 0);
+        return writer.toString();
+    }
+
+    private String dumpState() {
+        StringWriter writer = new StringWriter();
+        mainThreadWatchdog.dumpState(new PrintWriter(writer));
+        return writer.toString();
+    }
+}